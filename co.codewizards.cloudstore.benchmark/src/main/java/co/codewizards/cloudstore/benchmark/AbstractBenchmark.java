@@ -0,0 +1,104 @@
+package co.codewizards.cloudstore.benchmark;
+
+import static co.codewizards.cloudstore.core.oio.OioFileFactory.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import co.codewizards.cloudstore.core.config.ConfigDir;
+import co.codewizards.cloudstore.core.dto.Uid;
+import co.codewizards.cloudstore.core.oio.File;
+import co.codewizards.cloudstore.core.repo.local.LocalRepoManager;
+import co.codewizards.cloudstore.core.repo.local.LocalRepoManagerFactory;
+import co.codewizards.cloudstore.core.util.IOUtil;
+
+/**
+ * Base class of all benchmarks.
+ * <p>
+ * Every benchmark runs in a JVM forked by JMH. This class makes sure, this JVM uses its own config directory
+ * (instead of the user's) and a small key size (the key generation is not what we want to measure).
+ * <p>
+ * The data is generated with a fixed seed, so that all runs of a benchmark work on comparable data.
+ */
+public abstract class AbstractBenchmark {
+
+	protected static final String jvmInstanceDir;
+
+	static {
+		final Uid jvmInstanceId = new Uid();
+		jvmInstanceDir = "target/jvm/" + jvmInstanceId;
+		final String configDirString = jvmInstanceDir + "/.cloudstore";
+		System.setProperty(ConfigDir.SYSTEM_PROPERTY_CONFIG_DIR, configDirString);
+		System.setProperty(LocalRepoManager.SYSTEM_PROPERTY_KEY_SIZE, "1024");
+
+		createFile(configDirString).mkdirs();
+	}
+
+	protected final Random random = new Random(4711);
+	protected final LocalRepoManagerFactory localRepoManagerFactory = LocalRepoManagerFactory.Helper.getInstance();
+
+	protected File newRepositoryLocalRoot(final String suffix) {
+		final long timestamp = System.currentTimeMillis();
+		final int randomNumber = new Random().nextInt(BigInteger.valueOf(36).pow(5).intValue());
+		final String repoName = Long.toString(timestamp, 36) + '-' + Integer.toString(randomNumber, 36) + '-' + suffix;
+		final File localRoot = createFile(createFile(jvmInstanceDir), "repo", repoName).getAbsoluteFile();
+		if (!localRoot.mkdirs())
+			throw new IllegalStateException("Could not create directory: " + localRoot);
+
+		return localRoot;
+	}
+
+	protected static URL getUrl(final File file) {
+		try {
+			return file.toURI().toURL();
+		} catch (final MalformedURLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Creates a tree with {@code directoryCount} directories (nested up to 3 levels deep) directly or indirectly
+	 * inside {@code root}, each containing {@code fileCountPerDirectory} files of {@code fileLength} bytes.
+	 * @return all files created. Never <code>null</code>.
+	 */
+	protected List<File> createFileTree(final File root, final int directoryCount, final int fileCountPerDirectory, final int fileLength) throws IOException {
+		final List<File> directories = new ArrayList<File>(directoryCount);
+		final List<File> files = new ArrayList<File>(directoryCount * fileCountPerDirectory);
+		for (int i = 0; i < directoryCount; ++i) {
+			final File parent = directories.isEmpty() || i % 4 == 0 ? root : directories.get(random.nextInt(directories.size()));
+			final File dir = createFile(parent, "d" + i);
+			if (!dir.mkdir())
+				throw new IOException("Could not create directory: " + dir);
+
+			directories.add(dir);
+			for (int j = 0; j < fileCountPerDirectory; ++j)
+				files.add(createFileWithRandomContent(createFile(dir, "f" + j), fileLength));
+		}
+		return files;
+	}
+
+	protected File createFileWithRandomContent(final File file, final long length) throws IOException {
+		final byte[] buf = new byte[(int) Math.min(64 * 1024, Math.max(1, length))];
+		try (OutputStream out = file.createOutputStream();) {
+			long remaining = length;
+			while (remaining > 0) {
+				random.nextBytes(buf);
+				final int len = (int) Math.min(buf.length, remaining);
+				out.write(buf, 0, len);
+				remaining -= len;
+			}
+		}
+		return file;
+	}
+
+	protected static void deleteRepository(final File localRoot) {
+		if (localRoot != null)
+			IOUtil.deleteDirectoryRecursively(localRoot);
+	}
+}
@@ -0,0 +1,146 @@
+package co.codewizards.cloudstore.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import co.codewizards.cloudstore.core.dto.ChangeSetDto;
+import co.codewizards.cloudstore.core.dto.DeleteModificationDto;
+import co.codewizards.cloudstore.core.dto.DirectoryDto;
+import co.codewizards.cloudstore.core.dto.FileChunkDto;
+import co.codewizards.cloudstore.core.dto.ModificationDto;
+import co.codewizards.cloudstore.core.dto.NormalFileDto;
+import co.codewizards.cloudstore.core.dto.RepoFileDto;
+import co.codewizards.cloudstore.core.dto.RepositoryDto;
+import co.codewizards.cloudstore.core.dto.jaxb.ChangeSetDtoIo;
+import co.codewizards.cloudstore.core.util.HashUtil;
+
+/**
+ * Measures the JAXB (un)marshalling of a large {@link ChangeSetDto} via {@link ChangeSetDtoIo} - this is what
+ * is transferred at the beginning of every sync (with the same {@code JAXBContext}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class ChangeSetDtoIoBenchmark {
+
+	@Param({ "1000", "100000" })
+	public int repoFileCount;
+
+	private final ChangeSetDtoIo changeSetDtoIo = new ChangeSetDtoIo();
+	private ChangeSetDto changeSetDto;
+	private byte[] serialized;
+	private byte[] serializedWithGz;
+
+	@Setup
+	public void setUp() {
+		final Random random = new Random(4711);
+		changeSetDto = createChangeSetDto(random);
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		changeSetDtoIo.serialize(changeSetDto, out);
+		serialized = out.toByteArray();
+
+		final ByteArrayOutputStream gzOut = new ByteArrayOutputStream();
+		changeSetDtoIo.serializeWithGz(changeSetDto, gzOut);
+		serializedWithGz = gzOut.toByteArray();
+	}
+
+	private ChangeSetDto createChangeSetDto(final Random random) {
+		final RepositoryDto repositoryDto = new RepositoryDto();
+		repositoryDto.setRepositoryId(UUID.randomUUID());
+		repositoryDto.setRevision(repoFileCount);
+
+		final List<RepoFileDto> repoFileDtos = new ArrayList<RepoFileDto>(repoFileCount);
+		final byte[] sha1Buf = new byte[20];
+		long id = 0;
+		for (int i = 0; i < repoFileCount; ++i) {
+			final RepoFileDto repoFileDto;
+			if (i % 50 == 0)
+				repoFileDto = new DirectoryDto();
+			else {
+				final NormalFileDto normalFileDto = new NormalFileDto();
+				final int chunkCount = 1 + random.nextInt(4);
+				final List<FileChunkDto> fileChunkDtos = new ArrayList<FileChunkDto>(chunkCount);
+				for (int c = 0; c < chunkCount; ++c) {
+					final FileChunkDto fileChunkDto = new FileChunkDto();
+					fileChunkDto.setOffset(c * 1024L * 1024L);
+					fileChunkDto.setLength(1024 * 1024);
+					random.nextBytes(sha1Buf);
+					fileChunkDto.setSha1(HashUtil.encodeHexStr(sha1Buf));
+					fileChunkDtos.add(fileChunkDto);
+				}
+				normalFileDto.setFileChunkDtos(fileChunkDtos);
+				normalFileDto.setLength(chunkCount * 1024L * 1024L);
+				random.nextBytes(sha1Buf);
+				normalFileDto.setSha1(HashUtil.encodeHexStr(sha1Buf));
+				repoFileDto = normalFileDto;
+			}
+			repoFileDto.setId(++id);
+			repoFileDto.setParentId(i == 0 ? null : Long.valueOf(1 + (i / 50) * 50));
+			repoFileDto.setName("file-" + Integer.toString(random.nextInt(), 36));
+			repoFileDto.setLocalRevision(i);
+			repoFileDto.setLastModified(new Date(1400000000000L + random.nextInt()));
+			repoFileDtos.add(repoFileDto);
+		}
+
+		final List<ModificationDto> modificationDtos = new ArrayList<ModificationDto>(repoFileCount / 10);
+		for (int i = 0; i < repoFileCount / 10; ++i) {
+			final DeleteModificationDto deleteModificationDto = new DeleteModificationDto();
+			deleteModificationDto.setId(++id);
+			deleteModificationDto.setLocalRevision(i);
+			deleteModificationDto.setPath("/deleted/dir-" + (i % 100) + "/file-" + i);
+			modificationDtos.add(deleteModificationDto);
+		}
+
+		final ChangeSetDto changeSetDto = new ChangeSetDto();
+		changeSetDto.setRepositoryDto(repositoryDto);
+		changeSetDto.setRepoFileDtos(repoFileDtos);
+		changeSetDto.setModificationDtos(modificationDtos);
+		return changeSetDto;
+	}
+
+	@Benchmark
+	public byte[] serialize() {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(serialized.length);
+		changeSetDtoIo.serialize(changeSetDto, out);
+		return out.toByteArray();
+	}
+
+	@Benchmark
+	public ChangeSetDto deserialize() {
+		return changeSetDtoIo.deserialize(new ByteArrayInputStream(serialized));
+	}
+
+	@Benchmark
+	public byte[] serializeWithGz() {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(serializedWithGz.length);
+		changeSetDtoIo.serializeWithGz(changeSetDto, out);
+		return out.toByteArray();
+	}
+
+	@Benchmark
+	public ChangeSetDto deserializeWithGz() {
+		return changeSetDtoIo.deserializeWithGz(new ByteArrayInputStream(serializedWithGz));
+	}
+}
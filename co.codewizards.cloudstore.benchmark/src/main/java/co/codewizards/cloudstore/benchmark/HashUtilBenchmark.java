@@ -0,0 +1,48 @@
+package co.codewizards.cloudstore.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import co.codewizards.cloudstore.core.util.HashUtil;
+
+/**
+ * Measures the SHA1 computation of {@link HashUtil}, which is used for every file (and every chunk) synced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class HashUtilBenchmark {
+
+	@Param({ "1024", "1048576", "16777216" })
+	public int length;
+
+	private byte[] data;
+
+	@Setup
+	public void setUp() {
+		data = new byte[length];
+		new Random(4711).nextBytes(data);
+	}
+
+	@Benchmark
+	public String sha1() throws IOException {
+		return HashUtil.sha1(new ByteArrayInputStream(data));
+	}
+}
@@ -0,0 +1,88 @@
+package co.codewizards.cloudstore.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import co.codewizards.cloudstore.core.oio.File;
+import co.codewizards.cloudstore.core.progress.NullProgressMonitor;
+import co.codewizards.cloudstore.core.repo.local.LocalRepoManager;
+import co.codewizards.cloudstore.local.LocalRepoSync;
+
+/**
+ * Measures {@link LocalRepoSync} (via {@link LocalRepoManager#localSync(co.codewizards.cloudstore.core.progress.ProgressMonitor)})
+ * over a generated tree.
+ * <p>
+ * {@link #localSyncUnchanged()} shows the cost of detecting that nothing changed - this is what happens most of
+ * the time. {@link #localSyncModified(Modification)} additionally touches every 100th file, forcing it to be hashed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LocalRepoSyncBenchmark extends AbstractBenchmark {
+
+	@Param({ "1000", "10000" })
+	public int fileCount;
+
+	@Param({ "4096" })
+	public int fileLength;
+
+	private File localRoot;
+	private LocalRepoManager localRepoManager;
+	private List<File> files;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		localRoot = newRepositoryLocalRoot("local");
+		files = createFileTree(localRoot, Math.max(1, fileCount / 100), 100, fileLength);
+		localRepoManager = localRepoManagerFactory.createLocalRepoManagerForNewRepository(localRoot);
+		localRepoManager.localSync(new NullProgressMonitor());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (localRepoManager != null)
+			localRepoManager.close();
+
+		deleteRepository(localRoot);
+	}
+
+	@State(Scope.Thread)
+	public static class Modification {
+		private long lastModified = System.currentTimeMillis();
+
+		@Setup(Level.Invocation)
+		public void touchFiles(final LocalRepoSyncBenchmark benchmark) {
+			lastModified += 2000;
+			for (int i = 0; i < benchmark.files.size(); i += 100)
+				benchmark.files.get(i).setLastModified(lastModified);
+		}
+	}
+
+	@Benchmark
+	public void localSyncUnchanged() {
+		localRepoManager.localSync(new NullProgressMonitor());
+	}
+
+	@Benchmark
+	public void localSyncModified(final Modification modification) {
+		localRepoManager.localSync(new NullProgressMonitor());
+	}
+}
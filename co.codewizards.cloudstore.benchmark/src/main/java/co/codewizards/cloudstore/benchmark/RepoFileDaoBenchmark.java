@@ -0,0 +1,92 @@
+package co.codewizards.cloudstore.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import co.codewizards.cloudstore.core.oio.File;
+import co.codewizards.cloudstore.core.progress.NullProgressMonitor;
+import co.codewizards.cloudstore.core.repo.local.LocalRepoManager;
+import co.codewizards.cloudstore.core.repo.local.LocalRepoTransaction;
+import co.codewizards.cloudstore.local.persistence.RepoFile;
+import co.codewizards.cloudstore.local.persistence.RepoFileDao;
+
+/**
+ * Measures {@link RepoFileDao#getRepoFile(File, File)} - the path-to-entity lookup done for nearly every file
+ * touched by a sync.
+ * <p>
+ * One read transaction is used per iteration, because this is how the lookup is used in practice: Many lookups
+ * within one transaction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RepoFileDaoBenchmark extends AbstractBenchmark {
+
+	@Param({ "10000" })
+	public int fileCount;
+
+	private File localRoot;
+	private LocalRepoManager localRepoManager;
+	private List<File> files;
+	private LocalRepoTransaction transaction;
+	private RepoFileDao repoFileDao;
+	private int fileIndex;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		localRoot = newRepositoryLocalRoot("local");
+		files = createFileTree(localRoot, Math.max(1, fileCount / 100), 100, 1);
+		localRepoManager = localRepoManagerFactory.createLocalRepoManagerForNewRepository(localRoot);
+		localRepoManager.localSync(new NullProgressMonitor());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (localRepoManager != null)
+			localRepoManager.close();
+
+		deleteRepository(localRoot);
+	}
+
+	@Setup(Level.Iteration)
+	public void beginTransaction() {
+		transaction = localRepoManager.beginReadTransaction();
+		repoFileDao = transaction.getDao(RepoFileDao.class);
+	}
+
+	@TearDown(Level.Iteration)
+	public void endTransaction() {
+		transaction.commit();
+		transaction = null;
+		repoFileDao = null;
+	}
+
+	@Benchmark
+	public RepoFile getRepoFile() {
+		// Walking through the files with a large prime as step width visits them in a cache-unfriendly order.
+		fileIndex = (fileIndex + 7919) % files.size();
+		final RepoFile repoFile = repoFileDao.getRepoFile(localRoot, files.get(fileIndex));
+		if (repoFile == null)
+			throw new IllegalStateException("RepoFile not found: " + files.get(fileIndex));
+
+		return repoFile;
+	}
+}
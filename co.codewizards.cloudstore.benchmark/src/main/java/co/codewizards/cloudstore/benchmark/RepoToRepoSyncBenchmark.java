@@ -0,0 +1,95 @@
+package co.codewizards.cloudstore.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import co.codewizards.cloudstore.core.oio.File;
+import co.codewizards.cloudstore.core.progress.NullProgressMonitor;
+import co.codewizards.cloudstore.core.repo.local.LocalRepoManager;
+import co.codewizards.cloudstore.core.repo.sync.RepoToRepoSync;
+import co.codewizards.cloudstore.local.transport.FileRepoTransport;
+
+/**
+ * Measures a full {@link RepoToRepoSync} between two local repositories, connected via
+ * {@link FileRepoTransport} (i.e. a "file:" URL - no REST and no network involved).
+ * <p>
+ * Every invocation works on 2 new repositories. In the scenario "initial", the whole tree is transferred into the
+ * empty remote repository. In the scenario "modified", the tree was already synced and every 10th file was
+ * overwritten before the measured sync.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RepoToRepoSyncBenchmark extends AbstractBenchmark {
+
+	@Param({ "1000" })
+	public int fileCount;
+
+	@Param({ "16384", "4194304" })
+	public int fileLength;
+
+	@Param({ "initial", "modified" })
+	public String scenario;
+
+	private File localRoot;
+	private File remoteRoot;
+	private List<File> files;
+
+	@Setup(Level.Invocation)
+	public void setUp() throws IOException {
+		localRoot = newRepositoryLocalRoot("local");
+		remoteRoot = newRepositoryLocalRoot("remote");
+
+		// Large files are fewer - otherwise the tree becomes too big.
+		final int effectiveFileCount = (int) Math.max(10, Math.min(fileCount, 1024L * 1024L * 1024L / fileLength));
+		files = createFileTree(localRoot, Math.max(1, effectiveFileCount / 10), 10, fileLength);
+
+		try (
+				final LocalRepoManager localRepoManagerLocal = localRepoManagerFactory.createLocalRepoManagerForNewRepository(localRoot);
+				final LocalRepoManager localRepoManagerRemote = localRepoManagerFactory.createLocalRepoManagerForNewRepository(remoteRoot);
+		) {
+			localRepoManagerLocal.putRemoteRepository(localRepoManagerRemote.getRepositoryId(), getUrl(remoteRoot), localRepoManagerRemote.getPublicKey(), "");
+			localRepoManagerRemote.putRemoteRepository(localRepoManagerLocal.getRepositoryId(), null, localRepoManagerLocal.getPublicKey(), "");
+			localRepoManagerLocal.localSync(new NullProgressMonitor());
+		}
+
+		if ("modified".equals(scenario)) {
+			sync();
+			for (int i = 0; i < files.size(); i += 10) {
+				final File file = files.get(i);
+				createFileWithRandomContent(file, file.length());
+			}
+		}
+	}
+
+	@TearDown(Level.Invocation)
+	public void tearDown() {
+		deleteRepository(localRoot);
+		deleteRepository(remoteRoot);
+	}
+
+	@Benchmark
+	public void sync() {
+		try (final RepoToRepoSync repoToRepoSync = RepoToRepoSync.create(localRoot, getUrl(remoteRoot));) {
+			repoToRepoSync.sync(new NullProgressMonitor());
+		}
+	}
+}
@@ -47,6 +47,7 @@ public class CloudStoreClient {
 				DropRepoAliasSubCommand.class,
 				DropRepoConnectionSubCommand.class,
 				HelpSubCommand.class,
+				MigrateDatabaseSubCommand.class,
 				RepairDatabaseSubCommand.class,
 				RepoInfoSubCommand.class,
 				RepoListSubCommand.class,
@@ -0,0 +1,45 @@
+package co.codewizards.cloudstore.client;
+
+import org.kohsuke.args4j.Option;
+
+import co.codewizards.cloudstore.local.MigrateDatabase;
+
+/**
+ * {@link SubCommand} implementation for migrating a repository's database to another database engine.
+ */
+public class MigrateDatabaseSubCommand extends SubCommandWithExistingLocalRepo
+{
+	@Option(name="-databaseAdapter", metaVar="<name>", required=true, usage="The name of the database adapter to migrate to - e.g. 'h2' or 'derby'.")
+	private String databaseAdapterName;
+
+	private MigrateDatabase migrateDatabase;
+	private RepoInfoSubCommand repoInfoSubCommand;
+
+	public MigrateDatabaseSubCommand() { }
+
+	@Override
+	public String getSubCommandDescription() {
+		return "Copy the repository's database into a new database of another type (e.g. from Derby to H2). The old database is kept as backup. The repository must not be in use.";
+	}
+
+	@Override
+	public void prepare() throws Exception {
+		super.prepare();
+		migrateDatabase = new MigrateDatabase(localRoot, databaseAdapterName);
+
+		repoInfoSubCommand = new RepoInfoSubCommand(localRoot);
+		repoInfoSubCommand.prepare();
+	}
+
+	@Override
+	public void run() throws Exception {
+		migrateDatabase.run();
+		repoInfoSubCommand.run();
+	}
+
+	@Override
+	public void cleanUp() throws Exception {
+		repoInfoSubCommand.cleanUp();
+		super.cleanUp();
+	}
+}
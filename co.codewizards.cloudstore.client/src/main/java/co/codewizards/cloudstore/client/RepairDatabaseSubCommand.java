@@ -16,7 +16,7 @@ public class RepairDatabaseSubCommand extends SubCommandWithExistingLocalRepo
 
 	@Override
 	public String getSubCommandDescription() {
-		return "Check and repair the Derby database.";
+		return "Check and repair the database.";
 	}
 
 	@Override
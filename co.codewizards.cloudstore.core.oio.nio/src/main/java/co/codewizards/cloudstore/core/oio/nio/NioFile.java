@@ -7,9 +7,12 @@ import java.io.FileFilter;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
@@ -25,6 +28,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import co.codewizards.cloudstore.core.oio.File;
+import co.codewizards.cloudstore.core.oio.FileAttributes;
 import co.codewizards.cloudstore.core.oio.IoFile;
 import co.codewizards.cloudstore.core.util.childprocess.DumpStreamThread;
 
@@ -84,6 +88,54 @@ public class NioFile extends IoFile implements File {
 		return NioFileUtil.convert(ioFilesListFiles);
 	}
 
+	@Override
+	public FileAttributes[] listFilesWithAttributes(final FilenameFilter filenameFilter) {
+		final List<FileAttributes> result = new ArrayList<>();
+		try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(ioFile.toPath());) {
+			for (final Path childPath : directoryStream) {
+				final String childName = childPath.getFileName().toString();
+				if (filenameFilter != null && !filenameFilter.accept(ioFile, childName))
+					continue;
+
+				final NioFile childFile = new NioFile(childPath.toFile());
+				try {
+					final BasicFileAttributes attributes = Files.readAttributes(childPath, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+					result.add(toFileAttributes(childFile, attributes));
+				} catch (final NoSuchFileException x) {
+					continue; // deleted in the meantime => skip it.
+				} catch (final IOException x) {
+					logger.warn("listFilesWithAttributes: Reading attributes failed: " + childPath, x);
+					result.add(FileAttributes.unreadable(childFile));
+				}
+			}
+		} catch (final NotDirectoryException | NoSuchFileException x) {
+			return null; // be compatible with listFiles(...) - this is not a directory (anymore).
+		} catch (final IOException x) {
+			throw new RuntimeException(x);
+		} catch (final DirectoryIteratorException x) {
+			throw new RuntimeException(x.getCause());
+		}
+		return result.toArray(new FileAttributes[result.size()]);
+	}
+
+	@Override
+	public FileAttributes readAttributesNoFollow() {
+		try {
+			final BasicFileAttributes attributes = Files.readAttributes(
+					ioFile.toPath(), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+			return toFileAttributes(this, attributes);
+		} catch (final NoSuchFileException x) {
+			return null;
+		} catch (final IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static FileAttributes toFileAttributes(final File file, final BasicFileAttributes attributes) {
+		return new FileAttributes(file, attributes.isSymbolicLink(), attributes.isDirectory(), attributes.isRegularFile(),
+				attributes.size(), attributes.lastModifiedTime().toMillis());
+	}
+
 	@Override
 	public File getAbsoluteFile() {
 		return new NioFile(ioFile.getAbsoluteFile());
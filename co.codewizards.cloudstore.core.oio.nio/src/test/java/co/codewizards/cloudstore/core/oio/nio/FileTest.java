@@ -2,11 +2,14 @@ package co.codewizards.cloudstore.core.oio.nio;
 
 import static org.assertj.core.api.Assertions.*;
 
+import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
@@ -19,6 +22,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
 import co.codewizards.cloudstore.core.oio.File;
+import co.codewizards.cloudstore.core.oio.FileAttributes;
 import co.codewizards.cloudstore.core.oio.FileFactory;
 import co.codewizards.cloudstore.core.oio.IoFileFactory;
 import co.codewizards.cloudstore.core.oio.nio.NioFileFactory;
@@ -441,6 +445,50 @@ public class FileTest {
 	}
 
 
+	@Test
+	public void listFilesWithAttributes() throws IOException {
+		final File root = fileFactory.createTempDirectory("root");
+
+		final File childDir = fileFactory.createFile(root, "childDir");
+		assertThat(childDir.mkdir()).isTrue();
+
+		final File childFile = fileFactory.createFile(root, "childFile");
+		try (OutputStream out = childFile.createOutputStream();) {
+			out.write(new byte[] { 1, 2, 3 });
+		}
+
+		final File skippedFile = fileFactory.createFile(root, "skippedFile");
+		assertThat(skippedFile.createNewFile()).isTrue();
+
+		final FileAttributes[] children = root.listFilesWithAttributes(new FilenameFilter() {
+			@Override
+			public boolean accept(final java.io.File dir, final String name) {
+				return !"skippedFile".equals(name);
+			}
+		});
+		assertThat(children).hasSize(2);
+		Arrays.sort(children, new Comparator<FileAttributes>() {
+			@Override
+			public int compare(final FileAttributes o1, final FileAttributes o2) {
+				return o1.getFile().getName().compareTo(o2.getFile().getName());
+			}
+		});
+
+		assertThat(children[0].getFile()).isEqualTo(childDir);
+		assertThat(children[0].isDirectory()).isTrue();
+		assertThat(children[0].isRegularFile()).isFalse();
+		assertThat(children[0].isSymbolicLink()).isFalse();
+
+		assertThat(children[1].getFile()).isEqualTo(childFile);
+		assertThat(children[1].isDirectory()).isFalse();
+		assertThat(children[1].isRegularFile()).isTrue();
+		assertThat(children[1].getLength()).isEqualTo(3);
+		assertThat(children[1].getLastModifiedNoFollow()).isEqualTo(childFile.getLastModifiedNoFollow());
+
+		assertThat(childFile.listFilesWithAttributes(null)).isNull();
+		assertThat(fileFactory.createFile(root, "notExisting").readAttributesNoFollow()).isNull();
+	}
+
 	private void compareAttributes(final File source, final File target) {
 		assertThat(source.isDirectory()).isEqualTo(target.isDirectory());
 		assertThat(source.isFile()).isEqualTo(target.isFile());
@@ -10,6 +10,7 @@ public class ChangeSetDto {
 	private RepositoryDto repositoryDto;
 	private List<ModificationDto> modificationDtos;
 	private List<RepoFileDto> repoFileDtos;
+	private String cursor;
 
 	public RepositoryDto getRepositoryDto() {
 		return repositoryDto;
@@ -38,11 +39,25 @@ public class ChangeSetDto {
 		this.repoFileDtos = repoFileDtos;
 	}
 
+	/**
+	 * Gets the opaque token referencing the next page of the change-set.
+	 * @return the token to be passed to {@link co.codewizards.cloudstore.core.repo.transport.RepoTransport#getChangeSetDto(boolean, String)
+	 * RepoTransport.getChangeSetDto(boolean, String)} in order to obtain the next page. <code>null</code>, if this is
+	 * the last (or only) page.
+	 */
+	public String getCursor() {
+		return cursor;
+	}
+	public void setCursor(String cursor) {
+		this.cursor = cursor;
+	}
+
 	@Override
 	public String toString() {
 		return this.getClass().getSimpleName() + "[repositoryDto=" + repositoryDto
 				+ ", repoFileDtos=" + repoFileDtos
 				+ ", modificationDtos=" + modificationDtos
+				+ ", cursor=" + cursor
 				+ "]";
 	}
 }
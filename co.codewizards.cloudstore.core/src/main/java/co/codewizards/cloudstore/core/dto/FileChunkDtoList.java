@@ -0,0 +1,26 @@
+package co.codewizards.cloudstore.core.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+@XmlRootElement
+public class FileChunkDtoList {
+	private List<FileChunkDto> fileChunkDtos;
+
+	public List<FileChunkDto> getFileChunkDtos() {
+		if (fileChunkDtos == null)
+			fileChunkDtos = new ArrayList<FileChunkDto>();
+
+		return fileChunkDtos;
+	}
+	public void setFileChunkDtos(List<FileChunkDto> fileChunkDtos) {
+		this.fileChunkDtos = fileChunkDtos;
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + "[fileChunkDtos=" + fileChunkDtos + "]";
+	}
+}
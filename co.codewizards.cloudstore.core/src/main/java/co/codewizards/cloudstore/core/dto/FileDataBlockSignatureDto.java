@@ -0,0 +1,47 @@
+package co.codewizards.cloudstore.core.dto;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Signature of one block of a {@link FileDataSignatureDto}.
+ * <p>
+ * The {@link #getRollingChecksum() rollingChecksum} is cheap to compute for every position in the source
+ * file and is used to find candidates. Only if it matches, the {@link #getSha1() sha1} is compared.
+ */
+@XmlRootElement
+public class FileDataBlockSignatureDto {
+
+	private long offset;
+
+	private int rollingChecksum;
+
+	private String sha1;
+
+	public FileDataBlockSignatureDto() {
+	}
+
+	/**
+	 * Gets the 0-based position of this block in the file.
+	 * @return the position of this block's first byte in the file.
+	 */
+	public long getOffset() {
+		return offset;
+	}
+	public void setOffset(final long offset) {
+		this.offset = offset;
+	}
+
+	public int getRollingChecksum() {
+		return rollingChecksum;
+	}
+	public void setRollingChecksum(final int rollingChecksum) {
+		this.rollingChecksum = rollingChecksum;
+	}
+
+	public String getSha1() {
+		return sha1;
+	}
+	public void setSha1(final String sha1) {
+		this.sha1 = sha1;
+	}
+}
@@ -0,0 +1,65 @@
+package co.codewizards.cloudstore.core.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Difference between a range of a file in the source repository and the corresponding
+ * {@link FileDataSignatureDto signature} of the destination repository.
+ * <p>
+ * Concatenating the data of all {@link #getSegmentDtos() segments} results in the source's data, which is
+ * to be written at {@link #getOffset() offset} and must match the {@link #getSha1() sha1}.
+ */
+@XmlRootElement
+public class FileDataDeltaDto {
+
+	private long offset;
+
+	private int length;
+
+	private String sha1;
+
+	private List<FileDataDeltaSegmentDto> segmentDtos;
+
+	public FileDataDeltaDto() {
+	}
+
+	public long getOffset() {
+		return offset;
+	}
+	public void setOffset(final long offset) {
+		this.offset = offset;
+	}
+
+	public int getLength() {
+		return length;
+	}
+	public void setLength(final int length) {
+		this.length = length;
+	}
+
+	public String getSha1() {
+		return sha1;
+	}
+	public void setSha1(final String sha1) {
+		this.sha1 = sha1;
+	}
+
+	public List<FileDataDeltaSegmentDto> getSegmentDtos() {
+		if (segmentDtos == null)
+			segmentDtos = new ArrayList<FileDataDeltaSegmentDto>();
+
+		return segmentDtos;
+	}
+	public void setSegmentDtos(final List<FileDataDeltaSegmentDto> segmentDtos) {
+		this.segmentDtos = segmentDtos;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[offset=" + offset + ", length=" + length + ", sha1=" + sha1
+				+ ", segmentDtos.size=" + getSegmentDtos().size() + "]";
+	}
+}
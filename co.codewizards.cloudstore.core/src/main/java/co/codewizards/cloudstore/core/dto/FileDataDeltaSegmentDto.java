@@ -0,0 +1,53 @@
+package co.codewizards.cloudstore.core.dto;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Segment of a {@link FileDataDeltaDto}.
+ * <p>
+ * A segment either carries its {@link #getData() data} or - if {@code data} is <code>null</code> - references
+ * data already existing in the destination file at {@link #getExistingOffset() existingOffset}.
+ */
+@XmlRootElement
+public class FileDataDeltaSegmentDto {
+
+	private long existingOffset;
+
+	private int length;
+
+	private byte[] data;
+
+	public FileDataDeltaSegmentDto() {
+	}
+
+	/**
+	 * Gets the 0-based position of the referenced data in the destination file.
+	 * <p>
+	 * This is only used, if {@link #getData() data} is <code>null</code>.
+	 * @return the position of the first byte of the existing data to be copied.
+	 */
+	public long getExistingOffset() {
+		return existingOffset;
+	}
+	public void setExistingOffset(final long existingOffset) {
+		this.existingOffset = existingOffset;
+	}
+
+	public int getLength() {
+		return length;
+	}
+	public void setLength(final int length) {
+		this.length = length;
+	}
+
+	/**
+	 * Gets the data transferred literally.
+	 * @return the data or <code>null</code>, if existing data in the destination file is referenced.
+	 */
+	public byte[] getData() {
+		return data;
+	}
+	public void setData(final byte[] data) {
+		this.data = data;
+	}
+}
@@ -0,0 +1,65 @@
+package co.codewizards.cloudstore.core.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Signature of a range of a file in the destination repository.
+ * <p>
+ * The range is split into blocks of {@link #getBlockLength() blockLength} bytes. The source repository
+ * searches its data for these blocks and creates a {@link FileDataDeltaDto} referencing them. A trailing
+ * block being shorter than {@code blockLength} is not contained.
+ */
+@XmlRootElement
+public class FileDataSignatureDto {
+
+	private long offset;
+
+	private int length;
+
+	private int blockLength;
+
+	private List<FileDataBlockSignatureDto> blockSignatureDtos;
+
+	public FileDataSignatureDto() {
+	}
+
+	public long getOffset() {
+		return offset;
+	}
+	public void setOffset(final long offset) {
+		this.offset = offset;
+	}
+
+	public int getLength() {
+		return length;
+	}
+	public void setLength(final int length) {
+		this.length = length;
+	}
+
+	public int getBlockLength() {
+		return blockLength;
+	}
+	public void setBlockLength(final int blockLength) {
+		this.blockLength = blockLength;
+	}
+
+	public List<FileDataBlockSignatureDto> getBlockSignatureDtos() {
+		if (blockSignatureDtos == null)
+			blockSignatureDtos = new ArrayList<FileDataBlockSignatureDto>();
+
+		return blockSignatureDtos;
+	}
+	public void setBlockSignatureDtos(final List<FileDataBlockSignatureDto> blockSignatureDtos) {
+		this.blockSignatureDtos = blockSignatureDtos;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[offset=" + offset + ", length=" + length + ", blockLength=" + blockLength
+				+ ", blockSignatureDtos.size=" + getBlockSignatureDtos().size() + "]";
+	}
+}
@@ -0,0 +1,108 @@
+package co.codewizards.cloudstore.core.dto;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Snapshot of a metric.
+ * <p>
+ * Only {@link #getCount() count} is used by a counter. For a timer, all other values are durations in
+ * milliseconds.
+ */
+@XmlRootElement
+public class MetricDto {
+	private String name;
+	private String type;
+	private long count;
+	private double sum;
+	private double min;
+	private double max;
+	private double mean;
+	private double percentile50;
+	private double percentile95;
+	private double percentile99;
+
+	public String getName() {
+		return name;
+	}
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public String getType() {
+		return type;
+	}
+	public void setType(String type) {
+		this.type = type;
+	}
+
+	public long getCount() {
+		return count;
+	}
+	public void setCount(long count) {
+		this.count = count;
+	}
+
+	public double getSum() {
+		return sum;
+	}
+	public void setSum(double sum) {
+		this.sum = sum;
+	}
+
+	public double getMin() {
+		return min;
+	}
+	public void setMin(double min) {
+		this.min = min;
+	}
+
+	public double getMax() {
+		return max;
+	}
+	public void setMax(double max) {
+		this.max = max;
+	}
+
+	public double getMean() {
+		return mean;
+	}
+	public void setMean(double mean) {
+		this.mean = mean;
+	}
+
+	public double getPercentile50() {
+		return percentile50;
+	}
+	public void setPercentile50(double percentile50) {
+		this.percentile50 = percentile50;
+	}
+
+	public double getPercentile95() {
+		return percentile95;
+	}
+	public void setPercentile95(double percentile95) {
+		this.percentile95 = percentile95;
+	}
+
+	public double getPercentile99() {
+		return percentile99;
+	}
+	public void setPercentile99(double percentile99) {
+		this.percentile99 = percentile99;
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + "[name=" + name
+				+ ", type=" + type
+				+ ", count=" + count
+				+ ", sum=" + sum
+				+ ", min=" + min
+				+ ", max=" + max
+				+ ", mean=" + mean
+				+ ", percentile50=" + percentile50
+				+ ", percentile95=" + percentile95
+				+ ", percentile99=" + percentile99
+				+ "]";
+	}
+}
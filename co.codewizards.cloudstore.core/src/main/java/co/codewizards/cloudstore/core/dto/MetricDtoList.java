@@ -0,0 +1,26 @@
+package co.codewizards.cloudstore.core.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+@XmlRootElement
+public class MetricDtoList {
+	private List<MetricDto> metricDtos;
+
+	public List<MetricDto> getMetricDtos() {
+		if (metricDtos == null)
+			metricDtos = new ArrayList<MetricDto>();
+
+		return metricDtos;
+	}
+	public void setMetricDtos(List<MetricDto> metricDtos) {
+		this.metricDtos = metricDtos;
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + "[metricDtos=" + metricDtos + "]";
+	}
+}
@@ -0,0 +1,84 @@
+package co.codewizards.cloudstore.core.dto;
+
+import java.util.Date;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * A small file being transferred completely - meta-data and content together.
+ * <p>
+ * Instances of this class are passed to {@link co.codewizards.cloudstore.core.repo.transport.RepoTransport#putFiles(PutFileDtoList)}
+ * in order to copy many small files with one single invocation instead of invoking
+ * {@code beginPutFile(...)}, {@code putFileData(...)} and {@code endPutFile(...)} for each of them.
+ */
+@XmlRootElement
+public class PutFileDto {
+
+	private String path;
+
+	private Date lastModified;
+
+	private long length;
+
+	private String sha1;
+
+	private byte[] fileData;
+
+	public PutFileDto() {
+	}
+
+	/**
+	 * Gets the path of the file.
+	 * <p>
+	 * No matter which operating system is used, the separation-character is always '/'. The path is always
+	 * relative to the repository's root directory.
+	 * @return the path of the file. Never <code>null</code> in a valid instance.
+	 */
+	public String getPath() {
+		return path;
+	}
+	public void setPath(String path) {
+		this.path = path;
+	}
+
+	public Date getLastModified() {
+		return lastModified;
+	}
+	public void setLastModified(Date lastModified) {
+		this.lastModified = lastModified;
+	}
+
+	public long getLength() {
+		return length;
+	}
+	public void setLength(long length) {
+		this.length = length;
+	}
+
+	public String getSha1() {
+		return sha1;
+	}
+	public void setSha1(String sha1) {
+		this.sha1 = sha1;
+	}
+
+	/**
+	 * Gets the entire content of the file.
+	 * @return the file's content. Never <code>null</code> in a valid instance. Its length must match {@link #getLength() length}.
+	 */
+	public byte[] getFileData() {
+		return fileData;
+	}
+	public void setFileData(byte[] fileData) {
+		this.fileData = fileData;
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + "[path=" + path
+				+ ", lastModified=" + lastModified
+				+ ", length=" + length
+				+ ", sha1=" + sha1
+				+ "]";
+	}
+}
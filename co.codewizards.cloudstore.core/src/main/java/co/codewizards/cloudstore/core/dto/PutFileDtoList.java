@@ -0,0 +1,26 @@
+package co.codewizards.cloudstore.core.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+@XmlRootElement
+public class PutFileDtoList {
+	private List<PutFileDto> putFileDtos;
+
+	public List<PutFileDto> getPutFileDtos() {
+		if (putFileDtos == null)
+			putFileDtos = new ArrayList<PutFileDto>();
+
+		return putFileDtos;
+	}
+	public void setPutFileDtos(List<PutFileDto> putFileDtos) {
+		this.putFileDtos = putFileDtos;
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + "[putFileDtos=" + putFileDtos + "]";
+	}
+}
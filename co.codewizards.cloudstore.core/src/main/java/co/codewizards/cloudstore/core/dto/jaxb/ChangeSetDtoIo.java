@@ -0,0 +1,7 @@
+package co.codewizards.cloudstore.core.dto.jaxb;
+
+import co.codewizards.cloudstore.core.dto.ChangeSetDto;
+
+public class ChangeSetDtoIo extends DtoIo<ChangeSetDto> {
+
+}
@@ -8,9 +8,18 @@ import co.codewizards.cloudstore.core.dto.DirectoryDto;
 import co.codewizards.cloudstore.core.dto.Error;
 import co.codewizards.cloudstore.core.dto.ErrorStackTraceElement;
 import co.codewizards.cloudstore.core.dto.FileChunkDto;
+import co.codewizards.cloudstore.core.dto.FileChunkDtoList;
+import co.codewizards.cloudstore.core.dto.FileDataBlockSignatureDto;
+import co.codewizards.cloudstore.core.dto.FileDataDeltaDto;
+import co.codewizards.cloudstore.core.dto.FileDataDeltaSegmentDto;
+import co.codewizards.cloudstore.core.dto.FileDataSignatureDto;
 import co.codewizards.cloudstore.core.dto.ListDto;
+import co.codewizards.cloudstore.core.dto.MetricDto;
+import co.codewizards.cloudstore.core.dto.MetricDtoList;
 import co.codewizards.cloudstore.core.dto.ModificationDto;
 import co.codewizards.cloudstore.core.dto.NormalFileDto;
+import co.codewizards.cloudstore.core.dto.PutFileDto;
+import co.codewizards.cloudstore.core.dto.PutFileDtoList;
 import co.codewizards.cloudstore.core.dto.RepoFileDto;
 import co.codewizards.cloudstore.core.dto.RepositoryDto;
 import co.codewizards.cloudstore.core.dto.SymlinkDto;
@@ -30,9 +39,18 @@ public class CloudStoreJaxbContextProviderImpl extends AbstractCloudStoreJaxbCon
 				Error.class,
 				ErrorStackTraceElement.class,
 				FileChunkDto.class,
+				FileChunkDtoList.class,
+				FileDataBlockSignatureDto.class,
+				FileDataDeltaDto.class,
+				FileDataDeltaSegmentDto.class,
+				FileDataSignatureDto.class,
 				ListDto.class,
+				MetricDto.class,
+				MetricDtoList.class,
 				ModificationDto.class,
 				NormalFileDto.class,
+				PutFileDto.class,
+				PutFileDtoList.class,
 				RepoFileDto.class,
 				RepositoryDto.class,
 				SymlinkDto.class,
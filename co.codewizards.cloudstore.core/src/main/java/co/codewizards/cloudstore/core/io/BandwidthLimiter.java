@@ -0,0 +1,316 @@
+package co.codewizards.cloudstore.core.io;
+
+import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+import static co.codewizards.cloudstore.core.util.StringUtil.*;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.codewizards.cloudstore.core.config.Config;
+import co.codewizards.cloudstore.core.config.ConfigImpl;
+import co.codewizards.cloudstore.core.oio.File;
+
+/**
+ * Limits the bandwidth used for transferring file data between a local repository and a remote repository.
+ * <p>
+ * There are two levels of limits, each of them separately for {@link Direction#UPLOAD} and
+ * {@link Direction#DOWNLOAD}:
+ * <ul>
+ * <li>global: shared by all transfers of this JVM - see {@link #CONFIG_KEY_GLOBAL_UPLOAD} and
+ * {@link #CONFIG_KEY_GLOBAL_DOWNLOAD}.
+ * <li>per remote: shared by all transfers between a local repository and one remote repository - see
+ * {@link #CONFIG_KEY_REMOTE_UPLOAD} and {@link #CONFIG_KEY_REMOTE_DOWNLOAD}.
+ * </ul>
+ * All limits can be reduced during certain times of the day - see {@link #CONFIG_KEY_TIME_WINDOWS}.
+ * <p>
+ * The configuration is read whenever data is transferred. Changes therefore take effect immediately.
+ * <p>
+ * This class is thread-safe.
+ */
+public class BandwidthLimiter {
+
+	private static final Logger logger = LoggerFactory.getLogger(BandwidthLimiter.class);
+
+	public static enum Direction {
+		UPLOAD,
+		DOWNLOAD
+	}
+
+	/**
+	 * The {@code key} for the maximum upload-rate of all transfers in bytes per second, used with
+	 * {@link Config#getPropertyAsPositiveOrZeroLong(String, long)}.
+	 * <p>
+	 * This setting is read from the global configuration, only.
+	 * <p>
+	 * The default value is {@link #DEFAULT_GLOBAL_UPLOAD}, which means unlimited.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 */
+	public static final String CONFIG_KEY_GLOBAL_UPLOAD = "bandwidthLimit.global.upload"; //$NON-NLS-1$
+	public static final long DEFAULT_GLOBAL_UPLOAD = 0;
+
+	/**
+	 * The {@code key} for the maximum download-rate of all transfers in bytes per second, used with
+	 * {@link Config#getPropertyAsPositiveOrZeroLong(String, long)}.
+	 * <p>
+	 * This setting is read from the global configuration, only.
+	 * <p>
+	 * The default value is {@link #DEFAULT_GLOBAL_DOWNLOAD}, which means unlimited.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 */
+	public static final String CONFIG_KEY_GLOBAL_DOWNLOAD = "bandwidthLimit.global.download"; //$NON-NLS-1$
+	public static final long DEFAULT_GLOBAL_DOWNLOAD = 0;
+
+	/**
+	 * The {@code key} for the maximum upload-rate to one remote repository in bytes per second, used with
+	 * {@link Config#getPropertyAsPositiveOrZeroLong(String, long)}.
+	 * <p>
+	 * This setting is read from the configuration of the local repository's root.
+	 * <p>
+	 * The default value is {@link #DEFAULT_REMOTE_UPLOAD}, which means unlimited.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 */
+	public static final String CONFIG_KEY_REMOTE_UPLOAD = "bandwidthLimit.remote.upload"; //$NON-NLS-1$
+	public static final long DEFAULT_REMOTE_UPLOAD = 0;
+
+	/**
+	 * The {@code key} for the maximum download-rate from one remote repository in bytes per second, used with
+	 * {@link Config#getPropertyAsPositiveOrZeroLong(String, long)}.
+	 * <p>
+	 * This setting is read from the configuration of the local repository's root.
+	 * <p>
+	 * The default value is {@link #DEFAULT_REMOTE_DOWNLOAD}, which means unlimited.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 */
+	public static final String CONFIG_KEY_REMOTE_DOWNLOAD = "bandwidthLimit.remote.download"; //$NON-NLS-1$
+	public static final long DEFAULT_REMOTE_DOWNLOAD = 0;
+
+	/**
+	 * The {@code key} for the times of the day during which the limits are reduced, used with
+	 * {@link Config#getPropertyAsNonEmptyTrimmedString(String, String)}.
+	 * <p>
+	 * The value is a comma-separated list of time windows, each of them formatted as
+	 * {@code HH:mm-HH:mm=percent}. For example, "08:00-18:00=25,18:00-22:00=50" reduces all limits to
+	 * 25 percent during business hours and to 50 percent in the evening. A window may span midnight
+	 * (e.g. "22:00-06:00=200"). The first matching window is used; outside all windows, the limits apply
+	 * unchanged. A percentage of 0 pauses all limited transfers. Unlimited transfers are not affected.
+	 * <p>
+	 * This setting is read from the configuration of the local repository's root.
+	 * <p>
+	 * The default value is {@link #DEFAULT_TIME_WINDOWS}, which means there are no time windows.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 */
+	public static final String CONFIG_KEY_TIME_WINDOWS = "bandwidthLimit.timeWindows"; //$NON-NLS-1$
+	public static final String DEFAULT_TIME_WINDOWS = null;
+
+	/**
+	 * How long to sleep before checking again, whether a paused transfer may continue.
+	 */
+	private static final long PAUSE_CHECK_PERIOD = 10000L;
+
+	private static final Map<Direction, TokenBucket> direction2GlobalTokenBucket = createDirection2TokenBucket();
+
+	private static final Map<String, Map<Direction, TokenBucket>> remoteKey2Direction2TokenBucket = new HashMap<>();
+
+	private static final Map<String, List<TimeWindow>> timeWindowsString2TimeWindows = Collections.synchronizedMap(new HashMap<String, List<TimeWindow>>());
+
+	private final File localRoot;
+	private final Map<Direction, TokenBucket> direction2RemoteTokenBucket;
+
+	/**
+	 * Creates a limiter for the transfers between the given local and remote repository.
+	 * @param localRoot the root of the local repository. Must not be <code>null</code>.
+	 * @param remoteRepositoryId the identifier of the remote repository. Must not be <code>null</code>.
+	 */
+	public BandwidthLimiter(final File localRoot, final UUID remoteRepositoryId) {
+		this.localRoot = assertNotNull("localRoot", localRoot);
+		assertNotNull("remoteRepositoryId", remoteRepositoryId);
+		final String remoteKey = localRoot.getAbsolutePath() + '|' + remoteRepositoryId;
+		synchronized (remoteKey2Direction2TokenBucket) {
+			Map<Direction, TokenBucket> direction2TokenBucket = remoteKey2Direction2TokenBucket.get(remoteKey);
+			if (direction2TokenBucket == null) {
+				direction2TokenBucket = createDirection2TokenBucket();
+				remoteKey2Direction2TokenBucket.put(remoteKey, direction2TokenBucket);
+			}
+			this.direction2RemoteTokenBucket = direction2TokenBucket;
+		}
+	}
+
+	/**
+	 * Waits until the given number of bytes may be transferred in the given direction.
+	 * <p>
+	 * This method should be invoked before the data is uploaded or after it was downloaded.
+	 * @param direction the direction of the transfer. Must not be <code>null</code>.
+	 * @param byteCount the number of bytes transferred.
+	 */
+	public void acquire(final Direction direction, final long byteCount) {
+		assertNotNull("direction", direction);
+		try {
+			while (true) {
+				final Config globalConfig = ConfigImpl.getInstance();
+				final Config localConfig = ConfigImpl.getInstanceForDirectory(localRoot);
+				final long globalLimit = globalConfig.getPropertyAsPositiveOrZeroLong(
+						direction == Direction.UPLOAD ? CONFIG_KEY_GLOBAL_UPLOAD : CONFIG_KEY_GLOBAL_DOWNLOAD,
+						direction == Direction.UPLOAD ? DEFAULT_GLOBAL_UPLOAD : DEFAULT_GLOBAL_DOWNLOAD);
+				final long remoteLimit = localConfig.getPropertyAsPositiveOrZeroLong(
+						direction == Direction.UPLOAD ? CONFIG_KEY_REMOTE_UPLOAD : CONFIG_KEY_REMOTE_DOWNLOAD,
+						direction == Direction.UPLOAD ? DEFAULT_REMOTE_UPLOAD : DEFAULT_REMOTE_DOWNLOAD);
+
+				if (globalLimit == 0 && remoteLimit == 0)
+					return;
+
+				final int percent = getPercent(
+						localConfig.getPropertyAsNonEmptyTrimmedString(CONFIG_KEY_TIME_WINDOWS, DEFAULT_TIME_WINDOWS),
+						Calendar.getInstance());
+
+				if (percent == 0) {
+					logger.debug("acquire: Transfers are paused by a time window => sleeping {} ms.", PAUSE_CHECK_PERIOD);
+					Thread.sleep(PAUSE_CHECK_PERIOD);
+					continue;
+				}
+
+				final TokenBucket globalTokenBucket = direction2GlobalTokenBucket.get(direction);
+				final TokenBucket remoteTokenBucket = direction2RemoteTokenBucket.get(direction);
+				globalTokenBucket.setBytesPerSecond(applyPercent(globalLimit, percent));
+				remoteTokenBucket.setBytesPerSecond(applyPercent(remoteLimit, percent));
+
+				final long waitNanos = Math.max(globalTokenBucket.reserve(byteCount), remoteTokenBucket.reserve(byteCount));
+				if (waitNanos > 0)
+					logger.trace("acquire: direction={} byteCount={} => sleeping {} ms.", direction, byteCount, waitNanos / 1000_000L);
+
+				TokenBucket.sleepNanos(waitNanos);
+				return;
+			}
+		} catch (final InterruptedException x) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(x);
+		}
+	}
+
+	private static long applyPercent(final long limit, final int percent) {
+		if (limit == 0)
+			return 0;
+
+		return Math.max(1, limit * percent / 100);
+	}
+
+	/**
+	 * Gets the percentage of the limits that apply at the given time.
+	 * @param timeWindowsString the time windows as configured by {@link #CONFIG_KEY_TIME_WINDOWS}. May be
+	 * <code>null</code>.
+	 * @param calendar the time of the day. Must not be <code>null</code>.
+	 * @return the percentage of the time window matching the given time or 100, if no window matches.
+	 */
+	protected static int getPercent(final String timeWindowsString, final Calendar calendar) {
+		assertNotNull("calendar", calendar);
+		if (isEmpty(timeWindowsString))
+			return 100;
+
+		final int minuteOfDay = calendar.get(Calendar.HOUR_OF_DAY) * 60 + calendar.get(Calendar.MINUTE);
+		for (final TimeWindow timeWindow : getTimeWindows(timeWindowsString)) {
+			if (timeWindow.contains(minuteOfDay))
+				return timeWindow.percent;
+		}
+		return 100;
+	}
+
+	private static List<TimeWindow> getTimeWindows(final String timeWindowsString) {
+		List<TimeWindow> timeWindows = timeWindowsString2TimeWindows.get(timeWindowsString);
+		if (timeWindows == null) {
+			timeWindows = new ArrayList<>();
+			for (final String timeWindowString : timeWindowsString.split(",")) {
+				if (isEmpty(timeWindowString.trim()))
+					continue;
+
+				try {
+					timeWindows.add(TimeWindow.parse(timeWindowString.trim()));
+				} catch (final IllegalArgumentException x) {
+					logger.warn("getTimeWindows: Ignoring invalid time window '{}' in '{}': {}", timeWindowString, timeWindowsString, x.getMessage());
+				}
+			}
+			timeWindowsString2TimeWindows.put(timeWindowsString, Collections.unmodifiableList(timeWindows));
+		}
+		return timeWindows;
+	}
+
+	private static Map<Direction, TokenBucket> createDirection2TokenBucket() {
+		final Map<Direction, TokenBucket> result = new EnumMap<>(Direction.class);
+		for (final Direction direction : Direction.values())
+			result.put(direction, new TokenBucket(0));
+
+		return Collections.unmodifiableMap(result);
+	}
+
+	private static class TimeWindow {
+		public final int fromMinuteOfDay; // inclusive
+		public final int toMinuteOfDay; // exclusive
+		public final int percent;
+
+		private TimeWindow(final int fromMinuteOfDay, final int toMinuteOfDay, final int percent) {
+			this.fromMinuteOfDay = fromMinuteOfDay;
+			this.toMinuteOfDay = toMinuteOfDay;
+			this.percent = percent;
+		}
+
+		public boolean contains(final int minuteOfDay) {
+			if (fromMinuteOfDay <= toMinuteOfDay)
+				return fromMinuteOfDay <= minuteOfDay && minuteOfDay < toMinuteOfDay;
+			else // spanning midnight
+				return fromMinuteOfDay <= minuteOfDay || minuteOfDay < toMinuteOfDay;
+		}
+
+		public static TimeWindow parse(final String string) {
+			final int equalsIndex = string.indexOf('=');
+			final int dashIndex = string.indexOf('-');
+			if (equalsIndex < 0 || dashIndex < 0 || dashIndex > equalsIndex)
+				throw new IllegalArgumentException("Expected format 'HH:mm-HH:mm=percent'!");
+
+			final int fromMinuteOfDay = parseMinuteOfDay(string.substring(0, dashIndex).trim());
+			final int toMinuteOfDay = parseMinuteOfDay(string.substring(dashIndex + 1, equalsIndex).trim());
+			String percentString = string.substring(equalsIndex + 1).trim();
+			if (percentString.endsWith("%"))
+				percentString = percentString.substring(0, percentString.length() - 1).trim();
+
+			final int percent;
+			try {
+				percent = Integer.parseInt(percentString);
+			} catch (final NumberFormatException x) {
+				throw new IllegalArgumentException("Invalid percentage: " + percentString);
+			}
+			if (percent < 0)
+				throw new IllegalArgumentException("Negative percentage: " + percentString);
+
+			return new TimeWindow(fromMinuteOfDay, toMinuteOfDay, percent);
+		}
+
+		private static int parseMinuteOfDay(final String string) {
+			final String[] hourAndMinute = string.split(":");
+			if (hourAndMinute.length != 2)
+				throw new IllegalArgumentException("Invalid time (expected 'HH:mm'): " + string);
+
+			try {
+				final int hour = Integer.parseInt(hourAndMinute[0].trim());
+				final int minute = Integer.parseInt(hourAndMinute[1].trim());
+				if (hour < 0 || hour > 24 || minute < 0 || minute > 59 || (hour == 24 && minute != 0))
+					throw new IllegalArgumentException("Invalid time: " + string);
+
+				return hour * 60 + minute;
+			} catch (final NumberFormatException x) {
+				throw new IllegalArgumentException("Invalid time (expected 'HH:mm'): " + string);
+			}
+		}
+	}
+}
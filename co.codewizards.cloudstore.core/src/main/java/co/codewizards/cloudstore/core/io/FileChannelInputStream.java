@@ -0,0 +1,124 @@
+package co.codewizards.cloudstore.core.io;
+
+import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * {@link InputStream} reading a region of a {@link FileChannel}.
+ * <p>
+ * In contrast to {@link java.nio.channels.Channels#newInputStream(java.nio.channels.ReadableByteChannel) Channels.newInputStream(...)},
+ * this stream is limited to the given region and it provides {@link #transferTo(WritableByteChannel)}, which
+ * passes the data to the target without copying it into the Java heap, whenever the operating system supports this.
+ * <p>
+ * Closing this stream closes the underlying {@code FileChannel}.
+ */
+public class FileChannelInputStream extends InputStream {
+
+	private final FileChannel fileChannel;
+	private final long endPosition;
+	private long position;
+	private long markPosition;
+
+	/**
+	 * Creates a stream reading {@code length} bytes beginning at {@code offset}.
+	 * @param fileChannel the channel to read from. Must not be <code>null</code>.
+	 * @param offset the 0-based position of the first byte to be read.
+	 * @param length the number of bytes to be read. If the channel ends before, the stream ends prematurely.
+	 */
+	public FileChannelInputStream(final FileChannel fileChannel, final long offset, final long length) {
+		this.fileChannel = assertNotNull("fileChannel", fileChannel);
+		if (offset < 0)
+			throw new IllegalArgumentException("offset < 0");
+
+		if (length < 0)
+			throw new IllegalArgumentException("length < 0");
+
+		this.position = offset;
+		this.markPosition = offset;
+		this.endPosition = offset + length;
+	}
+
+	@Override
+	public int read() throws IOException {
+		final byte[] b = new byte[1];
+		final int bytesRead = read(b, 0, 1);
+		return bytesRead < 0 ? -1 : b[0] & 0xff;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		if (len == 0)
+			return 0;
+
+		final long remaining = endPosition - position;
+		if (remaining <= 0)
+			return -1;
+
+		final ByteBuffer buffer = ByteBuffer.wrap(b, off, (int) Math.min(len, remaining));
+		final int bytesRead = fileChannel.read(buffer, position);
+		if (bytesRead > 0)
+			position += bytesRead;
+
+		return bytesRead;
+	}
+
+	@Override
+	public long skip(final long n) throws IOException {
+		final long skipped = Math.max(0, Math.min(n, endPosition - position));
+		position += skipped;
+		return skipped;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return (int) Math.max(0, Math.min(Integer.MAX_VALUE, Math.min(endPosition, fileChannel.size()) - position));
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	@Override
+	public synchronized void mark(final int readlimit) {
+		markPosition = position;
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		position = markPosition;
+	}
+
+	/**
+	 * Transfers all remaining bytes of this stream into the given {@code target}.
+	 * <p>
+	 * This method uses {@link FileChannel#transferTo(long, long, WritableByteChannel)} and thus avoids copying
+	 * the data through the Java heap, if possible.
+	 * @param target the channel to write to. Must not be <code>null</code>.
+	 * @return the number of bytes transferred. Less than the remaining bytes, if the file ended prematurely.
+	 * @throws IOException if reading or writing failed.
+	 */
+	public long transferTo(final WritableByteChannel target) throws IOException {
+		assertNotNull("target", target);
+		long transferred = 0;
+		while (position < endPosition) {
+			final long count = fileChannel.transferTo(position, endPosition - position, target);
+			if (count <= 0)
+				break; // EOF
+
+			position += count;
+			transferred += count;
+		}
+		return transferred;
+	}
+
+	@Override
+	public void close() throws IOException {
+		fileChannel.close();
+	}
+}
@@ -0,0 +1,122 @@
+package co.codewizards.cloudstore.core.io;
+
+import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+import static co.codewizards.cloudstore.core.util.HashUtil.*;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * {@code InputStream} passing through exactly {@code length} bytes and verifying their SHA1.
+ * <p>
+ * The verification happens <i>before</i> the last bytes are returned to the reader: If the data is
+ * shorter than expected or its SHA1 does not match, an {@link IOException} is thrown instead of
+ * completing the read. A consumer writing the data somewhere therefore never sees a complete block
+ * of bad data. This is used to stream a file chunk from one repository to another, while the source
+ * file might be modified concurrently.
+ */
+public class Sha1VerifyingInputStream extends FilterInputStream {
+
+	private final String expectedSha1;
+	private final MessageDigest md;
+	private long remaining;
+	private boolean verificationFailed;
+
+	/**
+	 * Creates a new {@code Sha1VerifyingInputStream}.
+	 * @param in the underlying stream. Must not be <code>null</code>.
+	 * @param length the number of bytes expected. Must not be negative.
+	 * @param expectedSha1 the expected SHA1 of these bytes as hex-encoded string (as returned by
+	 * {@link co.codewizards.cloudstore.core.util.HashUtil#sha1(byte[]) HashUtil.sha1(...)}).
+	 * Must not be <code>null</code>.
+	 */
+	public Sha1VerifyingInputStream(final InputStream in, final long length, final String expectedSha1) {
+		super(assertNotNull("in", in));
+		if (length < 0)
+			throw new IllegalArgumentException("length < 0");
+
+		this.remaining = length;
+		this.expectedSha1 = assertNotNull("expectedSha1", expectedSha1);
+		try {
+			this.md = MessageDigest.getInstance(HASH_ALGORITHM_SHA);
+		} catch (final NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Indicates whether the verification failed, i.e. whether the data was shorter than expected or
+	 * its SHA1 did not match.
+	 * <p>
+	 * The {@link IOException} thrown by this stream is often wrapped (or even replaced) by the consumer.
+	 * This method allows to find out afterwards, whether the data was the problem.
+	 * @return <code>true</code>, if the verification failed; <code>false</code> otherwise.
+	 */
+	public boolean isVerificationFailed() {
+		return verificationFailed;
+	}
+
+	@Override
+	public int read() throws IOException {
+		final byte[] buf = new byte[1];
+		final int bytesRead = read(buf, 0, 1);
+		return bytesRead < 0 ? -1 : buf[0] & 0xff;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		if (verificationFailed)
+			throw new IOException("Verification failed before!");
+
+		if (remaining == 0)
+			return -1;
+
+		if (len == 0)
+			return 0;
+
+		final int bytesRead = in.read(b, off, (int) Math.min(len, remaining));
+		if (bytesRead < 0) {
+			verificationFailed = true;
+			throw new IOException(String.format("Premature end of stream! %s bytes are missing.", remaining));
+		}
+
+		md.update(b, off, bytesRead);
+		remaining -= bytesRead;
+		if (remaining == 0) {
+			final String sha1 = encodeHexStr(md.digest());
+			if (!expectedSha1.equals(sha1)) {
+				verificationFailed = true;
+				throw new IOException(String.format("SHA1 mismatch! expectedSha1=%s actualSha1=%s", expectedSha1, sha1));
+			}
+		}
+		return bytesRead;
+	}
+
+	@Override
+	public long skip(final long n) throws IOException {
+		throw new IOException("skip(...) not supported!");
+	}
+
+	@Override
+	public int available() throws IOException {
+		return (int) Math.min(super.available(), Math.max(0, remaining - 1));
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	@Override
+	public synchronized void mark(final int readlimit) {
+		// not supported
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		throw new IOException("mark/reset not supported!");
+	}
+}
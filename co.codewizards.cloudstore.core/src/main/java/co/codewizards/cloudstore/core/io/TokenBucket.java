@@ -0,0 +1,108 @@
+package co.codewizards.cloudstore.core.io;
+
+/**
+ * Token bucket limiting the throughput to a certain number of bytes per second.
+ * <p>
+ * The bucket holds at most the tokens of one second, i.e. after an idle period, at most one second's
+ * worth of bytes is passed without delay. A caller may reserve more tokens than available (even more than
+ * the bucket's capacity): The bucket then goes into debt and all following callers wait until it is paid
+ * back. Thus, the sustained throughput equals the configured rate - no matter how large the transferred
+ * chunks are.
+ * <p>
+ * This class is thread-safe.
+ */
+public class TokenBucket {
+
+	private long bytesPerSecond;
+	private double tokens;
+	private long lastRefillNanos;
+
+	/**
+	 * Creates a bucket.
+	 * @param bytesPerSecond the rate. 0 means unlimited.
+	 */
+	public TokenBucket(final long bytesPerSecond) {
+		setBytesPerSecond(bytesPerSecond);
+		lastRefillNanos = nanoTime();
+	}
+
+	public synchronized long getBytesPerSecond() {
+		return bytesPerSecond;
+	}
+
+	/**
+	 * Sets the rate. The tokens available are kept (but they are capped to the new capacity).
+	 * @param bytesPerSecond the rate. 0 means unlimited.
+	 */
+	public synchronized void setBytesPerSecond(final long bytesPerSecond) {
+		if (bytesPerSecond < 0)
+			throw new IllegalArgumentException("bytesPerSecond < 0");
+
+		if (this.bytesPerSecond != bytesPerSecond) {
+			refill();
+			this.bytesPerSecond = bytesPerSecond;
+			tokens = Math.min(tokens, bytesPerSecond);
+		}
+	}
+
+	/**
+	 * Takes the given number of tokens out of the bucket - without waiting.
+	 * @param byteCount the number of bytes to be transferred.
+	 * @return the time in nanoseconds the caller must wait before transferring the data. 0, if the data
+	 * may be transferred immediately.
+	 */
+	public synchronized long reserve(final long byteCount) {
+		if (byteCount < 0)
+			throw new IllegalArgumentException("byteCount < 0");
+
+		refill();
+		if (bytesPerSecond == 0)
+			return 0;
+
+		tokens -= byteCount;
+		if (tokens >= 0)
+			return 0;
+
+		return (long) Math.ceil(-tokens * 1000_000_000d / bytesPerSecond);
+	}
+
+	/**
+	 * Takes the given number of tokens out of the bucket and waits until the bucket is not in debt, anymore.
+	 * @param byteCount the number of bytes to be transferred.
+	 * @throws InterruptedException if the current thread was interrupted while waiting.
+	 */
+	public void acquire(final long byteCount) throws InterruptedException {
+		sleepNanos(reserve(byteCount));
+	}
+
+	private void refill() {
+		final long now = nanoTime();
+		if (bytesPerSecond == 0)
+			tokens = 0;
+		else
+			tokens = Math.min(bytesPerSecond, tokens + (now - lastRefillNanos) * (double) bytesPerSecond / 1000_000_000d);
+
+		lastRefillNanos = now;
+	}
+
+	/**
+	 * Gets the current time in nanoseconds. Only the difference between two values is relevant.
+	 * <p>
+	 * Tests may override this method to simulate the passing of time.
+	 * @return the current time in nanoseconds.
+	 * @see System#nanoTime()
+	 */
+	protected long nanoTime() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Sleeps the given time.
+	 * @param nanos the time to sleep in nanoseconds. Might be 0.
+	 * @throws InterruptedException if the current thread was interrupted while waiting.
+	 */
+	public static void sleepNanos(final long nanos) throws InterruptedException {
+		if (nanos > 0)
+			Thread.sleep(nanos / 1000_000L, (int) (nanos % 1000_000L));
+	}
+}
@@ -0,0 +1,51 @@
+package co.codewizards.cloudstore.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import co.codewizards.cloudstore.core.dto.MetricDto;
+
+/**
+ * A monotonically increasing number - e.g. the number of bytes transferred.
+ */
+public class Counter extends Metric implements CounterMXBean {
+
+	public static final String TYPE = "Counter";
+
+	private final AtomicLong count = new AtomicLong();
+
+	protected Counter(final String name) {
+		super(name);
+	}
+
+	@Override
+	public String getType() {
+		return TYPE;
+	}
+
+	public void inc() {
+		count.incrementAndGet();
+	}
+
+	public void inc(final long n) {
+		count.addAndGet(n);
+	}
+
+	@Override
+	public long getCount() {
+		return count.get();
+	}
+
+	@Override
+	public void reset() {
+		count.set(0);
+	}
+
+	@Override
+	public MetricDto toMetricDto() {
+		final MetricDto metricDto = new MetricDto();
+		metricDto.setName(getName());
+		metricDto.setType(getType());
+		metricDto.setCount(getCount());
+		return metricDto;
+	}
+}
@@ -0,0 +1,178 @@
+package co.codewizards.cloudstore.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import co.codewizards.cloudstore.core.dto.MetricDto;
+
+/**
+ * The distribution of non-negative values - e.g. the number of bytes transferred per file.
+ * <p>
+ * The values are counted in buckets of exponentially growing width: Values below 16 are counted exactly, all
+ * others in 8 buckets per power of 2. Thus, the percentiles are approximations with an error of at most 12.5%,
+ * while the memory footprint is constant (about 4 KiB) and an update is lock-free.
+ * <p>
+ * {@link #getCount() count}, {@link #getSum() sum}, {@link #getMin() min} and {@link #getMax() max} are exact.
+ */
+public class Histogram extends Metric implements HistogramMXBean {
+
+	public static final String TYPE = "Histogram";
+
+	private static final int EXACT_BUCKET_COUNT = 16;
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int MIN_EXPONENT = 4; // 2^4 == EXACT_BUCKET_COUNT
+	private static final int BUCKET_COUNT = EXACT_BUCKET_COUNT + (63 - MIN_EXPONENT) * SUB_BUCKET_COUNT;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+	protected Histogram(final String name) {
+		super(name);
+	}
+
+	@Override
+	public String getType() {
+		return TYPE;
+	}
+
+	/**
+	 * Records the given value.
+	 * @param value the value. Negative values are recorded as 0.
+	 */
+	public void update(long value) {
+		if (value < 0)
+			value = 0;
+
+		buckets.incrementAndGet(getBucketIndex(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+
+		long current;
+		while (value < (current = min.get()) && !min.compareAndSet(current, value));
+		while (value > (current = max.get()) && !max.compareAndSet(current, value));
+	}
+
+	static int getBucketIndex(final long value) {
+		if (value < EXACT_BUCKET_COUNT)
+			return (int) value;
+
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+		final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+		return EXACT_BUCKET_COUNT + (exponent - MIN_EXPONENT) * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	/**
+	 * Gets the highest value counted in the bucket with the given index.
+	 */
+	static long getBucketUpperBound(final int bucketIndex) {
+		if (bucketIndex < EXACT_BUCKET_COUNT)
+			return bucketIndex;
+
+		final int exponent = (bucketIndex - EXACT_BUCKET_COUNT) / SUB_BUCKET_COUNT + MIN_EXPONENT;
+		final int subBucket = (bucketIndex - EXACT_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+		final long lowerBound = (long) (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+		return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+
+	@Override
+	public long getCount() {
+		return count.get();
+	}
+
+	@Override
+	public long getSum() {
+		return sum.get();
+	}
+
+	@Override
+	public long getMin() {
+		final long result = min.get();
+		return result == Long.MAX_VALUE ? 0 : result;
+	}
+
+	@Override
+	public long getMax() {
+		final long result = max.get();
+		return result == Long.MIN_VALUE ? 0 : result;
+	}
+
+	@Override
+	public double getMean() {
+		final long count = getCount();
+		return count == 0 ? 0 : (double) getSum() / count;
+	}
+
+	/**
+	 * Gets the value below or equal to which the given fraction of all recorded values are.
+	 * @param quantile the fraction - e.g. 0.95 for the 95th percentile. Must be &gt; 0 and &lt;= 1.
+	 * @return the (approximated) value. 0, if no value was recorded, yet.
+	 */
+	public long getPercentile(final double quantile) {
+		if (quantile <= 0 || quantile > 1)
+			throw new IllegalArgumentException("quantile out of range (0, 1]: " + quantile);
+
+		final long[] snapshot = new long[BUCKET_COUNT];
+		long totalCount = 0;
+		for (int i = 0; i < BUCKET_COUNT; ++i) {
+			snapshot[i] = buckets.get(i);
+			totalCount += snapshot[i];
+		}
+		if (totalCount == 0)
+			return 0;
+
+		final long rank = (long) Math.ceil(quantile * totalCount);
+		long cumulativeCount = 0;
+		for (int i = 0; i < BUCKET_COUNT; ++i) {
+			cumulativeCount += snapshot[i];
+			if (cumulativeCount >= rank)
+				return Math.max(getMin(), Math.min(getMax(), getBucketUpperBound(i)));
+		}
+		return getMax();
+	}
+
+	@Override
+	public long get50thPercentile() {
+		return getPercentile(0.5);
+	}
+
+	@Override
+	public long get95thPercentile() {
+		return getPercentile(0.95);
+	}
+
+	@Override
+	public long get99thPercentile() {
+		return getPercentile(0.99);
+	}
+
+	@Override
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; ++i)
+			buckets.set(i, 0);
+
+		count.set(0);
+		sum.set(0);
+		min.set(Long.MAX_VALUE);
+		max.set(Long.MIN_VALUE);
+	}
+
+	@Override
+	public MetricDto toMetricDto() {
+		final MetricDto metricDto = new MetricDto();
+		metricDto.setName(getName());
+		metricDto.setType(getType());
+		metricDto.setCount(getCount());
+		metricDto.setSum(getSum());
+		metricDto.setMin(getMin());
+		metricDto.setMax(getMax());
+		metricDto.setMean(getMean());
+		metricDto.setPercentile50(get50thPercentile());
+		metricDto.setPercentile95(get95thPercentile());
+		metricDto.setPercentile99(get99thPercentile());
+		return metricDto;
+	}
+}
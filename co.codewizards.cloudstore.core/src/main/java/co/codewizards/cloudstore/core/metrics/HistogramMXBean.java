@@ -0,0 +1,27 @@
+package co.codewizards.cloudstore.core.metrics;
+
+/**
+ * JMX view of a {@link Histogram}.
+ */
+public interface HistogramMXBean {
+
+	String getName();
+
+	long getCount();
+
+	long getSum();
+
+	long getMin();
+
+	long getMax();
+
+	double getMean();
+
+	long get50thPercentile();
+
+	long get95thPercentile();
+
+	long get99thPercentile();
+
+	void reset();
+}
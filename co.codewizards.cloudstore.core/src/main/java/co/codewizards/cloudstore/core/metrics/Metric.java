@@ -0,0 +1,44 @@
+package co.codewizards.cloudstore.core.metrics;
+
+import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+
+import co.codewizards.cloudstore.core.dto.MetricDto;
+
+/**
+ * A named measurement managed by the {@link MetricRegistry}.
+ * <p>
+ * Implementations are thread-safe and cheap to update: They are updated on hot paths (e.g. for every
+ * file-chunk transferred).
+ */
+public abstract class Metric {
+
+	private final String name;
+
+	protected Metric(final String name) {
+		this.name = assertNotNull("name", name);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the type of this metric as used in the JMX {@code ObjectName} and in the {@link MetricDto}.
+	 * @return the type. Never <code>null</code>.
+	 */
+	public abstract String getType();
+
+	/**
+	 * Resets this metric to its initial state.
+	 * <p>
+	 * Updates happening concurrently might get lost partially.
+	 */
+	public abstract void reset();
+
+	public abstract MetricDto toMetricDto();
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[name=" + name + ']';
+	}
+}
@@ -0,0 +1,158 @@
+package co.codewizards.cloudstore.core.metrics;
+
+import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.codewizards.cloudstore.core.config.Config;
+import co.codewizards.cloudstore.core.config.ConfigImpl;
+import co.codewizards.cloudstore.core.dto.MetricDtoList;
+
+/**
+ * Registry of all {@link Metric}s of this JVM.
+ * <p>
+ * A metric is created, when it is first requested by its name, and lives as long as the JVM. Every metric is
+ * registered with the platform {@link MBeanServer} as
+ * {@code co.codewizards.cloudstore:type=Metric,metricType=<type>,name=<name>} - unless disabled by
+ * {@link #CONFIG_KEY_JMX_ENABLED}. Additionally, all metrics can be obtained as {@link MetricDtoList} - this is
+ * what the REST service {@code _metrics} returns.
+ * <p>
+ * The names are dot-separated with the component first - e.g. {@code repoToRepoSync.bytes.up}.
+ * <p>
+ * This class is thread-safe.
+ */
+public class MetricRegistry {
+
+	private static final Logger logger = LoggerFactory.getLogger(MetricRegistry.class);
+
+	/**
+	 * The {@code key} for whether the metrics are registered with the platform {@link MBeanServer}, used with
+	 * {@link Config#getPropertyAsBoolean(String, boolean)}.
+	 * <p>
+	 * This setting is read from the global configuration, only. It affects only metrics created afterwards -
+	 * which usually means, it must be set before the JVM is started.
+	 * <p>
+	 * The default value is {@link #DEFAULT_JMX_ENABLED}.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 */
+	public static final String CONFIG_KEY_JMX_ENABLED = "metrics.jmx.enabled"; //$NON-NLS-1$
+	public static final boolean DEFAULT_JMX_ENABLED = true;
+
+	public static final String JMX_DOMAIN = "co.codewizards.cloudstore";
+
+	private static class MetricRegistryHolder {
+		public static final MetricRegistry instance = new MetricRegistry();
+	}
+
+	public static MetricRegistry getInstance() {
+		return MetricRegistryHolder.instance;
+	}
+
+	private final ConcurrentMap<String, Metric> name2Metric = new ConcurrentHashMap<>();
+
+	protected MetricRegistry() { }
+
+	public Counter counter(final String name) {
+		return getOrCreate(name, Counter.class);
+	}
+
+	public Histogram histogram(final String name) {
+		return getOrCreate(name, Histogram.class);
+	}
+
+	public Timer timer(final String name) {
+		return getOrCreate(name, Timer.class);
+	}
+
+	private <M extends Metric> M getOrCreate(final String name, final Class<M> metricClass) {
+		assertNotNull("name", name);
+		Metric metric = name2Metric.get(name);
+		if (metric == null) {
+			final Metric newMetric = createMetric(name, metricClass);
+			metric = name2Metric.putIfAbsent(name, newMetric);
+			if (metric == null) {
+				metric = newMetric;
+				registerMBean(metric);
+			}
+		}
+		if (!metricClass.isInstance(metric))
+			throw new IllegalArgumentException(String.format("The metric '%s' is a %s, not a %s!",
+					name, metric.getClass().getSimpleName(), metricClass.getSimpleName()));
+
+		return metricClass.cast(metric);
+	}
+
+	private Metric createMetric(final String name, final Class<? extends Metric> metricClass) {
+		if (Counter.class == metricClass)
+			return new Counter(name);
+
+		if (Histogram.class == metricClass)
+			return new Histogram(name);
+
+		if (Timer.class == metricClass)
+			return new Timer(name);
+
+		throw new IllegalArgumentException("Unknown metricClass: " + metricClass.getName());
+	}
+
+	private void registerMBean(final Metric metric) {
+		if (!ConfigImpl.getInstance().getPropertyAsBoolean(CONFIG_KEY_JMX_ENABLED, DEFAULT_JMX_ENABLED))
+			return;
+
+		try {
+			final ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=Metric,metricType=" + metric.getType()
+					+ ",name=" + ObjectName.quote(metric.getName()));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(metric, objectName);
+		} catch (final InstanceAlreadyExistsException x) {
+			// Happens, if the classes are loaded multiple times (e.g. in a servlet container) - not a problem.
+			logger.debug("registerMBean: " + x, x);
+		} catch (final Exception x) {
+			logger.warn("registerMBean: " + x, x);
+		}
+	}
+
+	/**
+	 * Gets all metrics.
+	 * @return all metrics, sorted by their names. Never <code>null</code>.
+	 */
+	public List<Metric> getMetrics() {
+		final List<Metric> result = new ArrayList<>(name2Metric.values());
+		Collections.sort(result, new Comparator<Metric>() {
+			@Override
+			public int compare(final Metric m1, final Metric m2) {
+				return m1.getName().compareTo(m2.getName());
+			}
+		});
+		return result;
+	}
+
+	public MetricDtoList getMetricDtoList() {
+		final MetricDtoList metricDtoList = new MetricDtoList();
+		for (final Metric metric : getMetrics())
+			metricDtoList.getMetricDtos().add(metric.toMetricDto());
+
+		return metricDtoList;
+	}
+
+	/**
+	 * Resets all metrics.
+	 */
+	public void reset() {
+		for (final Metric metric : name2Metric.values())
+			metric.reset();
+	}
+}
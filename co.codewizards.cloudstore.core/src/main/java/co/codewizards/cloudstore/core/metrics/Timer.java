@@ -0,0 +1,140 @@
+package co.codewizards.cloudstore.core.metrics;
+
+import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+
+import java.util.concurrent.TimeUnit;
+
+import co.codewizards.cloudstore.core.dto.MetricDto;
+
+/**
+ * The distribution of durations - e.g. of the commits of a transaction.
+ * <p>
+ * The durations are recorded in nanoseconds in a {@link Histogram}, but exposed in milliseconds. Usage:
+ * <pre>  try (Timer.Context timerContext = timer.time();) {
+ *     // do the work being measured
+ *   }</pre>
+ */
+public class Timer extends Metric implements TimerMXBean {
+
+	public static final String TYPE = "Timer";
+
+	private static final double NANOS_PER_MILLI = 1000000d;
+
+	private final Histogram histogram;
+
+	protected Timer(final String name) {
+		super(name);
+		histogram = new Histogram(name);
+	}
+
+	@Override
+	public String getType() {
+		return TYPE;
+	}
+
+	/**
+	 * Starts measuring a duration.
+	 * @return the context to be {@linkplain Context#close() closed} when the work is done. Never <code>null</code>.
+	 */
+	public Context time() {
+		return new Context(this);
+	}
+
+	public void update(final long duration, final TimeUnit unit) {
+		histogram.update(assertNotNull("unit", unit).toNanos(duration));
+	}
+
+	public static class Context implements AutoCloseable {
+		private final Timer timer;
+		private final long startNanos = System.nanoTime();
+		private boolean stopped;
+
+		protected Context(final Timer timer) {
+			this.timer = assertNotNull("timer", timer);
+		}
+
+		/**
+		 * Records the duration since this context was created. Subsequent invocations do nothing.
+		 * @return the duration in nanoseconds.
+		 */
+		public long stop() {
+			final long duration = System.nanoTime() - startNanos;
+			if (!stopped) {
+				stopped = true;
+				timer.update(duration, TimeUnit.NANOSECONDS);
+			}
+			return duration;
+		}
+
+		@Override
+		public void close() {
+			stop();
+		}
+	}
+
+	@Override
+	public long getCount() {
+		return histogram.getCount();
+	}
+
+	@Override
+	public double getTotalMillis() {
+		return histogram.getSum() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getMinMillis() {
+		return histogram.getMin() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getMaxMillis() {
+		return histogram.getMax() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getMeanMillis() {
+		return histogram.getMean() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double get50thPercentileMillis() {
+		return histogram.get50thPercentile() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double get95thPercentileMillis() {
+		return histogram.get95thPercentile() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double get99thPercentileMillis() {
+		return histogram.get99thPercentile() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public void reset() {
+		histogram.reset();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * All durations are in milliseconds.
+	 */
+	@Override
+	public MetricDto toMetricDto() {
+		final MetricDto metricDto = new MetricDto();
+		metricDto.setName(getName());
+		metricDto.setType(getType());
+		metricDto.setCount(getCount());
+		metricDto.setSum(getTotalMillis());
+		metricDto.setMin(getMinMillis());
+		metricDto.setMax(getMaxMillis());
+		metricDto.setMean(getMeanMillis());
+		metricDto.setPercentile50(get50thPercentileMillis());
+		metricDto.setPercentile95(get95thPercentileMillis());
+		metricDto.setPercentile99(get99thPercentileMillis());
+		return metricDto;
+	}
+}
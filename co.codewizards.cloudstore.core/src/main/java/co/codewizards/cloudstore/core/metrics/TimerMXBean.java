@@ -0,0 +1,27 @@
+package co.codewizards.cloudstore.core.metrics;
+
+/**
+ * JMX view of a {@link Timer}. All durations are in milliseconds.
+ */
+public interface TimerMXBean {
+
+	String getName();
+
+	long getCount();
+
+	double getTotalMillis();
+
+	double getMinMillis();
+
+	double getMaxMillis();
+
+	double getMeanMillis();
+
+	double get50thPercentileMillis();
+
+	double get95thPercentileMillis();
+
+	double get99thPercentileMillis();
+
+	void reset();
+}
@@ -25,6 +25,28 @@ public interface File extends Serializable {
 	File[] listFiles(FileFilter fileFilter);
 	File[] listFiles(FilenameFilter fileFilter);
 
+	/**
+	 * Lists the children of this directory together with their {@linkplain FileAttributes attributes}.
+	 * <p>
+	 * The attributes are read without following symbolic links. Depending on the implementation, the
+	 * directory is read and every child is accessed only once - in contrast to {@link #listFiles(FilenameFilter)}
+	 * followed by querying each child's attributes individually.
+	 * <p>
+	 * Children vanishing while the directory is read are silently skipped. Children whose attributes cannot
+	 * be read are contained as {@linkplain FileAttributes#isUnreadable() unreadable} entries.
+	 * @param filenameFilter the filter deciding which children to include. May be <code>null</code>.
+	 * @return the children with their attributes. <code>null</code>, if this is not a directory (anymore) -
+	 * just like {@link #listFiles()}.
+	 * @throws RuntimeException if this directory exists, but reading it failed.
+	 */
+	FileAttributes[] listFilesWithAttributes(FilenameFilter filenameFilter);
+
+	/**
+	 * Reads the {@linkplain FileAttributes attributes} of this file at once without following symbolic links.
+	 * @return the attributes. <code>null</code>, if this file does not exist.
+	 */
+	FileAttributes readAttributesNoFollow();
+
 	/**
 	 * Create a child-{@code File}.
 	 * <p>
@@ -0,0 +1,124 @@
+package co.codewizards.cloudstore.core.oio;
+
+import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+
+/**
+ * Snapshot of the basic attributes of a {@link File}, read at once without following symbolic links.
+ * <p>
+ * Instances are obtained via {@link File#readAttributesNoFollow()} or {@link File#listFilesWithAttributes(java.io.FilenameFilter)}.
+ * In contrast to invoking {@link File#isSymbolicLink()}, {@link File#isFile()}, {@link File#length()} etc.
+ * individually, the attributes are read with a single file-system-access (if the implementation supports it).
+ * The values are not updated, if the file is modified afterwards.
+ * <p>
+ * If the attributes of a file could not be read, it is represented by an {@linkplain #isUnreadable() unreadable}
+ * instance, whose other attributes are meaningless.
+ */
+public class FileAttributes {
+
+	private final File file;
+	private final boolean symbolicLink;
+	private final boolean directory;
+	private final boolean regularFile;
+	private final long length;
+	private final long lastModifiedNoFollow;
+	private final boolean unreadable;
+
+	public FileAttributes(final File file, final boolean symbolicLink, final boolean directory, final boolean regularFile,
+			final long length, final long lastModifiedNoFollow) {
+		this.file = assertNotNull("file", file);
+		this.symbolicLink = symbolicLink;
+		this.directory = directory;
+		this.regularFile = regularFile;
+		this.length = length;
+		this.lastModifiedNoFollow = lastModifiedNoFollow;
+		this.unreadable = false;
+	}
+
+	private FileAttributes(final File file) {
+		this.file = assertNotNull("file", file);
+		this.symbolicLink = false;
+		this.directory = false;
+		this.regularFile = false;
+		this.length = 0;
+		this.lastModifiedNoFollow = 0;
+		this.unreadable = true;
+	}
+
+	/**
+	 * Creates an instance representing a file, which exists, but whose attributes could not be read.
+	 * @param file the file. Must not be <code>null</code>.
+	 * @return the {@linkplain #isUnreadable() unreadable} attributes. Never <code>null</code>.
+	 */
+	public static FileAttributes unreadable(final File file) {
+		return new FileAttributes(file);
+	}
+
+	/**
+	 * Gets the file whose attributes are held by this instance.
+	 * @return the file. Never <code>null</code>.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Corresponds to {@link File#isSymbolicLink()}.
+	 * @return whether the file is a symbolic link.
+	 */
+	public boolean isSymbolicLink() {
+		return symbolicLink;
+	}
+
+	/**
+	 * Corresponds to {@link File#isDirectoryNoFollowSymLinks()}.
+	 * @return whether the file is a directory. Always <code>false</code>, if this is a {@linkplain #isSymbolicLink() symlink}.
+	 */
+	public boolean isDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Corresponds to {@link File#isRegularFileNoFollowLinks()}.
+	 * @return whether the file is a normal file. Always <code>false</code>, if this is a {@linkplain #isSymbolicLink() symlink}.
+	 */
+	public boolean isRegularFile() {
+		return regularFile;
+	}
+
+	/**
+	 * Corresponds to {@link File#length()} - except for symlinks, whose own size is returned.
+	 * @return the file's size in bytes.
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * Corresponds to {@link File#getLastModifiedNoFollow()}.
+	 * @return the file's last-modified-timestamp in milliseconds since 1970-01-01 00:00:00 UTC.
+	 */
+	public long getLastModifiedNoFollow() {
+		return lastModifiedNoFollow;
+	}
+
+	/**
+	 * Indicates, whether reading the attributes failed.
+	 * <p>
+	 * If <code>true</code>, the file exists, but all other attributes are meaningless. The file should be
+	 * neither processed nor treated as deleted.
+	 * @return whether the attributes could not be read.
+	 */
+	public boolean isUnreadable() {
+		return unreadable;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + '[' + file
+				+ (unreadable ? ",unreadable" : "")
+				+ (symbolicLink ? ",symbolicLink" : "")
+				+ (directory ? ",directory" : "")
+				+ (regularFile ? ",regularFile" : "")
+				+ ",length=" + length + ",lastModifiedNoFollow=" + lastModifiedNoFollow + ']';
+	}
+}
@@ -9,6 +9,8 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -102,6 +104,33 @@ public class IoFile implements File {
 		return IoFileUtil.convert(ioFiles);
 	}
 
+	@Override
+	public FileAttributes[] listFilesWithAttributes(final FilenameFilter filenameFilter) {
+		final File[] children = listFiles(filenameFilter);
+		if (children == null)
+			return null;
+
+		final List<FileAttributes> result = new ArrayList<FileAttributes>(children.length);
+		for (final File child : children) {
+			final FileAttributes attributes = child.readAttributesNoFollow();
+			if (attributes != null)
+				result.add(attributes);
+		}
+		return result.toArray(new FileAttributes[result.size()]);
+	}
+
+	@Override
+	public FileAttributes readAttributesNoFollow() {
+		// currently: no support for symlinks in this implementation => every attribute needs its own access.
+		final boolean symbolicLink = isSymbolicLink();
+		if (!symbolicLink && !existsNoFollow())
+			return null;
+
+		return new FileAttributes(this, symbolicLink,
+				!symbolicLink && isDirectory(), !symbolicLink && isFile(),
+				length(), getLastModifiedNoFollow());
+	}
+
 	@Override
 	public File getAbsoluteFile() {
 		return new IoFile(ioFile.getAbsoluteFile());
@@ -0,0 +1,47 @@
+package co.codewizards.cloudstore.core.repo.local;
+
+import co.codewizards.cloudstore.core.config.Config;
+import co.codewizards.cloudstore.core.dto.FileChunkDto;
+
+/**
+ * Strategy controlling how a file is split into chunks, when it is hashed during a local sync.
+ * <p>
+ * Only chunks being different from the destination's chunks are transferred. The chunks are also used
+ * to find data already existing in the destination repository (e.g. in another file), which can be reused
+ * instead of being transferred.
+ * <p>
+ * This is merely a setting in the {@link Config}. The actual implementation is in the
+ * {@code LocalRepoSync}.
+ */
+public enum FileChunkingStrategy {
+	/**
+	 * Split the file into chunks of the same length: {@link FileChunkDto#MAX_LENGTH}. Only the last chunk
+	 * might be shorter.
+	 * <p>
+	 * If data is inserted into (or removed from) a file, all subsequent chunks change and must be
+	 * transferred again.
+	 */
+	fixed,
+
+	/**
+	 * Split the file where its content matches a certain pattern (determined by a rolling hash). The chunks
+	 * thus have different lengths: At least a quarter and at most the entire {@link FileChunkDto#MAX_LENGTH}.
+	 * <p>
+	 * If data is inserted into (or removed from) a file, only the chunks around the modification change.
+	 * All other chunks are merely shifted and their data can be reused from the old version of the file.
+	 * <p>
+	 * This strategy should be used in both the source and the destination repository.
+	 */
+	contentDefined
+	;
+
+	/**
+	 * The {@code key} used with {@link Config#getPropertyAsEnum(String, Enum)}.
+	 */
+	public static final String CONFIG_KEY = "fileChunkingStrategy"; //$NON-NLS-1$
+	/**
+	 * The {@code defaultValue} used with {@link Config#getPropertyAsEnum(String, Enum)}.
+	 */
+	public static final FileChunkingStrategy CONFIG_DEFAULT_VALUE = fixed;
+
+}
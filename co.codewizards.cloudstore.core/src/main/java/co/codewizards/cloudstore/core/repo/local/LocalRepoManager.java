@@ -19,6 +19,21 @@ public interface LocalRepoManager extends AutoCloseable {
 	String SYSTEM_PROPERTY_CLOSE_DEFERRED_MILLIS = APP_ID_SIMPLE_ID + ".localRepoManager.closeDeferredMillis";
 	long DEFAULT_CLOSE_DEFERRED_MILLIS = 20000;
 
+	/**
+	 * The {@code key} for the maximum time (in milliseconds) to wait for the repository's lock-file, used with
+	 * {@link co.codewizards.cloudstore.core.config.Config#getPropertyAsPositiveOrZeroLong(String, long) Config.getPropertyAsPositiveOrZeroLong(...)}.
+	 * <p>
+	 * If another process holds the lock longer, opening the repository fails. Since the lock-file must be
+	 * acquired before the repository's configuration can be read, only the global configuration is consulted.
+	 * <p>
+	 * The default value is {@link #DEFAULT_LOCK_TIMEOUT}.
+	 * <p>
+	 * The configuration can be overridden by a system property - see
+	 * {@link co.codewizards.cloudstore.core.config.Config#SYSTEM_PROPERTY_PREFIX Config.SYSTEM_PROPERTY_PREFIX}.
+	 */
+	String CONFIG_KEY_LOCK_TIMEOUT = "localRepoManager.lockTimeout";
+	long DEFAULT_LOCK_TIMEOUT = 30000;
+
 	String META_DIR_NAME = "." + APP_ID_SIMPLE_ID + "-repo";
 	String TEMP_DIR_NAME = "." + APP_ID_SIMPLE_ID + "-tmp";
 	String TEMP_NEW_FILE_PREFIX = "." + APP_ID_SIMPLE_ID + "-new_";
@@ -0,0 +1,119 @@
+package co.codewizards.cloudstore.core.repo.sync;
+
+import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import co.codewizards.cloudstore.core.dto.CopyModificationDto;
+import co.codewizards.cloudstore.core.dto.DeleteModificationDto;
+import co.codewizards.cloudstore.core.dto.ModificationDto;
+
+/**
+ * Pairs of {@link CopyModificationDto} and {@link DeleteModificationDto} forming a move, though they are
+ * located in different local revisions.
+ * <p>
+ * A move in the source repository is recorded as copy + delete. Both are usually located in the same local
+ * revision and paired via the {@link ModificationDtoSet}. If the source committed in between (e.g. during
+ * the intermediate commits of a large local sync), they end up in different revisions.
+ * <p>
+ * Such a pair is only recognized, if no other modification affects the source or the destination path within
+ * the revisions spanned by both. Applying the move at the earlier revision therefore leads to the same result
+ * as applying the copy and the delete separately.
+ */
+public class CrossRevisionMoveSet {
+
+	private final Map<CopyModificationDto, DeleteModificationDto> copy2DeleteModificationDto = new IdentityHashMap<>();
+	private final Map<DeleteModificationDto, CopyModificationDto> delete2CopyModificationDto = new IdentityHashMap<>();
+
+	public CrossRevisionMoveSet(final Collection<ModificationDto> modificationDtos) {
+		assertNotNull("modificationDtos", modificationDtos);
+		final Map<String, List<ModificationDto>> path2ModificationDtos = new HashMap<>();
+		for (final ModificationDto modificationDto : modificationDtos) {
+			if (modificationDto instanceof CopyModificationDto) {
+				final CopyModificationDto copyModificationDto = (CopyModificationDto) modificationDto;
+				addModificationDto(path2ModificationDtos, copyModificationDto.getFromPath(), copyModificationDto);
+				addModificationDto(path2ModificationDtos, copyModificationDto.getToPath(), copyModificationDto);
+			}
+			else if (modificationDto instanceof DeleteModificationDto)
+				addModificationDto(path2ModificationDtos, ((DeleteModificationDto) modificationDto).getPath(), modificationDto);
+		}
+
+		for (final ModificationDto modificationDto : modificationDtos) {
+			if (!(modificationDto instanceof CopyModificationDto))
+				continue;
+
+			final CopyModificationDto copyModificationDto = (CopyModificationDto) modificationDto;
+			final DeleteModificationDto deleteModificationDto = findDeleteModificationDto(copyModificationDto, path2ModificationDtos);
+			if (deleteModificationDto != null) {
+				copy2DeleteModificationDto.put(copyModificationDto, deleteModificationDto);
+				delete2CopyModificationDto.put(deleteModificationDto, copyModificationDto);
+			}
+		}
+	}
+
+	private static void addModificationDto(final Map<String, List<ModificationDto>> path2ModificationDtos, final String path, final ModificationDto modificationDto) {
+		List<ModificationDto> list = path2ModificationDtos.get(path);
+		if (list == null) {
+			list = new ArrayList<ModificationDto>();
+			path2ModificationDtos.put(path, list);
+		}
+		if (!list.contains(modificationDto))
+			list.add(modificationDto);
+	}
+
+	private static DeleteModificationDto findDeleteModificationDto(final CopyModificationDto copyModificationDto, final Map<String, List<ModificationDto>> path2ModificationDtos) {
+		final List<ModificationDto> fromPathModificationDtos = path2ModificationDtos.get(copyModificationDto.getFromPath());
+		final List<ModificationDto> toPathModificationDtos = path2ModificationDtos.get(copyModificationDto.getToPath());
+		for (final ModificationDto modificationDto : fromPathModificationDtos) {
+			if (!(modificationDto instanceof DeleteModificationDto)
+					|| modificationDto.getLocalRevision() == copyModificationDto.getLocalRevision())
+				continue;
+
+			final DeleteModificationDto deleteModificationDto = (DeleteModificationDto) modificationDto;
+			if (isUnaffected(copyModificationDto, deleteModificationDto, fromPathModificationDtos)
+					&& isUnaffected(copyModificationDto, deleteModificationDto, toPathModificationDtos))
+				return deleteModificationDto; // there is at most one, because a 2nd delete would affect the 1st one's range
+		}
+		return null;
+	}
+
+	/**
+	 * Checks, whether none of the given path's modifications - except for the copy and delete themselves - is
+	 * located in the range of revisions spanned by the copy and the delete.
+	 */
+	private static boolean isUnaffected(final CopyModificationDto copyModificationDto, final DeleteModificationDto deleteModificationDto, final List<ModificationDto> pathModificationDtos) {
+		final long fromLocalRevision = Math.min(copyModificationDto.getLocalRevision(), deleteModificationDto.getLocalRevision());
+		final long toLocalRevision = Math.max(copyModificationDto.getLocalRevision(), deleteModificationDto.getLocalRevision());
+		for (final ModificationDto modificationDto : pathModificationDtos) {
+			if (modificationDto == copyModificationDto || modificationDto == deleteModificationDto)
+				continue;
+
+			if (fromLocalRevision <= modificationDto.getLocalRevision() && modificationDto.getLocalRevision() <= toLocalRevision)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the {@link DeleteModificationDto} forming a move together with the given copy.
+	 * @param copyModificationDto the copy. Must not be <code>null</code>.
+	 * @return the delete located in another revision or <code>null</code>.
+	 */
+	public DeleteModificationDto getDeleteModificationDto(final CopyModificationDto copyModificationDto) {
+		return copy2DeleteModificationDto.get(assertNotNull("copyModificationDto", copyModificationDto));
+	}
+
+	/**
+	 * Gets the {@link CopyModificationDto} forming a move together with the given delete.
+	 * @param deleteModificationDto the delete. Must not be <code>null</code>.
+	 * @return the copy located in another revision or <code>null</code>.
+	 */
+	public CopyModificationDto getCopyModificationDto(final DeleteModificationDto deleteModificationDto) {
+		return delete2CopyModificationDto.get(assertNotNull("deleteModificationDto", deleteModificationDto));
+	}
+}
@@ -38,8 +38,73 @@ public interface RepoSyncDaemon extends Bean<RepoSyncDaemon.Property> {
 	String CONFIG_KEY_SYNC_STATES_MAX_SIZE = "repoSyncDaemon.syncStates.maxSize";
 	int DEFAULT_SYNC_STATES_MAX_SIZE = 1;
 
+	/**
+	 * The maximum number of remote repositories a local repository is synced with concurrently.
+	 * <p>
+	 * The default value is {@link #DEFAULT_REMOTE_SYNC_THREAD_COUNT}.
+	 * <p>
+	 * The local repository is synced locally only once, before the remote repositories are synced. A value
+	 * of 1 (or 0) syncs the remote repositories one after the other. A slow or unreachable remote repository
+	 * does then delay all the others.
+	 */
+	String CONFIG_KEY_REMOTE_SYNC_THREAD_COUNT = "repoSyncDaemon.remoteSyncThreadCount";
+	int DEFAULT_REMOTE_SYNC_THREAD_COUNT = 4;
+
+	/**
+	 * The maximum number of local repositories being synced at the same time.
+	 * <p>
+	 * The default value is {@link #DEFAULT_MAX_SYNC_COUNT}.
+	 * <p>
+	 * This is a global setting - it is read from the global configuration, only. If more syncs are triggered,
+	 * they are queued and started as soon as running syncs completed - {@link RepoSyncPriority#INTERACTIVE}
+	 * ones before {@link RepoSyncPriority#BACKGROUND} ones.
+	 */
+	String CONFIG_KEY_MAX_SYNC_COUNT = "repoSyncDaemon.maxSyncCount";
+	int DEFAULT_MAX_SYNC_COUNT = 4;
+
+	/**
+	 * The delay in milliseconds before a sync triggered with {@link RepoSyncPriority#BACKGROUND} is started.
+	 * <p>
+	 * The default value is {@link #DEFAULT_BACKGROUND_SYNC_DELAY}.
+	 * <p>
+	 * All triggers of the same local repository arriving during this delay (or while its sync is already
+	 * queued) are collapsed into one single sync.
+	 */
+	String CONFIG_KEY_BACKGROUND_SYNC_DELAY = "repoSyncDaemon.backgroundSyncDelay";
+	long DEFAULT_BACKGROUND_SYNC_DELAY = 10000L;
+
+	/**
+	 * The period in milliseconds after which a local repository is synced again in the background.
+	 * <p>
+	 * The default value is {@link #DEFAULT_SYNC_PERIOD}.
+	 * <p>
+	 * Whenever a sync of a local repository completed (successfully or not), the next sync is triggered after this
+	 * period with {@link RepoSyncPriority#BACKGROUND} priority (and thus additionally delayed by
+	 * {@link #CONFIG_KEY_BACKGROUND_SYNC_DELAY}). A value of 0 disables the periodic sync.
+	 */
+	String CONFIG_KEY_SYNC_PERIOD = "repoSyncDaemon.syncPeriod";
+	long DEFAULT_SYNC_PERIOD = 0L;
+
+	/**
+	 * Triggers a sync of the local repository containing the given {@code file} with
+	 * {@link RepoSyncPriority#INTERACTIVE} priority.
+	 * @param file the local root or any file/directory inside the local repository. Must not be <code>null</code>.
+	 * @return the identifier of the local repository. Never <code>null</code>.
+	 * @see #startSync(File, RepoSyncPriority)
+	 */
 	UUID startSync(File file);
 
+	/**
+	 * Triggers a sync of the local repository containing the given {@code file}.
+	 * <p>
+	 * The sync is queued. If the local repository is already queued, the triggers are collapsed into one single
+	 * sync having the higher priority of both.
+	 * @param file the local root or any file/directory inside the local repository. Must not be <code>null</code>.
+	 * @param priority the priority of the sync. Must not be <code>null</code>.
+	 * @return the identifier of the local repository. Never <code>null</code>.
+	 */
+	UUID startSync(File file, RepoSyncPriority priority);
+
 	void shutdown();
 
 	void shutdownNow();
@@ -10,11 +10,13 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -36,9 +38,19 @@ import co.codewizards.cloudstore.core.repo.local.LocalRepoManagerFactory;
 public class RepoSyncDaemonImpl implements RepoSyncDaemon {
 	private final PropertyChangeSupport propertyChangeSupport = new PropertyChangeSupport(this);
 
-	private Set<RepoSyncQueueItem> syncQueue = new LinkedHashSet<>();
+	private static final Logger logger = LoggerFactory.getLogger(RepoSyncDaemonImpl.class);
+
+	/**
+	 * The queued syncs in the order they were triggered. There is at most one queued sync per repository:
+	 * Further triggers are coalesced into it.
+	 */
+	private Map<UUID, RepoSyncQueueItem> repositoryId2SyncQueueItem = new LinkedHashMap<>();
 	private Map<UUID, RepoSyncRunner> repositoryId2SyncRunner = new HashMap<>();
 	private final ExecutorService executorService;
+	private final Timer startNextSyncsTimer;
+	private TimerTask startNextSyncsTimerTask;
+	private long startNextSyncsTimerTaskTimestamp;
+	private Map<UUID, TimerTask> repositoryId2PeriodicSyncTimerTask = new HashMap<>();
 	private Map<UUID, Set<RepoSyncActivity>> repositoryId2SyncActivities = new HashMap<>();
 	private Map<UUID, List<RepoSyncState>> repositoryId2SyncStates = new HashMap<>();
 	private static final AtomicInteger threadGroupIndex = new AtomicInteger();
@@ -57,6 +69,7 @@ public class RepoSyncDaemonImpl implements RepoSyncDaemon {
 				return new Thread(threadGroup, r, "RepoSyncDaemonThread_" + tgi + "_" + threadIndex.getAndIncrement());
 			}
 		});
+		startNextSyncsTimer = new Timer("RepoSyncDaemonTimer_" + tgi, true);
 	}
 
 	public static RepoSyncDaemon getInstance() {
@@ -65,7 +78,13 @@ public class RepoSyncDaemonImpl implements RepoSyncDaemon {
 
 	@Override
 	public UUID startSync(final File file) {
+		return startSync(file, RepoSyncPriority.INTERACTIVE);
+	}
+
+	@Override
+	public UUID startSync(final File file, final RepoSyncPriority priority) {
 		assertNotNull("file", file);
+		assertNotNull("priority", priority);
 		final File localRoot = LocalRepoHelper.getLocalRootContainingFile(file);
 		if (localRoot == null)
 			throw new IllegalArgumentException("File is not located inside a local repository: " + file);
@@ -75,34 +94,95 @@ public class RepoSyncDaemonImpl implements RepoSyncDaemon {
 			repositoryId = localRepoManager.getRepositoryId();
 		}
 
-		final RepoSyncQueueItem repoSyncQueueItem = new RepoSyncQueueItem(repositoryId, localRoot);
+		long notBeforeTimestamp = System.currentTimeMillis();
+		if (priority == RepoSyncPriority.BACKGROUND)
+			notBeforeTimestamp += ConfigImpl.getInstanceForDirectory(localRoot).getPropertyAsPositiveOrZeroLong(
+					CONFIG_KEY_BACKGROUND_SYNC_DELAY, DEFAULT_BACKGROUND_SYNC_DELAY);
+
+		final RepoSyncQueueItem repoSyncQueueItem = new RepoSyncQueueItem(repositoryId, localRoot, priority, notBeforeTimestamp);
 		enqueue(repoSyncQueueItem);
-		startSyncWithNextSyncQueueItem(repositoryId);
 		updateActivities(repositoryId);
+		startNextSyncs();
 		return repositoryId;
 	}
 
 	private synchronized void enqueue(final RepoSyncQueueItem repoSyncQueueItem) {
-		syncQueue.add(repoSyncQueueItem);
+		final RepoSyncQueueItem queuedItem = repositoryId2SyncQueueItem.get(repoSyncQueueItem.repositoryId);
+		if (queuedItem == null)
+			repositoryId2SyncQueueItem.put(repoSyncQueueItem.repositoryId, repoSyncQueueItem);
+		else
+			queuedItem.coalesce(repoSyncQueueItem);
 	}
 
-	private synchronized void startSyncWithNextSyncQueueItem(final UUID repositoryId) {
-		assertNotNull("repositoryId", repositoryId);
-		if (!repositoryId2SyncRunner.containsKey(repositoryId)) {
-			final RepoSyncQueueItem nextSyncQueueItem = pollSyncQueueItem(repositoryId);
-			if (nextSyncQueueItem != null) {
-				final RepoSyncRunner repoSyncRunner = new RepoSyncRunner(nextSyncQueueItem);
-				repositoryId2SyncRunner.put(nextSyncQueueItem.repositoryId, repoSyncRunner);
+	/**
+	 * Starts as many queued syncs as allowed by {@link #CONFIG_KEY_MAX_SYNC_COUNT}.
+	 * <p>
+	 * Syncs with a higher {@link RepoSyncPriority} are started first; syncs with the same priority in the order
+	 * they were triggered. A sync whose {@link RepoSyncQueueItem#getNotBeforeTimestamp() start time} is not yet
+	 * reached is skipped and a timer is scheduled to invoke this method again.
+	 */
+	private void startNextSyncs() {
+		final List<UUID> startedRepositoryIds = new ArrayList<UUID>();
+		synchronized (this) {
+			final int maxSyncCount = Math.max(1, ConfigImpl.getInstance().getPropertyAsPositiveOrZeroInt(
+					CONFIG_KEY_MAX_SYNC_COUNT, DEFAULT_MAX_SYNC_COUNT));
+			final long now = System.currentTimeMillis();
+			while (repositoryId2SyncRunner.size() < maxSyncCount) {
+				final RepoSyncQueueItem nextSyncQueueItem = pollSyncQueueItem(now);
+				if (nextSyncQueueItem == null)
+					break;
+
 				submitToExecutorService(nextSyncQueueItem);
+				startedRepositoryIds.add(nextSyncQueueItem.repositoryId);
 			}
+			scheduleStartNextSyncsTimerTask(now);
 		}
+		for (final UUID repositoryId : startedRepositoryIds)
+			updateActivities(repositoryId);
 	}
 
-	private void submitToExecutorService(final RepoSyncQueueItem repoSyncQueueItem) {
-		final RepoSyncRunner repoSyncRunner = new RepoSyncRunner(repoSyncQueueItem);
-		synchronized (this) {
-			repositoryId2SyncRunner.put(repoSyncQueueItem.repositoryId, repoSyncRunner);
+	private synchronized void scheduleStartNextSyncsTimerTask(final long now) {
+		long nextTimestamp = Long.MAX_VALUE;
+		for (final RepoSyncQueueItem repoSyncQueueItem : repositoryId2SyncQueueItem.values()) {
+			if (repoSyncQueueItem.getNotBeforeTimestamp() > now)
+				nextTimestamp = Math.min(nextTimestamp, repoSyncQueueItem.getNotBeforeTimestamp());
 		}
+		if (nextTimestamp == Long.MAX_VALUE)
+			return;
+
+		if (startNextSyncsTimerTask != null) {
+			if (startNextSyncsTimerTaskTimestamp <= nextTimestamp)
+				return; // the scheduled task is early enough
+
+			startNextSyncsTimerTask.cancel();
+		}
+
+		startNextSyncsTimerTaskTimestamp = nextTimestamp;
+		startNextSyncsTimerTask = new TimerTask() {
+			@Override
+			public void run() {
+				synchronized (RepoSyncDaemonImpl.this) {
+					if (startNextSyncsTimerTask == this)
+						startNextSyncsTimerTask = null;
+				}
+				try {
+					startNextSyncs();
+				} catch (final Throwable x) {
+					logger.error("startNextSyncsTimerTask.run: " + x, x);
+				}
+			}
+		};
+		try {
+			startNextSyncsTimer.schedule(startNextSyncsTimerTask, nextTimestamp - now);
+		} catch (final IllegalStateException x) { // timer cancelled => shut down
+			logger.warn("scheduleStartNextSyncsTimerTask: " + x);
+			startNextSyncsTimerTask = null;
+		}
+	}
+
+	private synchronized void submitToExecutorService(final RepoSyncQueueItem repoSyncQueueItem) {
+		final RepoSyncRunner repoSyncRunner = new RepoSyncRunner(repoSyncQueueItem);
+		repositoryId2SyncRunner.put(repoSyncQueueItem.repositoryId, repoSyncRunner);
 		executorService.submit(new WrapperRunnable(repoSyncRunner));
 	}
 
@@ -130,65 +210,98 @@ public class RepoSyncDaemonImpl implements RepoSyncDaemon {
 				final RepoSyncRunner removed = repositoryId2SyncRunner.remove(repositoryId);
 				if (removed != repoSyncRunner)
 					logger.error("run: removed != repoSyncRunner");
-
-				startSyncWithNextSyncQueueItem(repositoryId);
 			}
 			updateActivities(repositoryId);
+			startNextSyncs();
+			schedulePeriodicSync(repoSyncRunner.getSyncQueueItem());
 		}
 	}
 
-	private void registerSyncSuccess(final RepoSyncRunner repoSyncRunner) {
-		assertNotNull("repoSyncRunner", repoSyncRunner);
+	/**
+	 * Schedules the next periodic sync of the given repository, if {@link #CONFIG_KEY_SYNC_PERIOD} is enabled.
+	 * A periodic sync scheduled before is cancelled - there is at most one per repository.
+	 */
+	private void schedulePeriodicSync(final RepoSyncQueueItem repoSyncQueueItem) {
+		final UUID repositoryId = repoSyncQueueItem.repositoryId;
+		final File localRoot = repoSyncQueueItem.localRoot;
+		final long syncPeriod = ConfigImpl.getInstanceForDirectory(localRoot).getPropertyAsPositiveOrZeroLong(
+				CONFIG_KEY_SYNC_PERIOD, DEFAULT_SYNC_PERIOD);
 
-		final List<RepoSyncState> statesAdded = new ArrayList<RepoSyncState>();
-		final List<RepoSyncState> statesRemoved;
-		final UUID localRepositoryId = repoSyncRunner.getSyncQueueItem().repositoryId;
-		final File localRoot = repoSyncRunner.getSyncQueueItem().localRoot;
 		synchronized (this) {
-			final List<RepoSyncState> list = _getRepoSyncStates(localRepositoryId);
-			for (final Map.Entry<UUID, URL> me : repoSyncRunner.getRemoteRepositoryId2RemoteRootMap().entrySet()) {
-				final UUID remoteRepositoryId = me.getKey();
-				final URL remoteRoot = me.getValue();
-				final RepoSyncState state = new RepoSyncState(localRepositoryId, remoteRepositoryId, localRoot, remoteRoot,
-						Severity.INFO, "Sync OK.", null,
-						repoSyncRunner.getSyncStarted(), repoSyncRunner.getSyncFinished());
-				list.add(state);
-				statesAdded.add(state);
+			final TimerTask oldTimerTask = repositoryId2PeriodicSyncTimerTask.remove(repositoryId);
+			if (oldTimerTask != null)
+				oldTimerTask.cancel();
+
+			if (syncPeriod == 0)
+				return;
+
+			final TimerTask timerTask = new TimerTask() {
+				@Override
+				public void run() {
+					synchronized (RepoSyncDaemonImpl.this) {
+						if (repositoryId2PeriodicSyncTimerTask.get(repositoryId) == this)
+							repositoryId2PeriodicSyncTimerTask.remove(repositoryId);
+					}
+					try {
+						startSync(localRoot, RepoSyncPriority.BACKGROUND);
+					} catch (final Throwable x) {
+						logger.error("periodicSyncTimerTask.run: " + x, x);
+					}
+				}
+			};
+			try {
+				startNextSyncsTimer.schedule(timerTask, syncPeriod);
+			} catch (final IllegalStateException x) { // timer cancelled => shut down
+				logger.warn("schedulePeriodicSync: " + x);
+				return;
 			}
-			statesRemoved = evictOldStates(localRepositoryId, localRoot);
+			repositoryId2PeriodicSyncTimerTask.put(repositoryId, timerTask);
 		}
+	}
 
-		firePropertyChange(PropertyEnum.states_added, null, Collections.unmodifiableList(statesAdded));
-
-		if (! statesRemoved.isEmpty())
-			firePropertyChange(PropertyEnum.states_removed, null, Collections.unmodifiableList(statesRemoved));
-
-		firePropertyChange(PropertyEnum.states, null, getStates(localRepositoryId));
+	private void registerSyncSuccess(final RepoSyncRunner repoSyncRunner) {
+		assertNotNull("repoSyncRunner", repoSyncRunner);
+		registerSyncStates(repoSyncRunner, null);
 	}
 
 	private void registerSyncError(final RepoSyncRunner repoSyncRunner, final Throwable exception) {
 		assertNotNull("repoSyncRunner", repoSyncRunner);
 		assertNotNull("exception", exception);
+		registerSyncStates(repoSyncRunner, exception);
+	}
 
+	/**
+	 * Registers the states of all remote repositories synced by the given {@code repoSyncRunner}.
+	 * <p>
+	 * The remote repositories are synced independently of each other - each of them has its own state.
+	 * If the sync failed as a whole (e.g. the local sync failed), every remote repository without its
+	 * own state gets an error-state with the given {@code exception}.
+	 * @param repoSyncRunner the runner which completed. Must not be <code>null</code>.
+	 * @param exception the exception which aborted the sync as a whole, or <code>null</code>.
+	 */
+	private void registerSyncStates(final RepoSyncRunner repoSyncRunner, final Throwable exception) {
 		final List<RepoSyncState> statesAdded = new ArrayList<RepoSyncState>();
 		final List<RepoSyncState> statesRemoved;
 		final UUID localRepositoryId = repoSyncRunner.getSyncQueueItem().repositoryId;
 		final File localRoot = repoSyncRunner.getSyncQueueItem().localRoot;
 		synchronized (this) {
 			final List<RepoSyncState> list = _getRepoSyncStates(localRepositoryId);
-			UUID remoteRepositoryId = repoSyncRunner.getRemoteRepositoryId();
-			URL remoteRoot = repoSyncRunner.getRemoteRoot();
-			final RepoSyncState state = new RepoSyncState(localRepositoryId, remoteRepositoryId, localRoot, remoteRoot,
-					Severity.ERROR, exception.getMessage(), new Error(exception),
-					repoSyncRunner.getSyncStarted(), repoSyncRunner.getSyncFinished());
-			if (remoteRepositoryId != null && remoteRoot != null) {
+			final Set<UUID> remoteRepositoryIds = new HashSet<UUID>();
+			for (final RepoSyncState state : repoSyncRunner.getRepoSyncStates()) {
+				remoteRepositoryIds.add(state.getServerRepositoryId());
 				list.add(state);
 				statesAdded.add(state);
 			}
-			else {
-				for (Map.Entry<UUID, URL> me : repoSyncRunner.getRemoteRepositoryId2RemoteRootMap().entrySet()) {
-					remoteRepositoryId = me.getKey();
-					remoteRoot = me.getValue();
+			if (exception != null) {
+				for (final Map.Entry<UUID, URL> me : repoSyncRunner.getRemoteRepositoryId2RemoteRootMap().entrySet()) {
+					final UUID remoteRepositoryId = me.getKey();
+					final URL remoteRoot = me.getValue();
+					if (remoteRepositoryIds.contains(remoteRepositoryId))
+						continue;
+
+					final RepoSyncState state = new RepoSyncState(localRepositoryId, remoteRepositoryId, localRoot, remoteRoot,
+							Severity.ERROR, exception.getMessage(), new Error(exception),
+							repoSyncRunner.getSyncStarted(), repoSyncRunner.getSyncFinished());
 					list.add(state);
 					statesAdded.add(state);
 				}
@@ -244,16 +357,22 @@ public class RepoSyncDaemonImpl implements RepoSyncDaemon {
 		return result;
 	}
 
-	private synchronized RepoSyncQueueItem pollSyncQueueItem(UUID repositoryId) {
-		assertNotNull("repositoryId", repositoryId);
-		for (Iterator<RepoSyncQueueItem> it = syncQueue.iterator(); it.hasNext(); ) {
-			final RepoSyncQueueItem repoSyncQueueItem = it.next();
-			if (repositoryId.equals(repoSyncQueueItem.repositoryId)) {
-				it.remove();
-				return repoSyncQueueItem;
-			}
+	private synchronized RepoSyncQueueItem pollSyncQueueItem(final long now) {
+		RepoSyncQueueItem result = null;
+		for (final RepoSyncQueueItem repoSyncQueueItem : repositoryId2SyncQueueItem.values()) {
+			if (repositoryId2SyncRunner.containsKey(repoSyncQueueItem.repositoryId))
+				continue; // never sync the same repository twice at the same time
+
+			if (repoSyncQueueItem.getNotBeforeTimestamp() > now)
+				continue;
+
+			if (result == null || result.getPriority().compareTo(repoSyncQueueItem.getPriority()) < 0)
+				result = repoSyncQueueItem;
 		}
-		return null;
+		if (result != null)
+			repositoryId2SyncQueueItem.remove(result.repositoryId);
+
+		return result;
 	}
 
 	@Override
@@ -304,16 +423,15 @@ public class RepoSyncDaemonImpl implements RepoSyncDaemon {
 					activitiesAdded.add(activity);
 			}
 
-			final List<RepoSyncQueueItem> queueItems = _findQueueItems(localRepositoryId);
-			if (queueItems.isEmpty()) {
+			final RepoSyncQueueItem queueItem = repositoryId2SyncQueueItem.get(localRepositoryId);
+			if (queueItem == null) {
 				final List<RepoSyncActivity> activitiesStale = _findActivities(localRepositoryId, RepoSyncActivityType.QUEUED);
 				activitiesRemoved.addAll(activitiesStale);
 				activities.removeAll(activitiesStale);
 			}
 			else {
 				final RepoSyncActivity activity = new RepoSyncActivity(
-						repoSyncRunner.getSyncQueueItem().repositoryId,
-						repoSyncRunner.getSyncQueueItem().localRoot, RepoSyncActivityType.QUEUED);
+						queueItem.repositoryId, queueItem.localRoot, RepoSyncActivityType.QUEUED);
 
 				if (activities.add(activity))
 					activitiesAdded.add(activity);
@@ -345,23 +463,15 @@ public class RepoSyncDaemonImpl implements RepoSyncDaemon {
 		return Collections.unmodifiableList(result);
 	}
 
-	private synchronized List<RepoSyncQueueItem> _findQueueItems(final UUID localRepositoryId) {
-		assertNotNull("localRepositoryId", localRepositoryId);
-		final List<RepoSyncQueueItem> result = new ArrayList<RepoSyncQueueItem>(2);
-		for (final RepoSyncQueueItem queueItem : syncQueue) {
-			if (localRepositoryId.equals(queueItem.repositoryId))
-				result.add(queueItem);
-		}
-		return Collections.unmodifiableList(result);
-	}
-
 	@Override
 	public void shutdown() {
+		startNextSyncsTimer.cancel();
 		executorService.shutdown();
 	}
 
 	@Override
 	public void shutdownNow() {
+		startNextSyncsTimer.cancel();
 		executorService.shutdownNow();
 	}
 
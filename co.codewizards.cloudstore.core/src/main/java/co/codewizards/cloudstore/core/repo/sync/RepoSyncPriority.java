@@ -0,0 +1,24 @@
+package co.codewizards.cloudstore.core.repo.sync;
+
+/**
+ * Priority of a sync triggered via {@link RepoSyncDaemon#startSync(co.codewizards.cloudstore.core.oio.File, RepoSyncPriority)}.
+ * <p>
+ * The elements are sorted ascendingly: The later an element is declared, the higher its priority.
+ */
+public enum RepoSyncPriority {
+	/**
+	 * The sync was triggered automatically - e.g. by the periodic sync ({@link RepoSyncDaemon#CONFIG_KEY_SYNC_PERIOD})
+	 * or by the file-system watcher of a local repository.
+	 * <p>
+	 * Such a sync is delayed by {@link RepoSyncDaemon#CONFIG_KEY_BACKGROUND_SYNC_DELAY}, so that a burst of
+	 * triggers is collapsed into one single sync.
+	 */
+	BACKGROUND,
+
+	/**
+	 * The sync was triggered by the user, who is likely waiting for it.
+	 * <p>
+	 * Such a sync is started as soon as possible - before all queued {@link #BACKGROUND} syncs.
+	 */
+	INTERACTIVE
+}
@@ -12,9 +12,43 @@ class RepoSyncQueueItem {
 	public final File localRoot;
 	// TODO later, we should allow for syncing only a certain directory or even file
 
-	public RepoSyncQueueItem(final UUID repositoryId, final File localRoot) {
+	private RepoSyncPriority priority;
+	private long notBeforeTimestamp;
+
+	public RepoSyncQueueItem(final UUID repositoryId, final File localRoot, final RepoSyncPriority priority, final long notBeforeTimestamp) {
 		this.repositoryId = assertNotNull("repositoryId", repositoryId);
 		this.localRoot = assertNotNull("localRoot", localRoot);
+		this.priority = assertNotNull("priority", priority);
+		this.notBeforeTimestamp = notBeforeTimestamp;
+	}
+
+	public RepoSyncPriority getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Gets the earliest time (in millis since 1970-01-01 00:00 UTC) when the sync may be started.
+	 * @return the earliest time when the sync may be started.
+	 */
+	public long getNotBeforeTimestamp() {
+		return notBeforeTimestamp;
+	}
+
+	/**
+	 * Merges the given item (triggered later for the same repository) into this one.
+	 * <p>
+	 * The merged item has the higher priority and the earlier start time of both.
+	 * @param other the other item. Must not be <code>null</code>.
+	 */
+	public void coalesce(final RepoSyncQueueItem other) {
+		assertNotNull("other", other);
+		if (! equals(other))
+			throw new IllegalArgumentException("other does not belong to the same repository!");
+
+		if (priority.compareTo(other.priority) < 0)
+			priority = other.priority;
+
+		notBeforeTimestamp = Math.min(notBeforeTimestamp, other.notBeforeTimestamp);
 	}
 
 	@Override
@@ -36,4 +70,4 @@ class RepoSyncQueueItem {
 		final RepoSyncQueueItem other = (RepoSyncQueueItem) obj;
 		return equal(this.repositoryId, other.repositoryId);
 	}
-}
\ No newline at end of file
+}
@@ -3,26 +3,49 @@ package co.codewizards.cloudstore.core.repo.sync;
 import static co.codewizards.cloudstore.core.util.AssertUtil.*;
 
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import co.codewizards.cloudstore.core.Severity;
+import co.codewizards.cloudstore.core.config.ConfigImpl;
+import co.codewizards.cloudstore.core.dto.Error;
+import co.codewizards.cloudstore.core.metrics.Counter;
+import co.codewizards.cloudstore.core.metrics.MetricRegistry;
+import co.codewizards.cloudstore.core.metrics.Timer;
 import co.codewizards.cloudstore.core.progress.LoggerProgressMonitor;
 import co.codewizards.cloudstore.core.repo.local.LocalRepoManager;
 import co.codewizards.cloudstore.core.repo.local.LocalRepoManagerFactory;
 
+/**
+ * Syncs one local repository with all its remote repositories.
+ * <p>
+ * The local repository is synced locally once, before the remote repositories are synced. Up to
+ * {@link RepoSyncDaemon#CONFIG_KEY_REMOTE_SYNC_THREAD_COUNT} remote repositories are synced concurrently. A failing
+ * remote repository does not affect the others: Every remote repository gets its own {@link RepoSyncState}.
+ */
 class RepoSyncRunner implements Runnable {
 
 	private static final Logger logger = LoggerFactory.getLogger(RepoSyncRunner.class);
 
+	private static final Timer runTimer = MetricRegistry.getInstance().timer("repoSyncRunner.run");
+	private static final Timer remoteSyncTimer = MetricRegistry.getInstance().timer("repoSyncRunner.remoteSync");
+	private static final Counter remoteSyncErrorCounter = MetricRegistry.getInstance().counter("repoSyncRunner.remoteSync.error");
+
 	private final RepoSyncQueueItem repoSyncQueueItem;
 	private Map<UUID, URL> remoteRepositoryId2RemoteRootMap = new HashMap<>(0);
-	private UUID remoteRepositoryId;
-	private URL remoteRoot;
+	private final List<RepoSyncState> repoSyncStates = Collections.synchronizedList(new ArrayList<RepoSyncState>());
 	private Date syncStarted;
 	private Date syncFinished;
 
@@ -37,40 +60,81 @@ class RepoSyncRunner implements Runnable {
 	@Override
 	public void run() {
 		syncStarted = new Date();
+		final Timer.Context runTimerContext = runTimer.time();
 		try {
-			remoteRepositoryId = null;
-			remoteRoot = null;
+			repoSyncStates.clear();
 			try (final LocalRepoManager localRepoManager = LocalRepoManagerFactory.Helper.getInstance().createLocalRepoManagerForExistingRepository(repoSyncQueueItem.localRoot);) {
 				remoteRepositoryId2RemoteRootMap = new HashMap<>(localRepoManager.getRemoteRepositoryId2RemoteRootMap());
+				if (remoteRepositoryId2RemoteRootMap.isEmpty())
+					return;
+
+				// Shared by all remote repositories - the RepoToRepoSync instances below therefore skip it.
+				logger.info("run: locally syncing {} ('{}')", repoSyncQueueItem.repositoryId, repoSyncQueueItem.localRoot);
+				localRepoManager.localSync(new LoggerProgressMonitor(logger));
+			}
+
+			final int threadCount = Math.min(getRemoteSyncThreadCount(), remoteRepositoryId2RemoteRootMap.size());
+			if (threadCount <= 1) {
+				for (final Map.Entry<UUID, URL> me : remoteRepositoryId2RemoteRootMap.entrySet())
+					sync(me.getKey(), me.getValue());
+
+				return;
 			}
 
-			for (Map.Entry<UUID, URL> me : remoteRepositoryId2RemoteRootMap.entrySet()) {
-				remoteRepositoryId = me.getKey();
-				remoteRoot = me.getValue();
-				try (RepoToRepoSync repoToRepoSync = RepoToRepoSync.create(repoSyncQueueItem.localRoot, remoteRoot);) {
-					repoToRepoSync.sync(new LoggerProgressMonitor(logger));
+			final ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+			try {
+				final List<Future<?>> futures = new ArrayList<>(remoteRepositoryId2RemoteRootMap.size());
+				for (final Map.Entry<UUID, URL> me : remoteRepositoryId2RemoteRootMap.entrySet()) {
+					final UUID remoteRepositoryId = me.getKey();
+					final URL remoteRoot = me.getValue();
+					futures.add(executorService.submit(new Runnable() {
+						@Override
+						public void run() {
+							sync(remoteRepositoryId, remoteRoot);
+						}
+					}));
 				}
+				for (final Future<?> future : futures)
+					future.get();
+			} catch (final InterruptedException | ExecutionException x) {
+				throw new RuntimeException(x);
+			} finally {
+				executorService.shutdownNow();
 			}
-			remoteRepositoryId = null;
-			remoteRoot = null;
 		} finally {
+			runTimerContext.stop();
 			syncFinished = new Date();
 		}
 	}
 
-	public UUID getRemoteRepositoryId() {
-		return remoteRepositoryId;
+	private void sync(final UUID remoteRepositoryId, final URL remoteRoot) {
+		final Date remoteSyncStarted = new Date();
+		Throwable error = null;
+		try (
+				Timer.Context timerContext = remoteSyncTimer.time();
+				RepoToRepoSync repoToRepoSync = RepoToRepoSync.create(repoSyncQueueItem.localRoot, remoteRoot);
+		) {
+			repoToRepoSync.setLocalSync(false);
+			repoToRepoSync.sync(new LoggerProgressMonitor(logger));
+		} catch (final Throwable x) {
+			logger.error("sync: remoteRepositoryId=" + remoteRepositoryId + " remoteRoot=" + remoteRoot + ": " + x, x);
+			remoteSyncErrorCounter.inc();
+			error = x;
+		}
+		final RepoSyncState state;
+		if (error == null)
+			state = new RepoSyncState(repoSyncQueueItem.repositoryId, remoteRepositoryId, repoSyncQueueItem.localRoot, remoteRoot,
+					Severity.INFO, "Sync OK.", null, remoteSyncStarted, new Date());
+		else
+			state = new RepoSyncState(repoSyncQueueItem.repositoryId, remoteRepositoryId, repoSyncQueueItem.localRoot, remoteRoot,
+					Severity.ERROR, error.getMessage(), new Error(error), remoteSyncStarted, new Date());
+
+		repoSyncStates.add(state);
 	}
 
-	/**
-	 * Gets the current remote root URL or the last one having synced.
-	 * <p>
-	 * If the sync was aborted due to a failure, this reflects the URL that failed to sync. If all
-	 * syncs succeeded, this is <code>null</code>.
-	 * @return the current/last remote root URL or <code>null</code>.
-	 */
-	public URL getRemoteRoot() {
-		return remoteRoot;
+	protected int getRemoteSyncThreadCount() {
+		return ConfigImpl.getInstanceForDirectory(repoSyncQueueItem.localRoot).getPropertyAsPositiveOrZeroInt(
+				RepoSyncDaemon.CONFIG_KEY_REMOTE_SYNC_THREAD_COUNT, RepoSyncDaemon.DEFAULT_REMOTE_SYNC_THREAD_COUNT);
 	}
 
 	/**
@@ -81,6 +145,19 @@ class RepoSyncRunner implements Runnable {
 		return remoteRepositoryId2RemoteRootMap;
 	}
 
+	/**
+	 * Gets the states of the remote repositories which were synced (successfully or not).
+	 * <p>
+	 * If the sync failed as a whole (e.g. because the local sync failed), the remote repositories which were
+	 * not synced are missing.
+	 * @return the states of the remote repositories which were synced. Never <code>null</code>.
+	 */
+	public List<RepoSyncState> getRepoSyncStates() {
+		synchronized (repoSyncStates) {
+			return new ArrayList<>(repoSyncStates);
+		}
+	}
+
 	public Date getSyncStarted() {
 		return syncStarted;
 	}
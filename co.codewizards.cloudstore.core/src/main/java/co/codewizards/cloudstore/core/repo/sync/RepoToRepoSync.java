@@ -6,12 +6,16 @@ import static co.codewizards.cloudstore.core.util.AssertUtil.*;
 import static co.codewizards.cloudstore.core.util.HashUtil.*;
 import static co.codewizards.cloudstore.core.util.Util.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -19,30 +23,50 @@ import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import co.codewizards.cloudstore.core.config.Config;
+import co.codewizards.cloudstore.core.config.ConfigImpl;
 import co.codewizards.cloudstore.core.dto.ChangeSetDto;
 import co.codewizards.cloudstore.core.dto.CopyModificationDto;
 import co.codewizards.cloudstore.core.dto.DeleteModificationDto;
 import co.codewizards.cloudstore.core.dto.DirectoryDto;
 import co.codewizards.cloudstore.core.dto.FileChunkDto;
+import co.codewizards.cloudstore.core.dto.FileChunkDtoList;
+import co.codewizards.cloudstore.core.dto.FileDataDeltaDto;
+import co.codewizards.cloudstore.core.dto.FileDataDeltaSegmentDto;
+import co.codewizards.cloudstore.core.dto.FileDataSignatureDto;
 import co.codewizards.cloudstore.core.dto.ModificationDto;
 import co.codewizards.cloudstore.core.dto.NormalFileDto;
+import co.codewizards.cloudstore.core.dto.PutFileDto;
+import co.codewizards.cloudstore.core.dto.PutFileDtoList;
 import co.codewizards.cloudstore.core.dto.RepoFileDto;
 import co.codewizards.cloudstore.core.dto.RepoFileDtoTreeNode;
 import co.codewizards.cloudstore.core.dto.SymlinkDto;
+import co.codewizards.cloudstore.core.io.Sha1VerifyingInputStream;
+import co.codewizards.cloudstore.core.metrics.Counter;
+import co.codewizards.cloudstore.core.metrics.Histogram;
+import co.codewizards.cloudstore.core.metrics.MetricRegistry;
+import co.codewizards.cloudstore.core.metrics.Timer;
 import co.codewizards.cloudstore.core.oio.File;
+import co.codewizards.cloudstore.core.progress.NullProgressMonitor;
 import co.codewizards.cloudstore.core.progress.ProgressMonitor;
 import co.codewizards.cloudstore.core.progress.SubProgressMonitor;
+import co.codewizards.cloudstore.core.repo.local.FileChunkingStrategy;
 import co.codewizards.cloudstore.core.repo.local.LocalRepoHelper;
 import co.codewizards.cloudstore.core.repo.local.LocalRepoManager;
 import co.codewizards.cloudstore.core.repo.local.LocalRepoManagerFactory;
 import co.codewizards.cloudstore.core.repo.transport.CollisionException;
+import co.codewizards.cloudstore.core.repo.transport.FileDataMismatchException;
 import co.codewizards.cloudstore.core.repo.transport.LocalRepoTransport;
 import co.codewizards.cloudstore.core.repo.transport.RepoTransport;
 import co.codewizards.cloudstore.core.repo.transport.RepoTransportFactory;
@@ -63,6 +87,46 @@ public class RepoToRepoSync implements AutoCloseable {
 	 */
 	private static final boolean TEST_INVERSE = false;
 
+	private static final Timer syncTimer = MetricRegistry.getInstance().timer("repoToRepoSync.sync");
+	private static final DirectionMetrics upMetrics = new DirectionMetrics("up");
+	private static final DirectionMetrics downMetrics = new DirectionMetrics("down");
+
+	/**
+	 * The metrics of one direction: "up" means from the local to the remote repository, "down" the opposite.
+	 */
+	private static class DirectionMetrics {
+		/** Getting the change-set from the source - including the source's local sync, if requested. */
+		public final Timer changeSetTimer;
+		/** Applying the change-set to the destination - including the transfer of all file data. */
+		public final Timer transferTimer;
+		/** Ending the sync on both sides. */
+		public final Timer endSyncTimer;
+		/** Bytes of file data actually transferred (for delta-transfers only the literal data). */
+		public final Counter bytes;
+		/** Bytes of file data transferred per file (only files transferred chunk-wise). */
+		public final Histogram fileBytes;
+		public final Counter chunksTransferred;
+		/** File-chunks not transferred, because they are already equal in the destination. */
+		public final Counter chunksUnchanged;
+		/** File-chunks not transferred, because the destination found their data somewhere else. */
+		public final Counter chunksReused;
+		/** Files not transferred, because they are already equal in the destination. */
+		public final Counter filesUnchanged;
+
+		public DirectionMetrics(final String direction) {
+			final MetricRegistry metricRegistry = MetricRegistry.getInstance();
+			changeSetTimer = metricRegistry.timer("repoToRepoSync.changeSet." + direction);
+			transferTimer = metricRegistry.timer("repoToRepoSync.transfer." + direction);
+			endSyncTimer = metricRegistry.timer("repoToRepoSync.endSync." + direction);
+			bytes = metricRegistry.counter("repoToRepoSync.bytes." + direction);
+			fileBytes = metricRegistry.histogram("repoToRepoSync.fileBytes." + direction);
+			chunksTransferred = metricRegistry.counter("repoToRepoSync.chunks.transferred." + direction);
+			chunksUnchanged = metricRegistry.counter("repoToRepoSync.chunks.unchanged." + direction);
+			chunksReused = metricRegistry.counter("repoToRepoSync.chunks.reused." + direction);
+			filesUnchanged = metricRegistry.counter("repoToRepoSync.files.unchanged." + direction);
+		}
+	}
+
 	protected final File localRoot;
 	protected final URL remoteRoot;
 	protected final LocalRepoManager localRepoManager;
@@ -71,9 +135,159 @@ public class RepoToRepoSync implements AutoCloseable {
 	protected final UUID localRepositoryId;
 	protected final UUID remoteRepositoryId;
 
+	/**
+	 * The {@code key} for the number of file-chunks of a single file being copied concurrently, used with
+	 * {@link Config#getPropertyAsPositiveOrZeroInt(String, int)}.
+	 * <p>
+	 * Every chunk is read from the source, verified and written to the destination. If this value is greater
+	 * than 1, this many chunks are in flight at the same time, hiding the round-trip-latency of remote
+	 * repositories. A value of 1 (or 0) means to copy one chunk after the other. The value is read once per
+	 * sync; a change takes effect with the next sync.
+	 * <p>
+	 * The default value is {@link #DEFAULT_FILE_CHUNK_PIPELINE_SIZE}.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 */
+	public static final String CONFIG_KEY_FILE_CHUNK_PIPELINE_SIZE = "repoToRepoSync.fileChunkPipelineSize"; //$NON-NLS-1$
+	public static final int DEFAULT_FILE_CHUNK_PIPELINE_SIZE = 4;
+
+	/**
+	 * The {@code key} for the number of files (and symlinks) being synced concurrently, used with
+	 * {@link Config#getPropertyAsPositiveOrZeroInt(String, int)}.
+	 * <p>
+	 * Directories are always created one after the other and before their children. Only the files
+	 * (which are independent from each other) are synced in parallel. A value of 1 (or 0) means to sync
+	 * one file after the other. The value is read once per sync; a change takes effect with the next sync.
+	 * <p>
+	 * The default value is {@link #DEFAULT_FILE_SYNC_THREAD_COUNT}.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 */
+	public static final String CONFIG_KEY_FILE_SYNC_THREAD_COUNT = "repoToRepoSync.fileSyncThreadCount"; //$NON-NLS-1$
+	public static final int DEFAULT_FILE_SYNC_THREAD_COUNT = 4;
+
+	/**
+	 * The {@code key} for the maximum number of small files being put into the destination with one single
+	 * invocation of {@link RepoTransport#putFiles(PutFileDtoList)}, used with
+	 * {@link Config#getPropertyAsPositiveOrZeroInt(String, int)}.
+	 * <p>
+	 * Files not longer than {@link #CONFIG_KEY_PUT_FILES_MAX_FILE_LENGTH} are collected and transferred together
+	 * (meta-data and content), instead of invoking {@code beginPutFile(...)}, {@code putFileData(...)} and
+	 * {@code endPutFile(...)} for each of them. A value of 1 (or 0) disables this batching.
+	 * <p>
+	 * The default value is {@link #DEFAULT_PUT_FILES_BATCH_SIZE}.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 */
+	public static final String CONFIG_KEY_PUT_FILES_BATCH_SIZE = "repoToRepoSync.putFilesBatchSize"; //$NON-NLS-1$
+	public static final int DEFAULT_PUT_FILES_BATCH_SIZE = 100;
+
+	/**
+	 * The {@code key} for the maximum length (in bytes) of a file being transferred in a batch together with
+	 * other files, used with {@link Config#getPropertyAsPositiveOrZeroLong(String, long)}.
+	 * <p>
+	 * Longer files are always transferred individually - chunk by chunk.
+	 * <p>
+	 * The default value is {@link #DEFAULT_PUT_FILES_MAX_FILE_LENGTH}.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 * @see #CONFIG_KEY_PUT_FILES_BATCH_SIZE
+	 */
+	public static final String CONFIG_KEY_PUT_FILES_MAX_FILE_LENGTH = "repoToRepoSync.putFilesMaxFileLength"; //$NON-NLS-1$
+	public static final long DEFAULT_PUT_FILES_MAX_FILE_LENGTH = 64 * 1024;
+
+	/**
+	 * The {@code key} for enabling the reuse of data already existing in the destination repository, used with
+	 * {@link Config#getPropertyAsBoolean(String, boolean)}.
+	 * <p>
+	 * If enabled, the destination is asked to take the data of dirty file-chunks from identical chunks it
+	 * already has (in any file) via {@link RepoTransport#putFileDataFromExistingChunks(String, FileChunkDtoList)}.
+	 * Only the remaining chunks are transferred. This is most effective with the
+	 * {@link FileChunkingStrategy#contentDefined contentDefined} chunking strategy.
+	 * <p>
+	 * The default value is {@link #DEFAULT_REUSE_EXISTING_FILE_CHUNKS}.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 */
+	public static final String CONFIG_KEY_REUSE_EXISTING_FILE_CHUNKS = "repoToRepoSync.reuseExistingFileChunks"; //$NON-NLS-1$
+	public static final boolean DEFAULT_REUSE_EXISTING_FILE_CHUNKS = true;
+
+	/**
+	 * The {@code key} for enabling delta-transfers of modified file-chunks, used with
+	 * {@link Config#getPropertyAsBoolean(String, boolean)}.
+	 * <p>
+	 * If enabled, a dirty file-chunk, whose position already contains data in the destination, is not transferred
+	 * completely. Instead, the destination sends the signature of its data
+	 * ({@link RepoTransport#getFileDataSignatureDto(String, long, int)}), the source sends only the difference
+	 * ({@link RepoTransport#getFileDataDeltaDto(String, long, int, FileDataSignatureDto)}) and the destination
+	 * combines it with its data ({@link RepoTransport#putFileDataDelta(String, FileDataDeltaDto)}) - like rsync does.
+	 * <p>
+	 * Delta-transfers are never used between two repositories on the same machine (i.e. if both are accessed
+	 * via a {@link LocalRepoTransport}), because there is no bandwidth to be saved.
+	 * <p>
+	 * The default value is {@link #DEFAULT_DELTA_TRANSFER}.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 */
+	public static final String CONFIG_KEY_DELTA_TRANSFER = "repoToRepoSync.deltaTransfer"; //$NON-NLS-1$
+	public static final boolean DEFAULT_DELTA_TRANSFER = true;
+
+	/**
+	 * The {@code key} for the maximum number of transfer-done-markers being buffered in memory, used with
+	 * {@link Config#getPropertyAsPositiveOrZeroInt(String, int)}.
+	 * <p>
+	 * Every synced file, directory and modification is marked as done, so that an interrupted sync can be resumed
+	 * without doing the same work again. The markers of files and directories are not written one by one, but
+	 * collected and written together, when this many are pending (or {@link #CONFIG_KEY_TRANSFER_DONE_MARKER_FLUSH_PERIOD}
+	 * elapsed). All pending markers are written before the sync ends - even if it fails. A value of 1 (or 0) means to
+	 * write every marker immediately. The markers of modifications are always written immediately.
+	 * <p>
+	 * The default value is {@link #DEFAULT_TRANSFER_DONE_MARKER_FLUSH_SIZE}.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 */
+	public static final String CONFIG_KEY_TRANSFER_DONE_MARKER_FLUSH_SIZE = "repoToRepoSync.transferDoneMarkerFlushSize"; //$NON-NLS-1$
+	public static final int DEFAULT_TRANSFER_DONE_MARKER_FLUSH_SIZE = 1000;
+
+	/**
+	 * The {@code key} for the maximum time in milliseconds transfer-done-markers are buffered in memory, used with
+	 * {@link Config#getPropertyAsPositiveOrZeroLong(String, long)}.
+	 * <p>
+	 * This limits the work being repeated, if the process is killed during a sync.
+	 * <p>
+	 * The default value is {@link #DEFAULT_TRANSFER_DONE_MARKER_FLUSH_PERIOD}.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 * @see #CONFIG_KEY_TRANSFER_DONE_MARKER_FLUSH_SIZE
+	 */
+	public static final String CONFIG_KEY_TRANSFER_DONE_MARKER_FLUSH_PERIOD = "repoToRepoSync.transferDoneMarkerFlushPeriod"; //$NON-NLS-1$
+	public static final long DEFAULT_TRANSFER_DONE_MARKER_FLUSH_PERIOD = 30000L;
+
 	private ExecutorService localSyncExecutor;
 	private Future<Void> localSyncFuture;
 
+	/**
+	 * The {@linkplain #getFileChunkPipelineSize() pipeline size} read at the beginning of the current sync. 0, if
+	 * not yet read.
+	 */
+	private int fileChunkPipelineSize;
+	private ExecutorService fileChunkExecutor;
+	private int fileChunkExecutorPoolSize;
+
+	/**
+	 * The {@linkplain #getFileSyncThreadCount() thread count} read at the beginning of the current sync. 0, if
+	 * not yet read.
+	 */
+	private int fileSyncThreadCount;
+	private ExecutorService fileSyncExecutor;
+	private int fileSyncExecutorPoolSize;
+
+	private TransferDoneMarkerCache transferDoneMarkerCache;
+
+	private boolean localSync = true;
+
+	private final Map<String, Boolean> methodName2Overridden = new ConcurrentHashMap<String, Boolean>();
+
 	/**
 	 * Create an instance.
 	 * @param localRoot the root of the local repository or any file/directory inside it. This is
@@ -106,7 +320,9 @@ public class RepoToRepoSync implements AutoCloseable {
 	public void sync(final ProgressMonitor monitor) {
 		assertNotNull("monitor", monitor);
 		monitor.beginTask("Synchronising...", 201);
+		final Timer.Context syncTimerContext = syncTimer.time();
 		try {
+			readExecutorPoolSizes();
 			readRemoteRepositoryIdFromRepoTransport();
 			monitor.worked(1);
 
@@ -116,15 +332,19 @@ public class RepoToRepoSync implements AutoCloseable {
 			if (localSyncFuture != null)
 				throw new IllegalStateException("localSyncFuture != null");
 
-			localSyncExecutor = Executors.newFixedThreadPool(1);
-			localSyncFuture = localSyncExecutor.submit(new Callable<Void>() {
-				@Override
-				public Void call() throws Exception {
-					logger.info("sync: locally syncing {} ('{}')", localRepositoryId, localRoot);
-					localRepoManager.localSync(new SubProgressMonitor(monitor, 50));
-					return null;
-				}
-			});
+			if (isLocalSync()) {
+				localSyncExecutor = Executors.newFixedThreadPool(1);
+				localSyncFuture = localSyncExecutor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						logger.info("sync: locally syncing {} ('{}')", localRepositoryId, localRoot);
+						localRepoManager.localSync(new SubProgressMonitor(monitor, 50));
+						return null;
+					}
+				});
+			}
+			else
+				monitor.worked(50);
 
 			if (!TEST_INVERSE) { // This is the normal sync (NOT test).
 				syncDown(true, new SubProgressMonitor(monitor, 50));
@@ -144,17 +364,39 @@ public class RepoToRepoSync implements AutoCloseable {
 				logger.info("sync: locally syncing on *remote* side {} ('{}')", localRepositoryId, localRoot);
 				remoteRepoTransport.getChangeSetDto(true); // trigger the local sync on the remote side (we don't need the change set)
 
-				waitForAndCheckLocalSyncFuture();
+				waitForAndCheckLocalSyncFutureIfExists();
 
 				syncUp(new SubProgressMonitor(monitor, 50));
 				syncDown(false, new SubProgressMonitor(monitor, 50));
 				syncUp(new SubProgressMonitor(monitor, 50));
 			}
 		} finally {
+			syncTimerContext.stop();
 			monitor.done();
 		}
 	}
 
+	/**
+	 * Whether {@link #sync(ProgressMonitor)} first syncs the local repository (i.e. its file system with its
+	 * database).
+	 * @return whether the local repository is synced locally, first. <code>true</code> by default.
+	 * @see #setLocalSync(boolean)
+	 */
+	public boolean isLocalSync() {
+		return localSync;
+	}
+
+	/**
+	 * Sets whether {@link #sync(ProgressMonitor)} first syncs the local repository.
+	 * <p>
+	 * This should be disabled only, if the caller already invoked {@link LocalRepoManager#localSync(ProgressMonitor)}
+	 * right before - e.g. because it syncs the local repository with multiple remote repositories at the same time.
+	 * @param localSync whether the local repository is synced locally, first.
+	 */
+	public void setLocalSync(final boolean localSync) {
+		this.localSync = localSync;
+	}
+
 	protected void syncUp(final ProgressMonitor monitor) {
 		logger.info("syncUp: fromID={} from='{}' toID={} to='{}'",
 				localRepositoryId, localRoot, remoteRepositoryId, remoteRoot);
@@ -195,6 +437,10 @@ public class RepoToRepoSync implements AutoCloseable {
 					String.format("remoteRepoTransport.getRepositoryId() does not match repositoryId in local DB! %s != %s", repositoryId, remoteRepositoryId));
 	}
 
+	private DirectionMetrics getDirectionMetrics(final RepoTransport fromRepoTransport) {
+		return fromRepoTransport == localRepoTransport ? upMetrics : downMetrics;
+	}
+
 	private RepoTransport createRepoTransport(final File rootFile, final UUID clientRepositoryId) {
 		URL rootURL;
 		try {
@@ -212,18 +458,55 @@ public class RepoToRepoSync implements AutoCloseable {
 
 	protected void sync(final RepoTransport fromRepoTransport, final boolean fromRepoLocalSync, final RepoTransport toRepoTransport, final ProgressMonitor monitor) {
 		monitor.beginTask("Synchronising...", 100);
+		final DirectionMetrics directionMetrics = getDirectionMetrics(fromRepoTransport);
 		try {
-			final ChangeSetDto changeSetDto = fromRepoTransport.getChangeSetDto(fromRepoLocalSync);
+			// The change-set is consumed page by page in order to keep the memory footprint low. Only the first page
+			// contains the repositoryDto and the modifications. Since the number of pages is unknown in advance, each page
+			// gets half of the remaining progress.
+			ChangeSetDto changeSetDto;
+			try (Timer.Context timerContext = directionMetrics.changeSetTimer.time();) {
+				changeSetDto = fromRepoTransport.getChangeSetDto(fromRepoLocalSync, null);
+			}
 			monitor.worked(8);
 
 			waitForAndCheckLocalSyncFutureIfExists();
 			toRepoTransport.prepareForChangeSetDto(changeSetDto);
-			sync(fromRepoTransport, toRepoTransport, changeSetDto, new SubProgressMonitor(monitor, 90));
+			final long fromRepositoryRevision = changeSetDto.getRepositoryDto().getRevision();
+
+			int remainingWork = 90;
+			while (true) {
+				final String cursor = changeSetDto.getCursor();
+				final int work = cursor == null ? remainingWork : remainingWork / 2;
+				remainingWork -= work;
+				try (Timer.Context timerContext = directionMetrics.transferTimer.time();) {
+					sync(fromRepoTransport, toRepoTransport, changeSetDto, new SubProgressMonitor(monitor, work));
+				}
 
-			fromRepoTransport.endSyncFromRepository();
-			toRepoTransport.endSyncToRepository(changeSetDto.getRepositoryDto().getRevision());
+				if (cursor == null)
+					break;
+
+				logger.debug("sync: Fetching next page of change-set: cursor={}", cursor);
+				try (Timer.Context timerContext = directionMetrics.changeSetTimer.time();) {
+					changeSetDto = fromRepoTransport.getChangeSetDto(fromRepoLocalSync, cursor);
+				}
+			}
+			monitor.worked(remainingWork);
+
+			try (Timer.Context timerContext = directionMetrics.endSyncTimer.time();) {
+				// The markers must be written before they are deleted by ending the sync.
+				flushTransferDoneMarkerCache();
+
+				fromRepoTransport.endSyncFromRepository();
+				toRepoTransport.endSyncToRepository(fromRepositoryRevision);
+			}
 			monitor.worked(2);
 		} finally {
+			// If the sync failed, the markers written so far allow for resuming it.
+			try {
+				flushTransferDoneMarkerCache();
+			} catch (final RuntimeException x) {
+				logger.warn("sync: Writing transfer-done-markers failed: " + x, x);
+			}
 			monitor.done();
 		}
 	}
@@ -276,6 +559,15 @@ public class RepoToRepoSync implements AutoCloseable {
 				? localRepoTransport.getFileInProgressPaths(fromRepoTransport.getRepositoryId(), toRepoTransport.getRepositoryId())
 						: null;
 
+		final int fileSyncThreadCount = getSyncFileSyncThreadCount();
+		final ExecutorService fileSyncExecutor = fileSyncThreadCount > 1 ? getFileSyncExecutor() : null;
+		final LinkedList<Future<Integer>> fileSyncFutures = new LinkedList<>();
+		final int maxFileSyncFuturesInFlight = 2 * fileSyncThreadCount;
+
+		final int putFilesBatchSize = getPutFilesBatchSize();
+		final long putFilesMaxFileLength = getPutFilesMaxFileLength();
+		List<RepoFileDtoTreeNode> putFilesBatch = new ArrayList<>();
+
 		monitor.beginTask("Synchronising...", repoFileDtoTree.size());
 		try {
 			for (final RepoFileDtoTreeNode repoFileDtoTreeNode : repoFileDtoTree) {
@@ -326,47 +618,250 @@ public class RepoToRepoSync implements AutoCloseable {
 					continue;
 				}
 
-				if (repoFileDto instanceof DirectoryDto)
+				if (repoFileDto instanceof DirectoryDto) {
+					// A directory must exist before its children are synced. Since the tree is iterated parent-first and
+					// directories are created on this thread, its parent already exists. The files still in flight are
+					// independent from it and thus not awaited.
 					syncDirectory(fromRepoTransport, toRepoTransport, repoFileDtoTreeNode, (DirectoryDto) repoFileDto, new SubProgressMonitor(monitor, 1));
-				else if (repoFileDto instanceof NormalFileDto) {
-					syncFile(fromRepoTransport, toRepoTransport, repoFileDtoTreeNode, repoFileDto, monitor);
+					markDone(fromRepoTransport, toRepoTransport, repoFileDto);
+				}
+				else if (putFilesBatchSize > 1 && isFileBatchable(repoFileDto, putFilesMaxFileLength)) {
+					putFilesBatch.add(repoFileDtoTreeNode);
+					if (putFilesBatch.size() >= putFilesBatchSize) {
+						submitFileBatch(fromRepoTransport, toRepoTransport, putFilesBatch, fileSyncExecutor, fileSyncFutures, maxFileSyncFuturesInFlight, monitor);
+						putFilesBatch = new ArrayList<>();
+					}
+				}
+				else if (fileSyncExecutor != null) {
+					awaitFileSyncFutures(fileSyncFutures, maxFileSyncFuturesInFlight - 1, monitor);
+					fileSyncFutures.add(fileSyncExecutor.submit(new Callable<Integer>() {
+						@Override
+						public Integer call() throws Exception {
+							syncRepoFile(fromRepoTransport, toRepoTransport, repoFileDtoTreeNode, new NullProgressMonitor());
+							return 1;
+						}
+					}));
 				}
-				else if (repoFileDto instanceof SymlinkDto)
-					syncSymlink(fromRepoTransport, toRepoTransport, repoFileDtoTreeNode, (SymlinkDto) repoFileDto, new SubProgressMonitor(monitor, 1));
 				else
-					throw new IllegalStateException("Unsupported RepoFileDto type: " + repoFileDto);
-
-				markDone(fromRepoTransport, toRepoTransport, repoFileDto);
+					syncRepoFile(fromRepoTransport, toRepoTransport, repoFileDtoTreeNode, monitor);
 			}
+			submitFileBatch(fromRepoTransport, toRepoTransport, putFilesBatch, fileSyncExecutor, fileSyncFutures, maxFileSyncFuturesInFlight, monitor);
+			awaitFileSyncFutures(fileSyncFutures, 0, monitor);
 		} finally {
+			// If we abort due to an exception, we must not leave any file in flight. Otherwise, it might
+			// still be written while the next operation is already performed.
+			for (final Future<Integer> future : fileSyncFutures) {
+				try {
+					future.get();
+				} catch (final Exception x) {
+					logger.warn("sync: Ignoring failure of file still in flight after abort: " + x, x);
+				}
+			}
 			monitor.done();
 		}
 	}
 
+	/**
+	 * Syncs a single file or symlink (but not a directory!) and marks it done afterwards.
+	 * <p>
+	 * This method might be invoked on a worker thread (concurrently with other invocations for other files)
+	 * and must therefore not touch any state not being thread-safe.
+	 */
+	private void syncRepoFile(final RepoTransport fromRepoTransport, final RepoTransport toRepoTransport,
+			final RepoFileDtoTreeNode repoFileDtoTreeNode, final ProgressMonitor monitor) {
+		final RepoFileDto repoFileDto = repoFileDtoTreeNode.getRepoFileDto();
+		if (repoFileDto instanceof NormalFileDto) {
+			syncFile(fromRepoTransport, toRepoTransport, repoFileDtoTreeNode, repoFileDto, monitor);
+		}
+		else if (repoFileDto instanceof SymlinkDto)
+			syncSymlink(fromRepoTransport, toRepoTransport, repoFileDtoTreeNode, (SymlinkDto) repoFileDto, new SubProgressMonitor(monitor, 1));
+		else
+			throw new IllegalStateException("Unsupported RepoFileDto type: " + repoFileDto);
+
+		markDone(fromRepoTransport, toRepoTransport, repoFileDto);
+	}
+
+	/**
+	 * Waits for the oldest files being synced concurrently until at most {@code maxInFlight} are still in flight.
+	 * <p>
+	 * Every future returns the number of files it synced. If a file's sync failed, its exception is re-thrown.
+	 */
+	private void awaitFileSyncFutures(final LinkedList<Future<Integer>> fileSyncFutures, final int maxInFlight, final ProgressMonitor monitor) {
+		while (fileSyncFutures.size() > maxInFlight) {
+			final int fileCount = getFutureResult(fileSyncFutures.removeFirst());
+			monitor.worked(fileCount);
+		}
+	}
+
+	/**
+	 * Checks whether the given file is small enough to be transferred in a batch via
+	 * {@link #syncFileBatch(RepoTransport, RepoTransport, List)}.
+	 */
+	private boolean isFileBatchable(final RepoFileDto repoFileDto, final long maxFileLength) {
+		if (!(repoFileDto instanceof NormalFileDto))
+			return false;
+
+		final NormalFileDto normalFileDto = (NormalFileDto) repoFileDto;
+		return normalFileDto.getLength() >= 0 // -1, if in progress
+				&& normalFileDto.getLength() <= maxFileLength
+				&& normalFileDto.getSha1() != null
+				&& normalFileDto.getLastModified() != null;
+	}
+
+	/**
+	 * Syncs the given batch of small files either on the calling thread or - if there is a {@code fileSyncExecutor} -
+	 * on a worker thread. Does nothing, if the batch is empty.
+	 */
+	private void submitFileBatch(final RepoTransport fromRepoTransport, final RepoTransport toRepoTransport,
+			final List<RepoFileDtoTreeNode> batch, final ExecutorService fileSyncExecutor,
+			final LinkedList<Future<Integer>> fileSyncFutures, final int maxInFlight, final ProgressMonitor monitor) {
+		if (batch.isEmpty())
+			return;
+
+		if (fileSyncExecutor == null) {
+			syncFileBatch(fromRepoTransport, toRepoTransport, batch);
+			monitor.worked(batch.size());
+			return;
+		}
+
+		awaitFileSyncFutures(fileSyncFutures, maxInFlight - 1, monitor);
+		fileSyncFutures.add(fileSyncExecutor.submit(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				syncFileBatch(fromRepoTransport, toRepoTransport, batch);
+				return batch.size();
+			}
+		}));
+	}
+
+	/**
+	 * Syncs multiple small files with one single invocation of {@link RepoTransport#putFiles(PutFileDtoList)}
+	 * and marks them done afterwards.
+	 * <p>
+	 * The destination is not asked for its files before: This would cost one round-trip per file, which batching
+	 * avoids. Instead, {@link RepoTransport#putFiles(PutFileDtoList)} skips files already being equal on the destination side.
+	 * Every file whose data cannot be read consistently (because it was modified or deleted in the meantime)
+	 * is synced individually via {@link #syncRepoFile(RepoTransport, RepoTransport, RepoFileDtoTreeNode, ProgressMonitor)}.
+	 * So are all files of the batch, if a {@link CollisionException} occurs.
+	 * <p>
+	 * This method might be invoked on a worker thread (concurrently with other invocations for other files)
+	 * and must therefore not touch any state not being thread-safe.
+	 */
+	private void syncFileBatch(final RepoTransport fromRepoTransport, final RepoTransport toRepoTransport,
+			final List<RepoFileDtoTreeNode> batch) {
+		final PutFileDtoList putFileDtoList = new PutFileDtoList();
+		final List<RepoFileDtoTreeNode> batchedNodes = new ArrayList<>(batch.size());
+		long batchLength = 0;
+		final DirectionMetrics directionMetrics = getDirectionMetrics(fromRepoTransport);
+		for (final RepoFileDtoTreeNode repoFileDtoTreeNode : batch) {
+			final PutFileDto putFileDto = createPutFileDto(fromRepoTransport, repoFileDtoTreeNode);
+			if (putFileDto == null) {
+				logger.debug("syncFileBatch: File was modified during sync on source side. Syncing it individually: {}", repoFileDtoTreeNode.getPath());
+				syncRepoFile(fromRepoTransport, toRepoTransport, repoFileDtoTreeNode, new NullProgressMonitor());
+				continue;
+			}
+			putFileDtoList.getPutFileDtos().add(putFileDto);
+			batchedNodes.add(repoFileDtoTreeNode);
+			batchLength += putFileDto.getLength();
+		}
+
+		if (batchedNodes.isEmpty())
+			return;
+
+		logger.info("syncFileBatch: Putting {} files with together {} bytes.", batchedNodes.size(), batchLength);
+		try {
+			putFiles(fromRepoTransport, toRepoTransport, putFileDtoList);
+			directionMetrics.bytes.inc(batchLength);
+		} catch (final CollisionException x) {
+			logger.info("CollisionException during putFiles. Syncing {} files individually.", batchedNodes.size());
+			if (logger.isDebugEnabled())
+				logger.debug(x.toString(), x);
+
+			for (final RepoFileDtoTreeNode repoFileDtoTreeNode : batchedNodes)
+				syncRepoFile(fromRepoTransport, toRepoTransport, repoFileDtoTreeNode, new NullProgressMonitor());
+
+			return;
+		}
+
+		for (final RepoFileDtoTreeNode repoFileDtoTreeNode : batchedNodes)
+			markDone(fromRepoTransport, toRepoTransport, repoFileDtoTreeNode.getRepoFileDto());
+	}
+
+	/**
+	 * Reads the entire file from the source and creates a {@link PutFileDto} for it.
+	 * @return the {@link PutFileDto} or <code>null</code>, if the file was modified or deleted
+	 * on the source side after the change-set was created.
+	 */
+	private PutFileDto createPutFileDto(final RepoTransport fromRepoTransport, final RepoFileDtoTreeNode repoFileDtoTreeNode) {
+		final NormalFileDto normalFileDto = (NormalFileDto) repoFileDtoTreeNode.getRepoFileDto();
+		final String path = repoFileDtoTreeNode.getPath();
+		final byte[] fileData = fromRepoTransport.getFileData(path, 0, (int) normalFileDto.getLength());
+		if (fileData == null)
+			return null; // file was deleted
+
+		if (fileData.length != normalFileDto.getLength() || !sha1(fileData).equals(normalFileDto.getSha1()))
+			return null; // file was modified
+
+		final PutFileDto putFileDto = new PutFileDto();
+		putFileDto.setPath(path);
+		putFileDto.setLastModified(normalFileDto.getLastModified());
+		putFileDto.setLength(normalFileDto.getLength());
+		putFileDto.setSha1(normalFileDto.getSha1());
+		putFileDto.setFileData(fileData);
+		return putFileDto;
+	}
+
 	private boolean isDone(final RepoTransport fromRepoTransport, final RepoTransport toRepoTransport, final RepoFileDto repoFileDto) {
-		return localRepoTransport.isTransferDone(
-				fromRepoTransport.getRepositoryId(), toRepoTransport.getRepositoryId(),
+		return getTransferDoneMarkerCache(fromRepoTransport, toRepoTransport).isTransferDone(
 				TransferDoneMarkerType.REPO_FILE, repoFileDto.getId(), repoFileDto.getLocalRevision());
 	}
 
 	private void markDone(final RepoTransport fromRepoTransport, final RepoTransport toRepoTransport, final RepoFileDto repoFileDto) {
-		localRepoTransport.markTransferDone(
-				fromRepoTransport.getRepositoryId(), toRepoTransport.getRepositoryId(),
+		getTransferDoneMarkerCache(fromRepoTransport, toRepoTransport).markTransferDone(
 				TransferDoneMarkerType.REPO_FILE, repoFileDto.getId(), repoFileDto.getLocalRevision());
 	}
 
 	private boolean isDone(final RepoTransport fromRepoTransport, final RepoTransport toRepoTransport, final ModificationDto modificationDto) {
-		return localRepoTransport.isTransferDone(
-				fromRepoTransport.getRepositoryId(), toRepoTransport.getRepositoryId(),
+		return getTransferDoneMarkerCache(fromRepoTransport, toRepoTransport).isTransferDone(
 				TransferDoneMarkerType.MODIFICATION, modificationDto.getId(), modificationDto.getLocalRevision());
 	}
 
 	private void markDone(final RepoTransport fromRepoTransport, final RepoTransport toRepoTransport, final ModificationDto modificationDto) {
-		localRepoTransport.markTransferDone(
-				fromRepoTransport.getRepositoryId(), toRepoTransport.getRepositoryId(),
+		getTransferDoneMarkerCache(fromRepoTransport, toRepoTransport).markTransferDone(
 				TransferDoneMarkerType.MODIFICATION, modificationDto.getId(), modificationDto.getLocalRevision());
 	}
 
+	private synchronized TransferDoneMarkerCache getTransferDoneMarkerCache(final RepoTransport fromRepoTransport, final RepoTransport toRepoTransport) {
+		final UUID fromRepositoryId = fromRepoTransport.getRepositoryId();
+		final UUID toRepositoryId = toRepoTransport.getRepositoryId();
+		if (transferDoneMarkerCache != null
+				&& (!fromRepositoryId.equals(transferDoneMarkerCache.getFromRepositoryId())
+						|| !toRepositoryId.equals(transferDoneMarkerCache.getToRepositoryId())))
+			flushTransferDoneMarkerCache();
+
+		if (transferDoneMarkerCache == null) {
+			final Config config = ConfigImpl.getInstanceForDirectory(localRoot);
+			final int flushSize = config.getPropertyAsPositiveOrZeroInt(
+					CONFIG_KEY_TRANSFER_DONE_MARKER_FLUSH_SIZE, DEFAULT_TRANSFER_DONE_MARKER_FLUSH_SIZE);
+			final long flushPeriod = config.getPropertyAsPositiveOrZeroLong(
+					CONFIG_KEY_TRANSFER_DONE_MARKER_FLUSH_PERIOD, DEFAULT_TRANSFER_DONE_MARKER_FLUSH_PERIOD);
+			transferDoneMarkerCache = new TransferDoneMarkerCache(
+					localRepoTransport, fromRepositoryId, toRepositoryId, flushSize, flushPeriod);
+		}
+		return transferDoneMarkerCache;
+	}
+
+	/**
+	 * Writes all buffered transfer-done-markers and discards the cache. The next access re-reads the markers.
+	 */
+	private synchronized void flushTransferDoneMarkerCache() {
+		if (transferDoneMarkerCache != null) {
+			final TransferDoneMarkerCache cache = transferDoneMarkerCache;
+			transferDoneMarkerCache = null;
+			cache.flush();
+		}
+	}
+
 	private SortedMap<Long, Collection<ModificationDto>> getLocalRevision2ModificationDtos(final Collection<ModificationDto> modificationDtos) {
 		final SortedMap<Long, Collection<ModificationDto>> map = new TreeMap<Long, Collection<ModificationDto>>();
 		for (final ModificationDto modificationDto : modificationDtos) {
@@ -385,6 +880,7 @@ public class RepoToRepoSync implements AutoCloseable {
 		monitor.beginTask("Synchronising...", modificationDtos.size());
 		try {
 			final SortedMap<Long,Collection<ModificationDto>> localRevision2ModificationDtos = getLocalRevision2ModificationDtos(modificationDtos);
+			final CrossRevisionMoveSet crossRevisionMoveSet = new CrossRevisionMoveSet(modificationDtos);
 			for (final Map.Entry<Long,Collection<ModificationDto>> me : localRevision2ModificationDtos.entrySet()) {
 				final ModificationDtoSet modificationDtoSet = new ModificationDtoSet(me.getValue());
 
@@ -403,6 +899,12 @@ public class RepoToRepoSync implements AutoCloseable {
 						if (!itCopyMod.hasNext() && deleteModificationDtos != null && !deleteModificationDtos.isEmpty())
 							moveInstead = true;
 
+						// The delete might be located in a later revision. It is then applied normally, when its revision
+						// is processed - which does nothing, if the file was moved successfully.
+						final DeleteModificationDto laterDeleteModificationDto = crossRevisionMoveSet.getDeleteModificationDto(copyModificationDto);
+						if (laterDeleteModificationDto != null && laterDeleteModificationDto.getLocalRevision() > copyModificationDto.getLocalRevision())
+							moveInstead = true;
+
 						if (moveInstead) {
 							logger.info("syncModifications: Moving from '{}' to '{}'", copyModificationDto.getFromPath(), copyModificationDto.getToPath());
 							toRepoTransport.move(copyModificationDto.getFromPath(), copyModificationDto.getToPath());
@@ -431,6 +933,15 @@ public class RepoToRepoSync implements AutoCloseable {
 							continue;
 						}
 
+						// The copy might be located in a later revision. We then move instead of deleting and skip the copy.
+						final CopyModificationDto laterCopyModificationDto = crossRevisionMoveSet.getCopyModificationDto(deleteModificationDto);
+						if (laterCopyModificationDto != null && laterCopyModificationDto.getLocalRevision() > deleteModificationDto.getLocalRevision()
+								&& !isDone(fromRepoTransport, toRepoTransport, laterCopyModificationDto)) {
+							logger.info("syncModifications: Moving from '{}' to '{}'", laterCopyModificationDto.getFromPath(), laterCopyModificationDto.getToPath());
+							toRepoTransport.move(laterCopyModificationDto.getFromPath(), laterCopyModificationDto.getToPath());
+							markDone(fromRepoTransport, toRepoTransport, laterCopyModificationDto);
+						}
+
 						logger.info("syncModifications: Deleting '{}'", deleteModificationDto.getPath());
 						applyDeleteModification(fromRepoTransport, toRepoTransport, deleteModificationDto);
 
@@ -530,9 +1041,11 @@ public class RepoToRepoSync implements AutoCloseable {
 
 			final NormalFileDto fromNormalFileDto = (NormalFileDto) fromRepoFileDto;
 
+			final DirectionMetrics directionMetrics = getDirectionMetrics(fromRepoTransport);
 			final RepoFileDto toRepoFileDto = toRepoTransport.getRepoFileDto(path);
 			if (areFilesExistingAndEqual(fromRepoFileDto, toRepoFileDto)) {
 				logger.info("File is already equal on destination side (sha1='{}'): {}", fromNormalFileDto.getSha1(), path);
+				directionMetrics.filesUnchanged.inc();
 				return;
 			}
 			monitor.worked(10);
@@ -563,12 +1076,20 @@ public class RepoToRepoSync implements AutoCloseable {
 			for (final FileChunkDto toTempFileChunkDto : toNormalFileDto.getTempFileChunkDtos())
 				offset2ToTempFileChunkDto.put(toTempFileChunkDto.getOffset(), toTempFileChunkDto);
 
+			deleteStaleTempFileChunks(toRepoTransport, path, fromNormalFileDto, offset2ToTempFileChunkDto);
+
+			// The destination's chunks are matched by offset - not by their index. With content-defined chunking, a
+			// modification might split or merge chunks, shifting the indices of all following chunks, though their
+			// offsets and data are unchanged.
+			final Map<Long, FileChunkDto> offset2ToFileChunkDto = new HashMap<>(toNormalFileDto.getFileChunkDtos().size());
+			for (final FileChunkDto toFileChunkDto : toNormalFileDto.getFileChunkDtos())
+				offset2ToFileChunkDto.put(toFileChunkDto.getOffset(), toFileChunkDto);
+
 			logger.debug("Comparing {} FileChunkDtos. path='{}'", fromNormalFileDto.getFileChunkDtos().size(), path);
 			final List<FileChunkDto> fromFileChunkDtosDirty = new ArrayList<FileChunkDto>();
-			final Iterator<FileChunkDto> toFileChunkDtoIterator = toNormalFileDto.getFileChunkDtos().iterator();
 			int fileChunkIndex = -1;
 			for (final FileChunkDto fromFileChunkDto : fromNormalFileDto.getFileChunkDtos()) {
-				final FileChunkDto toFileChunkDto = toFileChunkDtoIterator.hasNext() ? toFileChunkDtoIterator.next() : null;
+				final FileChunkDto toFileChunkDto = offset2ToFileChunkDto.get(fromFileChunkDto.getOffset());
 				++fileChunkIndex;
 				final FileChunkDto toTempFileChunkDto = offset2ToTempFileChunkDto.get(fromFileChunkDto.getOffset());
 				if (toTempFileChunkDto == null) {
@@ -580,6 +1101,7 @@ public class RepoToRepoSync implements AutoCloseable {
 							logger.trace("Skipping clean FileChunkDto. index={} offset={} sha1='{}'",
 									fileChunkIndex, fromFileChunkDto.getOffset(), fromFileChunkDto.getSha1());
 						}
+						directionMetrics.chunksUnchanged.inc();
 						continue;
 					}
 				}
@@ -591,6 +1113,7 @@ public class RepoToRepoSync implements AutoCloseable {
 							logger.trace("Skipping clean temporary FileChunkDto. index={} offset={} sha1='{}'",
 									fileChunkIndex, fromFileChunkDto.getOffset(), fromFileChunkDto.getSha1());
 						}
+						directionMetrics.chunksUnchanged.inc();
 						continue;
 					}
 				}
@@ -608,56 +1131,565 @@ public class RepoToRepoSync implements AutoCloseable {
 			logger.info("Need to copy {} dirty file-chunks (of {} total). path='{}'",
 					fromFileChunkDtosDirty.size(), fromNormalFileDto.getFileChunkDtos().size(), path);
 
+			if (!fromFileChunkDtosDirty.isEmpty() && isReuseExistingFileChunks())
+				removeReusedFileChunks(fromRepoTransport, toRepoTransport, repoFileDtoTreeNode, path, fromFileChunkDtosDirty);
+
+			// Dirty file-chunks beginning before this position already have data in the destination and may be transferred as delta.
+			final long deltaBaseLength = isFileDataDeltaTransfer(fromRepoTransport, toRepoTransport) ? toNormalFileDto.getLength() : 0L;
+
 			final ProgressMonitor subMonitor = new SubProgressMonitor(monitor, 73);
 			subMonitor.beginTask("Synchronising...", fromFileChunkDtosDirty.size());
-			fileChunkIndex = -1;
-			long bytesCopied = 0;
 			final long copyChunksBeginTimestamp = System.currentTimeMillis();
+			final long bytesCopied = copyFileChunks(fromRepoTransport, toRepoTransport, repoFileDtoTreeNode, path,
+					fromFileChunkDtosDirty, deltaBaseLength, subMonitor);
+			if (bytesCopied < 0) {
+				// The file is left in state 'inProgress'. Thus it should definitely not be synced back in the opposite
+				// direction. The file should be synced again in the correct direction in the next run (after the source
+				// repo did a local sync, too).
+				return;
+			}
+			subMonitor.done();
+			directionMetrics.fileBytes.update(bytesCopied);
+
+			logger.info("Copied {} dirty file-chunks with together {} bytes in {} ms. path='{}'",
+					fromFileChunkDtosDirty.size(), bytesCopied, System.currentTimeMillis() - copyChunksBeginTimestamp, path);
+
+			try {
+				endPutFile(fromRepoTransport, toRepoTransport, repoFileDtoTreeNode, path, fromNormalFileDto);
+			} catch (final FileDataMismatchException x) {
+				// The file is left in state 'inProgress' - see above. The destination did not write it.
+				logger.warn("Destination file does not match after transfer: {}", path);
+				if (logger.isDebugEnabled())
+					logger.debug(x.toString(), x);
+
+				return;
+			}
+			localRepoTransport.markFileInProgress(fromRepoTransport.getRepositoryId(), toRepoTransport.getRepositoryId(), path, false);
+			monitor.worked(6);
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Lets the destination discard the chunks left from an interrupted transfer, which do not match any of the
+	 * source file's current chunks. If the source file was modified in the meantime - especially with content-defined
+	 * chunking - they might overlap the current chunks and thus corrupt the file.
+	 * @param offset2ToTempFileChunkDto the destination's temporarily stored chunks. Must not be <code>null</code>.
+	 * This map is modified: After this method returns, it contains only the chunks matching the source file.
+	 */
+	private void deleteStaleTempFileChunks(final RepoTransport toRepoTransport, final String path,
+			final NormalFileDto fromNormalFileDto, final Map<Long, FileChunkDto> offset2ToTempFileChunkDto) {
+		if (offset2ToTempFileChunkDto.isEmpty())
+			return;
+
+		final Map<Long, FileChunkDto> offset2FromFileChunkDto = new HashMap<>(fromNormalFileDto.getFileChunkDtos().size());
+		for (final FileChunkDto fromFileChunkDto : fromNormalFileDto.getFileChunkDtos())
+			offset2FromFileChunkDto.put(fromFileChunkDto.getOffset(), fromFileChunkDto);
+
+		final FileChunkDtoList staleFileChunkDtoList = new FileChunkDtoList();
+		for (final Iterator<FileChunkDto> it = offset2ToTempFileChunkDto.values().iterator(); it.hasNext(); ) {
+			final FileChunkDto toTempFileChunkDto = it.next();
+			final FileChunkDto fromFileChunkDto = offset2FromFileChunkDto.get(toTempFileChunkDto.getOffset());
+			if (fromFileChunkDto == null
+					|| !equal(fromFileChunkDto.getLength(), toTempFileChunkDto.getLength())
+					|| !equal(fromFileChunkDto.getSha1(), toTempFileChunkDto.getSha1())) {
+				staleFileChunkDtoList.getFileChunkDtos().add(toTempFileChunkDto);
+				it.remove();
+			}
+		}
+		if (staleFileChunkDtoList.getFileChunkDtos().isEmpty())
+			return;
+
+		logger.info("Discarding {} stale temporary file-chunks (of {} total). path='{}'",
+				staleFileChunkDtoList.getFileChunkDtos().size(),
+				staleFileChunkDtoList.getFileChunkDtos().size() + offset2ToTempFileChunkDto.size(), path);
+		toRepoTransport.deleteTempFileChunks(path, staleFileChunkDtoList);
+	}
+
+	/**
+	 * Lets the destination write the dirty file-chunks it already has somewhere and removes them from the given list.
+	 * @param fromFileChunkDtosDirty the dirty file-chunks. Must not be <code>null</code>. This list is modified: After
+	 * this method returns, it contains only the file-chunks which still need to be copied.
+	 */
+	private void removeReusedFileChunks(final RepoTransport fromRepoTransport, final RepoTransport toRepoTransport,
+			final RepoFileDtoTreeNode repoFileDtoTreeNode, final String path,
+			final List<FileChunkDto> fromFileChunkDtosDirty) {
+		final long beginTimestamp = System.currentTimeMillis();
+		final List<FileChunkDto> reusedFileChunkDtos = putFileDataFromExistingChunks(
+				fromRepoTransport, toRepoTransport, repoFileDtoTreeNode, path, fromFileChunkDtosDirty);
+
+		if (reusedFileChunkDtos.isEmpty())
+			return;
+
+		final Set<Long> reusedOffsets = new HashSet<>(reusedFileChunkDtos.size());
+		for (final FileChunkDto reusedFileChunkDto : reusedFileChunkDtos)
+			reusedOffsets.add(reusedFileChunkDto.getOffset());
+
+		for (final Iterator<FileChunkDto> it = fromFileChunkDtosDirty.iterator(); it.hasNext(); ) {
+			if (reusedOffsets.contains(it.next().getOffset()))
+				it.remove();
+		}
+		getDirectionMetrics(fromRepoTransport).chunksReused.inc(reusedOffsets.size());
+
+		logger.info("Reused {} dirty file-chunks already existing in the destination in {} ms. Still need to copy {} dirty file-chunks. path='{}'",
+				reusedOffsets.size(), System.currentTimeMillis() - beginTimestamp, fromFileChunkDtosDirty.size(), path);
+	}
+
+	/**
+	 * Copies the given dirty file-chunks from the source to the destination.
+	 * <p>
+	 * If the {@linkplain #getFileChunkPipelineSize() pipeline size} is greater than 1, multiple chunks
+	 * are read, verified and written concurrently. Otherwise, they are copied one after the other.
+	 * In both cases, this method returns only after all chunks were written (or the copying was aborted)
+	 * and no more chunk is in flight.
+	 * @param deltaBaseLength the length of the destination's data usable for delta-transfers. Dirty file-chunks
+	 * beginning before this position are transferred as delta. 0 disables delta-transfers.
+	 * @return the number of bytes copied or -1, if the copying was aborted, because the source file was
+	 * modified/deleted during the sync or a collision occurred.
+	 */
+	private long copyFileChunks(final RepoTransport fromRepoTransport, final RepoTransport toRepoTransport,
+			final RepoFileDtoTreeNode repoFileDtoTreeNode, final String path,
+			final List<FileChunkDto> fromFileChunkDtosDirty, final long deltaBaseLength, final ProgressMonitor monitor) {
+
+		final int pipelineSize = getSyncFileChunkPipelineSize();
+		if (pipelineSize <= 1 || fromFileChunkDtosDirty.size() <= 1) {
+			long bytesCopied = 0;
+			int fileChunkIndex = -1;
 			for (final FileChunkDto fileChunkDto : fromFileChunkDtosDirty) {
 				++fileChunkIndex;
 				if (logger.isTraceEnabled()) {
-					logger.trace("Reading data for dirty FileChunkDto (index {} of {}). path='{}' offset={}",
-							fileChunkIndex, fromFileChunkDtosDirty.size(), path, fileChunkDto.getOffset());
-				}
-				final byte[] fileData = getFileData(fromRepoTransport, toRepoTransport, repoFileDtoTreeNode, path, fileChunkDto);
-
-				if (fileData == null) {
-					logger.warn("Source file was modified or deleted during sync: {}", path);
-					// The file is left in state 'inProgress'. Thus it should definitely not be synced back in the opposite
-					// direction. The file should be synced again in the correct direction in the next run (after the source
-					// repo did a local sync, too).
-					return;
-				}
-
-				if (logger.isTraceEnabled()) {
-					logger.trace("Writing data for dirty FileChunkDto ({} of {}). path='{}' offset={}",
+					logger.trace("Copying dirty FileChunkDto ({} of {}). path='{}' offset={}",
 							fileChunkIndex + 1, fromFileChunkDtosDirty.size(), path, fileChunkDto.getOffset());
 				}
+				final long chunkBytesCopied = copyFileChunk(fromRepoTransport, toRepoTransport, repoFileDtoTreeNode, path, fileChunkDto, deltaBaseLength);
+				if (chunkBytesCopied < 0)
+					return -1;
 
-				try {
-					putFileData(fromRepoTransport, toRepoTransport, repoFileDtoTreeNode, path, fileChunkDto, fileData);
-				} catch (final CollisionException x) { // Never happens in CloudStore, but in down-stream-projects. Important: They must handle this properly themselves!
-					logger.info("CollisionException during putFileData: {}", path);
-					if (logger.isDebugEnabled())
-						logger.debug(x.toString(), x);
+				bytesCopied += chunkBytesCopied;
+				monitor.worked(1);
+			}
+			return bytesCopied;
+		}
+
+		logger.debug("copyFileChunks: Copying {} dirty file-chunks with pipelineSize={}. path='{}'",
+				fromFileChunkDtosDirty.size(), pipelineSize, path);
 
-					return;
+		final ExecutorService executor = getFileChunkExecutor();
+		final LinkedList<Future<Long>> futures = new LinkedList<>();
+		final Iterator<FileChunkDto> fileChunkDtoIterator = fromFileChunkDtosDirty.iterator();
+		long bytesCopied = 0;
+		try {
+			while (fileChunkDtoIterator.hasNext() || !futures.isEmpty()) {
+				while (fileChunkDtoIterator.hasNext() && futures.size() < pipelineSize) {
+					final FileChunkDto fileChunkDto = fileChunkDtoIterator.next();
+					futures.add(executor.submit(new Callable<Long>() {
+						@Override
+						public Long call() throws Exception {
+							return copyFileChunk(fromRepoTransport, toRepoTransport, repoFileDtoTreeNode, path, fileChunkDto, deltaBaseLength);
+						}
+					}));
 				}
 
-				bytesCopied += fileData.length;
-				subMonitor.worked(1);
+				final long chunkBytesCopied = getFutureResult(futures.removeFirst());
+				if (chunkBytesCopied < 0)
+					return -1;
+
+				bytesCopied += chunkBytesCopied;
+				monitor.worked(1);
 			}
-			subMonitor.done();
+			return bytesCopied;
+		} finally {
+			// If we abort (either due to a modification or an exception), we must not leave any chunk
+			// in flight. Otherwise, it might still be written while the next operation is already performed.
+			for (final Future<Long> future : futures) {
+				try {
+					future.get();
+				} catch (final Exception x) {
+					logger.warn("copyFileChunks: Ignoring failure of chunk still in flight after abort: " + x, x);
+				}
+			}
+		}
+	}
 
-			logger.info("Copied {} dirty file-chunks with together {} bytes in {} ms. path='{}'",
-					fromFileChunkDtosDirty.size(), bytesCopied, System.currentTimeMillis() - copyChunksBeginTimestamp, path);
+	private static <V> V getFutureResult(final Future<V> future) {
+		try {
+			return future.get();
+		} catch (final InterruptedException x) {
+			throw new RuntimeException(x);
+		} catch (final java.util.concurrent.ExecutionException x) {
+			final Throwable cause = x.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+
+			if (cause instanceof Error)
+				throw (Error) cause;
+
+			throw new RuntimeException(cause);
+		}
+	}
 
-			endPutFile(fromRepoTransport, toRepoTransport, repoFileDtoTreeNode, path, fromNormalFileDto);
-			localRepoTransport.markFileInProgress(fromRepoTransport.getRepositoryId(), toRepoTransport.getRepositoryId(), path, false);
-			monitor.worked(6);
+	/**
+	 * Copies a single file-chunk from the source to the destination.
+	 * <p>
+	 * This method might be invoked on a worker thread (concurrently with other invocations for other chunks
+	 * of the same file) and must therefore not touch any state not being thread-safe.
+	 * @return the number of bytes copied or -1, if the source file was modified/deleted during the sync
+	 * or a collision occurred.
+	 */
+	private long copyFileChunk(final RepoTransport fromRepoTransport, final RepoTransport toRepoTransport,
+			final RepoFileDtoTreeNode repoFileDtoTreeNode, final String path, final FileChunkDto fileChunkDto,
+			final long deltaBaseLength) {
+
+		if (fileChunkDto.getOffset() < deltaBaseLength) {
+			final Long bytesCopied = copyFileChunkDelta(fromRepoTransport, toRepoTransport, path, fileChunkDto);
+			if (bytesCopied != null)
+				return bytesCopied;
+		}
+
+		if (isFileDataStreaming(fromRepoTransport, toRepoTransport))
+			return copyFileChunkStreaming(fromRepoTransport, toRepoTransport, path, fileChunkDto);
+
+		if (logger.isTraceEnabled())
+			logger.trace("Reading data for dirty FileChunkDto. path='{}' offset={}", path, fileChunkDto.getOffset());
+
+		final byte[] fileData = getFileData(fromRepoTransport, toRepoTransport, repoFileDtoTreeNode, path, fileChunkDto);
+		if (fileData == null) {
+			logger.warn("Source file was modified or deleted during sync: {}", path);
+			return -1;
+		}
+
+		if (logger.isTraceEnabled())
+			logger.trace("Writing data for dirty FileChunkDto. path='{}' offset={}", path, fileChunkDto.getOffset());
+
+		try {
+			putFileData(fromRepoTransport, toRepoTransport, repoFileDtoTreeNode, path, fileChunkDto, fileData);
+		} catch (final CollisionException x) { // Never happens in CloudStore, but in down-stream-projects. Important: They must handle this properly themselves!
+			logger.info("CollisionException during putFileData: {}", path);
+			if (logger.isDebugEnabled())
+				logger.debug(x.toString(), x);
+
+			return -1;
+		}
+		final DirectionMetrics directionMetrics = getDirectionMetrics(fromRepoTransport);
+		directionMetrics.bytes.inc(fileData.length);
+		directionMetrics.chunksTransferred.inc();
+		return fileData.length;
+	}
+
+	/**
+	 * Copies a single file-chunk from the source to the destination by streaming its data. The data is
+	 * verified while passing through: If the source file was modified, the destination's write fails
+	 * before the last bytes arrive.
+	 * @return the number of bytes copied or -1, if the source file was modified/deleted during the sync
+	 * or a collision occurred.
+	 */
+	private long copyFileChunkStreaming(final RepoTransport fromRepoTransport, final RepoTransport toRepoTransport,
+			final String path, final FileChunkDto fileChunkDto) {
+
+		if (logger.isTraceEnabled())
+			logger.trace("Streaming data for dirty FileChunkDto. path='{}' offset={}", path, fileChunkDto.getOffset());
+
+		final InputStream in = fromRepoTransport.getFileDataInputStream(path, fileChunkDto.getOffset(), fileChunkDto.getLength());
+		if (in == null) {
+			logger.warn("Source file was modified or deleted during sync: {}", path);
+			return -1;
+		}
+		try {
+			final Sha1VerifyingInputStream verifyingIn = new Sha1VerifyingInputStream(in, fileChunkDto.getLength(), fileChunkDto.getSha1());
+			try {
+				toRepoTransport.putFileData(path, fileChunkDto.getOffset(), verifyingIn, fileChunkDto.getLength());
+			} catch (final CollisionException x) { // Never happens in CloudStore, but in down-stream-projects. Important: They must handle this properly themselves!
+				logger.info("CollisionException during putFileData: {}", path);
+				if (logger.isDebugEnabled())
+					logger.debug(x.toString(), x);
+
+				return -1;
+			} catch (final RuntimeException x) {
+				if (!verifyingIn.isVerificationFailed())
+					throw x;
+
+				logger.warn("Source file was modified or deleted during sync: {}", path);
+				if (logger.isDebugEnabled())
+					logger.debug(x.toString(), x);
+
+				return -1;
+			}
 		} finally {
-			monitor.done();
+			try {
+				in.close();
+			} catch (final IOException x) {
+				logger.warn("copyFileChunkStreaming: Closing source stream failed: " + x, x);
+			}
+		}
+		final DirectionMetrics directionMetrics = getDirectionMetrics(fromRepoTransport);
+		directionMetrics.bytes.inc(fileChunkDto.getLength());
+		directionMetrics.chunksTransferred.inc();
+		return fileChunkDto.getLength();
+	}
+
+	/**
+	 * Copies a single file-chunk from the source to the destination by transferring only the difference
+	 * to the destination's data at the same position.
+	 * @return the number of bytes copied, -1, if the source file was modified/deleted during the sync
+	 * or a collision occurred, or <code>null</code>, if the file-chunk must be copied completely.
+	 */
+	private Long copyFileChunkDelta(final RepoTransport fromRepoTransport, final RepoTransport toRepoTransport,
+			final String path, final FileChunkDto fileChunkDto) {
+
+		final FileDataSignatureDto fileDataSignatureDto = toRepoTransport.getFileDataSignatureDto(
+				path, fileChunkDto.getOffset(), fileChunkDto.getLength());
+		if (fileDataSignatureDto == null)
+			return null;
+
+		final FileDataDeltaDto fileDataDeltaDto = fromRepoTransport.getFileDataDeltaDto(
+				path, fileChunkDto.getOffset(), fileChunkDto.getLength(), fileDataSignatureDto);
+		if (fileDataDeltaDto == null
+				|| fileDataDeltaDto.getLength() != fileChunkDto.getLength()
+				|| !fileChunkDto.getSha1().equals(fileDataDeltaDto.getSha1())) {
+			logger.warn("Source file was modified or deleted during sync: {}", path);
+			return -1L;
+		}
+
+		final FileChunkDto writtenFileChunkDto;
+		try {
+			writtenFileChunkDto = toRepoTransport.putFileDataDelta(path, fileDataDeltaDto);
+		} catch (final CollisionException x) {
+			logger.info("CollisionException during putFileDataDelta: {}", path);
+			if (logger.isDebugEnabled())
+				logger.debug(x.toString(), x);
+
+			return -1L;
+		}
+		if (writtenFileChunkDto == null) {
+			logger.debug("copyFileChunkDelta: Destination data was modified. Copying completely. path='{}' offset={}",
+					path, fileChunkDto.getOffset());
+			return null;
+		}
+
+		long literalLength = 0;
+		for (final FileDataDeltaSegmentDto segmentDto : fileDataDeltaDto.getSegmentDtos()) {
+			if (segmentDto.getData() != null)
+				literalLength += segmentDto.getLength();
+		}
+		final DirectionMetrics directionMetrics = getDirectionMetrics(fromRepoTransport);
+		directionMetrics.bytes.inc(literalLength);
+		directionMetrics.chunksTransferred.inc();
+		logger.debug("copyFileChunkDelta: Transferred {} of {} bytes. path='{}' offset={}",
+				literalLength, fileChunkDto.getLength(), path, fileChunkDto.getOffset());
+		return (long) fileChunkDto.getLength();
+	}
+
+	/**
+	 * Gets the number of file-chunks being copied concurrently.
+	 * @return the number of file-chunks being in flight at the same time. 1 means to copy one after the other.
+	 * @see #CONFIG_KEY_FILE_CHUNK_PIPELINE_SIZE
+	 */
+	protected int getFileChunkPipelineSize() {
+		final int pipelineSize = ConfigImpl.getInstanceForDirectory(localRoot).getPropertyAsPositiveOrZeroInt(
+				CONFIG_KEY_FILE_CHUNK_PIPELINE_SIZE, DEFAULT_FILE_CHUNK_PIPELINE_SIZE);
+		return Math.max(1, pipelineSize);
+	}
+
+	private synchronized int getSyncFileChunkPipelineSize() {
+		if (fileChunkPipelineSize == 0)
+			readExecutorPoolSizes();
+
+		return fileChunkPipelineSize;
+	}
+
+	private synchronized ExecutorService getFileChunkExecutor() {
+		if (fileChunkExecutor == null) {
+			fileChunkExecutorPoolSize = getSyncFileChunkPipelineSize();
+			fileChunkExecutor = createThreadPoolExecutor(fileChunkExecutorPoolSize);
 		}
+		return fileChunkExecutor;
+	}
+
+	/**
+	 * Gets whether the destination should reuse data it already has instead of copying it.
+	 * <p>
+	 * The reused data bypasses {@link #putFileData(RepoTransport, RepoTransport, RepoFileDtoTreeNode, String, FileChunkDto, byte[]) putFileData(...)}.
+	 * Reusing is therefore disabled, if a sub-class overrides this method (e.g. to transform the data).
+	 * @return whether to invoke {@link #putFileDataFromExistingChunks(RepoTransport, RepoTransport, RepoFileDtoTreeNode, String, List)}
+	 * for dirty file-chunks.
+	 * @see #CONFIG_KEY_REUSE_EXISTING_FILE_CHUNKS
+	 */
+	protected boolean isReuseExistingFileChunks() {
+		if (isPutFileDataOverridden())
+			return false;
+
+		return ConfigImpl.getInstanceForDirectory(localRoot).getPropertyAsBoolean(
+				CONFIG_KEY_REUSE_EXISTING_FILE_CHUNKS, DEFAULT_REUSE_EXISTING_FILE_CHUNKS);
+	}
+
+	/**
+	 * Gets whether modified file-chunks should be transferred as delta between the two given repositories.
+	 * <p>
+	 * A delta bypasses {@link #getFileData(RepoTransport, RepoTransport, RepoFileDtoTreeNode, String, FileChunkDto) getFileData(...)}
+	 * and {@link #putFileData(RepoTransport, RepoTransport, RepoFileDtoTreeNode, String, FileChunkDto, byte[]) putFileData(...)}.
+	 * Delta-transfers are therefore disabled, if a sub-class overrides one of these methods (e.g. to transform the data).
+	 * @param fromRepoTransport the source. Never <code>null</code>.
+	 * @param toRepoTransport the destination. Never <code>null</code>.
+	 * @return whether to transfer modified file-chunks as delta.
+	 * @see #CONFIG_KEY_DELTA_TRANSFER
+	 */
+	protected boolean isFileDataDeltaTransfer(final RepoTransport fromRepoTransport, final RepoTransport toRepoTransport) {
+		if (fromRepoTransport instanceof LocalRepoTransport && toRepoTransport instanceof LocalRepoTransport)
+			return false;
+
+		if (isGetFileDataOverridden() || isPutFileDataOverridden())
+			return false;
+
+		return ConfigImpl.getInstanceForDirectory(localRoot).getPropertyAsBoolean(
+				CONFIG_KEY_DELTA_TRANSFER, DEFAULT_DELTA_TRANSFER);
+	}
+
+	/**
+	 * Gets whether file-chunks should be streamed from the source to the destination.
+	 * <p>
+	 * If <code>true</code>, the data is passed from {@link RepoTransport#getFileDataInputStream(String, long, int)}
+	 * to {@link RepoTransport#putFileData(String, long, InputStream, int)} without being held in memory
+	 * completely. If <code>false</code>, the data is read via
+	 * {@link #getFileData(RepoTransport, RepoTransport, RepoFileDtoTreeNode, String, FileChunkDto) getFileData(...)}
+	 * and written via {@link #putFileData(RepoTransport, RepoTransport, RepoFileDtoTreeNode, String, FileChunkDto, byte[]) putFileData(...)}.
+	 * <p>
+	 * Streaming is therefore disabled, if a sub-class overrides one of these two methods (e.g. to transform the data).
+	 * @param fromRepoTransport the source. Never <code>null</code>.
+	 * @param toRepoTransport the destination. Never <code>null</code>.
+	 * @return whether to stream the file-chunks.
+	 */
+	protected boolean isFileDataStreaming(final RepoTransport fromRepoTransport, final RepoTransport toRepoTransport) {
+		return !isGetFileDataOverridden() && !isPutFileDataOverridden();
+	}
+
+	/**
+	 * Gets the maximum number of small files being transferred together.
+	 * @return the maximum number of files per invocation of {@link RepoTransport#putFiles(PutFileDtoList)}.
+	 * 1 (or 0) means to transfer every file individually.
+	 * <p>
+	 * Batched files bypass {@link #beginPutFile(RepoTransport, RepoTransport, RepoFileDtoTreeNode, String, NormalFileDto) beginPutFile(...)},
+	 * {@link #getFileData(RepoTransport, RepoTransport, RepoFileDtoTreeNode, String, FileChunkDto) getFileData(...)},
+	 * {@link #putFileData(RepoTransport, RepoTransport, RepoFileDtoTreeNode, String, FileChunkDto, byte[]) putFileData(...)} and
+	 * {@link #endPutFile(RepoTransport, RepoTransport, RepoFileDtoTreeNode, String, NormalFileDto) endPutFile(...)}.
+	 * Batching is therefore disabled (1 is returned), if a sub-class overrides one of these methods.
+	 * @see #CONFIG_KEY_PUT_FILES_BATCH_SIZE
+	 */
+	protected int getPutFilesBatchSize() {
+		if (isBeginPutFileOverridden() || isGetFileDataOverridden() || isPutFileDataOverridden() || isEndPutFileOverridden())
+			return 1;
+
+		return ConfigImpl.getInstanceForDirectory(localRoot).getPropertyAsPositiveOrZeroInt(
+				CONFIG_KEY_PUT_FILES_BATCH_SIZE, DEFAULT_PUT_FILES_BATCH_SIZE);
+	}
+
+	/**
+	 * Gets the maximum length of a file being transferred together with other small files.
+	 * @return the maximum length in bytes.
+	 * @see #CONFIG_KEY_PUT_FILES_MAX_FILE_LENGTH
+	 */
+	protected long getPutFilesMaxFileLength() {
+		final long maxFileLength = ConfigImpl.getInstanceForDirectory(localRoot).getPropertyAsPositiveOrZeroLong(
+				CONFIG_KEY_PUT_FILES_MAX_FILE_LENGTH, DEFAULT_PUT_FILES_MAX_FILE_LENGTH);
+		return Math.min(FileChunkDto.MAX_LENGTH, maxFileLength);
+	}
+
+	/**
+	 * Gets the number of files (and symlinks) being synced concurrently.
+	 * @return the number of files being in flight at the same time. 1 means to sync one after the other.
+	 * @see #CONFIG_KEY_FILE_SYNC_THREAD_COUNT
+	 */
+	protected int getFileSyncThreadCount() {
+		final int threadCount = ConfigImpl.getInstanceForDirectory(localRoot).getPropertyAsPositiveOrZeroInt(
+				CONFIG_KEY_FILE_SYNC_THREAD_COUNT, DEFAULT_FILE_SYNC_THREAD_COUNT);
+		return Math.max(1, threadCount);
+	}
+
+	private synchronized int getSyncFileSyncThreadCount() {
+		if (fileSyncThreadCount == 0)
+			readExecutorPoolSizes();
+
+		return fileSyncThreadCount;
+	}
+
+	private synchronized ExecutorService getFileSyncExecutor() {
+		if (fileSyncExecutor == null) {
+			fileSyncExecutorPoolSize = getSyncFileSyncThreadCount();
+			fileSyncExecutor = createThreadPoolExecutor(fileSyncExecutorPoolSize);
+		}
+		return fileSyncExecutor;
+	}
+
+	/**
+	 * Reads the pool sizes from the configuration. This is done once at the beginning of every
+	 * {@link #sync(ProgressMonitor)}, because other threads might still submit tasks to an executor
+	 * during the sync. An executor not matching its newly configured size is therefore shut down
+	 * only here - i.e. between two syncs - and re-created lazily.
+	 */
+	private synchronized void readExecutorPoolSizes() {
+		fileChunkPipelineSize = getFileChunkPipelineSize();
+		fileSyncThreadCount = getFileSyncThreadCount();
+
+		if (fileChunkExecutor != null && fileChunkExecutorPoolSize != fileChunkPipelineSize) {
+			fileChunkExecutor.shutdown();
+			fileChunkExecutor = null;
+		}
+		if (fileSyncExecutor != null && fileSyncExecutorPoolSize != fileSyncThreadCount) {
+			fileSyncExecutor.shutdown();
+			fileSyncExecutor = null;
+		}
+	}
+
+	private static ExecutorService createThreadPoolExecutor(final int poolSize) {
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize,
+				60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	private boolean isGetFileDataOverridden() {
+		return isOverridden("getFileData", RepoTransport.class, RepoTransport.class, RepoFileDtoTreeNode.class,
+				String.class, FileChunkDto.class);
+	}
+
+	private boolean isPutFileDataOverridden() {
+		return isOverridden("putFileData", RepoTransport.class, RepoTransport.class, RepoFileDtoTreeNode.class,
+				String.class, FileChunkDto.class, byte[].class);
+	}
+
+	private boolean isBeginPutFileOverridden() {
+		return isOverridden("beginPutFile", RepoTransport.class, RepoTransport.class, RepoFileDtoTreeNode.class,
+				String.class, NormalFileDto.class);
+	}
+
+	private boolean isEndPutFileOverridden() {
+		return isOverridden("endPutFile", RepoTransport.class, RepoTransport.class, RepoFileDtoTreeNode.class,
+				String.class, NormalFileDto.class);
+	}
+
+	/**
+	 * Determines, whether a sub-class overrides the specified method of this class. The hooks being
+	 * overridden must not be bypassed by an optimization - the sub-class might transform the data.
+	 * @param methodName the name of the method declared by {@code RepoToRepoSync}. Must not be <code>null</code>.
+	 * @param parameterTypes the method's parameter types.
+	 * @return whether the method is overridden by {@link #getClass()} or one of its super-classes below {@code RepoToRepoSync}.
+	 */
+	private boolean isOverridden(final String methodName, final Class<?>... parameterTypes) {
+		Boolean overridden = methodName2Overridden.get(methodName);
+		if (overridden == null) {
+			overridden = false;
+			for (Class<?> clazz = getClass(); clazz != RepoToRepoSync.class; clazz = clazz.getSuperclass()) {
+				try {
+					clazz.getDeclaredMethod(methodName, parameterTypes);
+					overridden = true;
+					break;
+				} catch (final NoSuchMethodException x) {
+					doNothing(); // not declared in this class => continue with its super-class
+				}
+			}
+			methodName2Overridden.put(methodName, overridden);
+		}
+		return overridden;
 	}
 
 	protected byte[] getFileData(final RepoTransport fromRepoTransport, final RepoTransport toRepoTransport,
@@ -682,6 +1714,21 @@ public class RepoToRepoSync implements AutoCloseable {
 		toRepoTransport.putFileData(path, fileChunkDto.getOffset(), fileData);
 	}
 
+	/**
+	 * Asks the destination to write the given file-chunks by reusing identical data it already has.
+	 * @return the file-chunks written by the destination. Never <code>null</code>. The data of all
+	 * other chunks must be copied.
+	 * @see RepoTransport#putFileDataFromExistingChunks(String, FileChunkDtoList)
+	 */
+	protected List<FileChunkDto> putFileDataFromExistingChunks(final RepoTransport fromRepoTransport,
+			final RepoTransport toRepoTransport, final RepoFileDtoTreeNode repoFileDtoTreeNode,
+			final String path, final List<FileChunkDto> fileChunkDtos) {
+
+		final FileChunkDtoList fileChunkDtoList = new FileChunkDtoList();
+		fileChunkDtoList.getFileChunkDtos().addAll(fileChunkDtos);
+		return toRepoTransport.putFileDataFromExistingChunks(path, fileChunkDtoList).getFileChunkDtos();
+	}
+
 	protected void beginPutFile(final RepoTransport fromRepoTransport,
 			final RepoTransport toRepoTransport, final RepoFileDtoTreeNode repoFileDtoTreeNode,
 			final String path, final NormalFileDto fromNormalFileDto) throws CollisionException {
@@ -689,6 +1736,12 @@ public class RepoToRepoSync implements AutoCloseable {
 		toRepoTransport.beginPutFile(path);
 	}
 
+	protected void putFiles(final RepoTransport fromRepoTransport,
+			final RepoTransport toRepoTransport, final PutFileDtoList putFileDtoList) throws CollisionException {
+
+		toRepoTransport.putFiles(putFileDtoList);
+	}
+
 	protected void endPutFile(final RepoTransport fromRepoTransport,
 			final RepoTransport toRepoTransport, final RepoFileDtoTreeNode repoFileDtoTreeNode,
 			final String path, final NormalFileDto fromNormalFileDto) {
@@ -715,6 +1768,21 @@ public class RepoToRepoSync implements AutoCloseable {
 
 	@Override
 	public void close() {
+		try {
+			flushTransferDoneMarkerCache();
+		} catch (final RuntimeException x) {
+			logger.warn("close: Writing transfer-done-markers failed: " + x, x);
+		}
+		synchronized (this) {
+			if (fileSyncExecutor != null) {
+				fileSyncExecutor.shutdown();
+				fileSyncExecutor = null;
+			}
+			if (fileChunkExecutor != null) {
+				fileChunkExecutor.shutdown();
+				fileChunkExecutor = null;
+			}
+		}
 		localRepoManager.close();
 		localRepoTransport.close();
 		remoteRepoTransport.close();
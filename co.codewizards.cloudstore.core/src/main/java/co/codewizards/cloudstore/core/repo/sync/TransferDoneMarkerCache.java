@@ -0,0 +1,116 @@
+package co.codewizards.cloudstore.core.repo.sync;
+
+import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.codewizards.cloudstore.core.repo.transport.LocalRepoTransport;
+import co.codewizards.cloudstore.core.repo.transport.TransferDoneMarkerType;
+
+/**
+ * In-memory view of the transfer-done-markers of one from-to connection during one sync.
+ * <p>
+ * All markers of a type are loaded with one single transaction, when they are needed for the first time.
+ * New {@link TransferDoneMarkerType#REPO_FILE REPO_FILE} markers are buffered and written in batches - whenever
+ * {@code flushSize} markers are pending or {@code flushPeriod} milliseconds passed since the last flush - and
+ * finally by {@link #flush()}. If buffered markers get lost, the affected files and directories are simply synced
+ * again (which is a no-op, if they are already up-to-date).
+ * <p>
+ * {@link TransferDoneMarkerType#MODIFICATION MODIFICATION} markers are written immediately: Applying a delete or
+ * copy again after an interrupted sync is not a no-op - it might affect a file created in the meantime.
+ * <p>
+ * This class is thread-safe.
+ */
+class TransferDoneMarkerCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(TransferDoneMarkerCache.class);
+
+	private final LocalRepoTransport localRepoTransport;
+	private final UUID fromRepositoryId;
+	private final UUID toRepositoryId;
+	private final int flushSize;
+	private final long flushPeriod;
+
+	private final Map<TransferDoneMarkerType, Map<Long, Long>> type2FromEntityId2FromLocalRevision = new EnumMap<>(TransferDoneMarkerType.class);
+	private final Map<TransferDoneMarkerType, Map<Long, Long>> type2PendingFromEntityId2FromLocalRevision = new EnumMap<>(TransferDoneMarkerType.class);
+	private int pendingCount;
+	private long lastFlushTimestamp = System.currentTimeMillis();
+
+	public TransferDoneMarkerCache(final LocalRepoTransport localRepoTransport,
+			final UUID fromRepositoryId, final UUID toRepositoryId, final int flushSize, final long flushPeriod) {
+		this.localRepoTransport = assertNotNull("localRepoTransport", localRepoTransport);
+		this.fromRepositoryId = assertNotNull("fromRepositoryId", fromRepositoryId);
+		this.toRepositoryId = assertNotNull("toRepositoryId", toRepositoryId);
+		this.flushSize = flushSize;
+		this.flushPeriod = flushPeriod;
+	}
+
+	public UUID getFromRepositoryId() {
+		return fromRepositoryId;
+	}
+
+	public UUID getToRepositoryId() {
+		return toRepositoryId;
+	}
+
+	public synchronized boolean isTransferDone(final TransferDoneMarkerType transferDoneMarkerType, final long fromEntityId, final long fromLocalRevision) {
+		final Long doneFromLocalRevision = getFromEntityId2FromLocalRevision(transferDoneMarkerType).get(fromEntityId);
+		return doneFromLocalRevision != null && doneFromLocalRevision.longValue() == fromLocalRevision;
+	}
+
+	public synchronized void markTransferDone(final TransferDoneMarkerType transferDoneMarkerType, final long fromEntityId, final long fromLocalRevision) {
+		getFromEntityId2FromLocalRevision(transferDoneMarkerType).put(fromEntityId, fromLocalRevision);
+
+		if (transferDoneMarkerType == TransferDoneMarkerType.MODIFICATION) {
+			localRepoTransport.markTransferDone(fromRepositoryId, toRepositoryId, transferDoneMarkerType, fromEntityId, fromLocalRevision);
+			return;
+		}
+
+		Map<Long, Long> pending = type2PendingFromEntityId2FromLocalRevision.get(transferDoneMarkerType);
+		if (pending == null) {
+			pending = new HashMap<Long, Long>();
+			type2PendingFromEntityId2FromLocalRevision.put(transferDoneMarkerType, pending);
+		}
+		if (pending.put(fromEntityId, fromLocalRevision) == null)
+			++pendingCount;
+
+		if (pendingCount >= flushSize || System.currentTimeMillis() - lastFlushTimestamp >= flushPeriod)
+			flush();
+	}
+
+	/**
+	 * Writes all pending markers.
+	 * <p>
+	 * This must be invoked before the sync is ended (i.e. before the markers are deleted), because otherwise
+	 * the markers would survive the sync.
+	 */
+	public synchronized void flush() {
+		if (pendingCount > 0) {
+			final long startTimestamp = System.currentTimeMillis();
+			for (final Map.Entry<TransferDoneMarkerType, Map<Long, Long>> me : type2PendingFromEntityId2FromLocalRevision.entrySet())
+				localRepoTransport.markTransferDone(fromRepositoryId, toRepositoryId, me.getKey(), me.getValue());
+
+			logger.debug("flush: Writing {} markers took {} ms.", pendingCount, System.currentTimeMillis() - startTimestamp);
+			type2PendingFromEntityId2FromLocalRevision.clear();
+			pendingCount = 0;
+		}
+		lastFlushTimestamp = System.currentTimeMillis();
+	}
+
+	private Map<Long, Long> getFromEntityId2FromLocalRevision(final TransferDoneMarkerType transferDoneMarkerType) {
+		assertNotNull("transferDoneMarkerType", transferDoneMarkerType);
+		Map<Long, Long> result = type2FromEntityId2FromLocalRevision.get(transferDoneMarkerType);
+		if (result == null) {
+			result = new HashMap<Long, Long>(localRepoTransport.getTransferDoneFromLocalRevisions(
+					fromRepositoryId, toRepositoryId, transferDoneMarkerType));
+			type2FromEntityId2FromLocalRevision.put(transferDoneMarkerType, result);
+		}
+		return result;
+	}
+}
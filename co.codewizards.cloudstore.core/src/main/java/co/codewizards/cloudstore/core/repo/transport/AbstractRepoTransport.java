@@ -3,14 +3,27 @@ package co.codewizards.cloudstore.core.repo.transport;
 import static co.codewizards.cloudstore.core.util.AssertUtil.*;
 import static co.codewizards.cloudstore.core.util.IOUtil.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.net.URLDecoder;
+import java.util.Date;
 import java.util.UUID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import co.codewizards.cloudstore.core.dto.ChangeSetDto;
+import co.codewizards.cloudstore.core.dto.FileChunkDto;
+import co.codewizards.cloudstore.core.dto.FileChunkDtoList;
+import co.codewizards.cloudstore.core.dto.FileDataDeltaDto;
+import co.codewizards.cloudstore.core.dto.FileDataDeltaSegmentDto;
+import co.codewizards.cloudstore.core.dto.FileDataSignatureDto;
+import co.codewizards.cloudstore.core.dto.PutFileDto;
+import co.codewizards.cloudstore.core.dto.PutFileDtoList;
+import co.codewizards.cloudstore.core.util.HashUtil;
 import co.codewizards.cloudstore.core.util.UrlUtil;
 
 public abstract class AbstractRepoTransport implements RepoTransport {
@@ -160,6 +173,205 @@ public abstract class AbstractRepoTransport implements RepoTransport {
 		return path.startsWith(pathPrefix);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The default implementation does not support paging: It delegates to {@link #getChangeSetDto(boolean)}
+	 * and thus returns the entire change-set as the one and only page. Sub-classes should override this method,
+	 * if they are able to split the change-set.
+	 */
+	@Override
+	public ChangeSetDto getChangeSetDto(final boolean localSync, final String cursor) {
+		if (cursor != null)
+			throw new IllegalArgumentException("Paging not supported! cursor != null");
+
+		final ChangeSetDto changeSetDto = getChangeSetDto(localSync);
+		changeSetDto.setCursor(null);
+		return changeSetDto;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The default implementation delegates to {@link #getFileData(String, long, int)} and thus holds the entire
+	 * block in memory. Sub-classes should override this method, if they are able to stream the data.
+	 */
+	@Override
+	public InputStream getFileDataInputStream(final String path, final long offset, final int length) {
+		final byte[] fileData = getFileData(path, offset, length);
+		return fileData == null ? null : new ByteArrayInputStream(fileData);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The default implementation reads the entire block into memory and delegates to
+	 * {@link #putFileData(String, long, byte[])}. Sub-classes should override this method, if they are
+	 * able to stream the data.
+	 */
+	@Override
+	public void putFileData(final String path, final long offset, final InputStream in, final int length) {
+		assertNotNull("in", in);
+		if (length < 0)
+			throw new IllegalArgumentException("length < 0");
+
+		final byte[] fileData = new byte[length];
+		try {
+			readOrFail(in, fileData, 0, length);
+		} catch (final IOException e) {
+			throw new RuntimeException(e);
+		}
+		putFileData(path, offset, fileData);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The default implementation does not support this operation and returns an empty list. The caller thus
+	 * transfers the data of all chunks.
+	 */
+	@Override
+	public FileChunkDtoList putFileDataFromExistingChunks(final String path, final FileChunkDtoList fileChunkDtoList) {
+		assertNotNull("path", path);
+		assertNotNull("fileChunkDtoList", fileChunkDtoList);
+		return new FileChunkDtoList();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The default implementation does not store any chunks temporarily and thus does nothing.
+	 */
+	@Override
+	public void deleteTempFileChunks(final String path, final FileChunkDtoList fileChunkDtoList) {
+		assertNotNull("path", path);
+		assertNotNull("fileChunkDtoList", fileChunkDtoList);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The default implementation does not support delta-transfers and returns <code>null</code>. The caller
+	 * thus transfers the data completely.
+	 */
+	@Override
+	public FileDataSignatureDto getFileDataSignatureDto(final String path, final long offset, final int length) {
+		assertNotNull("path", path);
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The default implementation does not search for the signature's blocks. It reads the data via
+	 * {@link #getFileData(String, long, int)} and returns it as one single segment.
+	 */
+	@Override
+	public FileDataDeltaDto getFileDataDeltaDto(final String path, final long offset, final int length, final FileDataSignatureDto fileDataSignatureDto) {
+		assertNotNull("path", path);
+		assertNotNull("fileDataSignatureDto", fileDataSignatureDto);
+		final byte[] fileData = getFileData(path, offset, length);
+		if (fileData == null)
+			return null;
+
+		final FileDataDeltaSegmentDto segmentDto = new FileDataDeltaSegmentDto();
+		segmentDto.setLength(fileData.length);
+		segmentDto.setData(fileData);
+
+		final FileDataDeltaDto fileDataDeltaDto = new FileDataDeltaDto();
+		fileDataDeltaDto.setOffset(offset);
+		fileDataDeltaDto.setLength(fileData.length);
+		fileDataDeltaDto.setSha1(HashUtil.sha1(fileData));
+		fileDataDeltaDto.getSegmentDtos().add(segmentDto);
+		return fileDataDeltaDto;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The default implementation reads the referenced existing data via {@link #getFileData(String, long, int)}
+	 * and writes the restored data via {@link #putFileData(String, long, byte[])}.
+	 */
+	@Override
+	public FileChunkDto putFileDataDelta(final String path, final FileDataDeltaDto fileDataDeltaDto) {
+		assertNotNull("path", path);
+		assertNotNull("fileDataDeltaDto", fileDataDeltaDto);
+
+		// All referenced data is read at once - it is usually located in the same range as the data to be written.
+		long existingBegin = Long.MAX_VALUE;
+		long existingEnd = Long.MIN_VALUE;
+		for (final FileDataDeltaSegmentDto segmentDto : fileDataDeltaDto.getSegmentDtos()) {
+			if (segmentDto.getData() == null) {
+				existingBegin = Math.min(existingBegin, segmentDto.getExistingOffset());
+				existingEnd = Math.max(existingEnd, segmentDto.getExistingOffset() + segmentDto.getLength());
+			}
+		}
+
+		byte[] existingData = null;
+		if (existingBegin < existingEnd) {
+			if (existingEnd - existingBegin > Integer.MAX_VALUE)
+				throw new IllegalArgumentException("fileDataDeltaDto references too much existing data: " + fileDataDeltaDto);
+
+			existingData = getFileData(path, existingBegin, (int) (existingEnd - existingBegin));
+			if (existingData == null || existingData.length != existingEnd - existingBegin)
+				return null; // modified or deleted
+		}
+
+		final byte[] fileData = new byte[fileDataDeltaDto.getLength()];
+		int off = 0;
+		for (final FileDataDeltaSegmentDto segmentDto : fileDataDeltaDto.getSegmentDtos()) {
+			if (off + segmentDto.getLength() > fileData.length)
+				throw new IllegalArgumentException("fileDataDeltaDto's segments are longer than its length: " + fileDataDeltaDto);
+
+			if (segmentDto.getData() == null)
+				System.arraycopy(existingData, (int) (segmentDto.getExistingOffset() - existingBegin), fileData, off, segmentDto.getLength());
+			else {
+				if (segmentDto.getData().length != segmentDto.getLength())
+					throw new IllegalArgumentException("fileDataDeltaSegmentDto.data.length != fileDataDeltaSegmentDto.length");
+
+				System.arraycopy(segmentDto.getData(), 0, fileData, off, segmentDto.getLength());
+			}
+			off += segmentDto.getLength();
+		}
+		if (off != fileData.length)
+			throw new IllegalArgumentException("fileDataDeltaDto's segments are shorter than its length: " + fileDataDeltaDto);
+
+		final String sha1 = HashUtil.sha1(fileData);
+		if (!sha1.equals(fileDataDeltaDto.getSha1())) {
+			logger.debug("putFileDataDelta: Existing data was modified. path='{}' offset={}", path, fileDataDeltaDto.getOffset());
+			return null;
+		}
+
+		putFileData(path, fileDataDeltaDto.getOffset(), fileData);
+
+		final FileChunkDto fileChunkDto = new FileChunkDto();
+		fileChunkDto.setOffset(fileDataDeltaDto.getOffset());
+		fileChunkDto.setLength(fileData.length);
+		fileChunkDto.setSha1(sha1);
+		return fileChunkDto;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The default implementation invokes {@link #beginPutFile(String)}, {@link #putFileData(String, long, byte[])}
+	 * and {@link #endPutFile(String, Date, long, String)} for every file. It thus neither skips equal files nor
+	 * writes all files in one transaction. Sub-classes should override this method, if they can do better.
+	 */
+	@Override
+	public void putFiles(final PutFileDtoList putFileDtoList) {
+		assertNotNull("putFileDtoList", putFileDtoList);
+		for (final PutFileDto putFileDto : putFileDtoList.getPutFileDtos()) {
+			final String path = assertNotNull("putFileDto.path", putFileDto.getPath());
+			final byte[] fileData = assertNotNull("putFileDto.fileData", putFileDto.getFileData());
+			beginPutFile(path);
+			if (fileData.length > 0)
+				putFileData(path, 0, fileData);
+
+			endPutFile(path, putFileDto.getLastModified(), putFileDto.getLength(), putFileDto.getSha1());
+		}
+	}
+
 	@Override
 	protected void finalize() throws Throwable {
 		if (repoTransportCreatedStackTraceException != null) {
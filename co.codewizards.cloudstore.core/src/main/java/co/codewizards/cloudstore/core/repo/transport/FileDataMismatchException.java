@@ -0,0 +1,35 @@
+package co.codewizards.cloudstore.core.repo.transport;
+
+/**
+ * Thrown by {@link RepoTransport#endPutFile(String, java.util.Date, long, String) endPutFile(...)}, if the data
+ * written cannot make up the expected file - because the temporarily stored chunks overlap - or if the file was
+ * modified or deleted locally during the transfer.
+ * <p>
+ * The file is not modified. Overlapping temporarily stored chunks are discarded. The transfer must be repeated - after
+ * a local modification, the next transfer handles the collision.
+ */
+public class FileDataMismatchException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public FileDataMismatchException() { }
+
+	public FileDataMismatchException(String message) {
+		super(message);
+	}
+
+	public FileDataMismatchException(Throwable cause) {
+		super(cause);
+	}
+
+	public FileDataMismatchException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+	public FileDataMismatchException(String message,
+			Throwable cause, boolean enableSuppression,
+			boolean writableStackTrace) {
+		super(message, cause, enableSuppression, writableStackTrace);
+	}
+
+}
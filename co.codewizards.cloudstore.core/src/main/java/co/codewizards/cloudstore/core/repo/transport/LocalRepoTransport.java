@@ -1,5 +1,6 @@
 package co.codewizards.cloudstore.core.repo.transport;
 
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -13,6 +14,26 @@ public interface LocalRepoTransport extends RepoTransport, ContextWithLocalRepoM
 	void markTransferDone(UUID fromRepositoryId, UUID toRepositoryId, TransferDoneMarkerType transferDoneMarkerType,
 			long fromEntityId, long fromLocalRevision);
 
+	/**
+	 * Gets all transfer-done-markers of the given type for the given from-to connection at once.
+	 * <p>
+	 * This is the bulk-variant of {@link #isTransferDone(UUID, UUID, TransferDoneMarkerType, long, long)}: An entity
+	 * is done, if the map contains its {@code fromEntityId} mapped to its current {@code fromLocalRevision}.
+	 * @return a map from {@code fromEntityId} to {@code fromLocalRevision}. Never <code>null</code>.
+	 */
+	Map<Long, Long> getTransferDoneFromLocalRevisions(UUID fromRepositoryId, UUID toRepositoryId,
+			TransferDoneMarkerType transferDoneMarkerType);
+
+	/**
+	 * Marks multiple entities as done in one single transaction.
+	 * <p>
+	 * This is the bulk-variant of {@link #markTransferDone(UUID, UUID, TransferDoneMarkerType, long, long)}.
+	 * @param fromEntityId2FromLocalRevision a map from {@code fromEntityId} to {@code fromLocalRevision}.
+	 * Must not be <code>null</code>.
+	 */
+	void markTransferDone(UUID fromRepositoryId, UUID toRepositoryId, TransferDoneMarkerType transferDoneMarkerType,
+			Map<Long, Long> fromEntityId2FromLocalRevision);
+
 	/**
 	 * Before transferring a file, mark it to be 'inProgress' for this specific from-to connection. In case of an
 	 * interruption of a sync, the next sync is aware of the situation.
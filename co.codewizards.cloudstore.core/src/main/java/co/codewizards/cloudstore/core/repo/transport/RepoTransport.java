@@ -1,12 +1,19 @@
 package co.codewizards.cloudstore.core.repo.transport;
 
+import java.io.InputStream;
 import java.net.URL;
 import java.util.Date;
 import java.util.UUID;
 
 import co.codewizards.cloudstore.core.dto.ChangeSetDto;
 import co.codewizards.cloudstore.core.dto.DirectoryDto;
+import co.codewizards.cloudstore.core.dto.FileChunkDto;
+import co.codewizards.cloudstore.core.dto.FileChunkDtoList;
+import co.codewizards.cloudstore.core.dto.FileDataDeltaDto;
+import co.codewizards.cloudstore.core.dto.FileDataSignatureDto;
 import co.codewizards.cloudstore.core.dto.NormalFileDto;
+import co.codewizards.cloudstore.core.dto.PutFileDto;
+import co.codewizards.cloudstore.core.dto.PutFileDtoList;
 import co.codewizards.cloudstore.core.dto.RepoFileDto;
 import co.codewizards.cloudstore.core.dto.RepositoryDto;
 import co.codewizards.cloudstore.core.dto.SymlinkDto;
@@ -223,6 +230,29 @@ public interface RepoTransport extends AutoCloseable {
 	 */
 	ChangeSetDto getChangeSetDto(boolean localSync);
 
+	/**
+	 * Gets one page of the change-set from the remote repository.
+	 * <p>
+	 * This method corresponds to {@link #getChangeSetDto(boolean)}, but instead of materialising all changed
+	 * files at once, the change-set is split into pages. The first page is requested with a <code>null</code>
+	 * {@code cursor}. It marks the beginning of the synchronisation and contains the
+	 * {@link ChangeSetDto#getRepositoryDto() repositoryDto} as well as all
+	 * {@link ChangeSetDto#getModificationDtos() modificationDtos}. Every page contains a part of the
+	 * {@link ChangeSetDto#getRepoFileDtos() repoFileDtos} together with their parents (as far as needed to
+	 * build the tree) and the {@link ChangeSetDto#getCursor() cursor} of the next page. The last page's
+	 * cursor is <code>null</code>.
+	 * <p>
+	 * The cursor is stateless: Requesting the same page again (e.g. after a connection failure) returns
+	 * the same files (except for those modified in the meantime). The {@link #endSyncFromRepository()} must
+	 * not be invoked before all pages were processed.
+	 * @param localSync <code>true</code> indicates that the remote repository should perform a local sync
+	 * before calculating the change set. Ignored, if {@code cursor} is not <code>null</code>.
+	 * @param cursor the {@link ChangeSetDto#getCursor() cursor} of the previous page. <code>null</code> to request
+	 * the first page.
+	 * @return the page of the change-set. Never <code>null</code>.
+	 */
+	ChangeSetDto getChangeSetDto(boolean localSync, String cursor);
+
 	/**
 	 * Notifies the destination repository that this change-set is about to be synced into it.
 	 * @param changeSetDto the change-set from the other RepoTransport (the source of the sync). Never <code>null</code>.
@@ -285,6 +315,24 @@ public interface RepoTransport extends AutoCloseable {
 	 */
 	byte[] getFileData(String path, long offset, int length);
 
+	/**
+	 * Get the binary file data at the given {@code offset} and with the given {@code length} as a stream.
+	 * <p>
+	 * This is the streaming variant of {@link #getFileData(String, long, int)}. It does not require the
+	 * entire block to be held in memory and should be preferred, whenever the data is only passed through
+	 * (e.g. written to a socket). The caller must close the stream.
+	 * <p>
+	 * If the file was modified/deleted, this method should not fail, but simply return <code>null</code>
+	 * or a stream ending before the {@code length} specified.
+	 * @param path the path of the file. Must not be <code>null</code>. No matter which operating system is used,
+	 * the separation-character is always '/'. This path may start with a "/", but there is no difference, if it does:
+	 * It is always relative to the repository's root directory.
+	 * @param offset the offset of the first byte to be read (0-based).
+	 * @param length the length of the data to be read. -1 to read from {@code offset} to the end of the file.
+	 * @return the stream providing the file's data or <code>null</code>.
+	 */
+	InputStream getFileDataInputStream(String path, long offset, int length);
+
 	/**
 	 * Begins a file transfer to this {@code RepoTransport} (more precisely the remote repository behind it).
 	 * <p>
@@ -316,6 +364,110 @@ public interface RepoTransport extends AutoCloseable {
 	 */
 	void putFileData(String path, long offset, byte[] fileData);
 
+	/**
+	 * Write a block of binary data read from the given stream into the file.
+	 * <p>
+	 * This is the streaming variant of {@link #putFileData(String, long, byte[])}. It does not require the
+	 * entire block to be held in memory.
+	 * <p>
+	 * This method may only be called after {@link #beginPutFile(String)} and before {@link #endPutFile(String, Date, long, String)}.
+	 * @param offset the 0-based position in the file at which the block should be written.
+	 * @param in the stream providing the block's data. Must not be <code>null</code>. It is not closed by this method.
+	 * @param length the number of bytes to be read from {@code in}. If the stream ends before, an exception is thrown.
+	 * @see #beginPutFile(String)
+	 * @see #endPutFile(String, Date, long, String)
+	 */
+	void putFileData(String path, long offset, InputStream in, int length);
+
+	/**
+	 * Write blocks of binary data into the file, taking the data from identical chunks already existing
+	 * in this repository.
+	 * <p>
+	 * For every given chunk, the repository looks up a chunk with the same {@link FileChunkDto#getSha1() sha1}
+	 * and {@link FileChunkDto#getLength() length} in any of its files (including the old version of the file
+	 * being written). If it finds one (and its data still matches), it writes this data into the file as if
+	 * {@link #putFileData(String, long, byte[])} was invoked. Otherwise, the chunk is skipped and its data
+	 * must be transferred by the caller.
+	 * <p>
+	 * This method may only be called after {@link #beginPutFile(String)} and before {@link #endPutFile(String, Date, long, String)}.
+	 * @param path the path of the file. Must not be <code>null</code>.
+	 * @param fileChunkDtoList the chunks to be written. Must not be <code>null</code>.
+	 * @return the chunks actually written. Never <code>null</code>. A repository not supporting this
+	 * operation returns an empty list.
+	 * @see #beginPutFile(String)
+	 * @see #endPutFile(String, Date, long, String)
+	 */
+	FileChunkDtoList putFileDataFromExistingChunks(String path, FileChunkDtoList fileChunkDtoList);
+
+	/**
+	 * Gets the signature of the file's existing data at the given {@code offset} and with the given {@code length}.
+	 * <p>
+	 * This is the first step of a delta-transfer: The signature is passed to the source repository's
+	 * {@link #getFileDataDeltaDto(String, long, int, FileDataSignatureDto)}. The resulting delta is then passed
+	 * back to this repository's {@link #putFileDataDelta(String, FileDataDeltaDto)}.
+	 * <p>
+	 * If the file is shorter, the signature covers only the data existing in the given range.
+	 * @param path the path of the file. Must not be <code>null</code>.
+	 * @param offset the offset of the first byte to be covered (0-based).
+	 * @param length the length of the range to be covered.
+	 * @return the signature or <code>null</code>, if there is no (or too little) data at the given position or
+	 * if the repository does not support delta-transfers. The caller then transfers the data completely.
+	 */
+	FileDataSignatureDto getFileDataSignatureDto(String path, long offset, int length);
+
+	/**
+	 * Gets the binary file data at the given {@code offset} and with the given {@code length} as delta
+	 * to the data described by the given signature.
+	 * <p>
+	 * The result contains only the data not found in the destination repository (according to the
+	 * signature). All other data is referenced.
+	 * <p>
+	 * If the file was modified/deleted, this method should not fail, but simply return <code>null</code>
+	 * or a result being shorter than the {@code length} specified.
+	 * @param path the path of the file. Must not be <code>null</code>.
+	 * @param offset the offset of the first byte to be read (0-based).
+	 * @param length the length of the data to be read.
+	 * @param fileDataSignatureDto the signature obtained from the destination's
+	 * {@link #getFileDataSignatureDto(String, long, int)}. Must not be <code>null</code>.
+	 * @return the delta or <code>null</code>.
+	 */
+	FileDataDeltaDto getFileDataDeltaDto(String path, long offset, int length, FileDataSignatureDto fileDataSignatureDto);
+
+	/**
+	 * Write a block of binary data into the file, combining the given delta with the data already existing
+	 * in the file.
+	 * <p>
+	 * The result is verified before being written. If the existing data was modified since
+	 * {@link #getFileDataSignatureDto(String, long, int)} was invoked, nothing is written.
+	 * <p>
+	 * This method may only be called after {@link #beginPutFile(String)} and before {@link #endPutFile(String, Date, long, String)}.
+	 * @param path the path of the file. Must not be <code>null</code>.
+	 * @param fileDataDeltaDto the delta obtained from the source's
+	 * {@link #getFileDataDeltaDto(String, long, int, FileDataSignatureDto)}. Must not be <code>null</code>.
+	 * @return the chunk written or <code>null</code>, if the data could not be restored. In this case,
+	 * the caller must transfer the data completely.
+	 * @see #beginPutFile(String)
+	 * @see #endPutFile(String, Date, long, String)
+	 */
+	FileChunkDto putFileDataDelta(String path, FileDataDeltaDto fileDataDeltaDto);
+
+	/**
+	 * Discards chunks, which were temporarily stored by an earlier, interrupted transfer of the file, but
+	 * do not match the source file anymore.
+	 * <p>
+	 * The temporarily stored chunks are listed in {@link NormalFileDto#getTempFileChunkDtos()}. If the source
+	 * file was modified since the interrupted transfer, some of them might be located at offsets not existing
+	 * anymore - possibly overlapping the new chunks. They must be discarded before the file is written.
+	 * <p>
+	 * This method may only be called after {@link #beginPutFile(String)} and before {@link #endPutFile(String, Date, long, String)}.
+	 * @param path the path of the file. Must not be <code>null</code>.
+	 * @param fileChunkDtoList the temporarily stored chunks to be discarded. Must not be <code>null</code>.
+	 * Only their {@link FileChunkDto#getOffset() offsets} are relevant.
+	 * @see #beginPutFile(String)
+	 * @see #endPutFile(String, Date, long, String)
+	 */
+	void deleteTempFileChunks(String path, FileChunkDtoList fileChunkDtoList);
+
 	/**
 	 * Ends a file transfer to this {@code RepoTransport} (more precisely the remote repository behind it).
 	 * @param path the path of the file. Must not be <code>null</code>. No matter which operating system is used,
@@ -324,12 +476,29 @@ public interface RepoTransport extends AutoCloseable {
 	 * @param lastModified when was the file's last modification. Must not be <code>null</code>.
 	 * @param length the length of the file in bytes. If the file already existed and was longer, it is
 	 * truncated to this length.
-	 * @param sha1 the SHA1 hash of the file. May be <code>null</code>. If it is given, the repository may
-	 * log a warning, if the current file is different. It should not throw an exception, because it
-	 * is a valid state that a file is modified (by another process) while it is transferred.
+	 * @param sha1 the SHA1 hash of the file. May be <code>null</code>. If it is given and the file written is
+	 * different, the repository logs a warning. This might happen, if the file is modified (by another process)
+	 * while it is transferred. The current version is then transferred by a later sync.
+	 * @throws FileDataMismatchException if the temporarily stored chunks cannot make up the file, because they
+	 * overlap - or if the file was modified or deleted locally during the transfer.
 	 */
 	void endPutFile(String path, Date lastModified, long length, String sha1);
 
+	/**
+	 * Transfers multiple complete files to this {@code RepoTransport} (more precisely the remote repository behind it).
+	 * <p>
+	 * This is a short-cut for invoking {@link #beginPutFile(String)}, {@link #putFileData(String, long, byte[])}
+	 * and {@link #endPutFile(String, Date, long, String)} for every file. It is meant for small files, whose entire
+	 * content is held in memory, and avoids the overhead of multiple invocations per file - especially the
+	 * round-trips, if the repository is remote.
+	 * <p>
+	 * Implementations should write all files in one single transaction. A file already existing with the
+	 * same {@link PutFileDto#getLength() length}, {@link PutFileDto#getLastModified() lastModified} and
+	 * {@link PutFileDto#getSha1() sha1} may be skipped.
+	 * @param putFileDtoList the files to be written. Must not be <code>null</code>.
+	 */
+	void putFiles(PutFileDtoList putFileDtoList);
+
 	/**
 	 * Marks the end of a synchronisation <b>from</b> the remote repository behind this {@code RepoTransport}.
 	 * <p>
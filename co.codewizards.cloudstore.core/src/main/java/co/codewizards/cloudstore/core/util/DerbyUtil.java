@@ -3,9 +3,68 @@ package co.codewizards.cloudstore.core.util;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.codewizards.cloudstore.core.config.Config;
+import co.codewizards.cloudstore.core.config.ConfigImpl;
 import co.codewizards.cloudstore.core.oio.File;
 
 public class DerbyUtil {
+	private static final Logger logger = LoggerFactory.getLogger(DerbyUtil.class);
+
+	/**
+	 * The {@code key} for the number of pages held in the page cache of each Derby database, used with
+	 * {@link Config#getPropertyAsPositiveOrZeroInt(String, int)}.
+	 * <p>
+	 * Every booted database has its own page cache of this size - and one Derby database is booted for every open
+	 * repository. Thus, a large value might exhaust the heap, if many repositories are open. With a page size of
+	 * 4 to 32 KiB, the default of {@link #DEFAULT_PAGE_CACHE_SIZE} pages takes about 8 to 64 MiB per database.
+	 * A value of 0 means Derby's own default (1000 pages).
+	 * <p>
+	 * This setting is read from the global configuration, only, and applies to all Derby databases booted
+	 * afterwards. It is ignored, if the Derby system property {@code derby.storage.pageCacheSize} is set.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 */
+	public static final String CONFIG_KEY_PAGE_CACHE_SIZE = "derby.pageCacheSize"; //$NON-NLS-1$
+	public static final int DEFAULT_PAGE_CACHE_SIZE = 2000;
+
+	/**
+	 * The {@code key} for the size of Derby's transaction log buffer in bytes, used with
+	 * {@link Config#getPropertyAsPositiveOrZeroInt(String, int)}.
+	 * <p>
+	 * A larger buffer reduces the number of log writes of large transactions (e.g. of a local sync). Derby's
+	 * own default is 32 KiB.
+	 * <p>
+	 * The default value is {@link #DEFAULT_LOG_BUFFER_SIZE}. A value of 0 means Derby's own default. Like {@link #CONFIG_KEY_PAGE_CACHE_SIZE}, it is
+	 * read from the global configuration, only, and ignored, if {@code derby.storage.logBufferSize} is set.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 */
+	public static final String CONFIG_KEY_LOG_BUFFER_SIZE = "derby.logBufferSize"; //$NON-NLS-1$
+	public static final int DEFAULT_LOG_BUFFER_SIZE = 256 * 1024;
+
+	/**
+	 * The {@code key} for the number of compiled statements cached by Derby, used with
+	 * {@link Config#getPropertyAsPositiveOrZeroInt(String, int)}.
+	 * <p>
+	 * DataNucleus generates many different statements - Derby's own default of 100 is too small to hold them
+	 * all, which causes them to be compiled again and again.
+	 * <p>
+	 * The default value is {@link #DEFAULT_STATEMENT_CACHE_SIZE}. A value of 0 means Derby's own default. Like {@link #CONFIG_KEY_PAGE_CACHE_SIZE}, it is
+	 * read from the global configuration, only, and ignored, if {@code derby.language.statementCacheSize} is set.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 */
+	public static final String CONFIG_KEY_STATEMENT_CACHE_SIZE = "derby.statementCacheSize"; //$NON-NLS-1$
+	public static final int DEFAULT_STATEMENT_CACHE_SIZE = 500;
+
+	private static final String DERBY_SYSTEM_PROPERTY_PAGE_CACHE_SIZE = "derby.storage.pageCacheSize";
+	private static final String DERBY_SYSTEM_PROPERTY_LOG_BUFFER_SIZE = "derby.storage.logBufferSize";
+	private static final String DERBY_SYSTEM_PROPERTY_STATEMENT_CACHE_SIZE = "derby.language.statementCacheSize";
+
+	private static boolean systemPropertiesInitialised;
 
 	/**
 	 * The Derby database was shut down successfully.
@@ -16,8 +75,19 @@ public class DerbyUtil {
 	 */
 	private static final int DERBY_ERROR_CODE_SHUTDOWN_DATABASE_WAS_NOT_RUNNING = 40000;
 
+	private static final String DERBY_CONNECTION_URL_PREFIX = "jdbc:derby:";
+
 	private DerbyUtil() { }
 
+	/**
+	 * Determines whether the given JDBC URL references a Derby database.
+	 * @param connectionURL the JDBC URL. May be <code>null</code>.
+	 * @return <code>true</code>, if the URL is a Derby URL; <code>false</code> otherwise (e.g. for H2).
+	 */
+	public static boolean isDerbyConnectionURL(String connectionURL) {
+		return connectionURL != null && connectionURL.trim().startsWith(DERBY_CONNECTION_URL_PREFIX);
+	}
+
 	public static void shutdownDerbyDatabase(String connectionURL) {
 		String shutdownConnectionURL = AssertUtil.assertNotNull("connectionURL", connectionURL) + ";shutdown=true";
 		try {
@@ -31,6 +101,40 @@ public class DerbyUtil {
 		}
 	}
 
+	/**
+	 * Passes the tuning settings ({@link #CONFIG_KEY_PAGE_CACHE_SIZE} and the others) to Derby.
+	 * <p>
+	 * Derby reads these system properties when booting a database. Hence, this method must be invoked before.
+	 * Invoking it multiple times has no effect.
+	 */
+	public static synchronized void initDerbySystemProperties() {
+		if (systemPropertiesInitialised)
+			return;
+
+		final Config config = ConfigImpl.getInstance();
+		setSystemPropertyIfAbsent(DERBY_SYSTEM_PROPERTY_PAGE_CACHE_SIZE,
+				config.getPropertyAsPositiveOrZeroInt(CONFIG_KEY_PAGE_CACHE_SIZE, DEFAULT_PAGE_CACHE_SIZE));
+		setSystemPropertyIfAbsent(DERBY_SYSTEM_PROPERTY_LOG_BUFFER_SIZE,
+				config.getPropertyAsPositiveOrZeroInt(CONFIG_KEY_LOG_BUFFER_SIZE, DEFAULT_LOG_BUFFER_SIZE));
+		setSystemPropertyIfAbsent(DERBY_SYSTEM_PROPERTY_STATEMENT_CACHE_SIZE,
+				config.getPropertyAsPositiveOrZeroInt(CONFIG_KEY_STATEMENT_CACHE_SIZE, DEFAULT_STATEMENT_CACHE_SIZE));
+
+		systemPropertiesInitialised = true;
+	}
+
+	private static void setSystemPropertyIfAbsent(final String key, final int value) {
+		final String oldValue = System.getProperty(key);
+		if (oldValue != null) {
+			logger.info("setSystemPropertyIfAbsent: {}={} (already set)", key, oldValue);
+			return;
+		}
+		if (value <= 0) // 0 => Derby's own default
+			return;
+
+		System.setProperty(key, Integer.toString(value));
+		logger.info("setSystemPropertyIfAbsent: {}={}", key, value);
+	}
+
 	public static void setLogFile(File file) {
 		System.setProperty("derby.stream.error.file", AssertUtil.assertNotNull("file", file).getAbsolutePath());
 	}
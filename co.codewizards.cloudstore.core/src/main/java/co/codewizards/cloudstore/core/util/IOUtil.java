@@ -18,6 +18,8 @@ import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Properties;
@@ -372,6 +374,62 @@ public final class IOUtil {
 		return transferStreamData(in, out, 0, -1);
 	}
 
+	/**
+	 * Transfer data from an {@link InputStream} into a {@link FileChannel} at the given {@code position}.
+	 * <p>
+	 * In contrast to {@link #transferStreamData(InputStream, OutputStream, long, long)}, this method uses
+	 * the positional {@link FileChannel#write(ByteBuffer, long)}. It thus neither modifies the channel's position
+	 * nor does it need a buffer as large as the data. Writing beyond the end of the file extends it (the gap is
+	 * undefined). Since nothing outside the given region is written, multiple threads may write different regions
+	 * of the same channel concurrently.
+	 * @param in The stream to read from. Must not be <code>null</code>. It is not closed by this method.
+	 * @param out The channel to write to. Must not be <code>null</code>.
+	 * @param position The 0-based position in {@code out} at which to start writing.
+	 * @param length How many bytes to transfer. -1 = all (until the end of {@code in})
+	 * @return The number of bytes transferred
+	 * @throws IOException if an error occurs or if {@code in} ended before {@code length} bytes were transferred.
+	 */
+	public static long transferStreamData(final InputStream in, final FileChannel out, final long position, final long length)
+	throws java.io.IOException
+	{
+		assertNotNull("in", in);
+		assertNotNull("out", out);
+		if (position < 0)
+			throw new IllegalArgumentException("position < 0");
+
+		final int maxBufferSize = 64 * 1024;
+		final byte[] buf = new byte[length < 0 ? maxBufferSize : (int) Math.min(maxBufferSize, length)];
+		long transferred = 0;
+		while (length < 0 || transferred < length) {
+			final int count = length < 0 ? buf.length : (int) Math.min(buf.length, length - transferred);
+			int bytesRead = in.read(buf, 0, count);
+			if (bytesRead == 0) {
+				// Some streams return 0 bytes before reaching the end. We therefore check explicitly (and blocking),
+				// whether we reached the end.
+				final int b = in.read();
+				if (b >= 0) {
+					buf[0] = (byte) b;
+					bytesRead = 1;
+				}
+				else
+					bytesRead = -1;
+			}
+			if (bytesRead < 0) {
+				if (length >= 0)
+					throw new IOException(String.format("Premature end of stream! Expected %s bytes, but transferred only %s bytes.", length, transferred));
+
+				break;
+			}
+
+			final ByteBuffer byteBuffer = ByteBuffer.wrap(buf, 0, bytesRead);
+			while (byteBuffer.hasRemaining())
+				out.write(byteBuffer, position + transferred + byteBuffer.position());
+
+			transferred += bytesRead;
+		}
+		return transferred;
+	}
+
 	/**
 	 * This method deletes the given directory recursively. If the given parameter
 	 * specifies a file and no directory, it will be deleted anyway. If one or more
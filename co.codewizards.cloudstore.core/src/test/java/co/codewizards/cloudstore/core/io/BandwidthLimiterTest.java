@@ -0,0 +1,72 @@
+package co.codewizards.cloudstore.core.io;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Calendar;
+
+import org.junit.Test;
+
+public class BandwidthLimiterTest {
+
+	private static class TestTokenBucket extends TokenBucket {
+		public long nanos;
+
+		public TestTokenBucket(final long bytesPerSecond) {
+			super(bytesPerSecond);
+		}
+
+		@Override
+		protected long nanoTime() {
+			return nanos;
+		}
+	}
+
+	@Test
+	public void tokenBucketSustainedRate() {
+		final TestTokenBucket tokenBucket = new TestTokenBucket(1000);
+		// empty at the beginning => 500 bytes need 0.5 s
+		assertThat(tokenBucket.reserve(500)).isEqualTo(500_000_000L);
+		// the bucket is in debt => the next caller waits for the previous one, too
+		assertThat(tokenBucket.reserve(1500)).isEqualTo(2000_000_000L);
+
+		tokenBucket.nanos += 2000_000_000L;
+		assertThat(tokenBucket.reserve(0)).isEqualTo(0);
+
+		// after being idle for a long time, at most one second's worth of bytes passes without delay
+		tokenBucket.nanos += 60_000_000_000L;
+		assertThat(tokenBucket.reserve(1000)).isEqualTo(0);
+		assertThat(tokenBucket.reserve(100)).isEqualTo(100_000_000L);
+	}
+
+	@Test
+	public void tokenBucketUnlimited() {
+		final TestTokenBucket tokenBucket = new TestTokenBucket(0);
+		assertThat(tokenBucket.reserve(Long.MAX_VALUE / 2)).isEqualTo(0);
+
+		tokenBucket.setBytesPerSecond(1000);
+		assertThat(tokenBucket.reserve(1000)).isEqualTo(1000_000_000L);
+
+		tokenBucket.setBytesPerSecond(0);
+		assertThat(tokenBucket.reserve(1000)).isEqualTo(0);
+	}
+
+	@Test
+	public void timeWindows() {
+		final String timeWindows = "08:00-18:00=25, 18:00-22:00=50%, 22:00-06:00=0, invalid";
+		assertThat(BandwidthLimiter.getPercent(timeWindows, time(7, 59))).isEqualTo(100);
+		assertThat(BandwidthLimiter.getPercent(timeWindows, time(8, 0))).isEqualTo(25);
+		assertThat(BandwidthLimiter.getPercent(timeWindows, time(17, 59))).isEqualTo(25);
+		assertThat(BandwidthLimiter.getPercent(timeWindows, time(18, 0))).isEqualTo(50);
+		assertThat(BandwidthLimiter.getPercent(timeWindows, time(23, 30))).isEqualTo(0);
+		assertThat(BandwidthLimiter.getPercent(timeWindows, time(5, 59))).isEqualTo(0);
+		assertThat(BandwidthLimiter.getPercent(timeWindows, time(6, 0))).isEqualTo(100);
+		assertThat(BandwidthLimiter.getPercent(null, time(12, 0))).isEqualTo(100);
+	}
+
+	private static Calendar time(final int hour, final int minute) {
+		final Calendar calendar = Calendar.getInstance();
+		calendar.set(Calendar.HOUR_OF_DAY, hour);
+		calendar.set(Calendar.MINUTE, minute);
+		return calendar;
+	}
+}
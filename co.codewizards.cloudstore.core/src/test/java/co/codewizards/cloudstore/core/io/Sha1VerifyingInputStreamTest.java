@@ -0,0 +1,77 @@
+package co.codewizards.cloudstore.core.io;
+
+import static co.codewizards.cloudstore.core.util.HashUtil.*;
+import static co.codewizards.cloudstore.core.util.IOUtil.*;
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class Sha1VerifyingInputStreamTest {
+
+	private static final Random random = new Random();
+
+	@Test
+	public void matchingData() throws IOException {
+		final byte[] data = new byte[100 * 1024];
+		random.nextBytes(data);
+
+		final Sha1VerifyingInputStream in = new Sha1VerifyingInputStream(new ByteArrayInputStream(data), data.length, sha1(data));
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		transferStreamData(in, out);
+		assertThat(out.toByteArray()).isEqualTo(data);
+		assertThat(in.isVerificationFailed()).isFalse();
+	}
+
+	@Test
+	public void modifiedData() throws IOException {
+		final byte[] data = new byte[100 * 1024];
+		random.nextBytes(data);
+		final String sha1 = sha1(data);
+		++data[data.length - 1];
+
+		final Sha1VerifyingInputStream in = new Sha1VerifyingInputStream(new ByteArrayInputStream(data), data.length, sha1);
+		final byte[] buf = new byte[data.length];
+		final int bytesRead = readFully(in, buf, data.length - 1);
+		assertThat(bytesRead).isEqualTo(data.length - 1);
+		assertThat(in.isVerificationFailed()).isFalse();
+
+		// The last byte completing the data must not be returned.
+		try {
+			in.read(buf, bytesRead, 1);
+			fail("SHA1 mismatch not detected!");
+		} catch (final IOException x) {
+			assertThat(in.isVerificationFailed()).isTrue();
+		}
+	}
+
+	@Test
+	public void prematureEnd() throws IOException {
+		final byte[] data = new byte[1000];
+		random.nextBytes(data);
+
+		final Sha1VerifyingInputStream in = new Sha1VerifyingInputStream(new ByteArrayInputStream(data, 0, 999), data.length, sha1(data));
+		try {
+			transferStreamData(in, new ByteArrayOutputStream());
+			fail("Premature end not detected!");
+		} catch (final IOException x) {
+			assertThat(in.isVerificationFailed()).isTrue();
+		}
+	}
+
+	private static int readFully(final Sha1VerifyingInputStream in, final byte[] buf, final int length) throws IOException {
+		int off = 0;
+		while (off < length) {
+			final int bytesRead = in.read(buf, off, length - off);
+			if (bytesRead < 0)
+				break;
+
+			off += bytesRead;
+		}
+		return off;
+	}
+}
@@ -0,0 +1,74 @@
+package co.codewizards.cloudstore.core.metrics;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class HistogramTest {
+
+	@Test
+	public void bucketBoundsContainValue() {
+		for (long value = 0; value < 100000; ++value)
+			assertBucketContainsValue(value);
+
+		for (int exponent = 17; exponent < 63; ++exponent) {
+			final long powerOf2 = 1L << exponent;
+			assertBucketContainsValue(powerOf2 - 1);
+			assertBucketContainsValue(powerOf2);
+			assertBucketContainsValue(powerOf2 + 1);
+		}
+		assertBucketContainsValue(Long.MAX_VALUE);
+	}
+
+	private static void assertBucketContainsValue(final long value) {
+		final int bucketIndex = Histogram.getBucketIndex(value);
+		assertThat(Histogram.getBucketUpperBound(bucketIndex)).isGreaterThanOrEqualTo(value);
+		if (bucketIndex > 0)
+			assertThat(Histogram.getBucketUpperBound(bucketIndex - 1)).isLessThan(value);
+	}
+
+	@Test
+	public void percentiles() {
+		final Histogram histogram = new Histogram("test");
+		assertThat(histogram.get50thPercentile()).isEqualTo(0);
+
+		for (long value = 1; value <= 1000; ++value)
+			histogram.update(value);
+
+		assertThat(histogram.getCount()).isEqualTo(1000);
+		assertThat(histogram.getSum()).isEqualTo(500500);
+		assertThat(histogram.getMin()).isEqualTo(1);
+		assertThat(histogram.getMax()).isEqualTo(1000);
+		assertThat(histogram.getMean()).isEqualTo(500.5);
+		assertPercentile(histogram.get50thPercentile(), 500);
+		assertPercentile(histogram.get95thPercentile(), 950);
+		assertPercentile(histogram.get99thPercentile(), 990);
+		assertThat(histogram.getPercentile(1)).isEqualTo(1000);
+
+		histogram.reset();
+		assertThat(histogram.getCount()).isEqualTo(0);
+		assertThat(histogram.getMax()).isEqualTo(0);
+	}
+
+	private static void assertPercentile(final long actual, final long expected) {
+		assertThat(actual).isGreaterThanOrEqualTo(expected);
+		assertThat(actual).isLessThanOrEqualTo(expected + expected / 8);
+	}
+
+	@Test
+	public void timerExposesMillis() {
+		final Timer timer = MetricRegistry.getInstance().timer("histogramTest.timer");
+		timer.reset();
+		timer.update(3, TimeUnit.MILLISECONDS);
+		assertThat(timer.getCount()).isEqualTo(1);
+		assertThat(timer.getTotalMillis()).isEqualTo(3d);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void registryRejectsTypeConflict() {
+		MetricRegistry.getInstance().counter("histogramTest.conflict");
+		MetricRegistry.getInstance().timer("histogramTest.conflict");
+	}
+}
@@ -0,0 +1,81 @@
+package co.codewizards.cloudstore.core.repo.sync;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import co.codewizards.cloudstore.core.dto.CopyModificationDto;
+import co.codewizards.cloudstore.core.dto.DeleteModificationDto;
+import co.codewizards.cloudstore.core.dto.ModificationDto;
+
+public class CrossRevisionMoveSetTest {
+
+	private long nextId;
+
+	@Test
+	public void copyBeforeDelete() {
+		final CopyModificationDto copy = copy(5, "/a/x", "/b/x");
+		final DeleteModificationDto delete = delete(6, "/a/x");
+		final CrossRevisionMoveSet moveSet = new CrossRevisionMoveSet(Arrays.<ModificationDto>asList(copy, delete));
+		assertThat(moveSet.getDeleteModificationDto(copy)).isSameAs(delete);
+		assertThat(moveSet.getCopyModificationDto(delete)).isSameAs(copy);
+	}
+
+	@Test
+	public void deleteBeforeCopy() {
+		final DeleteModificationDto delete = delete(5, "/b/x");
+		final CopyModificationDto copy = copy(7, "/b/x", "/c/x");
+		final CrossRevisionMoveSet moveSet = new CrossRevisionMoveSet(Arrays.<ModificationDto>asList(delete, copy));
+		assertThat(moveSet.getDeleteModificationDto(copy)).isSameAs(delete);
+		assertThat(moveSet.getCopyModificationDto(delete)).isSameAs(copy);
+	}
+
+	@Test
+	public void sameRevisionIsNotCrossRevision() {
+		final CopyModificationDto copy = copy(5, "/a/x", "/b/x");
+		final DeleteModificationDto delete = delete(5, "/a/x");
+		final CrossRevisionMoveSet moveSet = new CrossRevisionMoveSet(Arrays.<ModificationDto>asList(copy, delete));
+		assertThat(moveSet.getDeleteModificationDto(copy)).isNull();
+		assertThat(moveSet.getCopyModificationDto(delete)).isNull();
+	}
+
+	@Test
+	public void otherCopyOfSourceInBetween() {
+		final CopyModificationDto copy1 = copy(5, "/a/x", "/b/x");
+		final CopyModificationDto copy2 = copy(6, "/a/x", "/c/x");
+		final DeleteModificationDto delete = delete(7, "/a/x");
+		final CrossRevisionMoveSet moveSet = new CrossRevisionMoveSet(Arrays.<ModificationDto>asList(copy1, copy2, delete));
+		// Only the last copy may become a move.
+		assertThat(moveSet.getDeleteModificationDto(copy1)).isNull();
+		assertThat(moveSet.getDeleteModificationDto(copy2)).isSameAs(delete);
+	}
+
+	@Test
+	public void destinationAffectedInBetween() {
+		final DeleteModificationDto delete = delete(5, "/a/x");
+		final DeleteModificationDto deleteDestination = delete(6, "/b/x");
+		final CopyModificationDto copy = copy(7, "/a/x", "/b/x");
+		final CrossRevisionMoveSet moveSet = new CrossRevisionMoveSet(Arrays.<ModificationDto>asList(delete, deleteDestination, copy));
+		assertThat(moveSet.getDeleteModificationDto(copy)).isNull();
+		assertThat(moveSet.getCopyModificationDto(delete)).isNull();
+	}
+
+	private CopyModificationDto copy(final long localRevision, final String fromPath, final String toPath) {
+		final CopyModificationDto copyModificationDto = new CopyModificationDto();
+		copyModificationDto.setId(++nextId);
+		copyModificationDto.setLocalRevision(localRevision);
+		copyModificationDto.setFromPath(fromPath);
+		copyModificationDto.setToPath(toPath);
+		return copyModificationDto;
+	}
+
+	private DeleteModificationDto delete(final long localRevision, final String path) {
+		final DeleteModificationDto deleteModificationDto = new DeleteModificationDto();
+		deleteModificationDto.setId(++nextId);
+		deleteModificationDto.setLocalRevision(localRevision);
+		deleteModificationDto.setPath(path);
+		return deleteModificationDto;
+	}
+}
@@ -5,8 +5,14 @@ import static co.codewizards.cloudstore.core.util.IOUtil.*;
 import static java.lang.System.*;
 import static org.assertj.core.api.Assertions.*;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
@@ -14,6 +20,7 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import co.codewizards.cloudstore.core.io.FileChannelInputStream;
 import co.codewizards.cloudstore.core.oio.File;
 
 /**
@@ -101,6 +108,100 @@ public class IOUtilTest {
 		}
 	}
 
+	@Test
+	public void transferStreamDataToFileChannel() throws IOException {
+		final File file = createTempFile(this.getClass().getSimpleName(), ".bin");
+		final byte[] data = new byte[100 * 1024];
+		random.nextBytes(data);
+
+		// A stream sometimes returning 0 bytes must not be mistaken for the end of the stream.
+		final InputStream in = new ByteArrayInputStream(data) {
+			private int readCounter;
+
+			@Override
+			public synchronized int read(final byte[] b, final int off, final int len) {
+				if (++readCounter % 3 == 0)
+					return 0;
+
+				return super.read(b, off, Math.min(len, 1000));
+			}
+		};
+
+		final long offset = 5000; // beyond the end of the (empty) file
+		final RandomAccessFile raf = file.createRandomAccessFile("rw");
+		try {
+			final long transferred = transferStreamData(in, raf.getChannel(), offset, data.length);
+			assertThat(transferred).isEqualTo(data.length);
+			assertThat(raf.length()).isEqualTo(offset + data.length);
+
+			final InputStream fileIn = new FileChannelInputStream(raf.getChannel(), offset, data.length);
+			final byte[] readData = new byte[data.length];
+			readOrFail(fileIn, readData, 0, readData.length);
+			assertThat(readData).isEqualTo(data);
+			assertThat(fileIn.read()).isEqualTo(-1);
+		} finally {
+			raf.close();
+		}
+		file.delete();
+	}
+
+	@Test
+	public void transferStreamDataToFileChannel_concurrentRegions() throws Exception {
+		final File file = createTempFile(this.getClass().getSimpleName(), ".bin");
+		final int regionCount = 16;
+		final int regionLength = 30 * 1024;
+		final byte[] data = new byte[regionCount * regionLength];
+		random.nextBytes(data);
+
+		final RandomAccessFile raf = file.createRandomAccessFile("rw");
+		try {
+			// Every thread writes its own region beyond the current end of the file. None of them must
+			// overwrite data written by another thread.
+			final List<Thread> threads = new ArrayList<>(regionCount);
+			final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+			for (int i = regionCount - 1; i >= 0; --i) {
+				final int offset = i * regionLength;
+				threads.add(new Thread() {
+					@Override
+					public void run() {
+						try {
+							transferStreamData(new ByteArrayInputStream(data, offset, regionLength), raf.getChannel(), offset, regionLength);
+						} catch (final Throwable x) {
+							errors.add(x);
+						}
+					}
+				});
+			}
+			for (final Thread thread : threads)
+				thread.start();
+
+			for (final Thread thread : threads)
+				thread.join();
+
+			assertThat(errors).isEmpty();
+			assertThat(raf.length()).isEqualTo(data.length);
+
+			final byte[] readData = new byte[data.length];
+			readOrFail(new FileChannelInputStream(raf.getChannel(), 0, data.length), readData, 0, readData.length);
+			assertThat(readData).isEqualTo(data);
+		} finally {
+			raf.close();
+		}
+		file.delete();
+	}
+
+	@Test(expected = IOException.class)
+	public void transferStreamDataToFileChannel_prematureEnd() throws IOException {
+		final File file = createTempFile(this.getClass().getSimpleName(), ".bin");
+		final RandomAccessFile raf = file.createRandomAccessFile("rw");
+		try {
+			transferStreamData(new ByteArrayInputStream(new byte[10]), raf.getChannel(), 0, 11);
+		} finally {
+			raf.close();
+			file.delete();
+		}
+	}
+
 	@Test
 	public void replaceTemplateVariables_nested() {
 		Map<String, Object> variables = new HashMap<>();
@@ -116,7 +116,9 @@ public class AutoTrackLifecycleListener extends AbstractLocalRepoTransactionList
 	@Override
 	public void onBegin() {
 		defer = true;
-		getTransactionOrFail().getPersistenceManager().addInstanceLifecycleListener(this, (Class[]) null);
+		final PersistenceManager pm = getTransactionOrFail().getPersistenceManager();
+		pm.removeInstanceLifecycleListener(this); // in case the PersistenceManager is re-used (see LocalRepoTransactionImpl.commitAndContinue()).
+		pm.addInstanceLifecycleListener(this, (Class[]) null);
 	}
 
 	/**
@@ -0,0 +1,96 @@
+package co.codewizards.cloudstore.local;
+
+import co.codewizards.cloudstore.core.dto.FileChunkDto;
+import co.codewizards.cloudstore.core.repo.local.FileChunkingStrategy;
+
+/**
+ * Finds the chunk boundaries for the {@link FileChunkingStrategy#contentDefined contentDefined} strategy.
+ * <p>
+ * This is an implementation of the FastCDC algorithm: A gear-based rolling hash is calculated over the data
+ * and a chunk ends where the hash matches a mask. In order to keep the chunk lengths close to the average
+ * length, a stricter mask is used before and a more lenient mask after reaching the average length
+ * ("normalized chunking"). The first {@link #MIN_LENGTH} bytes of every chunk are skipped without hashing.
+ * <p>
+ * The boundaries only depend on the data. They must never change, because otherwise chunks calculated
+ * by different CloudStore versions would not match anymore.
+ * <p>
+ * Instances are not thread-safe. Every file must be processed by a new instance (or after {@link #reset()}).
+ */
+class ContentDefinedChunker {
+
+	static final int MAX_LENGTH = FileChunkDto.MAX_LENGTH;
+	static final int MIN_LENGTH = MAX_LENGTH / 4;
+	static final int AVG_LENGTH = MAX_LENGTH / 2;
+
+	/**
+	 * Mask used before the chunk reached {@link #AVG_LENGTH}. The highest bits of the hash depend on the last
+	 * 64 bytes (the oldest byte being shifted out), hence the mask consists of the highest bits.
+	 */
+	private static final long MASK_S = 0xfffff00000000000L; // 20 bits
+	/**
+	 * Mask used after the chunk reached {@link #AVG_LENGTH}.
+	 */
+	private static final long MASK_L = 0xffff000000000000L; // 16 bits
+
+	private static final long[] GEAR = createGear();
+
+	private long hash;
+	private int chunkLength;
+
+	/**
+	 * Processes the given data and searches for the end of the current chunk.
+	 * <p>
+	 * If the end was found, the state is reset for the next chunk. Otherwise, all the given data is
+	 * considered part of the current chunk.
+	 * @param buf the buffer containing the data. Must not be <code>null</code>.
+	 * @param off the offset of the first byte in {@code buf} to be processed.
+	 * @param len the number of bytes to be processed.
+	 * @return the number of bytes (beginning at {@code off}) still belonging to the current chunk, if the end
+	 * of the chunk was found. -1, if the chunk continues beyond the given data.
+	 */
+	public int nextBoundary(final byte[] buf, final int off, final int len) {
+		int i = 0;
+		while (i < len) {
+			if (chunkLength < MIN_LENGTH) {
+				final int skip = Math.min(len - i, MIN_LENGTH - chunkLength);
+				i += skip;
+				chunkLength += skip;
+				continue;
+			}
+
+			hash = (hash << 1) + GEAR[buf[off + i] & 0xff];
+			++i;
+			++chunkLength;
+
+			final long mask = chunkLength < AVG_LENGTH ? MASK_S : MASK_L;
+			if ((hash & mask) == 0 || chunkLength >= MAX_LENGTH) {
+				reset();
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public void reset() {
+		hash = 0;
+		chunkLength = 0;
+	}
+
+	/**
+	 * Creates the table of pseudo-random values assigned to each byte value.
+	 * <p>
+	 * The values are generated by SplitMix64 with a fixed seed, hence they are always the same.
+	 */
+	private static long[] createGear() {
+		final long[] gear = new long[256];
+		long state = 0x436c6f756453746fL;
+		for (int i = 0; i < gear.length; ++i) {
+			state += 0x9e3779b97f4a7c15L;
+			long z = state;
+			z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+			z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+			gear[i] = z ^ (z >>> 31);
+		}
+		return gear;
+	}
+}
@@ -3,6 +3,7 @@ package co.codewizards.cloudstore.local;
 import static co.codewizards.cloudstore.core.oio.OioFileFactory.*;
 import static co.codewizards.cloudstore.core.repo.local.LocalRepoManager.*;
 import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+import static co.codewizards.cloudstore.core.util.DerbyUtil.*;
 import static co.codewizards.cloudstore.core.util.StringUtil.*;
 
 import java.io.InputStream;
@@ -32,6 +33,10 @@ public class JdbcConnectionFactory {
 
 	private final File localRoot;
 
+	private UUID repositoryId;
+
+	private Map<String, String> persistenceProperties;
+
 	private String connectionURL;
 
 	private String connectionDriverName;
@@ -47,6 +52,9 @@ public class JdbcConnectionFactory {
 
 		initProperties();
 		initDriverClass();
+
+		if (isDerbyConnectionURL(connectionURL))
+			initDerbySystemProperties();
 	}
 
 	private UUID readRepositoryIdFromRepositoryPropertiesFile() {
@@ -68,14 +76,30 @@ public class JdbcConnectionFactory {
 	}
 
 	private void initProperties() {
-		UUID repositoryId = readRepositoryIdFromRepositoryPropertiesFile();
-		Map<String, String> persistenceProperties = new PersistencePropertiesProvider(repositoryId, localRoot).getPersistenceProperties();
+		repositoryId = readRepositoryIdFromRepositoryPropertiesFile();
+		persistenceProperties = new PersistencePropertiesProvider(repositoryId, localRoot).getPersistenceProperties();
 		connectionDriverName = persistenceProperties.get(PersistencePropertiesEnum.CONNECTION_DRIVER_NAME.key);
 		connectionURL = persistenceProperties.get(PersistencePropertiesEnum.CONNECTION_URL.key);
 		connectionUserName = persistenceProperties.get(PersistencePropertiesEnum.CONNECTION_USER_NAME.key);
 		connectionPassword = persistenceProperties.get(PersistencePropertiesEnum.CONNECTION_PASSWORD.key);
 	};
 
+	public UUID getRepositoryId() {
+		return repositoryId;
+	}
+
+	/**
+	 * Gets the resolved persistence properties, which were read when this factory was created.
+	 * @return the persistence properties. Never <code>null</code>.
+	 */
+	public Map<String, String> getPersistenceProperties() {
+		return persistenceProperties;
+	}
+
+	public String getConnectionURL() {
+		return connectionURL;
+	}
+
 	protected File getMetaDir() {
 		return createFile(localRoot, META_DIR_NAME);
 	}
@@ -39,9 +39,12 @@ import javax.jdo.PersistenceManagerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import co.codewizards.cloudstore.core.config.Config;
+import co.codewizards.cloudstore.core.config.ConfigImpl;
 import co.codewizards.cloudstore.core.io.LockFile;
 import co.codewizards.cloudstore.core.io.LockFileFactory;
 import co.codewizards.cloudstore.core.io.TimeoutException;
+import co.codewizards.cloudstore.core.metrics.MetricRegistry;
 import co.codewizards.cloudstore.core.oio.File;
 import co.codewizards.cloudstore.core.progress.ProgressMonitor;
 import co.codewizards.cloudstore.core.progress.SubProgressMonitor;
@@ -87,10 +90,14 @@ import co.codewizards.cloudstore.local.persistence.RemoteRepositoryRequestDao;
 class LocalRepoManagerImpl implements LocalRepoManager {
 	private static final Logger logger = LoggerFactory.getLogger(LocalRepoManagerImpl.class);
 
+	private static final co.codewizards.cloudstore.core.metrics.Timer localSyncTimer = MetricRegistry.getInstance().timer("localRepoManager.localSync");
+
 	protected final String id = Integer.toHexString(System.identityHashCode(this));
 
 	private long closeDeferredMillis = Long.MIN_VALUE;
-	private static final long lockTimeoutMillis = 30000; // TODO make configurable!
+	private final long lockTimeoutMillis;
+
+	private LocalRepoWatcher localRepoWatcher;
 
 	private static final long remoteRepositoryRequestExpiryAge = 24 * 60 * 60 * 1000L;
 
@@ -141,6 +148,9 @@ class LocalRepoManagerImpl implements LocalRepoManager {
 	protected LocalRepoManagerImpl(final File localRoot, final boolean createRepository) throws LocalRepoManagerException {
 		logger.info("[{}]<init>: localRoot='{}'", id, localRoot);
 		this.localRoot = assertValidLocalRoot(localRoot);
+		// The repository might not yet exist (or not be locked) => we cannot read its config, yet => use the global config.
+		this.lockTimeoutMillis = ConfigImpl.getInstance().getPropertyAsPositiveOrZeroLong(
+				CONFIG_KEY_LOCK_TIMEOUT, DEFAULT_LOCK_TIMEOUT);
 		boolean releaseLockFile = true;
 		deleteMetaDir = false; // only delete, if it is created in initMetaDirectory(...)
 		try {
@@ -162,6 +172,7 @@ class LocalRepoManagerImpl implements LocalRepoManager {
 			deleteExpiredRemoteRepositoryRequests();
 			syncWithLocalRepoRegistry();
 			updateRepositoryPropertiesFile();
+			startLocalRepoWatcher();
 			releaseLockFile = false;
 			deleteMetaDir = false; // if we come here, creation is successful => NO deletion
 		} finally {
@@ -176,6 +187,24 @@ class LocalRepoManagerImpl implements LocalRepoManager {
 		}
 	}
 
+	private void startLocalRepoWatcher() {
+		final Config config = ConfigImpl.getInstanceForDirectory(localRoot);
+		if (!config.getPropertyAsBoolean(LocalRepoWatcher.CONFIG_KEY_ENABLED, LocalRepoWatcher.DEFAULT_ENABLED))
+			return;
+
+		final LocalRepoWatcher watcher = new LocalRepoWatcher(localRoot, config.getPropertyAsPositiveOrZeroInt(
+				LocalRepoWatcher.CONFIG_KEY_MAX_DIRTY_PATH_COUNT, LocalRepoWatcher.DEFAULT_MAX_DIRTY_PATH_COUNT),
+				config.getPropertyAsBoolean(LocalRepoWatcher.CONFIG_KEY_TRIGGER_SYNC, LocalRepoWatcher.DEFAULT_TRIGGER_SYNC));
+		try {
+			watcher.start();
+		} catch (final IOException x) {
+			logger.warn("[{}]startLocalRepoWatcher: Starting LocalRepoWatcher failed! Every local sync will scan the entire repository. " + x, id);
+			watcher.close();
+			return;
+		}
+		localRepoWatcher = watcher;
+	}
+
 	private UUID readRepositoryIdFromRepositoryPropertiesFile() {
 		final File repositoryPropertiesFile = createFile(getMetaDir(), REPOSITORY_PROPERTIES_FILE_NAME);
 		try {
@@ -271,7 +300,7 @@ class LocalRepoManagerImpl implements LocalRepoManager {
 			createRepositoryPropertiesFile();
 
 			try {
-				try (DatabaseAdapter databaseAdapter = DatabaseAdapterFactoryRegistry.getInstance().createDatabaseAdapter();) {
+				try (DatabaseAdapter databaseAdapter = DatabaseAdapterFactoryRegistry.getInstance().createDatabaseAdapter(localRoot);) {
 					databaseAdapter.setRepositoryId(assertNotNull("repositoryId", repositoryId));
 					databaseAdapter.setLocalRoot(assertNotNull("localRoot", localRoot));
 					databaseAdapter.createPersistencePropertiesFileAndDatabase();
@@ -485,11 +514,15 @@ class LocalRepoManagerImpl implements LocalRepoManager {
 
 	private void initPersistenceManagerFactoryAndPersistenceCapableClasses(final boolean createRepository) {
 		final Map<String, String> persistenceProperties = getPersistenceProperties(createRepository);
+		if (isDerbyConnectionURL(connectionURL))
+			initDerbySystemProperties();
+
 		persistenceManagerFactory = JDOHelper.getPersistenceManagerFactory(persistenceProperties);
 		final PersistenceManager pm = persistenceManagerFactory.getPersistenceManager();
 		try {
 			try {
 				initPersistenceCapableClasses(pm);
+				updateSchema(pm);
 			} catch (final Exception x) {
 				if (x instanceof RuntimeException)
 					throw (RuntimeException)x;
@@ -502,7 +535,11 @@ class LocalRepoManagerImpl implements LocalRepoManager {
 		}
 	}
 
-	private void initPersistenceCapableClasses(final PersistenceManager pm) {
+	/**
+	 * Makes DataNucleus create the tables (and other schema elements) of all persistence-capable classes, which
+	 * do not yet exist.
+	 */
+	static void initPersistenceCapableClasses(final PersistenceManager pm) {
 		final ServiceLoader<CloudStorePersistenceCapableClassesProvider> sl = ServiceLoader.load(CloudStorePersistenceCapableClassesProvider.class);
 		for (final Iterator<CloudStorePersistenceCapableClassesProvider> it = sl.iterator(); it.hasNext(); ) {
 			final CloudStorePersistenceCapableClassesProvider provider = it.next();
@@ -516,6 +553,17 @@ class LocalRepoManagerImpl implements LocalRepoManager {
 		}
 	}
 
+	private void updateSchema(final PersistenceManager pm) {
+		pm.currentTransaction().begin();
+		try {
+			new SchemaUpdater(pm).run();
+			pm.currentTransaction().commit();
+		} finally {
+			if (pm.currentTransaction().isActive())
+				pm.currentTransaction().rollback();
+		}
+	}
+
 	private void assertSinglePersistentLocalRepository(final PersistenceManager pm) {
 		try {
 			final LocalRepository localRepository = new LocalRepositoryDao().persistenceManager(pm).getLocalRepositoryOrFail();
@@ -730,6 +778,9 @@ class LocalRepoManagerImpl implements LocalRepoManager {
 
 		deleteExpiredRemoteRepositoryRequestsTimer.cancel();
 
+		if (localRepoWatcher != null)
+			localRepoWatcher.close();
+
 		lock.lock();
 		try {
 			if (persistenceManagerFactory != null) {
@@ -739,10 +790,12 @@ class LocalRepoManagerImpl implements LocalRepoManager {
 					logger.warn("Closing PersistenceManagerFactory failed: " + x, x);
 				}
 				persistenceManagerFactory = null;
-				try {
-					shutdownDerbyDatabase(connectionURL);
-				} catch (final Exception x) {
-					logger.warn("Shutting down Derby database failed: " + x, x);
+				if (isDerbyConnectionURL(connectionURL)) { // other databases are closed together with their last connection
+					try {
+						shutdownDerbyDatabase(connectionURL);
+					} catch (final Exception x) {
+						logger.warn("Shutting down Derby database failed: " + x, x);
+					}
 				}
 			}
 			if (lockFile != null) {
@@ -831,17 +884,30 @@ class LocalRepoManagerImpl implements LocalRepoManager {
 	@Override
 	public void localSync(final ProgressMonitor monitor) {
 		monitor.beginTask("Local sync...", 100);
+		final co.codewizards.cloudstore.core.metrics.Timer.Context localSyncTimerContext = localSyncTimer.time();
 		try {
 			final LocalRepoTransactionImpl transaction = beginWriteTransaction();
 			try {
 				monitor.worked(1);
-				LocalRepoSync.create(transaction).sync(new SubProgressMonitor(monitor, 98));
+				final LocalRepoSync localRepoSync = LocalRepoSync.create(transaction);
+				localRepoSync.setIntermediateCommitsEnabled(true);
+				final Collection<File> dirtyFiles = localRepoWatcher == null ? null : localRepoWatcher.beginSync();
+				if (dirtyFiles == null)
+					localRepoSync.sync(new SubProgressMonitor(monitor, 98));
+				else {
+					logger.debug("[{}]localSync: Syncing {} files recorded by LocalRepoWatcher.", id, dirtyFiles.size());
+					localRepoSync.sync(dirtyFiles, new SubProgressMonitor(monitor, 98));
+				}
 				transaction.commit();
 				monitor.worked(1);
 			} finally {
+				if (transaction.isActive() && localRepoWatcher != null)
+					localRepoWatcher.markIncomplete();
+
 				transaction.rollbackIfActive();
 			}
 		} finally {
+			localSyncTimerContext.stop();
 			monitor.done();
 		}
 	}
@@ -872,8 +938,11 @@ class LocalRepoManagerImpl implements LocalRepoManager {
 
 			RemoteRepository remoteRepository = remoteRepositoryDao.getRemoteRepository(repositoryId);
 			if (remoteRepository == null) {
+				final LocalRepository localRepository = transaction.getDao(LocalRepositoryDao.class).getLocalRepositoryOrFail();
+				final long localRepositoryRevisionRegistered = localRepository.getRevision();
 				remoteRepository = createObject(RemoteRepository.class, repositoryId);
 				remoteRepository.setRevision(-1);
+				remoteRepository.setLocalRepositoryRevisionRegistered(localRepositoryRevisionRegistered);
 			}
 			remoteRepository.setRemoteRoot(remoteRoot);
 			remoteRepository.setPublicKey(publicKey);
@@ -1,6 +1,7 @@
 package co.codewizards.cloudstore.local;
 
 import static co.codewizards.cloudstore.core.objectfactory.ObjectFactoryUtil.*;
+import static co.codewizards.cloudstore.core.oio.OioFileFactory.*;
 import static co.codewizards.cloudstore.core.util.AssertUtil.*;
 
 import java.io.IOException;
@@ -16,17 +17,29 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import javax.jdo.PersistenceManager;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import co.codewizards.cloudstore.core.config.Config;
+import co.codewizards.cloudstore.core.config.ConfigImpl;
 import co.codewizards.cloudstore.core.dto.FileChunkDto;
 import co.codewizards.cloudstore.core.oio.File;
+import co.codewizards.cloudstore.core.oio.FileAttributes;
+import co.codewizards.cloudstore.core.progress.NullProgressMonitor;
 import co.codewizards.cloudstore.core.progress.ProgressMonitor;
 import co.codewizards.cloudstore.core.progress.SubProgressMonitor;
+import co.codewizards.cloudstore.core.repo.local.FileChunkingStrategy;
 import co.codewizards.cloudstore.core.repo.local.LocalRepoTransaction;
+import co.codewizards.cloudstore.core.repo.transport.FileWriteStrategy;
 import co.codewizards.cloudstore.core.util.HashUtil;
 import co.codewizards.cloudstore.local.persistence.CopyModification;
 import co.codewizards.cloudstore.local.persistence.DeleteModification;
@@ -41,11 +54,57 @@ import co.codewizards.cloudstore.local.persistence.RemoteRepositoryDao;
 import co.codewizards.cloudstore.local.persistence.RepoFile;
 import co.codewizards.cloudstore.local.persistence.RepoFileDao;
 import co.codewizards.cloudstore.local.persistence.Symlink;
+import co.codewizards.cloudstore.local.transport.TempChunkFileManager;
 
 public class LocalRepoSync {
 
 	private static final Logger logger = LoggerFactory.getLogger(LocalRepoSync.class);
 
+	/**
+	 * The {@code key} for the number of threads calculating the SHA1 hashes of new or modified files,
+	 * used with {@link Config#getPropertyAsPositiveOrZeroInt(String, int)}.
+	 * <p>
+	 * When syncing a directory recursively, the files inside it are hashed in the background, while the
+	 * meta-data in the database is still updated one file after the other (the transaction is not thread-safe).
+	 * A value of 1 (or 0) means to hash every file on the current thread, when it is synced.
+	 * <p>
+	 * The default value is {@link #DEFAULT_HASH_THREAD_COUNT}.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 */
+	public static final String CONFIG_KEY_HASH_THREAD_COUNT = "localRepoSync.hashThreadCount"; //$NON-NLS-1$
+	public static final int DEFAULT_HASH_THREAD_COUNT = 4;
+
+	/**
+	 * The {@code key} for the number of files after which the changes of a
+	 * {@linkplain #setIntermediateCommitsEnabled(boolean) batched} local sync are committed, used with
+	 * {@link Config#getPropertyAsPositiveOrZeroInt(String, int)}.
+	 * <p>
+	 * A value of 0 means to not commit depending on the number of files.
+	 * <p>
+	 * The default value is {@link #DEFAULT_COMMIT_FILE_COUNT}.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 * @see #CONFIG_KEY_COMMIT_PERIOD
+	 */
+	public static final String CONFIG_KEY_COMMIT_FILE_COUNT = "localRepoSync.commitFileCount"; //$NON-NLS-1$
+	public static final int DEFAULT_COMMIT_FILE_COUNT = 1000;
+
+	/**
+	 * The {@code key} for the period (in milliseconds) after which the changes of a
+	 * {@linkplain #setIntermediateCommitsEnabled(boolean) batched} local sync are committed, used with
+	 * {@link Config#getPropertyAsPositiveOrZeroLong(String, long)}.
+	 * <p>
+	 * A value of 0 means to not commit depending on the time.
+	 * <p>
+	 * The default value is {@link #DEFAULT_COMMIT_PERIOD}.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 * @see #CONFIG_KEY_COMMIT_FILE_COUNT
+	 */
+	public static final String CONFIG_KEY_COMMIT_PERIOD = "localRepoSync.commitPeriod"; //$NON-NLS-1$
+	public static final long DEFAULT_COMMIT_PERIOD = 5000;
+
 	protected final LocalRepoTransaction transaction;
 	protected final File localRoot;
 	protected final RepoFileDao repoFileDao;
@@ -57,6 +116,17 @@ public class LocalRepoSync {
 
 	private final Map<String, Set<String>> sha1AndLength2Paths = new HashMap<String, Set<String>>();
 
+	private int hashThreadCount = -1;
+	private FileChunkingStrategy fileChunkingStrategy;
+	private ExecutorService hashExecutor;
+	private final Map<String, Future<FileHash>> path2FileHashFuture = new HashMap<>();
+
+	private boolean intermediateCommitsEnabled;
+	private int commitFileCount;
+	private long commitPeriod;
+	private int uncommittedFileCount;
+	private long lastCommitTimestamp;
+
 	protected LocalRepoSync(final LocalRepoTransaction transaction) {
 		this.transaction = assertNotNull("transaction", transaction);
 		localRoot = this.transaction.getLocalRepoManager().getLocalRoot();
@@ -71,14 +141,83 @@ public class LocalRepoSync {
 		return createObject(LocalRepoSync.class, transaction);
 	}
 
+	public boolean isIntermediateCommitsEnabled() {
+		return intermediateCommitsEnabled;
+	}
+
+	/**
+	 * Controls whether the changes are committed in batches while syncing recursively.
+	 * <p>
+	 * By default, this is disabled and all changes are written in the {@link #transaction} passed to
+	 * {@link #create(LocalRepoTransaction)} - to be committed (or rolled back) by the caller.
+	 * <p>
+	 * If enabled, the changes are committed every {@link #CONFIG_KEY_COMMIT_FILE_COUNT} files or
+	 * {@link #CONFIG_KEY_COMMIT_PERIOD} milliseconds via {@link LocalRepoTransactionImpl#commitAndContinue()}.
+	 * This releases the repository's lock in between and thus lets other transactions proceed. It should
+	 * only be enabled for a stand-alone sync (not being part of another operation requiring atomicity).
+	 * If such a sync is interrupted, the changes committed before are kept and the next sync simply
+	 * continues, because files which were already synced are not modified anymore.
+	 * @param intermediateCommitsEnabled whether to commit in batches.
+	 */
+	public void setIntermediateCommitsEnabled(final boolean intermediateCommitsEnabled) {
+		if (intermediateCommitsEnabled && !(transaction instanceof LocalRepoTransactionImpl))
+			throw new IllegalStateException("transaction is not an instance of LocalRepoTransactionImpl!");
+
+		this.intermediateCommitsEnabled = intermediateCommitsEnabled;
+		if (intermediateCommitsEnabled) {
+			final Config config = ConfigImpl.getInstanceForDirectory(localRoot);
+			commitFileCount = config.getPropertyAsPositiveOrZeroInt(CONFIG_KEY_COMMIT_FILE_COUNT, DEFAULT_COMMIT_FILE_COUNT);
+			commitPeriod = config.getPropertyAsPositiveOrZeroLong(CONFIG_KEY_COMMIT_PERIOD, DEFAULT_COMMIT_PERIOD);
+			uncommittedFileCount = 0;
+			lastCommitTimestamp = System.currentTimeMillis();
+		}
+	}
+
 	public void sync(final ProgressMonitor monitor) {
-		sync(null, localRoot, monitor, true);
+		try {
+			sync(null, localRoot, monitor, true);
+		} finally {
+			shutdownHashExecutor();
+		}
+	}
+
+	/**
+	 * Syncs only the given files - e.g. the ones recorded by a {@link LocalRepoWatcher}.
+	 * <p>
+	 * Every file is synced non-recursively, if it is already known. A directory's children are thus not
+	 * visited - except for detecting deleted children. New directories, though, are synced recursively.
+	 * @param files the files to be synced. Must not be <code>null</code>. Parent-directories should be
+	 * contained before their children.
+	 * @param monitor the progress-monitor. Must not be <code>null</code>.
+	 */
+	public void sync(final Collection<File> files, final ProgressMonitor monitor) {
+		assertNotNull("files", files);
+		assertNotNull("monitor", monitor);
+		monitor.beginTask("Local sync...", files.size());
+		try {
+			for (final File file : files) {
+				final boolean recursiveChildren = repoFileDao.getRepoFile(localRoot, file) == null;
+				_sync(file, new SubProgressMonitor(monitor, 1), recursiveChildren);
+				commitIfBatchComplete();
+			}
+		} finally {
+			shutdownHashExecutor();
+			monitor.done();
+		}
 	}
 
 	public RepoFile sync(final File file, final ProgressMonitor monitor, final boolean recursiveChildren) {
 		if (!(assertNotNull("file", file).isAbsolute()))
 			throw new IllegalArgumentException("file is not absolute: " + file);
 
+		try {
+			return _sync(file, monitor, recursiveChildren);
+		} finally {
+			shutdownHashExecutor();
+		}
+	}
+
+	private RepoFile _sync(final File file, final ProgressMonitor monitor, final boolean recursiveChildren) {
 		if (localRoot.equals(file)) {
 			return sync(null, file, monitor, recursiveChildren);
 		}
@@ -129,63 +268,197 @@ public class LocalRepoSync {
 	 * {@code file} does not exist; otherwise it is never <code>null</code>.
 	 */
 	protected RepoFile sync(final RepoFile parentRepoFile, final File file, final ProgressMonitor monitor, final boolean recursiveChildren) {
+		assertNotNull("file", file);
+		return sync(parentRepoFile, file, file.readAttributesNoFollow(), monitor, recursiveChildren);
+	}
+
+	/**
+	 * Sync the single given {@code file} whose attributes were already read.
+	 * <p>
+	 * The attributes of the children are read together with the directory listing and passed down
+	 * recursively. Thus, every file is only accessed once (except for reading its contents, if it is new
+	 * or modified).
+	 * @param attributes the file's attributes. <code>null</code>, if the file does not exist.
+	 * @see #sync(RepoFile, File, ProgressMonitor, boolean)
+	 */
+	private RepoFile sync(final RepoFile parentRepoFile, final File file, final FileAttributes attributes, final ProgressMonitor monitor, final boolean recursiveChildren) {
 		assertNotNull("file", file);
 		assertNotNull("monitor", monitor);
 		monitor.beginTask("Local sync...", 100);
 		try {
-			RepoFile repoFile = repoFileDao.getRepoFile(localRoot, file);
+			final RepoFile repoFile = repoFileDao.getRepoFile(localRoot, file);
+			if (isInProgress(repoFile))
+				return syncInProgress(parentRepoFile, (NormalFile) repoFile, file, attributes, monitor);
+
+			return sync(parentRepoFile, repoFile, file, attributes, monitor, recursiveChildren);
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Sync the given {@code file}, which is currently being transferred from another repository.
+	 * <p>
+	 * The transfer writes the file in {@code FileRepoTransport.endPutFile(...)} - outside of our transaction, but
+	 * holding the file's lock in the {@link TempChunkFileManager}. Only while this lock is held - or if the file is
+	 * written directly during the whole transfer - the file might be incomplete and is skipped. Otherwise, it is
+	 * synced as usual, while holding the lock so that the transfer cannot begin writing meanwhile. If the file
+	 * was modified or deleted locally, this is recorded and the transfer has to handle the collision.
+	 */
+	private RepoFile syncInProgress(final RepoFile parentRepoFile, final NormalFile normalFile, final File file, final FileAttributes attributes, final ProgressMonitor monitor) {
+		if (getFileWriteStrategy(file) == FileWriteStrategy.directDuringTransfer) {
+			logger.debug("sync: Skipping file being written directly by a transfer: {}", file);
+			return normalFile;
+		}
 
-			// If the type changed - e.g. from normal file to directory - or if the file was deleted
-			// we must delete the old instance.
-			if (repoFile != null && !isRepoFileTypeCorrect(repoFile, file)) {
-				deleteRepoFile(repoFile, false);
-				repoFile = null;
+		final RepoFile[] result = new RepoFile[] { normalFile };
+		final boolean synced = tryCallLocked(file, new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				result[0] = sync(parentRepoFile, normalFile, file, attributes, monitor, false);
+				return null;
 			}
+		});
+		if (!synced)
+			logger.debug("sync: Skipping file being written by a transfer: {}", file);
 
-			final boolean fileIsSymlink = file.isSymbolicLink();
-			if (repoFile == null) {
-				if (!fileIsSymlink && !file.exists())
-					return null;
+		return result[0];
+	}
 
-				repoFile = createRepoFile(parentRepoFile, file, new SubProgressMonitor(monitor, 50));
-				if (repoFile == null) { // ignoring non-normal files.
-					return null;
-				}
-			} else if (isModified(repoFile, file))
-				updateRepoFile(repoFile, file, new SubProgressMonitor(monitor, 50));
-			else
-				monitor.worked(50);
-
-			final Set<String> childNames = new HashSet<String>();
-			if (!fileIsSymlink) {
-				final SubProgressMonitor childSubProgressMonitor = new SubProgressMonitor(monitor, 50);
-				final File[] children = file.listFiles(new FilenameFilterSkipMetaDir());
-				if (children != null && children.length > 0) {
-					childSubProgressMonitor.beginTask("Local sync...", children.length);
-					for (final File child : children) {
-						childNames.add(child.getName());
-
-						if (recursiveChildren)
-							sync(repoFile, child, new SubProgressMonitor(childSubProgressMonitor, 1), recursiveChildren);
+	private RepoFile sync(final RepoFile parentRepoFile, RepoFile repoFile, final File file, final FileAttributes attributes, final ProgressMonitor monitor, final boolean recursiveChildren) {
+		// If the type changed - e.g. from normal file to directory - or if the file was deleted
+		// we must delete the old instance.
+		if (repoFile != null && !isRepoFileTypeCorrect(repoFile, attributes)) {
+			deleteRepoFile(repoFile, false);
+			repoFile = null;
+		}
+
+		if (repoFile == null) {
+			if (attributes == null)
+				return null;
+
+			repoFile = createRepoFile(parentRepoFile, file, attributes, new SubProgressMonitor(monitor, 50));
+			if (repoFile == null) { // ignoring non-normal files.
+				return null;
+			}
+		} else if (isModified(repoFile, file, attributes))
+			updateRepoFile(repoFile, file, attributes, new SubProgressMonitor(monitor, 50));
+		else
+			monitor.worked(50);
+
+		++uncommittedFileCount;
+
+		final Set<String> childNames = new HashSet<String>();
+		if (attributes.isDirectory()) {
+			final SubProgressMonitor childSubProgressMonitor = new SubProgressMonitor(monitor, 50);
+			final FileAttributes[] children = file.listFilesWithAttributes(new FilenameFilterSkipMetaDir());
+			if (children != null && children.length > 0) {
+				childSubProgressMonitor.beginTask("Local sync...", children.length);
+				final int hashThreadCount = recursiveChildren ? getHashThreadCount() : 1;
+				final Map<String, RepoFile> childName2RepoFile = hashThreadCount > 1 ? getChildName2RepoFile(repoFile) : null;
+				final int hashLookAhead = 2 * hashThreadCount;
+				int hashIndex = 0;
+				for (int childIndex = 0; childIndex < children.length; ++childIndex) {
+					final FileAttributes child = children[childIndex];
+					childNames.add(child.getFile().getName());
+
+					if (childName2RepoFile != null) {
+						// Hash the next files in the background, while we update the DB here in the current thread.
+						for (; hashIndex < children.length && hashIndex <= childIndex + hashLookAhead; ++hashIndex) {
+							final FileAttributes hashChild = children[hashIndex];
+							submitHashIfModified(hashChild, childName2RepoFile.get(hashChild.getFile().getName()));
+						}
+					}
+
+					if (child.isUnreadable()) {
+						// Keep the RepoFile as it is - it must neither be updated nor deleted below.
+						logger.warn("sync: Skipping unreadable file: {}", child.getFile());
+						childSubProgressMonitor.worked(1);
+						continue;
+					}
+
+					if (recursiveChildren) {
+						sync(repoFile, child.getFile(), child, new SubProgressMonitor(childSubProgressMonitor, 1), recursiveChildren);
+						commitIfBatchComplete();
 					}
 				}
-				childSubProgressMonitor.done();
 			}
+			childSubProgressMonitor.done();
+		}
 
-			final Collection<RepoFile> childRepoFiles = repoFileDao.getChildRepoFiles(repoFile);
-			for (final RepoFile childRepoFile : childRepoFiles) {
-				if (!childNames.contains(childRepoFile.getName())) {
-					deleteRepoFile(childRepoFile);
-				}
+		final Collection<RepoFile> childRepoFiles = repoFileDao.getChildRepoFiles(repoFile);
+		for (final RepoFile childRepoFile : childRepoFiles) {
+			if (!childNames.contains(childRepoFile.getName())) {
+				deleteRepoFileIfNotLocked(childRepoFile, createFile(file, childRepoFile.getName()));
 			}
+		}
 
-			transaction.flush();
-			return repoFile;
-		} finally {
-			monitor.done();
+		transaction.flush();
+		return repoFile;
+	}
+
+	/**
+	 * Deletes the given {@code repoFile}, whose file does not exist anymore - unless it is in progress and a
+	 * transfer is currently writing it (see {@link #syncInProgress(RepoFile, NormalFile, File, FileAttributes, ProgressMonitor)}).
+	 */
+	private void deleteRepoFileIfNotLocked(final RepoFile repoFile, final File file) {
+		if (!isInProgress(repoFile)) {
+			deleteRepoFile(repoFile);
+			return;
+		}
+
+		final boolean deleted = getFileWriteStrategy(file) != FileWriteStrategy.directDuringTransfer
+				&& tryCallLocked(file, new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						deleteRepoFile(repoFile);
+						return null;
+					}
+				});
+		if (!deleted)
+			logger.debug("sync: Not deleting file being written by a transfer: {}", file);
+	}
+
+	private static boolean isInProgress(final RepoFile repoFile) {
+		return repoFile instanceof NormalFile && ((NormalFile) repoFile).isInProgress();
+	}
+
+	private static FileWriteStrategy getFileWriteStrategy(final File file) {
+		return ConfigImpl.getInstanceForFile(file).getPropertyAsEnum(FileWriteStrategy.CONFIG_KEY, FileWriteStrategy.CONFIG_DEFAULT_VALUE);
+	}
+
+	private static boolean tryCallLocked(final File file, final Callable<?> callable) {
+		try {
+			return TempChunkFileManager.getInstance().tryCallLocked(file, callable);
+		} catch (final RuntimeException x) {
+			throw x;
+		} catch (final Exception x) {
+			throw new RuntimeException(x);
 		}
 	}
 
+	/**
+	 * Commits the changes, if {@linkplain #setIntermediateCommitsEnabled(boolean) intermediate commits} are
+	 * enabled and either enough files were synced or enough time passed since the last commit.
+	 * <p>
+	 * This method must only be invoked, when the DB is in a consistent state - i.e. between two files.
+	 */
+	private void commitIfBatchComplete() {
+		if (!intermediateCommitsEnabled)
+			return;
+
+		final long now = System.currentTimeMillis();
+		final boolean fileCountReached = commitFileCount > 0 && uncommittedFileCount >= commitFileCount;
+		final boolean periodReached = commitPeriod > 0 && now - lastCommitTimestamp >= commitPeriod;
+		if (!fileCountReached && !periodReached)
+			return;
+
+		logger.debug("commitIfBatchComplete: Committing {} files synced within {} ms.", uncommittedFileCount, now - lastCommitTimestamp);
+		((LocalRepoTransactionImpl) transaction).commitAndContinue();
+		uncommittedFileCount = 0;
+		lastCommitTimestamp = System.currentTimeMillis();
+	}
+
 	/**
 	 * Determines, if the type of the given {@code repoFile} matches the type
 	 * of the file in the file system referenced by the given {@code file}.
@@ -196,23 +469,36 @@ public class LocalRepoSync {
 	 * the file does not exist (anymore) in the file system, <code>false</code> is returned, too.
 	 */
 	public boolean isRepoFileTypeCorrect(final RepoFile repoFile, final File file) {
-		assertNotNull("repoFile", repoFile);
 		assertNotNull("file", file);
+		return isRepoFileTypeCorrect(repoFile, file.readAttributesNoFollow());
+	}
 
-		if (file.isSymbolicLink())
+	private boolean isRepoFileTypeCorrect(final RepoFile repoFile, final FileAttributes attributes) {
+		assertNotNull("repoFile", repoFile);
+
+		if (attributes == null) // file does not exist
+			return false;
+
+		if (attributes.isSymbolicLink())
 			return repoFile instanceof Symlink;
 
-		if (file.isFile())
+		if (attributes.isRegularFile())
 			return repoFile instanceof NormalFile;
 
-		if (file.isDirectory())
+		if (attributes.isDirectory())
 			return repoFile instanceof Directory;
 
 		return false;
 	}
 
 	public boolean isModified(final RepoFile repoFile, final File file) {
-		final long fileLastModified = file.getLastModifiedNoFollow();
+		assertNotNull("file", file);
+		return isModified(repoFile, file, file.readAttributesNoFollow());
+	}
+
+	private boolean isModified(final RepoFile repoFile, final File file, final FileAttributes attributes) {
+		assertNotNull("attributes", attributes);
+		final long fileLastModified = attributes.getLastModifiedNoFollow();
 		if (repoFile.getLastModified().getTime() != fileLastModified) {
 			if (logger.isDebugEnabled()) {
 				logger.debug("isModified: repoFile.lastModified != file.lastModified: repoFile.lastModified={} file.lastModified={} file={}",
@@ -221,7 +507,7 @@ public class LocalRepoSync {
 			return true;
 		}
 
-		if (file.isSymbolicLink()) {
+		if (attributes.isSymbolicLink()) {
 			if (!(repoFile instanceof Symlink))
 				throw new IllegalArgumentException("repoFile is not an instance of Symlink! file=" + file);
 
@@ -235,15 +521,15 @@ public class LocalRepoSync {
 			}
 			return !fileSymlinkTarget.equals(symlink.getTarget());
 		}
-		else if (file.isFile()) {
+		else if (attributes.isRegularFile()) {
 			if (!(repoFile instanceof NormalFile))
 				throw new IllegalArgumentException("repoFile is not an instance of NormalFile! file=" + file);
 
 			final NormalFile normalFile = (NormalFile) repoFile;
-			if (normalFile.getLength() != file.length()) {
+			if (normalFile.getLength() != attributes.getLength()) {
 				if (logger.isDebugEnabled()) {
 					logger.debug("isModified: normalFile.length != file.length: repoFile.length={} file.length={} file={}",
-							normalFile.getLength(), file.length(), file);
+							normalFile.getLength(), attributes.getLength(), file);
 				}
 				return true;
 			}
@@ -256,12 +542,16 @@ public class LocalRepoSync {
 	}
 
 	protected RepoFile createRepoFile(final RepoFile parentRepoFile, final File file, final ProgressMonitor monitor) {
+		return createRepoFile(parentRepoFile, file, file.readAttributesNoFollow(), monitor);
+	}
+
+	private RepoFile createRepoFile(final RepoFile parentRepoFile, final File file, final FileAttributes attributes, final ProgressMonitor monitor) {
 		if (parentRepoFile == null)
 			throw new IllegalStateException("Creating the root this way is not possible! Why is it not existing, yet?!???");
 
 		monitor.beginTask("Local sync...", 100);
 		try {
-			final RepoFile repoFile = _createRepoFile(parentRepoFile, file, new SubProgressMonitor(monitor, 98));
+			final RepoFile repoFile = _createRepoFile(parentRepoFile, file, attributes, new SubProgressMonitor(monitor, 98));
 
 			if (repoFile instanceof NormalFile)
 				createCopyModificationsIfPossible((NormalFile)repoFile);
@@ -275,33 +565,36 @@ public class LocalRepoSync {
 	}
 
 	protected RepoFile _createRepoFile(final RepoFile parentRepoFile, final File file, final ProgressMonitor monitor) {
+		return _createRepoFile(parentRepoFile, file, file.readAttributesNoFollow(), monitor);
+	}
+
+	private RepoFile _createRepoFile(final RepoFile parentRepoFile, final File file, final FileAttributes attributes, final ProgressMonitor monitor) {
 		monitor.beginTask("Local sync...", 100);
 		try {
 			RepoFile repoFile;
-			if (file.isSymbolicLink()) {
+			if (attributes == null) {
+				logger.warn("createRepoFile: File does not exist! Skipping: {}", file);
+				return null;
+			} else if (attributes.isSymbolicLink()) {
 				final Symlink symlink = (Symlink) (repoFile = createObject(Symlink.class));
 				try {
 					symlink.setTarget(file.readSymbolicLinkToPathString());
 				} catch (final IOException e) {
 					throw new RuntimeException(e);
 				}
-			} else if (file.isDirectory()) {
+			} else if (attributes.isDirectory()) {
 				repoFile = createObject(Directory.class);
-			} else if (file.isFile()) {
+			} else if (attributes.isRegularFile()) {
 				final NormalFile normalFile = (NormalFile) (repoFile = createObject(NormalFile.class));
 				sha(normalFile, file, new SubProgressMonitor(monitor, 99));
 			} else {
-				if (file.exists())
-					logger.warn("createRepoFile: File exists, but is neither a directory nor a normal file! Skipping: {}", file);
-				else
-					logger.warn("createRepoFile: File does not exist! Skipping: {}", file);
-
+				logger.warn("createRepoFile: File exists, but is neither a directory nor a normal file! Skipping: {}", file);
 				return null;
 			}
 
 			repoFile.setParent(parentRepoFile);
 			repoFile.setName(file.getName());
-			repoFile.setLastModified(new Date(file.getLastModifiedNoFollow()));
+			repoFile.setLastModified(new Date(attributes.getLastModifiedNoFollow()));
 
 			return repoFile;
 		} finally {
@@ -310,10 +603,19 @@ public class LocalRepoSync {
 	}
 
 	public void updateRepoFile(final RepoFile repoFile, final File file, final ProgressMonitor monitor) {
+		assertNotNull("file", file);
+		final FileAttributes attributes = file.readAttributesNoFollow();
+		if (attributes == null)
+			throw new IllegalArgumentException("File does not exist: " + file);
+
+		updateRepoFile(repoFile, file, attributes, monitor);
+	}
+
+	private void updateRepoFile(final RepoFile repoFile, final File file, final FileAttributes attributes, final ProgressMonitor monitor) {
 		logger.debug("updateRepoFile: id={} file={}", repoFile.getId(), file);
 		monitor.beginTask("Local sync...", 100);
 		try {
-			if (file.isSymbolicLink()) {
+			if (attributes.isSymbolicLink()) {
 				if (!(repoFile instanceof Symlink))
 					throw new IllegalArgumentException("repoFile is not an instance of Symlink! file=" + file);
 
@@ -324,15 +626,18 @@ public class LocalRepoSync {
 					throw new RuntimeException(e);
 				}
 			}
-			else if (file.isFile()) {
+			else if (attributes.isRegularFile()) {
 				if (!(repoFile instanceof NormalFile))
 					throw new IllegalArgumentException("repoFile is not an instance of NormalFile!");
 
 				final NormalFile normalFile = (NormalFile) repoFile;
 				sha(normalFile, file, new SubProgressMonitor(monitor, 100));
+				// A local modification ends a transfer in progress: FileRepoTransport.endPutFile(...) then fails and the
+				// next beginPutFile(...) handles the collision.
+				normalFile.setInProgress(false);
 			}
 			repoFile.setLastSyncFromRepositoryId(null);
-			repoFile.setLastModified(new Date(file.getLastModifiedNoFollow()));
+			repoFile.setLastModified(new Date(attributes.getLastModifiedNoFollow()));
 		} finally {
 			monitor.done();
 		}
@@ -459,15 +764,15 @@ public class LocalRepoSync {
 		if (!fromPaths.add(fromPath)) // already done before => prevent duplicates.
 			return;
 
-		for (final RemoteRepository remoteRepository : getRemoteRepositories()) {
-			final CopyModification modification = new CopyModification();
-			modification.setRemoteRepository(remoteRepository);
-			modification.setFromPath(fromPath);
-			modification.setToPath(toNormalFile.getPath());
-			modification.setLength(toNormalFile.getLength());
-			modification.setSha1(toNormalFile.getSha1());
-			modificationDao.makePersistent(modification);
-		}
+		if (!hasRemoteRepositories()) // nobody would ever consume it
+			return;
+
+		final CopyModification modification = new CopyModification();
+		modification.setFromPath(fromPath);
+		modification.setToPath(toNormalFile.getPath());
+		modification.setLength(toNormalFile.getLength());
+		modification.setSha1(toNormalFile.getSha1());
+		modificationDao.makePersistent(modification);
 	}
 
 	private void createCopyModifications(final NormalFile fromNormalFile, final NormalFile toNormalFile, final Set<String> fromPaths) {
@@ -487,31 +792,39 @@ public class LocalRepoSync {
 	protected void createDeleteModifications(final RepoFile repoFile) {
 		assertNotNull("repoFile", repoFile);
 
-		for (final RemoteRepository remoteRepository : getRemoteRepositories())
-			createDeleteModification(repoFile, remoteRepository);
+		if (hasRemoteRepositories()) // otherwise nobody would ever consume it
+			createDeleteModification(repoFile);
 	}
 
-	protected DeleteModification createDeleteModification(final RepoFile repoFile, final RemoteRepository remoteRepository) {
+	/**
+	 * Creates a {@link DeleteModification} for the given {@code repoFile}.
+	 * <p>
+	 * The modification is shared by all remote repositories - see {@link co.codewizards.cloudstore.local.persistence.Modification Modification}.
+	 * @param repoFile the deleted file or directory. Must not be <code>null</code>.
+	 * @return the persisted modification. Never <code>null</code>.
+	 */
+	protected DeleteModification createDeleteModification(final RepoFile repoFile) {
 		assertNotNull("repoFile", repoFile);
-		assertNotNull("remoteRepository", remoteRepository);
 		final DeleteModification modification = createObject(DeleteModification.class);
-		populateDeleteModification(modification, repoFile, remoteRepository);
+		populateDeleteModification(modification, repoFile);
 		return modificationDao.makePersistent(modification);
 	}
 
-	protected void populateDeleteModification(final DeleteModification modification, final RepoFile repoFile, final RemoteRepository remoteRepository) {
+	protected void populateDeleteModification(final DeleteModification modification, final RepoFile repoFile) {
 		assertNotNull("modification", modification);
 		assertNotNull("repoFile", repoFile);
-		assertNotNull("remoteRepository", remoteRepository);
 
 		final NormalFile normalFile = (repoFile instanceof NormalFile) ? (NormalFile) repoFile : null;
 
-		modification.setRemoteRepository(remoteRepository);
 		modification.setPath(repoFile.getPath());
 		modification.setLength(normalFile == null ? -1 : normalFile.getLength());
 		modification.setSha1(normalFile == null ? null : normalFile.getSha1());
 	}
 
+	private boolean hasRemoteRepositories() {
+		return !getRemoteRepositories().isEmpty();
+	}
+
 	private Collection<RemoteRepository> getRemoteRepositories() {
 		if (remoteRepositories == null)
 			remoteRepositories = Collections.unmodifiableCollection(remoteRepositoryDao.getObjects());
@@ -551,6 +864,43 @@ public class LocalRepoSync {
 			normalFile.getFileChunks().clear();
 			transaction.flush();
 
+			FileHash fileHash = getSubmittedFileHash(file);
+			if (fileHash == null)
+				fileHash = hash(file, getFileChunkingStrategy(), monitor);
+
+			for (final FileChunkHash fileChunkHash : fileHash.fileChunkHashes) {
+				final FileChunk fileChunk = createObject(FileChunk.class);
+				fileChunk.setNormalFile(normalFile);
+				fileChunk.setOffset(fileChunkHash.offset);
+				fileChunk.setLength(fileChunkHash.length);
+				fileChunk.setSha1(fileChunkHash.sha1);
+				onFinalizeFileChunk(fileChunk);
+				fileChunk.makeReadOnly();
+				normalFile.getFileChunks().add(fileChunk);
+			}
+			normalFile.setSha1(fileHash.sha1);
+			normalFile.setLength(fileHash.length);
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Reads the given {@code file} and calculates the SHA1 hashes of the entire file and of all its chunks.
+	 * <p>
+	 * This method does not access the database and is thus invoked on worker threads, too. It can be invoked
+	 * outside of any transaction - the result is then passed to {@link #submitFileHash(FileHash)}.
+	 * @param file the file to be read. Must not be <code>null</code>.
+	 * @param fileChunkingStrategy how to split the file into chunks. Must not be <code>null</code>.
+	 * @param monitor the progress-monitor. Must not be <code>null</code>. Its task is not begun or ended by this method.
+	 * @return the hashes. Never <code>null</code>.
+	 */
+	public static FileHash hash(final File file, final FileChunkingStrategy fileChunkingStrategy, final ProgressMonitor monitor) {
+		assertNotNull("fileChunkingStrategy", fileChunkingStrategy);
+		final ContentDefinedChunker chunker = fileChunkingStrategy == FileChunkingStrategy.contentDefined ? new ContentDefinedChunker() : null;
+		final FileHash fileHash = new FileHash(file);
+		fileHash.lastModified = file.getLastModifiedNoFollow();
+		try {
 			final MessageDigest mdAll = MessageDigest.getInstance(HashUtil.HASH_ALGORITHM_SHA);
 			final MessageDigest mdChunk = MessageDigest.getInstance(HashUtil.HASH_ALGORITHM_SHA);
 
@@ -559,15 +909,13 @@ public class LocalRepoSync {
 			long offset = 0;
 			final InputStream in = file.createInputStream();
 			try {
-				FileChunk fileChunk = null;
+				FileChunkHash fileChunkHash = null;
 
 				final byte[] buf = new byte[bufLength];
 				while (true) {
-					if (fileChunk == null) {
-						fileChunk = createObject(FileChunk.class);
-						fileChunk.setNormalFile(normalFile);
-						fileChunk.setOffset(offset);
-						fileChunk.setLength(0);
+					if (fileChunkHash == null) {
+						fileChunkHash = new FileChunkHash();
+						fileChunkHash.offset = offset;
 						mdChunk.reset();
 					}
 
@@ -575,17 +923,31 @@ public class LocalRepoSync {
 
 					if (bytesRead > 0) {
 						mdAll.update(buf, 0, bytesRead);
-						mdChunk.update(buf, 0, bytesRead);
-						offset += bytesRead;
-						fileChunk.setLength(fileChunk.getLength() + bytesRead);
+						int pos = 0;
+						if (chunker != null) {
+							int chunkRemainder;
+							while ((chunkRemainder = chunker.nextBoundary(buf, pos, bytesRead - pos)) >= 0) {
+								mdChunk.update(buf, pos, chunkRemainder);
+								offset += chunkRemainder;
+								fileChunkHash.length += chunkRemainder;
+								pos += chunkRemainder;
+
+								fileChunkHash.sha1 = HashUtil.encodeHexStr(mdChunk.digest());
+								fileHash.fileChunkHashes.add(fileChunkHash);
+								fileChunkHash = new FileChunkHash();
+								fileChunkHash.offset = offset;
+								mdChunk.reset();
+							}
+						}
+						mdChunk.update(buf, pos, bytesRead - pos);
+						offset += bytesRead - pos;
+						fileChunkHash.length += bytesRead - pos;
 					}
 
-					if (bytesRead < 0 || fileChunk.getLength() >= FileChunkDto.MAX_LENGTH) {
-						fileChunk.setSha1(HashUtil.encodeHexStr(mdChunk.digest()));
-						onFinalizeFileChunk(fileChunk);
-						fileChunk.makeReadOnly();
-						normalFile.getFileChunks().add(fileChunk);
-						fileChunk = null;
+					if (bytesRead < 0 || (chunker == null && fileChunkHash.length >= FileChunkDto.MAX_LENGTH)) {
+						fileChunkHash.sha1 = HashUtil.encodeHexStr(mdChunk.digest());
+						fileHash.fileChunkHashes.add(fileChunkHash);
+						fileChunkHash = null;
 
 						if (bytesRead < 0) {
 							break;
@@ -598,24 +960,213 @@ public class LocalRepoSync {
 			} finally {
 				in.close();
 			}
-			normalFile.setSha1(HashUtil.encodeHexStr(mdAll.digest()));
-			normalFile.setLength(offset);
+			fileHash.sha1 = HashUtil.encodeHexStr(mdAll.digest());
+			fileHash.length = offset;
 
 			final long fileLength = file.length(); // Important to check it now at the end.
 			if (fileLength != offset) {
 				logger.warn("sha: file.length() != bytesReadTotal :: File seems to be written concurrently! file='{}' file.length={} bytesReadTotal={}",
 						file, fileLength, offset);
 			}
+			return fileHash;
 		} catch (final NoSuchAlgorithmException e) {
 			throw new RuntimeException(e);
 		} catch (final IOException e) {
 			throw new RuntimeException(e);
-		} finally {
-			monitor.done();
+		}
+	}
+
+	/**
+	 * Gets the number of threads hashing files in the background.
+	 * @return the number of threads. 1 means to hash every file on the current thread, when it is synced.
+	 * @see #CONFIG_KEY_HASH_THREAD_COUNT
+	 */
+	protected int getHashThreadCount() {
+		if (hashThreadCount < 0) {
+			hashThreadCount = Math.max(1, ConfigImpl.getInstanceForDirectory(localRoot).getPropertyAsPositiveOrZeroInt(
+					CONFIG_KEY_HASH_THREAD_COUNT, DEFAULT_HASH_THREAD_COUNT));
+		}
+		return hashThreadCount;
+	}
+
+	/**
+	 * Gets the strategy controlling how files are split into chunks.
+	 * @return the strategy. Never <code>null</code>.
+	 * @see FileChunkingStrategy#CONFIG_KEY
+	 */
+	protected FileChunkingStrategy getFileChunkingStrategy() {
+		if (fileChunkingStrategy == null) {
+			fileChunkingStrategy = ConfigImpl.getInstanceForDirectory(localRoot).getPropertyAsEnum(
+					FileChunkingStrategy.CONFIG_KEY, FileChunkingStrategy.CONFIG_DEFAULT_VALUE);
+		}
+		return fileChunkingStrategy;
+	}
+
+	private Map<String, RepoFile> getChildName2RepoFile(final RepoFile repoFile) {
+		final Collection<RepoFile> childRepoFiles = repoFileDao.getChildRepoFiles(repoFile);
+		final Map<String, RepoFile> childName2RepoFile = new HashMap<>(childRepoFiles.size());
+		for (final RepoFile childRepoFile : childRepoFiles)
+			childName2RepoFile.put(childRepoFile.getName(), childRepoFile);
+
+		return childName2RepoFile;
+	}
+
+	/**
+	 * Submits the given {@code file} for being hashed in the background, if it is a normal file which is most
+	 * likely new or modified.
+	 * <p>
+	 * This is only a guess based on the timestamp and length. If it is wrong, the file is either hashed on the
+	 * current thread later (as without background-hashing) or the hash is not used at all.
+	 * @param file the file to be checked. Must not be <code>null</code>.
+	 * @param repoFile the {@link RepoFile} currently representing the given {@code file}. May be <code>null</code>.
+	 */
+	private void submitHashIfModified(final FileAttributes attributes, final RepoFile repoFile) {
+		// A file in progress is only hashed on the current thread, while holding its lock (see syncInProgress(...)).
+		if (!attributes.isRegularFile() || isInProgress(repoFile))
+			return;
+
+		if (repoFile instanceof NormalFile) {
+			final NormalFile normalFile = (NormalFile) repoFile;
+			if (normalFile.getLastModified().getTime() == attributes.getLastModifiedNoFollow() && normalFile.getLength() == attributes.getLength())
+				return;
+		}
+
+		final File file = attributes.getFile();
+		final FileChunkingStrategy fileChunkingStrategy = getFileChunkingStrategy();
+		if (hashExecutor == null)
+			hashExecutor = Executors.newFixedThreadPool(getHashThreadCount());
+
+		final Future<FileHash> future = hashExecutor.submit(new Callable<FileHash>() {
+			@Override
+			public FileHash call() throws Exception {
+				return hash(file, fileChunkingStrategy, new NullProgressMonitor());
+			}
+		});
+		path2FileHashFuture.put(file.getAbsolutePath(), future);
+	}
+
+	/**
+	 * Submits the hashes of a file, which were calculated already - e.g. outside of the current transaction or
+	 * while the file's data was received.
+	 * <p>
+	 * They are used instead of reading the file again, when the file is synced, unless the file was modified
+	 * after the hashes were calculated.
+	 * @param fileHash the hashes. Must not be <code>null</code>.
+	 */
+	public void submitFileHash(final FileHash fileHash) {
+		assertNotNull("fileHash", fileHash);
+		final FutureTask<FileHash> future = new FutureTask<>(new Callable<FileHash>() {
+			@Override
+			public FileHash call() throws Exception {
+				return fileHash;
+			}
+		});
+		future.run();
+		path2FileHashFuture.put(fileHash.file.getAbsolutePath(), future);
+	}
+
+	/**
+	 * Gets the result of the background-hashing of the given {@code file}.
+	 * @param file the file whose hashes to get. Must not be <code>null</code>.
+	 * @return the hashes or <code>null</code>, if the file was not hashed in the background or if it was modified
+	 * after it was hashed.
+	 */
+	private FileHash getSubmittedFileHash(final File file) {
+		final Future<FileHash> future = path2FileHashFuture.remove(file.getAbsolutePath());
+		if (future == null)
+			return null;
+
+		final FileHash fileHash;
+		try {
+			fileHash = future.get();
+		} catch (final InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (final ExecutionException e) {
+			// We read the file again on the current thread. If the problem persists, it's thrown there.
+			logger.debug("getSubmittedFileHash: Hashing in the background failed: " + e.getCause(), e.getCause());
+			return null;
+		}
+
+		final FileAttributes attributes = file.readAttributesNoFollow();
+		if (attributes == null || fileHash.lastModified != attributes.getLastModifiedNoFollow() || fileHash.length != attributes.getLength()) {
+			logger.debug("getSubmittedFileHash: File was modified after being hashed in the background: {}", file);
+			return null;
+		}
+		return fileHash;
+	}
+
+	private void shutdownHashExecutor() {
+		for (final Future<FileHash> future : path2FileHashFuture.values())
+			future.cancel(true);
+
+		path2FileHashFuture.clear();
+
+		if (hashExecutor != null) {
+			hashExecutor.shutdownNow();
+			hashExecutor = null;
 		}
 	}
 
 	protected void onFinalizeFileChunk(FileChunk fileChunk) {
 		// can be extended by sub-classes to handle FileChunk-subclasses specifically.
 	}
+
+	/**
+	 * The SHA1 hashes of a file: of the entire file and of all its chunks.
+	 * <p>
+	 * Instances are created by {@link LocalRepoSync#hash(File, FileChunkingStrategy, ProgressMonitor)} or - if the
+	 * hashes are known already - by {@link #create(File, String, List)}.
+	 */
+	public static class FileHash {
+		final File file;
+		long lastModified;
+		long length;
+		String sha1;
+		final List<FileChunkHash> fileChunkHashes = new ArrayList<>();
+
+		private FileHash(final File file) {
+			this.file = assertNotNull("file", file);
+		}
+
+		/**
+		 * Creates the hashes of the given {@code file} from already known values.
+		 * <p>
+		 * The file's current timestamp is recorded: If the file is modified later, the hashes are not used.
+		 * @param file the file. Must not be <code>null</code>.
+		 * @param sha1 the SHA1 of the entire file. Must not be <code>null</code>.
+		 * @param fileChunkDtos the file's chunks, sorted by offset and covering the entire file. They must be
+		 * split according to the {@link FileChunkingStrategy} of the repository. Must not be <code>null</code>.
+		 * @return the hashes. Never <code>null</code>.
+		 */
+		public static FileHash create(final File file, final String sha1, final List<FileChunkDto> fileChunkDtos) {
+			assertNotNull("sha1", sha1);
+			assertNotNull("fileChunkDtos", fileChunkDtos);
+			final FileHash fileHash = new FileHash(file);
+			fileHash.lastModified = file.getLastModifiedNoFollow();
+			fileHash.sha1 = sha1;
+			for (final FileChunkDto fileChunkDto : fileChunkDtos) {
+				final FileChunkHash fileChunkHash = new FileChunkHash();
+				fileChunkHash.offset = fileChunkDto.getOffset();
+				fileChunkHash.length = fileChunkDto.getLength();
+				fileChunkHash.sha1 = assertNotNull("fileChunkDto.sha1", fileChunkDto.getSha1());
+				fileHash.fileChunkHashes.add(fileChunkHash);
+				fileHash.length += fileChunkHash.length;
+			}
+			return fileHash;
+		}
+
+		public String getSha1() {
+			return sha1;
+		}
+
+		public long getLength() {
+			return length;
+		}
+	}
+
+	private static class FileChunkHash {
+		long offset;
+		int length;
+		String sha1;
+	}
 }
@@ -5,7 +5,9 @@ import static co.codewizards.cloudstore.core.util.AssertUtil.*;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.jdo.PersistenceManager;
 import javax.jdo.PersistenceManagerFactory;
@@ -15,6 +17,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import co.codewizards.cloudstore.core.context.ExtensibleContextSupport;
+import co.codewizards.cloudstore.core.metrics.Counter;
+import co.codewizards.cloudstore.core.metrics.MetricRegistry;
+import co.codewizards.cloudstore.core.metrics.Timer;
 import co.codewizards.cloudstore.core.repo.local.ContextWithLocalRepoManager;
 import co.codewizards.cloudstore.core.repo.local.LocalRepoManager;
 import co.codewizards.cloudstore.core.repo.local.LocalRepoTransaction;
@@ -31,11 +36,24 @@ import co.codewizards.cloudstore.local.persistence.LocalRepositoryDao;
 public class LocalRepoTransactionImpl implements LocalRepoTransaction, ContextWithLocalRepoManager, ContextWithPersistenceManager {
 	private static final Logger logger = LoggerFactory.getLogger(LocalRepoTransactionImpl.class);
 
+	/** Time spent waiting for the {@link #lock} when beginning a read-transaction. */
+	private static final Timer readLockWaitTimer = MetricRegistry.getInstance().timer("localRepoTransaction.lockWait.read");
+	/** Time spent waiting for the {@link #lock} when beginning (or continuing) a write-transaction. */
+	private static final Timer writeLockWaitTimer = MetricRegistry.getInstance().timer("localRepoTransaction.lockWait.write");
+	/** Time from beginning a read-transaction until it is closed. */
+	private static final Timer readDurationTimer = MetricRegistry.getInstance().timer("localRepoTransaction.duration.read");
+	/** Time from beginning a write-transaction until it is closed - including all intermediate commits. */
+	private static final Timer writeDurationTimer = MetricRegistry.getInstance().timer("localRepoTransaction.duration.write");
+	/** Time spent in the JDO commit - i.e. mostly by the database. */
+	private static final Timer commitTimer = MetricRegistry.getInstance().timer("localRepoTransaction.commit");
+	private static final Counter rollbackCounter = MetricRegistry.getInstance().counter("localRepoTransaction.rollback");
+
 	private final LocalRepoManager localRepoManager;
 	private final PersistenceManagerFactory persistenceManagerFactory;
 	private final boolean write;
 	private PersistenceManager persistenceManager;
 	private Transaction jdoTransaction;
+	private Timer.Context durationTimerContext;
 	private final Lock lock;
 	private long localRevision = -1;
 	private final Map<Class<?>, Object> daoClass2Dao = new HashMap<>();
@@ -55,13 +73,14 @@ public class LocalRepoTransactionImpl implements LocalRepoTransaction, ContextWi
 	}
 
 	private void begin() {
-		lock.lock();
+		lockAndRecordWait();
 		try {
 			if (isActive())
 				throw new IllegalStateException("Transaction is already active!");
 
 			lockIfWrite();
 
+			durationTimerContext = (write ? writeDurationTimer : readDurationTimer).time();
 			persistenceManager = persistenceManagerFactory.getPersistenceManager();
 			jdoTransaction = persistenceManager.currentTransaction();
 			jdoTransaction.begin();
@@ -71,6 +90,18 @@ public class LocalRepoTransactionImpl implements LocalRepoTransaction, ContextWi
 		}
 	}
 
+	/**
+	 * Acquires the {@link #lock} and records the time spent waiting for it.
+	 * <p>
+	 * This is the only place where the calling thread might really wait: All other locking happens either
+	 * right after this method (and is thus reentrant) or is done by a thread already holding the lock.
+	 */
+	private void lockAndRecordWait() {
+		final long startNanos = System.nanoTime();
+		lock.lock();
+		(write ? writeLockWaitTimer : readLockWaitTimer).update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+	}
+
 	private final void lockIfWrite() {
 		if (write)
 			lock.lock(); // UNbalance lock to keep it after method returns!
@@ -91,8 +122,11 @@ public class LocalRepoTransactionImpl implements LocalRepoTransaction, ContextWi
 			listenerRegistry.onCommit();
 			firePreCloseListeners(true);
 			daoClass2Dao.clear();
-			jdoTransaction.commit();
+			try (Timer.Context timerContext = commitTimer.time();) {
+				jdoTransaction.commit();
+			}
 			persistenceManager.close();
+			stopDurationTimer();
 			jdoTransaction = null;
 			persistenceManager = null;
 			localRevision = -1;
@@ -104,6 +138,77 @@ public class LocalRepoTransactionImpl implements LocalRepoTransaction, ContextWi
 		firePostCloseListeners(true);
 	}
 
+	/**
+	 * Commits all changes done so far and continues working in a new JDO transaction.
+	 * <p>
+	 * In contrast to {@link #commit()}, the same {@link PersistenceManager} is used afterwards. Thus, all
+	 * persistent objects and DAOs obtained before remain usable. The objects are reloaded from the datastore
+	 * when they are accessed again. The level-1-cache is cleared to keep the memory footprint constant.
+	 * <p>
+	 * If this is a write-transaction, the repository's lock is released in between. Thus, other transactions
+	 * waiting for it get a chance to proceed. They might modify the datastore - just like any other transaction
+	 * between two transactions.
+	 * <p>
+	 * The {@linkplain #addPreCloseListener(LocalRepoTransactionPreCloseListener) pre-close-} and
+	 * {@linkplain #addPostCloseListener(LocalRepoTransactionPostCloseListener) post-close-listeners} are not
+	 * triggered, because this transaction is not closed.
+	 */
+	public void commitAndContinue() {
+		lock.lock();
+		try {
+			if (!isActive())
+				throw new IllegalStateException("Transaction is not active!");
+
+			listenerRegistry.onCommit();
+			try (Timer.Context timerContext = commitTimer.time();) {
+				jdoTransaction.commit();
+			}
+			localRevision = -1;
+			persistenceManager.evictAll();
+			for (final Object dao : daoClass2Dao.values())
+				((Dao<?, ?>) dao).clearCache();
+
+			unlockIfWrite();
+		} finally {
+			lock.unlock();
+		}
+
+		if (write)
+			yieldLockToQueuedThreads();
+
+		lockAndRecordWait();
+		try {
+			lockIfWrite();
+
+			jdoTransaction.begin();
+			listenerRegistry.onBegin();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gives the threads waiting for the {@link #lock} a chance to acquire it.
+	 * <p>
+	 * The {@link ReentrantLock} is not fair. Hence, without waiting a bit, the current thread would
+	 * most likely re-acquire it immediately, though other threads are queued.
+	 */
+	private void yieldLockToQueuedThreads() {
+		if (!(lock instanceof ReentrantLock))
+			return;
+
+		final ReentrantLock reentrantLock = (ReentrantLock) lock;
+		final long waitUntil = System.currentTimeMillis() + 1000;
+		while (reentrantLock.hasQueuedThreads() && System.currentTimeMillis() < waitUntil) {
+			try {
+				Thread.sleep(1);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
 	@Override
 	public boolean isActive() {
 		lock.lock();
@@ -148,6 +253,8 @@ public class LocalRepoTransactionImpl implements LocalRepoTransaction, ContextWi
 			daoClass2Dao.clear();
 			jdoTransaction.rollback();
 			persistenceManager.close();
+			stopDurationTimer();
+			rollbackCounter.inc();
 			jdoTransaction = null;
 			persistenceManager = null;
 			localRevision = -1;
@@ -158,6 +265,13 @@ public class LocalRepoTransactionImpl implements LocalRepoTransaction, ContextWi
 		}
 	}
 
+	private void stopDurationTimer() {
+		if (durationTimerContext != null) {
+			durationTimerContext.stop();
+			durationTimerContext = null;
+		}
+	}
+
 	@Override
 	public void close() {
 		rollbackIfActive();
@@ -0,0 +1,321 @@
+package co.codewizards.cloudstore.local;
+
+import static co.codewizards.cloudstore.core.oio.OioFileFactory.*;
+import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+import static co.codewizards.cloudstore.core.util.Util.*;
+import static java.nio.file.StandardWatchEventKinds.*;
+
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.codewizards.cloudstore.core.config.Config;
+import co.codewizards.cloudstore.core.oio.File;
+import co.codewizards.cloudstore.core.repo.sync.RepoSyncDaemon;
+import co.codewizards.cloudstore.core.repo.sync.RepoSyncDaemonImpl;
+import co.codewizards.cloudstore.core.repo.sync.RepoSyncPriority;
+
+/**
+ * Watches a repository's directory tree and records all paths being created, modified or deleted.
+ * <p>
+ * The recorded paths are collected in a journal of dirty paths, which is consumed by the next
+ * {@link LocalRepoManagerImpl#localSync(co.codewizards.cloudstore.core.progress.ProgressMonitor) localSync(...)}.
+ * Thus, this sync only needs to look at the files really being touched rather than scanning the entire tree.
+ * <p>
+ * The journal is only <i>complete</i>, if every change since the last full scan was recorded. This is not
+ * the case
+ * <ul>
+ * <li>before the first full scan after the watcher was started (the tree might have been modified while
+ * no watcher was running),
+ * <li>if the {@link WatchService} lost events ({@link java.nio.file.StandardWatchEventKinds#OVERFLOW OVERFLOW}),
+ * <li>if a directory could not be registered (e.g. because the OS' limit of watches is exceeded),
+ * <li>if more than {@link #CONFIG_KEY_MAX_DIRTY_PATH_COUNT} paths were recorded or
+ * <li>if a sync based on the journal failed.
+ * </ul>
+ * In all these cases, {@link #beginSync()} returns <code>null</code> causing a full scan.
+ * <p>
+ * Optionally ({@link #CONFIG_KEY_TRIGGER_SYNC}), a detected change triggers a background sync with all remote
+ * repositories.
+ */
+public class LocalRepoWatcher implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(LocalRepoWatcher.class);
+
+	/**
+	 * The {@code key} for enabling the watcher, used with {@link Config#getPropertyAsBoolean(String, boolean)}.
+	 * <p>
+	 * The default value is {@link #DEFAULT_ENABLED}.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 */
+	public static final String CONFIG_KEY_ENABLED = "localRepoWatcher.enabled"; //$NON-NLS-1$
+	public static final boolean DEFAULT_ENABLED = false;
+
+	/**
+	 * The {@code key} for the maximum number of dirty paths recorded between two syncs, used with
+	 * {@link Config#getPropertyAsPositiveOrZeroInt(String, int)}.
+	 * <p>
+	 * If more paths are modified, the journal is discarded and the next sync falls back to a full scan.
+	 * <p>
+	 * The default value is {@link #DEFAULT_MAX_DIRTY_PATH_COUNT}.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 */
+	public static final String CONFIG_KEY_MAX_DIRTY_PATH_COUNT = "localRepoWatcher.maxDirtyPathCount"; //$NON-NLS-1$
+	public static final int DEFAULT_MAX_DIRTY_PATH_COUNT = 100000;
+
+	/**
+	 * The {@code key} for triggering a sync with all remote repositories whenever a change is detected, used with
+	 * {@link Config#getPropertyAsBoolean(String, boolean)}.
+	 * <p>
+	 * The sync is triggered via {@link RepoSyncDaemon#startSync(File, RepoSyncPriority)} with
+	 * {@link RepoSyncPriority#BACKGROUND} priority - at most once until the next local sync started.
+	 * <p>
+	 * The default value is {@link #DEFAULT_TRIGGER_SYNC}.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 */
+	public static final String CONFIG_KEY_TRIGGER_SYNC = "localRepoWatcher.triggerSync"; //$NON-NLS-1$
+	public static final boolean DEFAULT_TRIGGER_SYNC = false;
+
+	private final File localRoot;
+	private final int maxDirtyPathCount;
+	private final boolean triggerSync;
+	private final FilenameFilter filenameFilter = new FilenameFilterSkipMetaDir();
+
+	private WatchService watchService;
+	private Thread watchThread;
+	private final Map<WatchKey, Path> watchKey2Dir = new HashMap<>();
+
+	/**
+	 * The absolute paths of all files and directories modified since the last sync. Sorted in order to
+	 * sync a parent-directory before its children.
+	 */
+	private final SortedSet<String> dirtyPaths = new TreeSet<String>();
+	private boolean registered;
+	private boolean complete;
+	private boolean syncTriggered;
+	private volatile boolean closed;
+
+	public LocalRepoWatcher(final File localRoot, final int maxDirtyPathCount, final boolean triggerSync) {
+		this.localRoot = assertNotNull("localRoot", localRoot);
+		this.maxDirtyPathCount = maxDirtyPathCount;
+		this.triggerSync = triggerSync;
+	}
+
+	/**
+	 * Starts watching the repository.
+	 * <p>
+	 * The directories are registered asynchronously. Until this is done and a full scan
+	 * happened afterwards, the journal is not complete.
+	 * @throws IOException if the {@link WatchService} could not be created.
+	 */
+	public synchronized void start() throws IOException {
+		if (watchService != null)
+			throw new IllegalStateException("Already started!");
+
+		watchService = localRoot.getIoFile().toPath().getFileSystem().newWatchService();
+		watchThread = new Thread("LocalRepoWatcher-" + localRoot.getName()) {
+			@Override
+			public void run() {
+				try {
+					registerRecursively(localRoot.getIoFile().toPath(), false);
+					synchronized (LocalRepoWatcher.this) {
+						registered = true;
+					}
+					processEvents();
+				} catch (final ClosedWatchServiceException x) {
+					doNothing();
+				} catch (final Exception x) {
+					if (!closed)
+						logger.error("run: " + x, x);
+				} finally {
+					markIncomplete();
+				}
+			}
+		};
+		watchThread.setDaemon(true);
+		watchThread.start();
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		final WatchService ws;
+		synchronized (this) {
+			ws = watchService;
+			complete = false;
+			dirtyPaths.clear();
+		}
+		if (ws != null) {
+			try {
+				ws.close();
+			} catch (final IOException x) {
+				logger.warn("close: " + x, x);
+			}
+		}
+	}
+
+	/**
+	 * Takes the dirty paths recorded so far out of the journal.
+	 * <p>
+	 * All changes happening after this method returned are recorded for the next sync.
+	 * @return the files to be synced - parent-directories before their children. <code>null</code>,
+	 * if the journal is not complete and a full scan is required.
+	 */
+	public synchronized Collection<File> beginSync() {
+		final List<File> result;
+		if (complete) {
+			result = new ArrayList<File>(dirtyPaths.size());
+			for (final String dirtyPath : dirtyPaths)
+				result.add(createFile(dirtyPath));
+		}
+		else
+			result = null;
+
+		dirtyPaths.clear();
+		syncTriggered = false;
+
+		// If all directories are watched now, the journal is complete after the full scan, which is about to start.
+		complete = registered && !closed;
+		return result;
+	}
+
+	/**
+	 * Discards the journal. The next sync performs a full scan.
+	 * <p>
+	 * This must be invoked, if a sync started by {@link #beginSync()} failed.
+	 */
+	public synchronized void markIncomplete() {
+		complete = false;
+		dirtyPaths.clear();
+	}
+
+	private void processEvents() throws InterruptedException {
+		while (!closed) {
+			final WatchKey watchKey = watchService.take();
+			final Path dir;
+			synchronized (this) {
+				dir = watchKey2Dir.get(watchKey);
+			}
+			boolean changed = false;
+			for (final WatchEvent<?> event : watchKey.pollEvents()) {
+				if (event.kind() == OVERFLOW) {
+					logger.warn("processEvents: Events were lost in '{}'! Falling back to full scan.", localRoot);
+					markIncomplete();
+					changed = true;
+					continue;
+				}
+				if (dir == null)
+					continue;
+
+				final Path child = dir.resolve((Path) event.context());
+				if (!filenameFilter.accept(dir.toFile(), child.getFileName().toString()))
+					continue;
+
+				addDirtyPath(child);
+				changed = true;
+
+				if (event.kind() == ENTRY_CREATE && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+					// The new directory might already contain files, which were created before it was registered.
+					registerRecursively(child, true);
+				}
+			}
+
+			if (!watchKey.reset()) {
+				synchronized (this) {
+					watchKey2Dir.remove(watchKey);
+				}
+			}
+
+			if (changed)
+				triggerSync();
+		}
+	}
+
+	private void triggerSync() {
+		synchronized (this) {
+			if (!triggerSync || syncTriggered)
+				return;
+
+			syncTriggered = true;
+		}
+		try {
+			RepoSyncDaemonImpl.getInstance().startSync(localRoot, RepoSyncPriority.BACKGROUND);
+		} catch (final Exception x) {
+			logger.warn("triggerSync: " + x, x);
+		}
+	}
+
+	private void registerRecursively(final Path dir, final boolean addDirtyPaths) {
+		try {
+			Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(final Path d, final BasicFileAttributes attrs) throws IOException {
+					final Path parent = d.getParent();
+					if (!d.equals(dir) && !filenameFilter.accept(parent.toFile(), d.getFileName().toString()))
+						return FileVisitResult.SKIP_SUBTREE;
+
+					final WatchKey watchKey = d.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+					synchronized (LocalRepoWatcher.this) {
+						watchKey2Dir.put(watchKey, d);
+					}
+					if (addDirtyPaths && !d.equals(dir))
+						addDirtyPath(d);
+
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+					if (addDirtyPaths && filenameFilter.accept(file.getParent().toFile(), file.getFileName().toString()))
+						addDirtyPath(file);
+
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(final Path file, final IOException exc) throws IOException {
+					logger.debug("registerRecursively.visitFileFailed: file='{}': {}", file, exc.toString());
+					markIncomplete();
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (final ClosedWatchServiceException x) {
+			throw x;
+		} catch (final IOException x) {
+			logger.warn("registerRecursively: Registering '" + dir + "' failed! Falling back to full scan. " + x, x);
+			markIncomplete();
+		}
+	}
+
+	private synchronized void addDirtyPath(final Path path) {
+		if (!complete)
+			return; // a full scan is pending, anyway => no need to record anything.
+
+		dirtyPaths.add(path.toString());
+		if (maxDirtyPathCount > 0 && dirtyPaths.size() > maxDirtyPathCount) {
+			logger.info("addDirtyPath: More than {} paths modified in '{}'. Falling back to full scan.", maxDirtyPathCount, localRoot);
+			markIncomplete();
+		}
+	}
+}
@@ -0,0 +1,377 @@
+package co.codewizards.cloudstore.local;
+
+import static co.codewizards.cloudstore.core.oio.OioFileFactory.*;
+import static co.codewizards.cloudstore.core.repo.local.LocalRepoManager.*;
+import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+import static co.codewizards.cloudstore.core.util.DerbyUtil.*;
+
+import java.io.IOException;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.jdo.JDOHelper;
+import javax.jdo.PersistenceManager;
+import javax.jdo.PersistenceManagerFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.codewizards.cloudstore.core.io.LockFile;
+import co.codewizards.cloudstore.core.io.LockFileFactory;
+import co.codewizards.cloudstore.core.oio.File;
+import co.codewizards.cloudstore.local.db.DatabaseAdapter;
+import co.codewizards.cloudstore.local.db.DatabaseAdapterFactory;
+import co.codewizards.cloudstore.local.db.DatabaseAdapterFactoryRegistry;
+
+/**
+ * Migrates the database of an existing repository to another {@link DatabaseAdapter} - e.g. from Derby to H2.
+ * <p>
+ * A new, empty database is created by the target adapter, the schema is created by DataNucleus and then all rows
+ * of all tables are copied via JDBC. The foreign keys are dropped in the new database before copying - DataNucleus
+ * re-creates them, when the repository is opened the next time.
+ * <p>
+ * The old database is not touched. Its persistence-properties-file is renamed by appending
+ * {@value #BACKUP_FILE_NAME_SUFFIX} and the name of the old database - e.g. "cloudstore-persistence.properties.derby.bak".
+ * Thus, the migration can be undone by deleting the new persistence-properties-file and renaming the backup back.
+ * <p>
+ * If the migration fails, the new database is deleted. Database files of the target adapter left from an earlier
+ * migration, which was undone, are not used by the repository and are deleted before migrating again.
+ * <p>
+ * Derby cannot be the target, because DataNucleus creates its identity columns as "GENERATED ALWAYS", which
+ * rejects the IDs being copied. To go back to Derby, the migration must be undone as described above.
+ * <p>
+ * <b>Important:</b> The repository must not be in use during the migration - neither by another process
+ * (which is prevented by the repository's lock-file) nor by this JVM.
+ */
+public class MigrateDatabase implements Runnable {
+	private static final Logger logger = LoggerFactory.getLogger(MigrateDatabase.class);
+
+	public static final String BACKUP_FILE_NAME_SUFFIX = ".bak";
+
+	private static final int BATCH_SIZE = 1000;
+
+	private static final long LOCK_TIMEOUT_MILLIS = 10000;
+
+	private static final String DERBY_DATABASE_ADAPTER_NAME = "derby";
+
+	private final File localRoot;
+	private final String databaseAdapterName;
+
+	/**
+	 * Creates a new {@code MigrateDatabase} instance.
+	 * @param localRoot the root directory of the repository. Must not be <code>null</code>.
+	 * @param databaseAdapterName the {@linkplain DatabaseAdapterFactory#getName() name} of the target database adapter.
+	 * Must not be <code>null</code>.
+	 */
+	public MigrateDatabase(final File localRoot, final String databaseAdapterName) {
+		try {
+			this.localRoot = assertNotNull("localRoot", localRoot).getCanonicalFile(); // H2 does not accept relative paths
+		} catch (final IOException x) {
+			throw new RuntimeException(x);
+		}
+		this.databaseAdapterName = assertNotNull("databaseAdapterName", databaseAdapterName);
+		if (DERBY_DATABASE_ADAPTER_NAME.equals(databaseAdapterName))
+			throw new IllegalArgumentException("Migrating to Derby is not supported! Undo the migration by restoring the backup of the persistence-properties-file.");
+	}
+
+	@Override
+	public void run() {
+		try (final LockFile lockFile = LockFileFactory.getInstance().acquire(
+				createFile(getMetaDir(), "cloudstore-repository.lock"), LOCK_TIMEOUT_MILLIS);) {
+			migrate();
+		} catch (final RuntimeException x) {
+			throw x;
+		} catch (final Exception x) {
+			throw new RuntimeException(x);
+		}
+	}
+
+	private void migrate() throws Exception {
+		final JdbcConnectionFactory sourceConnectionFactory = new JdbcConnectionFactory(localRoot);
+		final String sourceDatabaseName = getDatabaseName(sourceConnectionFactory.getConnectionURL());
+		if (databaseAdapterName.equals(sourceDatabaseName))
+			throw new IllegalStateException(String.format("The repository '%s' already uses the database '%s'!",
+					localRoot, databaseAdapterName));
+
+		final File persistencePropertiesFile = createFile(getMetaDir(), PERSISTENCE_PROPERTIES_FILE_NAME);
+		final File backupPersistencePropertiesFile = createFile(getMetaDir(),
+				PERSISTENCE_PROPERTIES_FILE_NAME + '.' + sourceDatabaseName + BACKUP_FILE_NAME_SUFFIX);
+		if (backupPersistencePropertiesFile.exists())
+			throw new IllegalStateException("The backup file already exists: " + backupPersistencePropertiesFile.getAbsolutePath());
+
+		logger.info("migrate: Migrating database of repository '{}' from '{}' to '{}'.", localRoot, sourceDatabaseName, databaseAdapterName);
+		final long beginTimestamp = System.currentTimeMillis();
+		try (final Connection sourceConnection = sourceConnectionFactory.createConnection();) {
+			final UUID repositoryId = assertNotNull("repositoryId", sourceConnectionFactory.getRepositoryId());
+			deleteTargetDatabaseFiles(repositoryId, "Deleting stale database file of an earlier migration");
+
+			if (!persistencePropertiesFile.renameTo(backupPersistencePropertiesFile))
+				throw new IOException(String.format("Renaming '%s' to '%s' failed!",
+						persistencePropertiesFile.getAbsolutePath(), backupPersistencePropertiesFile.getName()));
+
+			boolean successful = false;
+			try {
+				createTargetDatabase(repositoryId, sourceConnectionFactory);
+
+				final JdbcConnectionFactory targetConnectionFactory = new JdbcConnectionFactory(localRoot);
+				try (final Connection targetConnection = targetConnectionFactory.createConnection();) {
+					copyTables(sourceConnection, targetConnection);
+				} finally {
+					shutdownDatabase(targetConnectionFactory.getConnectionURL());
+				}
+				successful = true;
+			} finally {
+				if (!successful) {
+					try {
+						deleteTargetDatabaseFiles(repositoryId, "Deleting database file of failed migration");
+					} catch (final Exception x) {
+						logger.error("migrate: Deleting the new database failed: " + x, x);
+					}
+					persistencePropertiesFile.delete();
+					if (!backupPersistencePropertiesFile.renameTo(persistencePropertiesFile))
+						logger.error("migrate: Restoring '{}' from '{}' failed!", persistencePropertiesFile.getAbsolutePath(), backupPersistencePropertiesFile.getName());
+				}
+			}
+		} finally {
+			shutdownDatabase(sourceConnectionFactory.getConnectionURL());
+		}
+		logger.info("migrate: Migrated database of repository '{}' from '{}' to '{}' in {} ms.",
+				localRoot, sourceDatabaseName, databaseAdapterName, System.currentTimeMillis() - beginTimestamp);
+	}
+
+	private void createTargetDatabase(final UUID repositoryId, final JdbcConnectionFactory sourceConnectionFactory) throws Exception {
+		try (DatabaseAdapter databaseAdapter = createTargetDatabaseAdapter(repositoryId);) {
+			databaseAdapter.createPersistencePropertiesFileAndDatabase();
+		}
+
+		final Map<String, String> persistenceProperties = new PersistencePropertiesProvider(
+				repositoryId, localRoot).getPersistenceProperties();
+		final PersistenceManagerFactory pmf = JDOHelper.getPersistenceManagerFactory(persistenceProperties);
+		try {
+			final PersistenceManager pm = pmf.getPersistenceManager();
+			try {
+				LocalRepoManagerImpl.initPersistenceCapableClasses(pm);
+			} finally {
+				pm.close();
+			}
+		} finally {
+			pmf.close();
+		}
+	}
+
+	private DatabaseAdapter createTargetDatabaseAdapter(final UUID repositoryId) {
+		final DatabaseAdapter databaseAdapter = DatabaseAdapterFactoryRegistry.getInstance().createDatabaseAdapter(databaseAdapterName);
+		databaseAdapter.setRepositoryId(repositoryId);
+		databaseAdapter.setLocalRoot(localRoot);
+		return databaseAdapter;
+	}
+
+	/**
+	 * Deletes the files of the target database. This must only be done, while the repository does not use this
+	 * database - i.e. before the migration or after it failed.
+	 */
+	private void deleteTargetDatabaseFiles(final UUID repositoryId, final String logMessage) throws Exception {
+		try (DatabaseAdapter databaseAdapter = createTargetDatabaseAdapter(repositoryId);) {
+			for (final File databaseFile : databaseAdapter.getDatabaseFiles()) {
+				logger.warn("migrate: {}: {}", logMessage, databaseFile.getAbsolutePath());
+				databaseFile.deleteRecursively();
+				if (databaseFile.exists())
+					throw new IOException("Deleting database file failed: " + databaseFile.getAbsolutePath());
+			}
+		}
+	}
+
+	private void copyTables(final Connection sourceConnection, final Connection targetConnection) throws SQLException {
+		final Map<String, String> lowerCaseName2SourceTableName = new HashMap<>();
+		for (final String tableName : getTableNames(sourceConnection))
+			lowerCaseName2SourceTableName.put(tableName.toLowerCase(), tableName);
+
+		final List<String> targetTableNames = getTableNames(targetConnection);
+		for (final String targetTableName : targetTableNames)
+			dropForeignKeys(targetConnection, targetTableName);
+
+		targetConnection.setAutoCommit(false);
+		for (final String targetTableName : targetTableNames) {
+			final String sourceTableName = lowerCaseName2SourceTableName.get(targetTableName.toLowerCase());
+			if (sourceTableName == null) {
+				logger.info("copyTables: Table '{}' does not exist in the source database. Skipping it.", targetTableName);
+				continue;
+			}
+			copyTable(sourceConnection, sourceTableName, targetConnection, targetTableName);
+			targetConnection.commit();
+			restartIdentityColumns(targetConnection, targetTableName);
+			targetConnection.commit();
+		}
+	}
+
+	private void copyTable(final Connection sourceConnection, final String sourceTableName,
+			final Connection targetConnection, final String targetTableName) throws SQLException {
+		final Map<String, String> lowerCaseName2SourceColumnName = new HashMap<>();
+		for (final String columnName : getColumnNames(sourceConnection, sourceTableName))
+			lowerCaseName2SourceColumnName.put(columnName.toLowerCase(), columnName);
+
+		final List<String> sourceColumnNames = new ArrayList<>();
+		final List<String> targetColumnNames = new ArrayList<>();
+		for (final String targetColumnName : getColumnNames(targetConnection, targetTableName)) {
+			final String sourceColumnName = lowerCaseName2SourceColumnName.get(targetColumnName.toLowerCase());
+			if (sourceColumnName != null) {
+				sourceColumnNames.add(sourceColumnName);
+				targetColumnNames.add(targetColumnName);
+			}
+		}
+		if (targetColumnNames.isEmpty())
+			return;
+
+		final String selectSql = String.format("SELECT %s FROM \"%s\"", toColumnList(sourceColumnNames), sourceTableName);
+		final StringBuilder parameters = new StringBuilder();
+		for (int i = 0; i < targetColumnNames.size(); ++i)
+			parameters.append(i == 0 ? "?" : ", ?");
+
+		final String insertSql = String.format("INSERT INTO \"%s\" (%s) VALUES (%s)",
+				targetTableName, toColumnList(targetColumnNames), parameters);
+
+		long rowCount = 0;
+		try (
+				final Statement selectStatement = sourceConnection.createStatement();
+				final ResultSet rs = selectStatement.executeQuery(selectSql);
+				final PreparedStatement insertStatement = targetConnection.prepareStatement(insertSql);
+		) {
+			while (rs.next()) {
+				for (int i = 1; i <= targetColumnNames.size(); ++i)
+					insertStatement.setObject(i, getValue(rs, i));
+
+				insertStatement.addBatch();
+				if (++rowCount % BATCH_SIZE == 0) {
+					insertStatement.executeBatch();
+					targetConnection.commit();
+				}
+			}
+			insertStatement.executeBatch();
+		}
+		logger.info("copyTable: Copied {} rows from '{}' to '{}'.", rowCount, sourceTableName, targetTableName);
+	}
+
+	/**
+	 * Gets the value of the current row in a form independent from the source database. LOBs are bound to the
+	 * connection they were read from and thus read completely.
+	 */
+	private static Object getValue(final ResultSet rs, final int columnIndex) throws SQLException {
+		final Object value = rs.getObject(columnIndex);
+		if (value instanceof Clob) {
+			final Clob clob = (Clob) value;
+			return clob.getSubString(1, (int) clob.length());
+		}
+		if (value instanceof Blob) {
+			final Blob blob = (Blob) value;
+			return blob.getBytes(1, (int) blob.length());
+		}
+		return value;
+	}
+
+	/**
+	 * Makes the identity columns continue after the highest value copied. Otherwise, the next object persisted
+	 * would collide with an existing row.
+	 */
+	private static void restartIdentityColumns(final Connection connection, final String tableName) throws SQLException {
+		final List<String> identityColumnNames = new ArrayList<>();
+		try (final ResultSet rs = connection.getMetaData().getColumns(null, null, tableName, null);) {
+			while (rs.next()) {
+				if ("YES".equalsIgnoreCase(rs.getString("IS_AUTOINCREMENT")))
+					identityColumnNames.add(rs.getString("COLUMN_NAME"));
+			}
+		}
+
+		try (final Statement statement = connection.createStatement();) {
+			for (final String columnName : identityColumnNames) {
+				long maxValue = 0;
+				try (final ResultSet rs = statement.executeQuery(String.format("SELECT MAX(\"%s\") FROM \"%s\"", columnName, tableName));) {
+					if (rs.next())
+						maxValue = rs.getLong(1);
+				}
+				statement.execute(String.format("ALTER TABLE \"%s\" ALTER COLUMN \"%s\" RESTART WITH %d", tableName, columnName, maxValue + 1));
+			}
+		}
+	}
+
+	private static void dropForeignKeys(final Connection connection, final String tableName) throws SQLException { // DataNucleus will re-create them.
+		final Set<String> foreignKeyNames = new LinkedHashSet<>();
+		try (final ResultSet rs = connection.getMetaData().getImportedKeys(null, null, tableName);) {
+			while (rs.next()) {
+				final String foreignKeyName = rs.getString("FK_NAME");
+				if (foreignKeyName != null)
+					foreignKeyNames.add(foreignKeyName);
+			}
+		}
+
+		try (final Statement statement = connection.createStatement();) {
+			for (final String foreignKeyName : foreignKeyNames)
+				statement.execute(String.format("ALTER TABLE \"%s\" DROP CONSTRAINT \"%s\"", tableName, foreignKeyName));
+		}
+	}
+
+	private static List<String> getTableNames(final Connection connection) throws SQLException {
+		final List<String> result = new ArrayList<>();
+		try (final ResultSet rs = connection.getMetaData().getTables(null, null, null, new String[] { "TABLE" });) {
+			while (rs.next())
+				result.add(rs.getString("TABLE_NAME"));
+		}
+		return result;
+	}
+
+	private static List<String> getColumnNames(final Connection connection, final String tableName) throws SQLException {
+		final List<String> result = new ArrayList<>();
+		final DatabaseMetaData metaData = connection.getMetaData();
+		try (final ResultSet rs = metaData.getColumns(null, null, tableName, null);) {
+			while (rs.next())
+				result.add(rs.getString("COLUMN_NAME"));
+		}
+		return result;
+	}
+
+	private static String toColumnList(final List<String> columnNames) {
+		final StringBuilder sb = new StringBuilder();
+		for (final String columnName : columnNames) {
+			if (sb.length() > 0)
+				sb.append(", ");
+
+			sb.append('"').append(columnName).append('"');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Gets the name of the database from the JDBC URL - e.g. "derby" for "jdbc:derby:/path/to/db". This name
+	 * matches the {@linkplain DatabaseAdapterFactory#getName() name} of the database adapter having created
+	 * the database.
+	 */
+	private static String getDatabaseName(final String connectionURL) {
+		assertNotNull("connectionURL", connectionURL);
+		final String[] segments = connectionURL.trim().split(":", 3);
+		if (segments.length < 3 || !"jdbc".equals(segments[0]))
+			throw new IllegalArgumentException("connectionURL is not a JDBC URL: " + connectionURL);
+
+		return segments[1];
+	}
+
+	private static void shutdownDatabase(final String connectionURL) {
+		if (isDerbyConnectionURL(connectionURL))
+			shutdownDerbyDatabase(connectionURL);
+	}
+
+	private File getMetaDir() {
+		return createFile(localRoot, META_DIR_NAME);
+	}
+}
@@ -39,8 +39,9 @@ public class PersistencePropertiesProvider {
 
 		final Map<String, Object> variablesMap = new HashMap<>();
 		variablesMap.put(LocalRepoManager.VAR_REPOSITORY_ID, repositoryId);
-		variablesMap.put(LocalRepoManager.VAR_LOCAL_ROOT, localRoot.getPath());
-		variablesMap.put(LocalRepoManager.VAR_META_DIR, getMetaDir().getPath());
+		// Absolute paths, because some databases (e.g. H2) do not accept relative paths in their JDBC URLs.
+		variablesMap.put(LocalRepoManager.VAR_LOCAL_ROOT, localRoot.getAbsolutePath());
+		variablesMap.put(LocalRepoManager.VAR_META_DIR, getMetaDir().getAbsolutePath());
 
 		Properties rawProperties;
 		try {
@@ -53,6 +53,9 @@ public class RepairDatabase implements Runnable {
 	}
 
 	private void executeDerbyCheckTable() throws SQLException {
+		if (!"Apache Derby".equals(connection.getMetaData().getDatabaseProductName()))
+			return;
+
 		// http://objectmix.com/apache/646586-derby-db-files-get-corrupted-2.html
 		statement.execute(
 				"SELECT schemaname, tablename, SYSCS_UTIL.SYSCS_CHECK_TABLE(schemaname, tablename) "
@@ -98,6 +101,9 @@ public class RepairDatabase implements Runnable {
 			if ("SEQUENCE".equals(tableType == null ? null : tableType.toUpperCase()))
 				continue;
 
+			if ("SYSTEM TABLE".equals(tableType == null ? null : tableType.toUpperCase()))
+				continue;
+
 			if (tableName.toLowerCase().startsWith("sys"))
 				continue;
 
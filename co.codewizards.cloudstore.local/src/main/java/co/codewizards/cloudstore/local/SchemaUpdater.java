@@ -0,0 +1,121 @@
+package co.codewizards.cloudstore.local;
+
+import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.jdo.PersistenceManager;
+import javax.jdo.datastore.JDOConnection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adapts the schema of an existing database to changes of the persistence-capable classes, which DataNucleus
+ * does not handle itself.
+ * <p>
+ * DataNucleus creates missing tables, columns, constraints and indices, but it never modifies an existing column
+ * and it never drops an index no longer declared.
+ * <p>
+ * This must be run inside a transaction, which is committed afterwards.
+ */
+class SchemaUpdater {
+	private static final Logger logger = LoggerFactory.getLogger(SchemaUpdater.class);
+
+	private final PersistenceManager pm;
+
+	public SchemaUpdater(final PersistenceManager pm) {
+		this.pm = assertNotNull("pm", pm);
+	}
+
+	public void run() {
+		final JDOConnection jdoConnection = pm.getDataStoreConnection();
+		try {
+			final Connection connection = (Connection) jdoConnection.getNativeConnection();
+
+			// Modification.remoteRepository is null for all modifications shared by all remote repositories.
+			makeColumnNullable(connection, "Modification", "remoteRepository_id_oid");
+
+			// Redundant with the unique indices starting with the same columns.
+			dropIndex(connection, "TransferDoneMarker", "TransferDoneMarker_fromRepositoryId_toRepositoryId");
+			dropIndex(connection, "FileInProgressMarker", "FileInProgressMark_fromRepositoryId_toRepositoryId");
+
+			// Superseded by RepoFile_localRevision_id.
+			dropIndex(connection, "RepoFile", "RepoFile_localRevision");
+		} catch (final SQLException x) {
+			throw new RuntimeException(x);
+		} finally {
+			jdoConnection.close();
+		}
+	}
+
+	private void makeColumnNullable(final Connection connection, final String tableName, final String columnName) throws SQLException {
+		String schemaName = null;
+		String realTableName = null;
+		String realColumnName = null;
+		boolean nullable = true;
+		// The identifiers' case depends on the database and the DataNucleus configuration => compare case-insensitively.
+		try (final ResultSet rs = connection.getMetaData().getColumns(null, null, null, null);) {
+			while (rs.next()) {
+				if (tableName.equalsIgnoreCase(rs.getString("TABLE_NAME")) && columnName.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+					schemaName = rs.getString("TABLE_SCHEM");
+					realTableName = rs.getString("TABLE_NAME");
+					realColumnName = rs.getString("COLUMN_NAME");
+					nullable = rs.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls;
+					break;
+				}
+			}
+		}
+
+		if (realColumnName == null || nullable)
+			return;
+
+		final String qualifiedTableName = schemaName == null
+				? String.format("\"%s\"", realTableName)
+				: String.format("\"%s\".\"%s\"", schemaName, realTableName);
+
+		try (final Statement statement = connection.createStatement();) {
+			statement.execute(String.format("ALTER TABLE %s ALTER COLUMN \"%s\" NULL", qualifiedTableName, realColumnName));
+		}
+		logger.info("makeColumnNullable: Column '{}' of table '{}' is now nullable.", realColumnName, qualifiedTableName);
+	}
+
+	private void dropIndex(final Connection connection, final String tableName, final String indexName) throws SQLException {
+		String schemaName = null;
+		String realIndexName = null;
+		try (final ResultSet rs = connection.getMetaData().getTables(null, null, null, new String[] { "TABLE" });) {
+			while (rs.next()) {
+				if (!tableName.equalsIgnoreCase(rs.getString("TABLE_NAME")))
+					continue;
+
+				try (final ResultSet rs2 = connection.getMetaData().getIndexInfo(
+						rs.getString("TABLE_CAT"), rs.getString("TABLE_SCHEM"), rs.getString("TABLE_NAME"), false, true);) {
+					while (rs2.next()) {
+						if (indexName.equalsIgnoreCase(rs2.getString("INDEX_NAME"))) {
+							schemaName = rs.getString("TABLE_SCHEM");
+							realIndexName = rs2.getString("INDEX_NAME");
+							break;
+						}
+					}
+				}
+				break;
+			}
+		}
+
+		if (realIndexName == null)
+			return;
+
+		final String qualifiedIndexName = schemaName == null
+				? String.format("\"%s\"", realIndexName)
+				: String.format("\"%s\".\"%s\"", schemaName, realIndexName);
+
+		try (final Statement statement = connection.createStatement();) {
+			statement.execute(String.format("DROP INDEX %s", qualifiedIndexName));
+		}
+		logger.info("dropIndex: Dropped index '{}' of table '{}'.", qualifiedIndexName, tableName);
+	}
+}
@@ -3,17 +3,30 @@ package co.codewizards.cloudstore.local.db;
 import static co.codewizards.cloudstore.core.oio.OioFileFactory.*;
 import static co.codewizards.cloudstore.core.repo.local.LocalRepoManager.*;
 import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+import static co.codewizards.cloudstore.core.util.StringUtil.*;
 
 import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import co.codewizards.cloudstore.core.appid.AppId;
 import co.codewizards.cloudstore.core.oio.File;
 import co.codewizards.cloudstore.core.util.IOUtil;
+import co.codewizards.cloudstore.local.PersistencePropertiesEnum;
+import co.codewizards.cloudstore.local.PersistencePropertiesProvider;
 
 public abstract class AbstractDatabaseAdapter implements DatabaseAdapter {
+	private static final Logger logger = LoggerFactory.getLogger(AbstractDatabaseAdapter.class);
+
 	/**
 	 * The template for the name of the persistence-properties-file.
 	 * <p>
@@ -34,6 +47,16 @@ public abstract class AbstractDatabaseAdapter implements DatabaseAdapter {
 	private UUID repositoryId;
 	private File localRoot;
 
+	private Map<String, String> persistenceProperties;
+
+	private String connectionURL;
+
+	private String connectionDriverName;
+
+	private String connectionUserName;
+
+	private String connectionPassword;
+
 	public AbstractDatabaseAdapterFactory getFactory() {
 		return factory;
 	}
@@ -98,6 +121,74 @@ public abstract class AbstractDatabaseAdapter implements DatabaseAdapter {
 
 	protected abstract void createDatabase() throws Exception;
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The default implementation returns the meta-directory's children named like the {@linkplain AbstractDatabaseAdapterFactory#getName() factory}
+	 * - e.g. "derby" - or starting with this name followed by a dot - e.g. "h2.mv.db". This matches the connection-URLs in the
+	 * persistence-properties-templates.
+	 */
+	@Override
+	public List<File> getDatabaseFiles() {
+		final String databaseFileName = getFactoryOrFail().getName();
+		final List<File> result = new ArrayList<>();
+		final File[] children = createFile(getLocalRootOrFail(), META_DIR_NAME).listFiles();
+		if (children != null) {
+			for (final File child : children) {
+				final String childName = child.getName();
+				if (childName.equals(databaseFileName) || childName.startsWith(databaseFileName + '.'))
+					result.add(child);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Reads the connection properties from the persistence-properties-file (which must already exist) and loads the
+	 * JDBC driver class.
+	 */
+	protected void initProperties() {
+		final PersistencePropertiesProvider persistencePropertiesProvider = new PersistencePropertiesProvider(getRepositoryIdOrFail(), getLocalRootOrFail());
+		persistenceProperties = persistencePropertiesProvider.getPersistenceProperties();
+
+		connectionDriverName = persistenceProperties.get(PersistencePropertiesEnum.CONNECTION_DRIVER_NAME.key);
+		connectionURL = persistenceProperties.get(PersistencePropertiesEnum.CONNECTION_URL.key);
+		connectionUserName = persistenceProperties.get(PersistencePropertiesEnum.CONNECTION_USER_NAME.key);
+		connectionPassword = persistenceProperties.get(PersistencePropertiesEnum.CONNECTION_PASSWORD.key);
+
+		initDriverClass();
+	}
+
+	private void initDriverClass() {
+		if (isEmpty(connectionDriverName))
+			return;
+
+		try {
+			Class.forName(connectionDriverName);
+		} catch (Throwable e) { // Might theoretically be a link error (i.e. a sub-class of Error instead of Exception) => catch Throwable
+			logger.warn("initDriverClass" + e, e);
+		}
+	}
+
+	protected Map<String, String> getPersistenceProperties() {
+		return persistenceProperties;
+	}
+
+	protected String getConnectionURL() {
+		return connectionURL;
+	}
+	protected void setConnectionURL(String connectionURL) {
+		this.connectionURL = connectionURL;
+	}
+
+	public Connection createConnection() throws SQLException {
+		assertNotNull("connectionURL", connectionURL);
+		if (isEmpty(connectionUserName) && isEmpty(connectionPassword))
+			return DriverManager.getConnection(connectionURL);
+		else
+			return DriverManager.getConnection(connectionURL, connectionUserName, connectionPassword);
+	}
+
 	@Override
 	public void close() throws Exception {
 		// nothing to do - sub-classes may extend
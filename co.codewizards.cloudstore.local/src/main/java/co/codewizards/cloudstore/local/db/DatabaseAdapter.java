@@ -1,5 +1,6 @@
 package co.codewizards.cloudstore.local.db;
 
+import java.util.List;
 import java.util.UUID;
 
 import co.codewizards.cloudstore.core.oio.File;
@@ -12,4 +13,13 @@ public interface DatabaseAdapter extends AutoCloseable {
 	void setLocalRoot(File localRoot);
 
 	void createPersistencePropertiesFileAndDatabase() throws Exception;
+
+	/**
+	 * Gets the files and directories holding the database of this adapter in the repository's meta-directory.
+	 * <p>
+	 * Only files and directories currently existing are returned. They exist, even if the repository does not use this
+	 * database (anymore) - e.g. after an undone or failed migration.
+	 * @return the existing files and directories of the database. Never <code>null</code>, but maybe empty.
+	 */
+	List<File> getDatabaseFiles();
 }
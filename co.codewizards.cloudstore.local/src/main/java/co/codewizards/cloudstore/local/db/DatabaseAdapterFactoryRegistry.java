@@ -11,13 +11,17 @@ import java.util.TreeMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import co.codewizards.cloudstore.core.config.Config;
 import co.codewizards.cloudstore.core.config.ConfigImpl;
+import co.codewizards.cloudstore.core.oio.File;
 
 public class DatabaseAdapterFactoryRegistry {
 	private static final Logger logger = LoggerFactory.getLogger(DatabaseAdapterFactoryRegistry.class);
 
 	private DatabaseAdapterFactory databaseAdapterFactory;
 
+	private SortedMap<String, DatabaseAdapterFactory> name2DatabaseAdapterFactory;
+
 	protected DatabaseAdapterFactoryRegistry() { }
 
 	private static final class Holder {
@@ -35,10 +39,49 @@ public class DatabaseAdapterFactoryRegistry {
 	public void clearCache() {
 		logger.info("clearCache: entered.");
 		databaseAdapterFactory = null;
+		name2DatabaseAdapterFactory = null;
 	}
 
+	/**
+	 * Creates a {@link DatabaseAdapter} as configured globally.
+	 * @return the new {@link DatabaseAdapter}. Never <code>null</code>.
+	 */
 	public DatabaseAdapter createDatabaseAdapter() {
-		final DatabaseAdapterFactory databaseAdapterFactory= getDatabaseAdapterFactoryOrFail();
+		return createDatabaseAdapter(getDatabaseAdapterFactoryOrFail());
+	}
+
+	/**
+	 * Creates a {@link DatabaseAdapter} for a new repository.
+	 * <p>
+	 * In contrast to {@link #createDatabaseAdapter()}, this takes the configuration of the repository's
+	 * root directory (and its parents) into account. Thus, {@link DatabaseAdapterFactory#CONFIG_KEY_DATABASE_ADAPTER_NAME}
+	 * can be set in the {@code .cloudstore.properties} of a directory before it (or a sub-directory) is made a repository.
+	 * @param localRoot the root directory of the repository. Must not be <code>null</code>.
+	 * @return the new {@link DatabaseAdapter}. Never <code>null</code>.
+	 */
+	public DatabaseAdapter createDatabaseAdapter(final File localRoot) {
+		assertNotNull("localRoot", localRoot);
+		final Config config = ConfigImpl.getInstanceForDirectory(localRoot);
+		final String databaseAdapterName = config.getPropertyAsNonEmptyTrimmedString(
+				CONFIG_KEY_DATABASE_ADAPTER_NAME, DEFAULT_DATABASE_ADAPTER_NAME);
+
+		if (isEmpty(databaseAdapterName))
+			return createDatabaseAdapter();
+
+		return createDatabaseAdapter(databaseAdapterName);
+	}
+
+	/**
+	 * Creates a {@link DatabaseAdapter} using the {@link DatabaseAdapterFactory} with the given name.
+	 * @param databaseAdapterName the {@linkplain DatabaseAdapterFactory#getName() symbolic name} of the factory.
+	 * Must not be <code>null</code>.
+	 * @return the new {@link DatabaseAdapter}. Never <code>null</code>.
+	 */
+	public DatabaseAdapter createDatabaseAdapter(final String databaseAdapterName) {
+		return createDatabaseAdapter(getDatabaseAdapterFactoryOrFail(databaseAdapterName));
+	}
+
+	private DatabaseAdapter createDatabaseAdapter(final DatabaseAdapterFactory databaseAdapterFactory) {
 		final DatabaseAdapter databaseAdapter = databaseAdapterFactory.createDatabaseAdapter();
 		if (databaseAdapter == null)
 			throw new IllegalStateException(String.format("databaseAdapterFactory.createDatabaseAdapter() returned null! Implementation error in %s!",
@@ -53,17 +96,10 @@ public class DatabaseAdapterFactoryRegistry {
 			final String databaseAdaptorName = ConfigImpl.getInstance().getPropertyAsNonEmptyTrimmedString(
 					CONFIG_KEY_DATABASE_ADAPTER_NAME, DEFAULT_DATABASE_ADAPTER_NAME);
 
-			final SortedMap<String, DatabaseAdapterFactory> name2DatabaseAdapter = getName2DatabaseAdapterFactory();
-			if (name2DatabaseAdapter.isEmpty())
-				throw new IllegalStateException("There is no DatabaseAdapterFactory registered!");
-
 			if (isEmpty(databaseAdaptorName))
-				databaseAdapterFactory = getDatabaseAdapterFactoryWithHighestPriority(name2DatabaseAdapter);
-			else {
-				databaseAdapterFactory = name2DatabaseAdapter.get(databaseAdaptorName);
-				if (databaseAdapterFactory == null)
-					throw new IllegalArgumentException(String.format("There is no DatabaseAdapterFactory with name='%s'!", databaseAdaptorName));
-			}
+				databaseAdapterFactory = getDatabaseAdapterFactoryWithHighestPriority(getName2DatabaseAdapterFactory());
+			else
+				databaseAdapterFactory = getDatabaseAdapterFactoryOrFail(databaseAdaptorName);
 
 			this.databaseAdapterFactory = databaseAdapterFactory;
 		}
@@ -73,7 +109,28 @@ public class DatabaseAdapterFactoryRegistry {
 		return databaseAdapterFactory;
 	}
 
-	private static SortedMap<String, DatabaseAdapterFactory> getName2DatabaseAdapterFactory() {
+	protected DatabaseAdapterFactory getDatabaseAdapterFactoryOrFail(final String databaseAdapterName) {
+		assertNotNull("databaseAdapterName", databaseAdapterName);
+		final DatabaseAdapterFactory databaseAdapterFactory = getName2DatabaseAdapterFactory().get(databaseAdapterName);
+		if (databaseAdapterFactory == null)
+			throw new IllegalArgumentException(String.format("There is no DatabaseAdapterFactory with name='%s'!", databaseAdapterName));
+
+		return databaseAdapterFactory;
+	}
+
+	private SortedMap<String, DatabaseAdapterFactory> getName2DatabaseAdapterFactory() {
+		SortedMap<String, DatabaseAdapterFactory> name2DatabaseAdapterFactory = this.name2DatabaseAdapterFactory;
+		if (name2DatabaseAdapterFactory == null) {
+			name2DatabaseAdapterFactory = loadName2DatabaseAdapterFactory();
+			if (name2DatabaseAdapterFactory.isEmpty())
+				throw new IllegalStateException("There is no DatabaseAdapterFactory registered!");
+
+			this.name2DatabaseAdapterFactory = name2DatabaseAdapterFactory;
+		}
+		return name2DatabaseAdapterFactory;
+	}
+
+	private static SortedMap<String, DatabaseAdapterFactory> loadName2DatabaseAdapterFactory() {
 		SortedMap<String, DatabaseAdapterFactory> result = new TreeMap<String, DatabaseAdapterFactory>();
 		for (final DatabaseAdapterFactory a : ServiceLoader.load(DatabaseAdapterFactory.class)) {
 			final String name = a.getName();
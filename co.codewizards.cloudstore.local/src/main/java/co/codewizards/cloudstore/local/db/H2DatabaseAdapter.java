@@ -0,0 +1,23 @@
+package co.codewizards.cloudstore.local.db;
+
+import java.sql.Connection;
+
+/**
+ * {@link DatabaseAdapter} for an embedded H2 database using the MVStore.
+ * <p>
+ * In contrast to Derby, the MVStore locks single rows instead of whole tables and keeps the data of concurrent
+ * transactions apart using multi-version concurrency control. Thus, writing transactions block each other much
+ * less - which is beneficial for large repositories.
+ * <p>
+ * H2 creates the database automatically when connecting to it the first time.
+ */
+public class H2DatabaseAdapter extends AbstractDatabaseAdapter {
+
+	@Override
+	protected void createDatabase() throws Exception {
+		initProperties();
+
+		Connection connection = createConnection();
+		connection.close();
+	}
+}
@@ -0,0 +1,25 @@
+package co.codewizards.cloudstore.local.db;
+
+/**
+ * Factory for the {@link H2DatabaseAdapter}.
+ * <p>
+ * Its priority is lower than the one of the {@link DerbyDatabaseAdapterFactory}. Hence, H2 is only used, if it is
+ * selected explicitly via {@link #CONFIG_KEY_DATABASE_ADAPTER_NAME}.
+ */
+public class H2DatabaseAdapterFactory extends AbstractDatabaseAdapterFactory {
+
+	@Override
+	public String getName() {
+		return "h2";
+	}
+
+	@Override
+	public int getPriority() {
+		return -10;
+	}
+
+	@Override
+	protected DatabaseAdapter _createDatabaseAdapter() {
+		return new H2DatabaseAdapter();
+	}
+}
@@ -13,8 +13,6 @@ import co.codewizards.cloudstore.core.dto.DirectoryDto;
 import co.codewizards.cloudstore.core.dto.NormalFileDto;
 import co.codewizards.cloudstore.core.dto.RepoFileDto;
 import co.codewizards.cloudstore.core.dto.SymlinkDto;
-import co.codewizards.cloudstore.core.dto.TempChunkFileDto;
-import co.codewizards.cloudstore.core.dto.jaxb.TempChunkFileDtoIo;
 import co.codewizards.cloudstore.core.oio.File;
 import co.codewizards.cloudstore.core.repo.local.LocalRepoManager;
 import co.codewizards.cloudstore.core.repo.local.LocalRepoTransaction;
@@ -25,8 +23,8 @@ import co.codewizards.cloudstore.local.persistence.NormalFile;
 import co.codewizards.cloudstore.local.persistence.RepoFile;
 import co.codewizards.cloudstore.local.persistence.RepoFileDao;
 import co.codewizards.cloudstore.local.persistence.Symlink;
+import co.codewizards.cloudstore.local.transport.TempChunk;
 import co.codewizards.cloudstore.local.transport.TempChunkFileManager;
-import co.codewizards.cloudstore.local.transport.TempChunkFileWithDtoFile;
 
 public class RepoFileDtoConverter {
 
@@ -74,22 +72,9 @@ public class RepoFileDtoConverter {
 				}
 			}
 			if (depth > 1) {
-				final TempChunkFileDtoIo tempChunkFileDtoIo = new TempChunkFileDtoIo();
 				final File file = repoFile.getFile(localRepoManager.getLocalRoot());
-				for (final TempChunkFileWithDtoFile tempChunkFileWithDtoFile : tempChunkFileManager.getOffset2TempChunkFileWithDtoFile(file).values()) {
-					final File tempChunkFileDtoFile = tempChunkFileWithDtoFile.getTempChunkFileDtoFile();
-					if (tempChunkFileDtoFile == null)
-						continue; // incomplete: meta-data not yet written => ignore
-
-					final TempChunkFileDto tempChunkFileDto;
-					try {
-						tempChunkFileDto = tempChunkFileDtoIo.deserialize(tempChunkFileDtoFile);
-					} catch (final Exception x) {
-						logger.warn("toRepoFileDto: Ignoring corrupt tempChunkFileDtoFile '" + tempChunkFileDtoFile.getAbsolutePath() + "': " + x, x);
-						continue;
-					}
-					normalFileDto.getTempFileChunkDtos().add(AssertUtil.assertNotNull("tempChunkFileDto.fileChunkDto", tempChunkFileDto.getFileChunkDto()));
-				}
+				for (final TempChunk tempChunk : tempChunkFileManager.getOffset2TempChunk(file).values())
+					normalFileDto.getTempFileChunkDtos().add(tempChunk.toFileChunkDto());
 			}
 		}
 		else if (repoFile instanceof Directory) {
@@ -191,6 +191,17 @@ public abstract class Dao<E extends Entity, D extends Dao<E, D>> implements Cont
 		}
 	}
 
+	/**
+	 * Clears all persistent objects cached by this Dao.
+	 * <p>
+	 * This is invoked, if the transaction is {@linkplain co.codewizards.cloudstore.local.LocalRepoTransactionImpl#commitAndContinue() committed
+	 * and continued}, because other transactions might modify or delete the cached objects in-between.
+	 * <p>
+	 * The default implementation does nothing. Subclasses caching objects must override this method.
+	 */
+	public void clearCache() {
+	}
+
 	public Collection<E> getObjects() {
 		final ArrayList<E> result = new ArrayList<E>();
 		final Iterator<E> iterator = pm().getExtent(entityClass).iterator();
@@ -2,12 +2,15 @@ package co.codewizards.cloudstore.local.persistence;
 
 import static co.codewizards.cloudstore.core.util.Util.*;
 
+import javax.jdo.annotations.Index;
 import javax.jdo.annotations.Inheritance;
 import javax.jdo.annotations.InheritanceStrategy;
 import javax.jdo.annotations.NotPersistent;
 import javax.jdo.annotations.NullValue;
 import javax.jdo.annotations.PersistenceCapable;
 import javax.jdo.annotations.Persistent;
+import javax.jdo.annotations.Queries;
+import javax.jdo.annotations.Query;
 import javax.jdo.annotations.Unique;
 import javax.jdo.listener.LoadCallback;
 import javax.jdo.listener.StoreCallback;
@@ -17,6 +20,10 @@ import co.codewizards.cloudstore.core.util.AssertUtil;
 @PersistenceCapable
 @Inheritance(strategy=InheritanceStrategy.NEW_TABLE)
 @Unique(name="FileChunk_normalFile_offset", members={"normalFile", "offset"})
+@Index(name="FileChunk_sha1_length", members={"sha1", "length"})
+@Queries({
+	@Query(name="getFileChunks_sha1_length", value="SELECT WHERE this.sha1 == :sha1 && this.length == :length")
+})
 public class FileChunk extends Entity implements Comparable<FileChunk>, StoreCallback, LoadCallback {
 
 	@NotPersistent
@@ -0,0 +1,45 @@
+package co.codewizards.cloudstore.local.persistence;
+
+import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.jdo.Query;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class FileChunkDao extends Dao<FileChunk, FileChunkDao> {
+	private static final Logger logger = LoggerFactory.getLogger(FileChunkDao.class);
+
+	/**
+	 * Gets the {@link FileChunk}s having the given hash and length - no matter to which file they belong.
+	 * <p>
+	 * This is used to find data already existing in the repository, which can be reused instead of being
+	 * transferred.
+	 * @param sha1 the SHA1 hash of the chunk's data. Must not be <code>null</code>.
+	 * @param length the length of the chunk's data.
+	 * @param maxResultSize the maximum number of {@code FileChunk}s to return. Must be greater than 0.
+	 * @return the matching {@code FileChunk}s. Never <code>null</code>, but maybe empty.
+	 */
+	public List<FileChunk> getFileChunks(final String sha1, final int length, final int maxResultSize) {
+		assertNotNull("sha1", sha1);
+		if (maxResultSize < 1)
+			throw new IllegalArgumentException("maxResultSize < 1");
+
+		final Query query = pm().newNamedQuery(getEntityClass(), "getFileChunks_sha1_length");
+		try {
+			query.setRange(0, maxResultSize);
+			final long startTimestamp = System.currentTimeMillis();
+			@SuppressWarnings("unchecked")
+			final Collection<FileChunk> fileChunks = (Collection<FileChunk>) query.execute(sha1, length);
+			final List<FileChunk> result = new ArrayList<FileChunk>(fileChunks);
+			logger.debug("getFileChunks: Querying {} elements took {} ms.", result.size(), System.currentTimeMillis() - startTimestamp);
+			return result;
+		} finally {
+			query.closeAll();
+		}
+	}
+}
@@ -7,7 +7,6 @@ import java.util.UUID;
 
 import javax.jdo.JDOHelper;
 import javax.jdo.annotations.Column;
-import javax.jdo.annotations.Index;
 import javax.jdo.annotations.Inheritance;
 import javax.jdo.annotations.InheritanceStrategy;
 import javax.jdo.annotations.NullValue;
@@ -31,9 +30,7 @@ import javax.jdo.annotations.Unique;
  */
 @PersistenceCapable
 @Inheritance(strategy = InheritanceStrategy.NEW_TABLE)
-@Index(
-		name="FileInProgressMark_fromRepositoryId_toRepositoryId",
-		members={"fromRepositoryId", "toRepositoryId"})
+// The unique index serves the queries by fromRepositoryId and toRepositoryId, too (they are its first columns).
 @Unique(name = "FileInProgressMark_fromRepositoryId_toRepositoryId_pathSha1", members = { "fromRepositoryId", "toRepositoryId", "pathSha1" })
 @Queries({
 	@Query(name = "getFileInProgressMarkers_fromRepositoryId_toRepositoryId",
@@ -2,49 +2,53 @@ package co.codewizards.cloudstore.local.persistence;
 
 import static co.codewizards.cloudstore.core.util.Util.*;
 
+import javax.jdo.annotations.Column;
 import javax.jdo.annotations.Discriminator;
 import javax.jdo.annotations.DiscriminatorStrategy;
 import javax.jdo.annotations.Index;
 import javax.jdo.annotations.Indices;
 import javax.jdo.annotations.Inheritance;
 import javax.jdo.annotations.InheritanceStrategy;
-import javax.jdo.annotations.NullValue;
 import javax.jdo.annotations.PersistenceCapable;
-import javax.jdo.annotations.Persistent;
 import javax.jdo.annotations.Queries;
 import javax.jdo.annotations.Query;
 
+/**
+ * Modification (deletion, copy) of a file or directory, which must be replayed in the remote repositories.
+ * <p>
+ * Modifications form a journal shared by all remote repositories: Every modification is stored only once
+ * with {@link #getRemoteRepository() remoteRepository} being <code>null</code>. Which modifications a remote
+ * repository still needs is tracked by its {@link LastSyncToRemoteRepo#getLocalRepositoryRevisionSynced()
+ * localRepositoryRevisionSynced} - just like it is done for {@link RepoFile}s. A modification is deleted,
+ * after it was synced to all remote repositories.
+ * <p>
+ * Older versions stored one modification per remote repository. Such modifications (having a
+ * {@code remoteRepository}) are still read and deleted after they were synced to their remote repository.
+ */
 @PersistenceCapable
 @Inheritance(strategy=InheritanceStrategy.NEW_TABLE)
 @Discriminator(strategy=DiscriminatorStrategy.VALUE_MAP)
 @Indices({
 	@Index(name="Modification_remoteRepository_localRevision", members={"remoteRepository", "localRevision"}),
+	@Index(name="Modification_localRevision", members={"localRevision"}),
 })
 @Queries({
-	@Query(name="getModificationsAfter_remoteRepository_localRevision", value="SELECT WHERE this.remoteRepository == :remoteRepository && this.localRevision > :localRevision"),
-	@Query(name="getModificationsBeforeOrEqual_remoteRepository_localRevision", value="SELECT WHERE this.remoteRepository == :remoteRepository && this.localRevision <= :localRevision")
+	@Query(name="getModificationsAfter_remoteRepository_localRevision", value="SELECT WHERE (this.remoteRepository == null && this.localRevision > :sharedLocalRevision) || (this.remoteRepository == :remoteRepository && this.localRevision > :localRevision)"),
+	@Query(name="getModificationsBeforeOrEqual_remoteRepository_localRevision", value="SELECT WHERE this.remoteRepository == :remoteRepository && this.localRevision <= :localRevision"),
+	@Query(name="getSharedModificationsBeforeOrEqual_localRevision", value="SELECT WHERE this.remoteRepository == null && this.localRevision <= :localRevision")
 })
-/**
- * @deprecated Storing one Modification per remote-repository is highly inefficient and not necessary. We should replace
- * Modification (and its subclasses) by a new class (with appropriate sub-classes) that is *not* remote-repository-dependent!
- * We could call it 'Modification2' or better simply 'Mod' (with 'DeleteMod' and 'CopyMod' etc.).
- * A 'Mod' can be deleted, if it was replicated to all remote-repositories. We can track this easily: It is the case, if
- * for all remote-repositories, the condition 'Mod.localRevision <= LastCryptoKeySyncToRemoteRepo.localRepositoryRevisionSynced' is met.
- * Note, that the ChangeSet should only contain a 'Mod', if 'Mod.localRevision > LastCryptoKeySyncToRemoteRepo.localRepositoryRevisionSynced',
- * just like it is done for RepoFiles.
- * TODO Refactor per-remote-repo 'Modification' to global 'Mod'! Keep downward-compatibility!!! Upgrading existing repos should work fine!
- */
-@Deprecated
 public abstract class Modification extends Entity implements AutoTrackLocalRevision {
 
-	@Persistent(nullValue=NullValue.EXCEPTION)
+	@Column(allowsNull="true")
 	private RemoteRepository remoteRepository;
 
 	private long localRevision;
 
 	/**
 	 * Gets the remote repository to which this modification must be synced.
-	 * @return the remote repository to which this modification must be synced.
+	 * @return the remote repository to which this modification must be synced. <code>null</code>, if this
+	 * modification must be synced to all remote repositories (the normal case). Only modifications created by
+	 * older versions are assigned to one single remote repository.
 	 */
 	public RemoteRepository getRemoteRepository() {
 		return remoteRepository;
@@ -13,20 +13,26 @@ public class ModificationDao extends Dao<Modification, ModificationDao> {
 	private static final Logger logger = LoggerFactory.getLogger(ModificationDao.class);
 
 	/**
-	 * Gets those {@link Modification}s being assigned to the given {@link Modification#getRemoteRepository() remoteRepository}
-	 * whose {@link Modification#getLocalRevision() localRevision} is greater than the given {@code localRevision}.
-	 * @param remoteRepository the {@link Modification#getRemoteRepository() remoteRepository} the queried modifications are assigned to.
+	 * Gets those {@link Modification}s to be synced to the given {@code remoteRepository} whose
+	 * {@link Modification#getLocalRevision() localRevision} is greater than the given {@code localRevision}.
+	 * <p>
+	 * These are the shared modifications (not assigned to any remote repository) and the ones being assigned to
+	 * the given {@link Modification#getRemoteRepository() remoteRepository}. Shared modifications created before
+	 * the remote repository was {@link RemoteRepository#getLocalRepositoryRevisionRegistered() registered} are
+	 * excluded, because they do not concern it.
+	 * @param remoteRepository the remote repository to which the queried modifications are to be synced.
 	 * @param localRevision the {@link Modification#getLocalRevision() localRevision}, after which the modifications
 	 * to be queried where created.
 	 * @return those {@link Modification}s matching the given criteria. Never <code>null</code>, but maybe empty.
 	 */
 	public Collection<Modification> getModificationsAfter(final RemoteRepository remoteRepository, final long localRevision) {
 		AssertUtil.assertNotNull("remoteRepository", remoteRepository);
+		final long sharedLocalRevision = Math.max(localRevision, remoteRepository.getLocalRepositoryRevisionRegistered());
 		final Query query = pm().newNamedQuery(getEntityClass(), "getModificationsAfter_remoteRepository_localRevision");
 		try {
 			long startTimestamp = System.currentTimeMillis();
 			@SuppressWarnings("unchecked")
-			Collection<Modification> modifications = (Collection<Modification>) query.execute(remoteRepository, localRevision);
+			Collection<Modification> modifications = (Collection<Modification>) query.execute(sharedLocalRevision, remoteRepository, localRevision);
 			logger.debug("getModificationsAfter: query.execute(...) took {} ms.", System.currentTimeMillis() - startTimestamp);
 
 			startTimestamp = System.currentTimeMillis();
@@ -39,6 +45,16 @@ public class ModificationDao extends Dao<Modification, ModificationDao> {
 		}
 	}
 
+	/**
+	 * Gets those {@link Modification}s being assigned to the given {@link Modification#getRemoteRepository() remoteRepository}
+	 * whose {@link Modification#getLocalRevision() localRevision} is less than or equal to the given {@code localRevision}.
+	 * <p>
+	 * The shared modifications (not assigned to any remote repository) are <b>not</b> included - see
+	 * {@link #getSharedModificationsBeforeOrEqual(long)}.
+	 * @param remoteRepository the {@link Modification#getRemoteRepository() remoteRepository} the queried modifications are assigned to.
+	 * @param localRevision the maximum {@link Modification#getLocalRevision() localRevision}.
+	 * @return those {@link Modification}s matching the given criteria. Never <code>null</code>, but maybe empty.
+	 */
 	public Collection<Modification> getModificationsBeforeOrEqual(final RemoteRepository remoteRepository, final long localRevision) {
 		AssertUtil.assertNotNull("remoteRepository", remoteRepository);
 		final Query query = pm().newNamedQuery(getEntityClass(), "getModificationsBeforeOrEqual_remoteRepository_localRevision");
@@ -59,9 +75,34 @@ public class ModificationDao extends Dao<Modification, ModificationDao> {
 	}
 
 	/**
-	 * Gets all {@link Modification}s being assigned to the given {@link Modification#getRemoteRepository() remoteRepository}.
-	 * @param remoteRepository the {@link Modification#getRemoteRepository() remoteRepository} the queried modifications are assigned to.
+	 * Gets those shared {@link Modification}s (not assigned to any remote repository) whose
+	 * {@link Modification#getLocalRevision() localRevision} is less than or equal to the given {@code localRevision}.
+	 * @param localRevision the maximum {@link Modification#getLocalRevision() localRevision}.
+	 * @return those {@link Modification}s matching the given criteria. Never <code>null</code>, but maybe empty.
+	 */
+	public Collection<Modification> getSharedModificationsBeforeOrEqual(final long localRevision) {
+		final Query query = pm().newNamedQuery(getEntityClass(), "getSharedModificationsBeforeOrEqual_localRevision");
+		try {
+			long startTimestamp = System.currentTimeMillis();
+			@SuppressWarnings("unchecked")
+			Collection<Modification> modifications = (Collection<Modification>) query.execute(localRevision);
+			logger.debug("getSharedModificationsBeforeOrEqual: query.execute(...) took {} ms.", System.currentTimeMillis() - startTimestamp);
+
+			startTimestamp = System.currentTimeMillis();
+			modifications = load(modifications);
+			logger.debug("getSharedModificationsBeforeOrEqual: Loading result-set with {} elements took {} ms.", modifications.size(), System.currentTimeMillis() - startTimestamp);
+
+			return modifications;
+		} finally {
+			query.closeAll();
+		}
+	}
+
+	/**
+	 * Gets all {@link Modification}s to be synced to the given {@code remoteRepository}.
+	 * @param remoteRepository the remote repository to which the queried modifications are to be synced.
 	 * @return those {@link Modification}s matching the given criteria. Never <code>null</code>, but maybe empty.
+	 * @see #getModificationsAfter(RemoteRepository, long)
 	 */
 	public Collection<Modification> getModifications(final RemoteRepository remoteRepository) {
 		return getModificationsAfter(remoteRepository, -1);
@@ -46,6 +46,12 @@ public class RemoteRepository extends Repository implements AutoTrackLocalRevisi
 	@Persistent(nullValue=NullValue.EXCEPTION)
 	private String localPathPrefix;
 
+	/**
+	 * The local repository's revision at the time this remote repository was registered.
+	 * <code>null</code> for remote repositories registered by an older version.
+	 */
+	private Long localRepositoryRevisionRegistered;
+
 	public RemoteRepository() { }
 
 	public RemoteRepository(final UUID repositoryId) {
@@ -95,4 +101,22 @@ public class RemoteRepository extends Repository implements AutoTrackLocalRevisi
 		if (! equal(this.localPathPrefix, localPathPrefix))
 			this.localPathPrefix = localPathPrefix;
 	}
+
+	/**
+	 * Gets the {@link LocalRepository#getRevision() revision} the local repository had when this
+	 * remote repository was registered.
+	 * <p>
+	 * Shared {@link Modification}s with a {@link Modification#getLocalRevision() localRevision} less than
+	 * or equal to this revision were created before this remote repository was known and thus must never
+	 * be synced to it.
+	 * @return the local repository's revision at registration time. -1, if unknown (registered by an older
+	 * version).
+	 */
+	public long getLocalRepositoryRevisionRegistered() {
+		return localRepositoryRevisionRegistered == null ? -1 : localRepositoryRevisionRegistered;
+	}
+	public void setLocalRepositoryRevisionRegistered(final long localRepositoryRevisionRegistered) {
+		if (! equal(this.localRepositoryRevisionRegistered, Long.valueOf(localRepositoryRevisionRegistered)))
+			this.localRepositoryRevisionRegistered = localRepositoryRevisionRegistered;
+	}
 }
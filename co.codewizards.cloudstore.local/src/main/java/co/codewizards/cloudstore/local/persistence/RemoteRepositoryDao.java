@@ -92,7 +92,8 @@ public class RemoteRepositoryDao extends Dao<RemoteRepository, RemoteRepositoryD
 		AssertUtil.assertNotNull("remoteRepository", remoteRepository);
 
 		final ModificationDao modificationDao = getDao(ModificationDao.class);
-		modificationDao.deletePersistentAll(modificationDao.getModifications(remoteRepository));
+		// Only the modifications assigned to this remote repository - the shared ones are still needed by the others.
+		modificationDao.deletePersistentAll(modificationDao.getModificationsBeforeOrEqual(remoteRepository, Long.MAX_VALUE));
 
 		final LastSyncToRemoteRepoDao lastSyncToRemoteRepoDao = getDao(LastSyncToRemoteRepoDao.class);
 		final LastSyncToRemoteRepo lastSyncToRemoteRepo = lastSyncToRemoteRepoDao.getLastSyncToRemoteRepo(remoteRepository);
@@ -32,14 +32,19 @@ import co.codewizards.cloudstore.core.util.AssertUtil;
 @Unique(name="RepoFile_parent_name", members={"parent", "name"})
 @Indices({
 	@Index(name="RepoFile_parent", members={"parent"}),
-	@Index(name="RepoFile_localRevision", members={"localRevision"})
+	// Serves the paged query getRepoFilesChangedAfter_localRevision_exclLastSyncFromRepositoryId_idAfter: Both
+	// conditions are checked in the index. It replaces the former index on localRevision only.
+	@Index(name="RepoFile_localRevision_id", members={"localRevision", "id"})
 })
 @Queries({
 	@Query(name="getChildRepoFile_parent_name", value="SELECT UNIQUE WHERE this.parent == :parent && this.name == :name"),
 	@Query(name="getChildRepoFiles_parent", value="SELECT WHERE this.parent == :parent"),
 	@Query(
 			name="getRepoFilesChangedAfter_localRevision_exclLastSyncFromRepositoryId",
-			value="SELECT WHERE this.localRevision > :localRevision && (this.lastSyncFromRepositoryId == null || this.lastSyncFromRepositoryId != :lastSyncFromRepositoryId)") // TODO this necessary == null is IMHO a DN bug!
+			value="SELECT WHERE this.localRevision > :localRevision && (this.lastSyncFromRepositoryId == null || this.lastSyncFromRepositoryId != :lastSyncFromRepositoryId)"), // TODO this necessary == null is IMHO a DN bug!
+	@Query(
+			name="getRepoFilesChangedAfter_localRevision_exclLastSyncFromRepositoryId_idAfter",
+			value="SELECT WHERE this.localRevision > :localRevision && (this.lastSyncFromRepositoryId == null || this.lastSyncFromRepositoryId != :lastSyncFromRepositoryId) && this.id > :id ORDER BY this.id ASC")
 })
 public abstract class RepoFile extends Entity implements AutoTrackLocalRevision {
 	private static final Logger logger = LoggerFactory.getLogger(RepoFile.class);
@@ -2,9 +2,11 @@ package co.codewizards.cloudstore.local.persistence;
 
 import static co.codewizards.cloudstore.core.util.AssertUtil.*;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -13,6 +15,8 @@ import javax.jdo.Query;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import co.codewizards.cloudstore.core.config.Config;
+import co.codewizards.cloudstore.core.config.ConfigImpl;
 import co.codewizards.cloudstore.core.oio.File;
 import co.codewizards.cloudstore.core.util.AssertUtil;
 
@@ -21,41 +25,65 @@ public class RepoFileDao extends Dao<RepoFile, RepoFileDao> {
 
 	private Directory localRootDirectory;
 
+	/**
+	 * The {@code key} for the maximum number of {@link Directory} instances cached for resolving paths, used
+	 * with {@link Config#getPropertyAsPositiveOrZeroInt(String, int)}.
+	 * <p>
+	 * {@link #getRepoFile(File, File)} resolves a path segment by segment. With a cached parent-directory,
+	 * this costs only one single query - no matter how deep the file is located in the directory tree.
+	 * <p>
+	 * The default value is {@link #DEFAULT_DIRECTORY_CACHE_SIZE}.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 */
+	public static final String CONFIG_KEY_DIRECTORY_CACHE_SIZE = "repoFileDao.directoryCacheSize"; //$NON-NLS-1$
+	public static final int DEFAULT_DIRECTORY_CACHE_SIZE = 10000;
+
 	private DirectoryCache directoryCache;
 
+	/**
+	 * LRU-cache mapping files in the file system to their {@link Directory} objects.
+	 */
 	private static class DirectoryCache {
-		private static final int MAX_SIZE = 50;
-		private final Map<File, Directory> file2DirectoryCache = new HashMap<File, Directory>();
+		private final Map<File, Directory> file2DirectoryCache;
 		private final Map<Directory, File> directory2FileCache = new HashMap<Directory, File>();
-		private final LinkedList<Directory> directoryCacheList = new LinkedList<Directory>();
+
+		public DirectoryCache(final int maxSize) {
+			file2DirectoryCache = new LinkedHashMap<File, Directory>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(final Map.Entry<File, Directory> eldest) {
+					if (size() <= maxSize)
+						return false;
+
+					directory2FileCache.remove(eldest.getValue());
+					return true;
+				}
+			};
+		}
 
 		public Directory get(final File file) {
 			return file2DirectoryCache.get(file);
 		}
 
 		public void put(final File file, final Directory directory) {
-			file2DirectoryCache.put(assertNotNull("file", file), assertNotNull("directory", directory));
-			directory2FileCache.put(directory, file);
-			directoryCacheList.remove(directory);
-			directoryCacheList.addLast(directory);
-			removeOldEntriesIfNecessary();
+			final File oldFile = directory2FileCache.put(assertNotNull("directory", directory), assertNotNull("file", file));
+			if (oldFile != null && !oldFile.equals(file))
+				file2DirectoryCache.remove(oldFile);
+
+			file2DirectoryCache.put(file, directory);
 		}
 
 		public void remove(final Directory directory) {
 			final File file = directory2FileCache.remove(directory);
-			file2DirectoryCache.remove(file);
+			if (file != null)
+				file2DirectoryCache.remove(file);
 		}
 
-		public void remove(final File file) {
-			final Directory directory = file2DirectoryCache.remove(file);
-			directory2FileCache.remove(directory);
-		}
-
-		private void removeOldEntriesIfNecessary() {
-			while (directoryCacheList.size() > MAX_SIZE) {
-				final Directory directory = directoryCacheList.removeFirst();
-				remove(directory);
-			}
+		public void clear() {
+			file2DirectoryCache.clear();
+			directory2FileCache.clear();
 		}
 	}
 
@@ -89,7 +117,7 @@ public class RepoFileDao extends Dao<RepoFile, RepoFileDao> {
 			return getLocalRootDirectory();
 		}
 
-		final DirectoryCache directoryCache = getDirectoryCache();
+		final DirectoryCache directoryCache = getDirectoryCache(localRoot);
 		final Directory directory = directoryCache.get(file);
 		if (directory != null)
 			return directory;
@@ -166,20 +194,65 @@ public class RepoFileDao extends Dao<RepoFile, RepoFileDao> {
 		}
 	}
 
+	/**
+	 * Get one page of those {@link RepoFile}s whose {@link RepoFile#getLocalRevision() localRevision} is greater
+	 * than the given {@code localRevision}.
+	 * <p>
+	 * In contrast to {@link #getRepoFilesChangedAfterExclLastSyncFromRepositoryId(long, UUID)}, this method
+	 * returns at most {@code maxResultSize} elements. The result is sorted by {@link RepoFile#getId() id}.
+	 * The next page is thus obtained by passing the greatest {@code id} of the current page as {@code idAfter}.
+	 * @param localRevision the {@link RepoFile#getLocalRevision() localRevision}, after which the files
+	 * to be queried where modified.
+	 * @param exclLastSyncFromRepositoryId the {@link RepoFile#getLastSyncFromRepositoryId() lastSyncFromRepositoryId}
+	 * to exclude from the result set.
+	 * @param idAfter the {@link RepoFile#getId() id} after which the page starts (exclusive). -1 to start with the
+	 * first page.
+	 * @param maxResultSize the maximum number of {@link RepoFile}s to be returned. Must be greater than 0.
+	 * @return those {@link RepoFile}s which were modified after the given {@code localRevision} and whose
+	 * {@code id} is greater than {@code idAfter} - sorted by {@code id}. Never <code>null</code>, but maybe empty.
+	 */
+	public List<RepoFile> getRepoFilesChangedAfterExclLastSyncFromRepositoryId(final long localRevision, final UUID exclLastSyncFromRepositoryId, final long idAfter, final int maxResultSize) {
+		assertNotNull("exclLastSyncFromRepositoryId", exclLastSyncFromRepositoryId);
+		if (maxResultSize < 1)
+			throw new IllegalArgumentException("maxResultSize < 1");
+
+		final Query query = pm().newNamedQuery(getEntityClass(), "getRepoFilesChangedAfter_localRevision_exclLastSyncFromRepositoryId_idAfter");
+		try {
+			query.setRange(0, maxResultSize);
+			final long startTimestamp = System.currentTimeMillis();
+			@SuppressWarnings("unchecked")
+			final Collection<RepoFile> repoFiles = (Collection<RepoFile>) query.execute(localRevision, exclLastSyncFromRepositoryId.toString(), idAfter);
+			final List<RepoFile> result = new ArrayList<RepoFile>(repoFiles); // we need the order => not using load(...)
+			logger.debug("getRepoFilesChangedAfter: Querying page with {} elements after id {} took {} ms.", result.size(), idAfter, System.currentTimeMillis() - startTimestamp);
+			return result;
+		} finally {
+			query.closeAll();
+		}
+	}
+
 	@Override
 	public void deletePersistent(final RepoFile entity) {
 		getPersistenceManager().flush();
-		if (entity instanceof Directory)
-			getDirectoryCache().remove((Directory) entity);
+		if (entity instanceof Directory && directoryCache != null)
+			directoryCache.remove((Directory) entity);
 
 		super.deletePersistent(entity);
 		getPersistenceManager().flush(); // We run *sometimes* into foreign key violations if we don't delete immediately :-(
 	}
 
-	private DirectoryCache getDirectoryCache() {
-		if (directoryCache == null)
-			directoryCache = new DirectoryCache();
+	@Override
+	public void clearCache() {
+		super.clearCache();
+		if (directoryCache != null)
+			directoryCache.clear();
+	}
 
+	private DirectoryCache getDirectoryCache(final File localRoot) {
+		if (directoryCache == null) {
+			final int maxSize = ConfigImpl.getInstanceForDirectory(localRoot).getPropertyAsPositiveOrZeroInt(
+					CONFIG_KEY_DIRECTORY_CACHE_SIZE, DEFAULT_DIRECTORY_CACHE_SIZE);
+			directoryCache = new DirectoryCache(maxSize);
+		}
 		return directoryCache;
 	}
 }
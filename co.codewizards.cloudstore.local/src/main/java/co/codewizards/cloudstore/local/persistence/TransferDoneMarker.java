@@ -3,7 +3,6 @@ package co.codewizards.cloudstore.local.persistence;
 import java.util.UUID;
 
 import javax.jdo.annotations.Column;
-import javax.jdo.annotations.Index;
 import javax.jdo.annotations.NullValue;
 import javax.jdo.annotations.PersistenceCapable;
 import javax.jdo.annotations.Persistent;
@@ -14,12 +13,11 @@ import javax.jdo.annotations.Unique;
 import co.codewizards.cloudstore.core.repo.transport.TransferDoneMarkerType;
 
 @PersistenceCapable
+// The unique index serves the queries by fromRepositoryId and toRepositoryId, too (they are its first columns).
+// A separate index for them would only slow down the frequent inserts.
 @Unique(
 		name="TransferDoneMarker_fromRepositoryId_toRepositoryId_transferDoneMarkerType_fromEntityId",
 		members={"fromRepositoryId", "toRepositoryId", "transferDoneMarkerType", "fromEntityId"})
-@Index(
-		name="TransferDoneMarker_fromRepositoryId_toRepositoryId",
-		members={"fromRepositoryId", "toRepositoryId"})
 @Queries({
 	@Query(
 			name="getTransferDoneMarker_fromRepositoryId_toRepositoryId_transferDoneMarkerType_fromEntityId",
@@ -16,6 +16,8 @@ import javax.jdo.FetchPlan;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import co.codewizards.cloudstore.core.config.Config;
+import co.codewizards.cloudstore.core.config.ConfigImpl;
 import co.codewizards.cloudstore.core.dto.ChangeSetDto;
 import co.codewizards.cloudstore.core.dto.CopyModificationDto;
 import co.codewizards.cloudstore.core.dto.DeleteModificationDto;
@@ -49,6 +51,23 @@ public class ChangeSetDtoBuilder {
 
 	private static final Logger logger = LoggerFactory.getLogger(ChangeSetDtoBuilder.class);
 
+	/**
+	 * The {@code key} for the maximum number of changed files contained in one page of the change-set, used with
+	 * {@link Config#getPropertyAsPositiveOrZeroInt(String, int)}.
+	 * <p>
+	 * Instead of materialising all changed files at once, the change-set is transferred in pages of this size
+	 * (see {@link RepoTransport#getChangeSetDto(boolean, String)}). The parents of these files are additionally
+	 * contained in each page. A value of 0 disables paging.
+	 * <p>
+	 * The default value is {@link #DEFAULT_PAGE_SIZE}.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 */
+	public static final String CONFIG_KEY_PAGE_SIZE = "changeSetDtoBuilder.pageSize"; //$NON-NLS-1$
+	public static final int DEFAULT_PAGE_SIZE = 10000;
+
+	private static final char CURSOR_SEPARATOR = ':';
+
 	private final LocalRepoTransaction transaction;
 	private final RepoTransport repoTransport;
 	private final UUID clientRepositoryId;
@@ -65,13 +84,84 @@ public class ChangeSetDtoBuilder {
 		return createObject(ChangeSetDtoBuilder.class, transaction, repoTransport);
 	}
 
+	/**
+	 * Builds the entire change-set.
+	 * @return the change-set containing all changes not yet synced to the client. Never <code>null</code>.
+	 */
 	public ChangeSetDto buildChangeSetDto() {
+		return buildChangeSetDto(null, 0);
+	}
+
+	/**
+	 * Builds one page of the change-set.
+	 * <p>
+	 * The first page (requested with a <code>null</code> {@code cursor}) begins the sync: It updates the
+	 * {@link LastSyncToRemoteRepo} and contains the {@code RepositoryDto} as well as all {@code ModificationDto}s.
+	 * All pages contain at most {@link #CONFIG_KEY_PAGE_SIZE} changed {@code RepoFileDto}s (plus their parents).
+	 * @param cursor the {@link ChangeSetDto#getCursor() cursor} of the previous page or <code>null</code>.
+	 * @return the page. Never <code>null</code>.
+	 */
+	public ChangeSetDto buildChangeSetDto(final String cursor) {
+		final int pageSize = ConfigImpl.getInstanceForDirectory(getLocalRepoManager().getLocalRoot())
+				.getPropertyAsPositiveOrZeroInt(CONFIG_KEY_PAGE_SIZE, DEFAULT_PAGE_SIZE);
+		return buildChangeSetDto(cursor, pageSize);
+	}
+
+	protected ChangeSetDto buildChangeSetDto(final String cursor, final int pageSize) {
 		final ChangeSetDto changeSetDto = createObject(ChangeSetDto.class);
+		final RepoFileDao repoFileDao = transaction.getDao(RepoFileDao.class);
+
+		final long localRepositoryRevisionSynced;
+		final long repoFileIdAfter;
+		if (cursor == null) {
+			localRepositoryRevisionSynced = beginChangeSetDto(changeSetDto);
+			repoFileIdAfter = -1;
+		}
+		else {
+			if (pageSize < 1)
+				throw new IllegalArgumentException("cursor != null && pageSize < 1");
+
+			final long[] cursorValues = parseCursor(cursor);
+			localRepositoryRevisionSynced = cursorValues[0];
+			repoFileIdAfter = cursorValues[1];
+			((LocalRepoTransactionImpl)transaction).getPersistenceManager().getFetchPlan().setGroup(FetchPlan.ALL);
+		}
+
+		final Collection<RepoFile> repoFiles;
+		if (pageSize < 1)
+			repoFiles = repoFileDao.getRepoFilesChangedAfterExclLastSyncFromRepositoryId(localRepositoryRevisionSynced, clientRepositoryId);
+		else {
+			final List<RepoFile> repoFilePage = repoFileDao.getRepoFilesChangedAfterExclLastSyncFromRepositoryId(
+					localRepositoryRevisionSynced, clientRepositoryId, repoFileIdAfter, pageSize);
+
+			if (repoFilePage.size() >= pageSize) // there might be more
+				changeSetDto.setCursor(formatCursor(localRepositoryRevisionSynced, repoFilePage.get(repoFilePage.size() - 1).getId()));
+
+			repoFiles = repoFilePage;
+		}
+
+		RepoFile pathPrefixRepoFile = null; // the virtual root for the client
+		if (!pathPrefix.isEmpty()) {
+			pathPrefixRepoFile = repoFileDao.getRepoFile(getLocalRepoManager().getLocalRoot(), getPathPrefixFile());
+		}
+		final Map<Long, RepoFileDto> id2RepoFileDto = getId2RepoFileDtoWithParents(pathPrefixRepoFile, repoFiles, localRepositoryRevisionSynced, transaction);
+		changeSetDto.setRepoFileDtos(new ArrayList<RepoFileDto>(id2RepoFileDto.values()));
+
+		logger.debug("buildChangeSetDto: cursor={} nextCursor={} repoFileDtos.size={}", cursor, changeSetDto.getCursor(), id2RepoFileDto.size());
+		return changeSetDto;
+	}
+
+	/**
+	 * Populates the parts of the change-set which are only contained in its first page and marks the sync as
+	 * being in progress.
+	 * @param changeSetDto the first page of the change-set. Must not be <code>null</code>.
+	 * @return the local revision which was already synced to the client before.
+	 */
+	private long beginChangeSetDto(final ChangeSetDto changeSetDto) {
 		final LocalRepositoryDao localRepositoryDao = transaction.getDao(LocalRepositoryDao.class);
 		final RemoteRepositoryDao remoteRepositoryDao = transaction.getDao(RemoteRepositoryDao.class);
 		final LastSyncToRemoteRepoDao lastSyncToRemoteRepoDao = transaction.getDao(LastSyncToRemoteRepoDao.class);
 		final ModificationDao modificationDao = transaction.getDao(ModificationDao.class);
-		final RepoFileDao repoFileDao = transaction.getDao(RepoFileDao.class);
 
 		// We must *first* read the LocalRepository and afterwards all changes, because this way, we don't need to lock it in the DB.
 		// If we *then* read RepoFiles with a newer localRevision, it doesn't do any harm - we'll simply read them again, in the
@@ -109,17 +199,26 @@ public class ChangeSetDtoBuilder {
 				changeSetDto.getModificationDtos().add(deleteModificationDto);
 			}
 		}
+		return lastSyncToRemoteRepo.getLocalRepositoryRevisionSynced();
+	}
 
-		final Collection<RepoFile> repoFiles = repoFileDao.getRepoFilesChangedAfterExclLastSyncFromRepositoryId(
-				lastSyncToRemoteRepo.getLocalRepositoryRevisionSynced(), clientRepositoryId);
-		RepoFile pathPrefixRepoFile = null; // the virtual root for the client
-		if (!pathPrefix.isEmpty()) {
-			pathPrefixRepoFile = repoFileDao.getRepoFile(getLocalRepoManager().getLocalRoot(), getPathPrefixFile());
-		}
-		final Map<Long, RepoFileDto> id2RepoFileDto = getId2RepoFileDtoWithParents(pathPrefixRepoFile, repoFiles, transaction);
-		changeSetDto.setRepoFileDtos(new ArrayList<RepoFileDto>(id2RepoFileDto.values()));
+	private static String formatCursor(final long localRepositoryRevisionSynced, final long repoFileIdAfter) {
+		return Long.toString(localRepositoryRevisionSynced) + CURSOR_SEPARATOR + Long.toString(repoFileIdAfter);
+	}
 
-		return changeSetDto;
+	private static long[] parseCursor(final String cursor) {
+		final int separatorIndex = cursor.indexOf(CURSOR_SEPARATOR);
+		if (separatorIndex < 0)
+			throw new IllegalArgumentException("Invalid cursor: " + cursor);
+
+		try {
+			return new long[] {
+					Long.parseLong(cursor.substring(0, separatorIndex)),
+					Long.parseLong(cursor.substring(separatorIndex + 1))
+			};
+		} catch (final NumberFormatException x) {
+			throw new IllegalArgumentException("Invalid cursor: " + cursor, x);
+		}
 	}
 
 	protected File getPathPrefixFile() {
@@ -184,7 +283,8 @@ public class ChangeSetDtoBuilder {
 		return modificationDto;
 	}
 
-	private Map<Long, RepoFileDto> getId2RepoFileDtoWithParents(final RepoFile pathPrefixRepoFile, final Collection<RepoFile> repoFiles, final LocalRepoTransaction transaction) {
+	private Map<Long, RepoFileDto> getId2RepoFileDtoWithParents(final RepoFile pathPrefixRepoFile, final Collection<RepoFile> repoFiles,
+			final long localRepositoryRevisionSynced, final LocalRepoTransaction transaction) {
 		AssertUtil.assertNotNull("transaction", transaction);
 		AssertUtil.assertNotNull("repoFiles", repoFiles);
 		RepoFileDtoConverter repoFileDtoConverter = null;
@@ -208,7 +308,9 @@ public class ChangeSetDtoBuilder {
 						repoFileDtoConverter = RepoFileDtoConverter.create(transaction);
 
 					repoFileDto = repoFileDtoConverter.toRepoFileDto(rf, 0);
-					repoFileDto.setNeededAsParent(true); // initially true, but not default-value in DTO so that it is omitted in the XML, if it is false (the majority are false).
+					// Initially true, but not default-value in DTO so that it is omitted in the XML, if it is false (the majority are false).
+					// A parent being changed itself is synced right now: When paging, it might otherwise only follow in a later page.
+					repoFileDto.setNeededAsParent(!isChanged(rf, localRepositoryRevisionSynced));
 					if (pathPrefixRepoFile != null && pathPrefixRepoFile.equals(rf)) {
 						repoFileDto.setParentId(null); // virtual root has no parent!
 						repoFileDto.setName(""); // virtual root has no name!
@@ -229,6 +331,11 @@ public class ChangeSetDtoBuilder {
 		return entityID2RepoFileDto;
 	}
 
+	private boolean isChanged(final RepoFile repoFile, final long localRepositoryRevisionSynced) {
+		return repoFile.getLocalRevision() > localRepositoryRevisionSynced
+				&& !clientRepositoryId.equals(repoFile.getLastSyncFromRepositoryId());
+	}
+
 	private boolean isDirectOrIndirectParent(final RepoFile parentRepoFile, final RepoFile repoFile) {
 		AssertUtil.assertNotNull("parentRepoFile", parentRepoFile);
 		AssertUtil.assertNotNull("repoFile", repoFile);
@@ -0,0 +1,184 @@
+package co.codewizards.cloudstore.local.transport;
+
+import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import co.codewizards.cloudstore.core.dto.FileDataBlockSignatureDto;
+import co.codewizards.cloudstore.core.dto.FileDataDeltaDto;
+import co.codewizards.cloudstore.core.dto.FileDataDeltaSegmentDto;
+import co.codewizards.cloudstore.core.dto.FileDataSignatureDto;
+import co.codewizards.cloudstore.core.util.HashUtil;
+
+/**
+ * Creates {@link FileDataSignatureDto}s and {@link FileDataDeltaDto}s like rsync does.
+ * <p>
+ * The destination's data is split into blocks of {@link #BLOCK_LENGTH} bytes. For each block, a weak
+ * rolling checksum and a strong SHA1 is calculated. The source then calculates the rolling checksum at
+ * every position of its data (updating it byte by byte in constant time). Only if it matches one of the
+ * blocks, the SHA1 is calculated and compared. Matching blocks are referenced, all other data is transferred
+ * literally.
+ */
+class FileDataDeltaCalculator {
+
+	static final int BLOCK_LENGTH = 2048;
+
+	private FileDataDeltaCalculator() { }
+
+	public static FileDataSignatureDto createFileDataSignatureDto(final byte[] existingData, final long offset) {
+		assertNotNull("existingData", existingData);
+		final MessageDigest md = createMessageDigest();
+		final FileDataSignatureDto fileDataSignatureDto = new FileDataSignatureDto();
+		fileDataSignatureDto.setOffset(offset);
+		fileDataSignatureDto.setLength(existingData.length);
+		fileDataSignatureDto.setBlockLength(BLOCK_LENGTH);
+		for (int off = 0; off + BLOCK_LENGTH <= existingData.length; off += BLOCK_LENGTH) {
+			final FileDataBlockSignatureDto blockSignatureDto = new FileDataBlockSignatureDto();
+			blockSignatureDto.setOffset(offset + off);
+			blockSignatureDto.setRollingChecksum(new RollingChecksum(existingData, off, BLOCK_LENGTH).getValue());
+			blockSignatureDto.setSha1(sha1(md, existingData, off, BLOCK_LENGTH));
+			fileDataSignatureDto.getBlockSignatureDtos().add(blockSignatureDto);
+		}
+		return fileDataSignatureDto;
+	}
+
+	public static FileDataDeltaDto createFileDataDeltaDto(final FileDataSignatureDto fileDataSignatureDto, final byte[] fileData, final long offset) {
+		assertNotNull("fileDataSignatureDto", fileDataSignatureDto);
+		assertNotNull("fileData", fileData);
+		final FileDataDeltaDto fileDataDeltaDto = new FileDataDeltaDto();
+		fileDataDeltaDto.setOffset(offset);
+		fileDataDeltaDto.setLength(fileData.length);
+		fileDataDeltaDto.setSha1(HashUtil.sha1(fileData));
+
+		final int blockLength = fileDataSignatureDto.getBlockLength();
+		final Map<Integer, List<FileDataBlockSignatureDto>> rollingChecksum2BlockSignatureDtos = new HashMap<>();
+		for (final FileDataBlockSignatureDto blockSignatureDto : fileDataSignatureDto.getBlockSignatureDtos()) {
+			List<FileDataBlockSignatureDto> blockSignatureDtos = rollingChecksum2BlockSignatureDtos.get(blockSignatureDto.getRollingChecksum());
+			if (blockSignatureDtos == null) {
+				blockSignatureDtos = new ArrayList<>(1);
+				rollingChecksum2BlockSignatureDtos.put(blockSignatureDto.getRollingChecksum(), blockSignatureDtos);
+			}
+			blockSignatureDtos.add(blockSignatureDto);
+		}
+
+		int literalBegin = 0;
+		if (blockLength > 0 && !rollingChecksum2BlockSignatureDtos.isEmpty() && fileData.length >= blockLength) {
+			final MessageDigest md = createMessageDigest();
+			RollingChecksum rollingChecksum = new RollingChecksum(fileData, 0, blockLength);
+			int pos = 0;
+			while (true) {
+				final FileDataBlockSignatureDto matchingBlockSignatureDto = getMatchingBlockSignatureDto(
+						rollingChecksum2BlockSignatureDtos.get(rollingChecksum.getValue()), md, fileData, pos, blockLength);
+
+				if (matchingBlockSignatureDto != null) {
+					addLiteralSegmentDto(fileDataDeltaDto, fileData, literalBegin, pos);
+					addExistingSegmentDto(fileDataDeltaDto, matchingBlockSignatureDto.getOffset(), blockLength);
+					pos += blockLength;
+					literalBegin = pos;
+					if (pos + blockLength > fileData.length)
+						break;
+
+					rollingChecksum = new RollingChecksum(fileData, pos, blockLength);
+				}
+				else {
+					if (pos + blockLength >= fileData.length)
+						break;
+
+					rollingChecksum.roll(fileData[pos], fileData[pos + blockLength]);
+					++pos;
+				}
+			}
+		}
+		addLiteralSegmentDto(fileDataDeltaDto, fileData, literalBegin, fileData.length);
+		return fileDataDeltaDto;
+	}
+
+	private static FileDataBlockSignatureDto getMatchingBlockSignatureDto(final List<FileDataBlockSignatureDto> candidates,
+			final MessageDigest md, final byte[] data, final int off, final int len) {
+		if (candidates == null)
+			return null;
+
+		final String sha1 = sha1(md, data, off, len);
+		for (final FileDataBlockSignatureDto candidate : candidates) {
+			if (sha1.equals(candidate.getSha1()))
+				return candidate;
+		}
+		return null;
+	}
+
+	private static void addLiteralSegmentDto(final FileDataDeltaDto fileDataDeltaDto, final byte[] fileData, final int begin, final int end) {
+		if (begin >= end)
+			return;
+
+		final byte[] data = new byte[end - begin];
+		System.arraycopy(fileData, begin, data, 0, data.length);
+		final FileDataDeltaSegmentDto segmentDto = new FileDataDeltaSegmentDto();
+		segmentDto.setLength(data.length);
+		segmentDto.setData(data);
+		fileDataDeltaDto.getSegmentDtos().add(segmentDto);
+	}
+
+	private static void addExistingSegmentDto(final FileDataDeltaDto fileDataDeltaDto, final long existingOffset, final int length) {
+		final List<FileDataDeltaSegmentDto> segmentDtos = fileDataDeltaDto.getSegmentDtos();
+		final FileDataDeltaSegmentDto lastSegmentDto = segmentDtos.isEmpty() ? null : segmentDtos.get(segmentDtos.size() - 1);
+		if (lastSegmentDto != null && lastSegmentDto.getData() == null
+				&& lastSegmentDto.getExistingOffset() + lastSegmentDto.getLength() == existingOffset) {
+			// Consecutive blocks are merged into one segment.
+			lastSegmentDto.setLength(lastSegmentDto.getLength() + length);
+			return;
+		}
+		final FileDataDeltaSegmentDto segmentDto = new FileDataDeltaSegmentDto();
+		segmentDto.setExistingOffset(existingOffset);
+		segmentDto.setLength(length);
+		segmentDtos.add(segmentDto);
+	}
+
+	private static MessageDigest createMessageDigest() {
+		try {
+			return MessageDigest.getInstance(HashUtil.HASH_ALGORITHM_SHA);
+		} catch (final NoSuchAlgorithmException x) {
+			throw new RuntimeException(x);
+		}
+	}
+
+	private static String sha1(final MessageDigest md, final byte[] data, final int off, final int len) {
+		md.update(data, off, len);
+		return HashUtil.encodeHexStr(md.digest());
+	}
+
+	/**
+	 * The weak checksum of rsync: Two 16-bit sums, which can be updated in constant time when
+	 * the window is moved by one byte.
+	 */
+	private static class RollingChecksum {
+		private final int length;
+		private int a;
+		private int b;
+
+		public RollingChecksum(final byte[] data, final int off, final int len) {
+			this.length = len;
+			for (int i = 0; i < len; ++i) {
+				final int x = data[off + i] & 0xff;
+				a += x;
+				b += (len - i) * x;
+			}
+			a &= 0xffff;
+			b &= 0xffff;
+		}
+
+		public void roll(final byte removed, final byte added) {
+			final int x = removed & 0xff;
+			a = (a - x + (added & 0xff)) & 0xffff;
+			b = (b - length * x + a) & 0xffff;
+		}
+
+		public int getValue() {
+			return (b << 16) | a;
+		}
+	}
+}
@@ -6,21 +6,28 @@ import static co.codewizards.cloudstore.core.util.IOUtil.*;
 
 import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.channels.FileChannel;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
 
 import javax.jdo.PersistenceManager;
 
@@ -30,15 +37,21 @@ import org.slf4j.LoggerFactory;
 import co.codewizards.cloudstore.core.config.ConfigImpl;
 import co.codewizards.cloudstore.core.dto.ChangeSetDto;
 import co.codewizards.cloudstore.core.dto.DirectoryDto;
+import co.codewizards.cloudstore.core.dto.FileChunkDto;
+import co.codewizards.cloudstore.core.dto.FileChunkDtoList;
+import co.codewizards.cloudstore.core.dto.FileDataDeltaDto;
+import co.codewizards.cloudstore.core.dto.FileDataSignatureDto;
 import co.codewizards.cloudstore.core.dto.NormalFileDto;
+import co.codewizards.cloudstore.core.dto.PutFileDto;
+import co.codewizards.cloudstore.core.dto.PutFileDtoList;
 import co.codewizards.cloudstore.core.dto.RepoFileDto;
 import co.codewizards.cloudstore.core.dto.RepositoryDto;
 import co.codewizards.cloudstore.core.dto.SymlinkDto;
-import co.codewizards.cloudstore.core.dto.TempChunkFileDto;
-import co.codewizards.cloudstore.core.dto.jaxb.TempChunkFileDtoIo;
+import co.codewizards.cloudstore.core.io.FileChannelInputStream;
 import co.codewizards.cloudstore.core.oio.File;
 import co.codewizards.cloudstore.core.progress.LoggerProgressMonitor;
 import co.codewizards.cloudstore.core.progress.NullProgressMonitor;
+import co.codewizards.cloudstore.core.repo.local.FileChunkingStrategy;
 import co.codewizards.cloudstore.core.repo.local.LocalRepoHelper;
 import co.codewizards.cloudstore.core.repo.local.LocalRepoManager;
 import co.codewizards.cloudstore.core.repo.local.LocalRepoManagerFactory;
@@ -46,6 +59,7 @@ import co.codewizards.cloudstore.core.repo.local.LocalRepoTransaction;
 import co.codewizards.cloudstore.core.repo.transport.AbstractRepoTransport;
 import co.codewizards.cloudstore.core.repo.transport.CollisionException;
 import co.codewizards.cloudstore.core.repo.transport.DeleteModificationCollisionException;
+import co.codewizards.cloudstore.core.repo.transport.FileDataMismatchException;
 import co.codewizards.cloudstore.core.repo.transport.FileWriteStrategy;
 import co.codewizards.cloudstore.core.repo.transport.LocalRepoTransport;
 import co.codewizards.cloudstore.core.repo.transport.TransferDoneMarkerType;
@@ -55,11 +69,14 @@ import co.codewizards.cloudstore.core.util.IOUtil;
 import co.codewizards.cloudstore.core.util.UrlUtil;
 import co.codewizards.cloudstore.local.FilenameFilterSkipMetaDir;
 import co.codewizards.cloudstore.local.LocalRepoSync;
+import co.codewizards.cloudstore.local.LocalRepoSync.FileHash;
 import co.codewizards.cloudstore.local.dto.RepoFileDtoConverter;
 import co.codewizards.cloudstore.local.dto.RepositoryDtoConverter;
 import co.codewizards.cloudstore.local.persistence.DeleteModification;
 import co.codewizards.cloudstore.local.persistence.DeleteModificationDao;
 import co.codewizards.cloudstore.local.persistence.Directory;
+import co.codewizards.cloudstore.local.persistence.FileChunk;
+import co.codewizards.cloudstore.local.persistence.FileChunkDao;
 import co.codewizards.cloudstore.local.persistence.FileInProgressMarker;
 import co.codewizards.cloudstore.local.persistence.FileInProgressMarkerDao;
 import co.codewizards.cloudstore.local.persistence.LastSyncToRemoteRepo;
@@ -84,6 +101,11 @@ public class FileRepoTransport extends AbstractRepoTransport implements LocalRep
 
 	private static final long MAX_REMOTE_REPOSITORY_REQUESTS_QUANTITY = 100; // TODO make configurable!
 
+	/**
+	 * How many identical chunks are tried at most, when looking for existing data to be reused.
+	 */
+	private static final int MAX_EXISTING_FILE_CHUNK_CANDIDATE_COUNT = 10;
+
 	private LocalRepoManager localRepoManager;
 	private final TempChunkFileManager tempChunkFileManager = TempChunkFileManager.getInstance();
 
@@ -186,6 +208,24 @@ public class FileRepoTransport extends AbstractRepoTransport implements LocalRep
 		}
 	}
 
+	@Override
+	public ChangeSetDto getChangeSetDto(final boolean localSync, final String cursor) {
+		if (cursor == null && localSync)
+			getLocalRepoManager().localSync(new LoggerProgressMonitor(logger));
+
+		// Only the first page writes the LastSyncToRemoteRepo => all following pages are read in a READ tx.
+		try ( final LocalRepoTransaction transaction = cursor == null
+				? getLocalRepoManager().beginWriteTransaction() : getLocalRepoManager().beginReadTransaction(); ) {
+
+			final ChangeSetDto changeSetDto = ChangeSetDtoBuilder
+					.create(transaction, this)
+					.buildChangeSetDto(cursor);
+
+			transaction.commit();
+			return changeSetDto;
+		}
+	}
+
 	@Override
 	public void prepareForChangeSetDto(ChangeSetDto changeSetDto) {
 		// nothing to do here.
@@ -269,16 +309,7 @@ public class FileRepoTransport extends AbstractRepoTransport implements LocalRep
 
 				repoFile.setLastSyncFromRepositoryId(clientRepositoryId);
 
-				final Collection<TempChunkFileWithDtoFile> tempChunkFileWithDtoFiles = tempChunkFileManager.getOffset2TempChunkFileWithDtoFile(file).values();
-				for (final TempChunkFileWithDtoFile tempChunkFileWithDtoFile : tempChunkFileWithDtoFiles) {
-					if (tempChunkFileWithDtoFile.getTempChunkFileDtoFile() != null)
-						deleteOrFail(tempChunkFileWithDtoFile.getTempChunkFileDtoFile());
-
-					if (tempChunkFileWithDtoFile.getTempChunkFile() != null)
-						deleteOrFail(tempChunkFileWithDtoFile.getTempChunkFile());
-				}
-			} catch (IOException x) {
-				throw new RuntimeException(x);
+				tempChunkFileManager.deleteTempChunkFiles(file);
 			} finally {
 				ParentFileLastModifiedManager.getInstance().restoreParentFileLastModified(parentFile);
 			}
@@ -482,7 +513,7 @@ public class FileRepoTransport extends AbstractRepoTransport implements LocalRep
 	}
 
 	@Override
-	public LocalRepoManager getLocalRepoManager() {
+	public synchronized LocalRepoManager getLocalRepoManager() {
 		if (localRepoManager == null) {
 			logger.debug("getLocalRepoManager: Creating a new LocalRepoManager.");
 			File remoteRootFile;
@@ -672,6 +703,42 @@ public class FileRepoTransport extends AbstractRepoTransport implements LocalRep
 		}
 	}
 
+	@Override
+	public InputStream getFileDataInputStream(String path, final long offset, int length) {
+		path = prefixPath(path);
+		final File file = getFile(path);
+		try {
+			final RandomAccessFile raf = file.createRandomAccessFile("r");
+			boolean closeRaf = true;
+			try {
+				final long fileLength = raf.length();
+				if (length < 0) {
+					final long l = fileLength - offset;
+					if (l > Integer.MAX_VALUE)
+						throw new IllegalArgumentException(
+								String.format("The data to be read from file '%s' is too large (offset=%s length=%s limit=%s). You must specify a length (and optionally an offset) to read it partially.",
+										path, offset, length, Integer.MAX_VALUE));
+
+					length = (int) Math.max(0, l);
+				}
+
+				if (fileLength < offset + length) // File is too short => must have been modified => discarding
+					return null;
+
+				final InputStream in = new FileChannelInputStream(raf.getChannel(), offset, length);
+				closeRaf = false;
+				return in;
+			} finally {
+				if (closeRaf)
+					raf.close();
+			}
+		} catch (final FileNotFoundException e) { // deleted
+			return null;
+		} catch (final IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	@Override
 	public void beginPutFile(String path) {
 		path = prefixPath(path);
@@ -681,55 +748,70 @@ public class FileRepoTransport extends AbstractRepoTransport implements LocalRep
 		try ( final LocalRepoTransaction transaction = getLocalRepoManager().beginWriteTransaction(); ) {
 			ParentFileLastModifiedManager.getInstance().backupParentFileLastModified(parentFile);
 			try {
-				if (file.isSymbolicLink() || (file.exists() && !file.isFile())) // exists() and isFile() both resolve symlinks! Their result depends on where the symlink points to.
-					handleFileTypeCollision(transaction, clientRepositoryId, file, NormalFileDto.class);
+				beginPutFile(transaction, clientRepositoryId, path, file);
+			} finally {
+				ParentFileLastModifiedManager.getInstance().restoreParentFileLastModified(parentFile);
+			}
+			transaction.commit();
+		}
+	}
 
-				if (file.isSymbolicLink() || (file.exists() && !file.isFile())) // the default implementation of handleFileTypeCollision(...) moves the file away.
-					throw new IllegalStateException("Could not rename file! It is still in the way: " + file);
+	/**
+	 * Prepares the given {@code file} for being written and marks it as being in progress.
+	 * <p>
+	 * This is the transactional part of {@link #beginPutFile(String)}. It is shared with {@link #putFiles(PutFileDtoList)}.
+	 * @param transaction the current write-transaction. Must not be <code>null</code>.
+	 * @param clientRepositoryId the ID of the repository from which the file is copied. Must not be <code>null</code>.
+	 * @param path the prefixed path of the file.
+	 * @param file the file to be written. Must not be <code>null</code>.
+	 * @return the {@link NormalFile} representing the given {@code file} in the DB. Never <code>null</code>.
+	 */
+	private NormalFile beginPutFile(final LocalRepoTransaction transaction, final UUID clientRepositoryId, final String path, final File file) {
+		if (file.isSymbolicLink() || (file.exists() && !file.isFile())) // exists() and isFile() both resolve symlinks! Their result depends on where the symlink points to.
+			handleFileTypeCollision(transaction, clientRepositoryId, file, NormalFileDto.class);
 
-				final File localRoot = getLocalRepoManager().getLocalRoot();
-				assertNoDeleteModificationCollision(transaction, clientRepositoryId, path);
+		if (file.isSymbolicLink() || (file.exists() && !file.isFile())) // the default implementation of handleFileTypeCollision(...) moves the file away.
+			throw new IllegalStateException("Could not rename file! It is still in the way: " + file);
 
-				boolean newFile = false;
-				if (!file.isFile()) {
-					newFile = true;
-					try {
-						file.createNewFile();
-					} catch (final IOException e) {
-						throw new RuntimeException(e);
-					}
-				}
+		final File localRoot = getLocalRepoManager().getLocalRoot();
+		assertNoDeleteModificationCollision(transaction, clientRepositoryId, path);
 
-				if (!file.isFile())
-					throw new IllegalStateException("Could not create file (permissions?!): " + file);
+		boolean newFile = false;
+		if (!file.isFile()) {
+			newFile = true;
+			try {
+				file.createNewFile();
+			} catch (final IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
 
-				// A complete sync run might take very long. Therefore, we better update our local meta-data
-				// *immediately* before beginning the sync of this file and before detecting a collision.
-				// Furthermore, maybe the file is new and there's no meta-data, yet, hence we must do this anyway.
+		if (!file.isFile())
+			throw new IllegalStateException("Could not create file (permissions?!): " + file);
+
+		// A complete sync run might take very long. Therefore, we better update our local meta-data
+		// *immediately* before beginning the sync of this file and before detecting a collision.
+		// Furthermore, maybe the file is new and there's no meta-data, yet, hence we must do this anyway.
 //				final RepoFileDao repoFileDao = transaction.getDao(RepoFileDao.class);
 //				LocalRepoSync.create(transaction).sync(file, new NullProgressMonitor(), false); // recursiveChildren has no effect on simple files, anyway (it's no directory).
 
-				tempChunkFileManager.deleteTempChunkFilesWithoutDtoFile(tempChunkFileManager.getOffset2TempChunkFileWithDtoFile(file).values());
+		tempChunkFileManager.deleteTempChunkFilesWithoutIndex(file);
 
-				final RepoFile repoFile = syncRepoFile(transaction, file);
-				if (repoFile == null)
-					throw new IllegalStateException("LocalRepoSync.sync(...) did not create the RepoFile for file: " + file);
+		final RepoFile repoFile = syncRepoFile(transaction, file);
+		if (repoFile == null)
+			throw new IllegalStateException("LocalRepoSync.sync(...) did not create the RepoFile for file: " + file);
 
-				if (!(repoFile instanceof NormalFile))
-					throw new IllegalStateException("LocalRepoSync.sync(...) created an instance of " + repoFile.getClass().getName() + " instead  of a NormalFile for file: " + file);
+		if (!(repoFile instanceof NormalFile))
+			throw new IllegalStateException("LocalRepoSync.sync(...) created an instance of " + repoFile.getClass().getName() + " instead  of a NormalFile for file: " + file);
 
-				final NormalFile normalFile = (NormalFile) repoFile;
+		final NormalFile normalFile = (NormalFile) repoFile;
 
-				if (!newFile && !normalFile.isInProgress())
-					detectAndHandleFileCollision(transaction, clientRepositoryId, file, normalFile);
+		if (!newFile && !normalFile.isInProgress())
+			detectAndHandleFileCollision(transaction, clientRepositoryId, file, normalFile);
 
-				normalFile.setLastSyncFromRepositoryId(clientRepositoryId);
-				normalFile.setInProgress(true);
-			} finally {
-				ParentFileLastModifiedManager.getInstance().restoreParentFileLastModified(parentFile);
-			}
-			transaction.commit();
-		}
+		normalFile.setLastSyncFromRepositoryId(clientRepositoryId);
+		normalFile.setInProgress(true);
+		return normalFile;
 	}
 
 	/**
@@ -898,7 +980,14 @@ public class FileRepoTransport extends AbstractRepoTransport implements LocalRep
 	}
 
 	@Override
-	public void putFileData(String path, final long offset, final byte[] fileData) {
+	public void putFileData(final String path, final long offset, final byte[] fileData) {
+		assertNotNull("fileData", fileData);
+		putFileData(path, offset, new ByteArrayInputStream(fileData), fileData.length);
+	}
+
+	@Override
+	public void putFileData(String path, final long offset, final InputStream in, final int length) {
+		assertNotNull("in", in);
 		path = prefixPath(path);
 		final File file = getFile(path);
 		final File parentFile = file.getParentFile();
@@ -924,11 +1013,11 @@ public class FileRepoTransport extends AbstractRepoTransport implements LocalRep
 				logger.debug("putFileData: fileWriteStrategy={}", fileWriteStrategy);
 				switch (fileWriteStrategy) {
 					case directDuringTransfer:
-						writeFileDataToDestFile(file, offset, fileData);
+						writeFileDataToDestFile(file, offset, in, length);
 						break;
 					case directAfterTransfer:
 					case replaceAfterTransfer:
-						tempChunkFileManager.writeFileDataToTempChunkFile(file, offset, fileData);
+						tempChunkFileManager.writeFileDataToTempChunkFile(file, offset, in, length);
 						break;
 					default:
 						throw new IllegalStateException("Unknown fileWriteStrategy: " + fileWriteStrategy);
@@ -940,57 +1029,161 @@ public class FileRepoTransport extends AbstractRepoTransport implements LocalRep
 		}
 	}
 
-	private void writeTempChunkFileToDestFile(final File destFile, final File tempChunkFile, final TempChunkFileDto tempChunkFileDto) {
-		AssertUtil.assertNotNull("destFile", destFile);
-		AssertUtil.assertNotNull("tempChunkFile", tempChunkFile);
-		AssertUtil.assertNotNull("tempChunkFileDto", tempChunkFileDto);
-		final long offset = AssertUtil.assertNotNull("tempChunkFileDto.fileChunkDto", tempChunkFileDto.getFileChunkDto()).getOffset();
-		final byte[] fileData = new byte[(int) tempChunkFile.length()];
-		try {
-			final InputStream in = tempChunkFile.createInputStream();
-			try {
-				int off = 0;
-				while (off < fileData.length) {
-					final int bytesRead = in.read(fileData, off, fileData.length - off);
-					if (bytesRead > 0) {
-						off += bytesRead;
-					}
-					else if (bytesRead < 0) {
-						throw new IllegalStateException("InputStream ended before expected file length!");
-					}
-				}
-				if (off > fileData.length || in.read() != -1)
-					throw new IllegalStateException("InputStream contained more data than expected file length!");
-			} finally {
-				in.close();
-			}
-		} catch (final IOException e) {
-			throw new RuntimeException(e);
+	@Override
+	public FileChunkDtoList putFileDataFromExistingChunks(final String path, final FileChunkDtoList fileChunkDtoList) {
+		assertNotNull("path", path);
+		assertNotNull("fileChunkDtoList", fileChunkDtoList);
+		final FileChunkDtoList result = new FileChunkDtoList();
+		long bytesReused = 0;
+		for (final FileChunkDto fileChunkDto : fileChunkDtoList.getFileChunkDtos()) {
+			assertNotNull("fileChunkDto", fileChunkDto);
+			final byte[] fileData = readExistingFileChunkData(fileChunkDto);
+			if (fileData == null)
+				continue;
+
+			putFileData(path, fileChunkDto.getOffset(), fileData);
+			result.getFileChunkDtos().add(fileChunkDto);
+			bytesReused += fileData.length;
 		}
+		logger.debug("putFileDataFromExistingChunks: Reused {} of {} chunks with together {} bytes. path='{}'",
+				result.getFileChunkDtos().size(), fileChunkDtoList.getFileChunkDtos().size(), bytesReused, path);
+		return result;
+	}
 
-		final String sha1FromDtoFile = tempChunkFileDto.getFileChunkDto().getSha1();
-		final String sha1FromFileData = sha1(fileData);
+	@Override
+	public void deleteTempFileChunks(String path, final FileChunkDtoList fileChunkDtoList) {
+		assertNotNull("fileChunkDtoList", fileChunkDtoList);
+		path = prefixPath(path);
+		final File file = getFile(path);
+		final List<Long> offsets = new ArrayList<>(fileChunkDtoList.getFileChunkDtos().size());
+		for (final FileChunkDto fileChunkDto : fileChunkDtoList.getFileChunkDtos())
+			offsets.add(assertNotNull("fileChunkDto", fileChunkDto).getOffset());
+
+		tempChunkFileManager.deleteTempChunks(file, offsets);
+	}
+
+	@Override
+	public FileDataSignatureDto getFileDataSignatureDto(String path, final long offset, final int length) {
+		path = prefixPath(path);
+		final File file = getFile(path);
+		if (!file.isFile())
+			return null;
 
-		logger.trace("writeTempChunkFileToDestFile: Read {} bytes with SHA1 '{}' from '{}'.", fileData.length, sha1FromFileData, tempChunkFile.getAbsolutePath());
+		final int existingLength = (int) Math.min(length, file.length() - offset);
+		if (existingLength < FileDataDeltaCalculator.BLOCK_LENGTH)
+			return null;
 
-		if (!sha1FromFileData.equals(sha1FromDtoFile))
-			throw new IllegalStateException("SHA1 mismatch! Corrupt temporary chunk file or corresponding Dto file: " + tempChunkFile.getAbsolutePath());
+		final byte[] existingData = readFileData(file, offset, existingLength);
+		if (existingData == null)
+			return null;
 
-		writeFileDataToDestFile(destFile, offset, fileData);
+		return FileDataDeltaCalculator.createFileDataSignatureDto(existingData, offset);
 	}
 
-	private void writeFileDataToDestFile(final File destFile, final long offset, final byte[] fileData) {
-		AssertUtil.assertNotNull("destFile", destFile);
-		AssertUtil.assertNotNull("fileData", fileData);
+	@Override
+	public FileDataDeltaDto getFileDataDeltaDto(final String path, final long offset, final int length, final FileDataSignatureDto fileDataSignatureDto) {
+		assertNotNull("fileDataSignatureDto", fileDataSignatureDto);
+		final byte[] fileData = getFileData(path, offset, length);
+		if (fileData == null)
+			return null;
+
+		return FileDataDeltaCalculator.createFileDataDeltaDto(fileDataSignatureDto, fileData, offset);
+	}
+
+	/**
+	 * Reads the data of a chunk existing somewhere in this repository, which is identical to the given one.
+	 * <p>
+	 * The chunks are looked up in the DB, but the files might have been modified since the last local sync
+	 * (or even during this transfer, if it is the file being written). Therefore, the data is verified.
+	 * @param fileChunkDto the chunk whose data is needed. Must not be <code>null</code>.
+	 * @return the data or <code>null</code>, if no identical chunk exists.
+	 */
+	private byte[] readExistingFileChunkData(final FileChunkDto fileChunkDto) {
+		final String sha1 = assertNotNull("fileChunkDto.sha1", fileChunkDto.getSha1());
+		final int length = fileChunkDto.getLength();
+		if (length <= 0)
+			return null;
+
+		final File localRoot = getLocalRepoManager().getLocalRoot();
+		final Map<File, Long> file2Offset = new LinkedHashMap<>();
+		try ( final LocalRepoTransaction transaction = getLocalRepoManager().beginReadTransaction(); ) {
+			final List<FileChunk> fileChunks = transaction.getDao(FileChunkDao.class).getFileChunks(sha1, length, MAX_EXISTING_FILE_CHUNK_CANDIDATE_COUNT);
+			for (final FileChunk fileChunk : fileChunks)
+				file2Offset.put(fileChunk.getNormalFile().getFile(localRoot), fileChunk.getOffset());
+
+			transaction.commit();
+		}
+
+		// Reading the files outside of the transaction - we do not need the DB anymore.
+		for (final Map.Entry<File, Long> me : file2Offset.entrySet()) {
+			final File file = me.getKey();
+			final long offset = me.getValue();
+			final byte[] fileData = readFileData(file, offset, length);
+			if (fileData != null && sha1.equals(sha1(fileData)))
+				return fileData;
+
+			logger.debug("readExistingFileChunkData: Chunk was modified: file='{}' offset={} sha1='{}'", file, offset, sha1);
+		}
+		return null;
+	}
+
+	private byte[] readFileData(final File file, final long offset, final int length) {
 		try {
-			final RandomAccessFile raf = destFile.createRandomAccessFile("rw");
+			final RandomAccessFile raf = file.createRandomAccessFile("r");
 			try {
+				if (raf.length() < offset + length)
+					return null;
+
+				final byte[] fileData = new byte[length];
 				raf.seek(offset);
-				raf.write(fileData);
+				raf.readFully(fileData);
+				return fileData;
 			} finally {
 				raf.close();
 			}
-			logger.trace("writeFileDataToDestFile: Wrote {} bytes at offset {} to '{}'.", fileData.length, offset, destFile.getAbsolutePath());
+		} catch (final FileNotFoundException x) { // deleted
+			return null;
+		} catch (final IOException x) {
+			throw new RuntimeException(x);
+		}
+	}
+
+	/**
+	 * Copies the given chunks from the temporary data file into the destination file.
+	 * <p>
+	 * The chunks were hashed while being received, already. They are therefore not read into memory and hashed
+	 * again, but transferred directly between the two files' channels.
+	 */
+	private void writeTempChunksToDestFile(final File destFile, final File tempChunkDataFile, final Collection<TempChunk> tempChunks) {
+		AssertUtil.assertNotNull("destFile", destFile);
+		AssertUtil.assertNotNull("tempChunkDataFile", tempChunkDataFile);
+		AssertUtil.assertNotNull("tempChunks", tempChunks);
+		try {
+			final RandomAccessFile in = tempChunkDataFile.createRandomAccessFile("r");
+			try {
+				final RandomAccessFile out = destFile.createRandomAccessFile("rw");
+				try {
+					final FileChannel inChannel = in.getChannel();
+					final FileChannel outChannel = out.getChannel();
+					for (final TempChunk tempChunk : tempChunks) {
+						long transferred = 0;
+						while (transferred < tempChunk.getLength()) {
+							final long bytesTransferred = inChannel.transferTo(
+									tempChunk.getDataOffset() + transferred, tempChunk.getLength() - transferred,
+									outChannel.position(tempChunk.getOffset() + transferred));
+							if (bytesTransferred <= 0)
+								throw new IllegalStateException("Temporary data file ended before expected length: " + tempChunkDataFile.getAbsolutePath());
+
+							transferred += bytesTransferred;
+						}
+						logger.trace("writeTempChunksToDestFile: Wrote {} bytes at offset {} to '{}'.", tempChunk.getLength(), tempChunk.getOffset(), destFile.getAbsolutePath());
+					}
+				} finally {
+					out.close();
+				}
+			} finally {
+				in.close();
+			}
 		} catch (final IOException e) {
 			throw new RuntimeException(e);
 		}
@@ -1029,118 +1222,387 @@ public class FileRepoTransport extends AbstractRepoTransport implements LocalRep
 		final File file = getFile(path);
 		final File parentFile = file.getParentFile();
 		final UUID clientRepositoryId = getClientRepositoryIdOrFail();
-		try ( final LocalRepoTransaction transaction = getLocalRepoManager().beginWriteTransaction(); ) {
-			ParentFileLastModifiedManager.getInstance().backupParentFileLastModified(parentFile);
-			try {
-				final RepoFile repoFile = transaction.getDao(RepoFileDao.class).getRepoFile(getLocalRepoManager().getLocalRoot(), file);
-				if (!(repoFile instanceof NormalFile)) {
-					throw new IllegalStateException(String.format("RepoFile is not an instance of NormalFile! repoFile=%s file=%s",
-							repoFile, file));
+		ParentFileLastModifiedManager.getInstance().backupParentFileLastModified(parentFile);
+		try {
+			// The file is written and hashed outside of the write-transaction: This bulk I/O might take very long
+			// and must not block other transactions.
+			final long expectedFileLastModified;
+			final long expectedFileLength;
+			try ( final LocalRepoTransaction transaction = getLocalRepoManager().beginReadTransaction(); ) {
+				final NormalFile normalFile = getNormalFileInProgressOrFail(transaction, file);
+				expectedFileLastModified = normalFile.getLastModified().getTime();
+				expectedFileLength = normalFile.getLength();
+				transaction.commit();
+			}
+
+			// But it is written while holding the file's temp-chunk-lock: Neither chunks of a concurrent transfer of
+			// the same file (e.g. from another client) nor a concurrent endPutFile(...) must interfere. A concurrent
+			// LocalRepoSync skips the file, while it is locked.
+			final FileHash fileHash = tempChunkFileManager.callLocked(file, new Callable<FileHash>() {
+				@Override
+				public FileHash call() throws Exception {
+					assertFileNotModifiedLocally(file, expectedFileLastModified, expectedFileLength);
+					final FileHash fileHash = writeTempChunksToFile(file, lastModified, length, sha1);
+					if (fileHash != null)
+						return fileHash;
+
+					return LocalRepoSync.hash(file, getFileChunkingStrategy(), new NullProgressMonitor());
 				}
+			});
 
-				final NormalFile normalFile = (NormalFile) repoFile;
-				if (!normalFile.isInProgress())
-					throw new IllegalStateException(String.format("NormalFile.inProgress == false! beginPutFile(...) not called?! repoFile=%s file=%s",
-							repoFile, file));
+			try ( final LocalRepoTransaction transaction = getLocalRepoManager().beginWriteTransaction(); ) {
+				// Check again: The file might have been completed by someone else, while it was written.
+				final NormalFile normalFile = getNormalFileInProgressOrFail(transaction, file);
+				endPutFile(transaction, clientRepositoryId, file, normalFile, lastModified, sha1, fileHash);
+				normalFile.setInProgress(false);
+				transaction.commit();
+			}
+		} catch (final RuntimeException x) {
+			throw x;
+		} catch (final Exception x) {
+			throw new RuntimeException(x);
+		} finally {
+			ParentFileLastModifiedManager.getInstance().restoreParentFileLastModified(parentFile);
+		}
+	}
 
-				final FileWriteStrategy fileWriteStrategy = getFileWriteStrategy(file);
-				logger.debug("endPutFile: fileWriteStrategy={}", fileWriteStrategy);
+	/**
+	 * Gets the {@link NormalFile} of the given {@code file}, which must still be in progress.
+	 * <p>
+	 * A {@link LocalRepoSync} ends the transfer, if it finds the file modified or deleted locally (see
+	 * {@link #assertFileNotModifiedLocally(File, long, long)}). The file must then not be overwritten.
+	 * @throws FileDataMismatchException if the file is not in progress (anymore).
+	 */
+	private NormalFile getNormalFileInProgressOrFail(final LocalRepoTransaction transaction, final File file) {
+		final RepoFile repoFile = transaction.getDao(RepoFileDao.class).getRepoFile(getLocalRepoManager().getLocalRoot(), file);
+		if (!(repoFile instanceof NormalFile) || !((NormalFile) repoFile).isInProgress())
+			throw new FileDataMismatchException(String.format("File is not in progress - modified or deleted locally during the transfer?! repoFile=%s file=%s",
+					repoFile, file));
 
-				final File destFile = (fileWriteStrategy == FileWriteStrategy.replaceAfterTransfer
-						? createFile(file.getParentFile(), LocalRepoManager.TEMP_NEW_FILE_PREFIX + file.getName()) : file);
+		return (NormalFile) repoFile;
+	}
 
-				final InputStream fileIn;
-				if (destFile != file) {
-					try {
-						fileIn = file.createInputStream();
-						destFile.createNewFile();
-					} catch (final IOException e) {
-						throw new RuntimeException(e);
-					}
-				}
-				else
-					fileIn = null;
-
-				final TempChunkFileDtoIo tempChunkFileDtoIo = new TempChunkFileDtoIo();
-				long destFileWriteOffset = 0;
-				// tempChunkFileWithDtoFiles are sorted by offset (ascending)
-				final Collection<TempChunkFileWithDtoFile> tempChunkFileWithDtoFiles = tempChunkFileManager.getOffset2TempChunkFileWithDtoFile(file).values();
-				logger.debug("endPutFile: #tempChunkFileWithDtoFiles={}", tempChunkFileWithDtoFiles.size());
-				for (final TempChunkFileWithDtoFile tempChunkFileWithDtoFile : tempChunkFileWithDtoFiles) {
-					final File tempChunkFile = tempChunkFileWithDtoFile.getTempChunkFile(); // tempChunkFile may be null!!!
-					final File tempChunkFileDtoFile = tempChunkFileWithDtoFile.getTempChunkFileDtoFile();
-					if (tempChunkFileDtoFile == null)
-						throw new IllegalStateException("No meta-data (tempChunkFileDtoFile) for file: " + (tempChunkFile == null ? null : tempChunkFile.getAbsolutePath()));
-
-					final TempChunkFileDto tempChunkFileDto = tempChunkFileDtoIo.deserialize(tempChunkFileDtoFile);
-					final long offset = AssertUtil.assertNotNull("tempChunkFileDto.fileChunkDto", tempChunkFileDto.getFileChunkDto()).getOffset();
-
-					if (fileIn != null) {
-						// The following might fail, if *file* was truncated during the transfer. In this case,
-						// throwing an exception now is probably the best choice as the next sync run will
-						// continue cleanly.
-						logger.info("endPutFile: writing from fileIn into destFile {}", destFile.getName());
-						writeFileDataToDestFile(destFile, destFileWriteOffset, fileIn, offset - destFileWriteOffset);
-						final long tempChunkFileLength = tempChunkFileDto.getFileChunkDto().getLength();
-						skipOrFail(fileIn, tempChunkFileLength); // skipping beyond the EOF is supported by the FileInputStream according to Javadoc.
-						destFileWriteOffset = offset + tempChunkFileLength;
-					}
+	/**
+	 * Makes sure, the given {@code file} was not modified locally, since {@link #beginPutFile(String)} synced it.
+	 * <p>
+	 * Unless it is written directly during the transfer, the file is not touched before {@code endPutFile(...)}.
+	 * If it differs from its {@link NormalFile}, it was modified locally, but no {@link LocalRepoSync} recorded
+	 * this modification, yet. Overwriting it would lose the modification without any collision being detected.
+	 * @throws FileDataMismatchException if the file was modified locally. It is then not overwritten.
+	 */
+	private void assertFileNotModifiedLocally(final File file, final long expectedLastModified, final long expectedLength) {
+		if (getFileWriteStrategy(file) == FileWriteStrategy.directDuringTransfer)
+			return;
 
-					if (tempChunkFile != null && tempChunkFile.exists()) {
-						logger.info("endPutFile: writing tempChunkFile {} into destFile {}", tempChunkFile.getName(), destFile.getName());
-						writeTempChunkFileToDestFile(destFile, tempChunkFile, tempChunkFileDto);
-						deleteOrFail(tempChunkFile);
-					}
-				}
+		if (file.lastModified() != expectedLastModified || file.length() != expectedLength)
+			throw new FileDataMismatchException(String.format("File was modified locally during the transfer! lastModified=%s length=%s expectedLastModified=%s expectedLength=%s file='%s'",
+					file.lastModified(), file.length(), expectedLastModified, expectedLength, file));
+	}
 
-				if (fileIn != null && destFileWriteOffset < length)
-					writeFileDataToDestFile(destFile, destFileWriteOffset, fileIn, length - destFileWriteOffset);
+	/**
+	 * Writes the temporarily stored chunks into the given {@code file} and deletes them afterwards.
+	 * <p>
+	 * If the chunks make up the entire file, it is not read again for hashing: The SHA1s of the chunks are known
+	 * already and the SHA1 of the entire file was calculated while the chunks were received. If, additionally, the
+	 * {@link FileWriteStrategy#replaceAfterTransfer replaceAfterTransfer} strategy is used and the chunks are
+	 * located in the temporary data file exactly as in the file, the data file is simply renamed.
+	 * @return the hashes of the written file, or <code>null</code>, if they are not known and the file must be hashed.
+	 */
+	private FileHash writeTempChunksToFile(final File file, final Date lastModified, final long length, final String sha1) throws IOException {
+		final FileWriteStrategy fileWriteStrategy = getFileWriteStrategy(file);
+		logger.debug("endPutFile: fileWriteStrategy={}", fileWriteStrategy);
+
+		// tempChunks are sorted by offset (ascending)
+		final Collection<TempChunk> tempChunks = tempChunkFileManager.getOffset2TempChunk(file).values();
+		logger.debug("endPutFile: #tempChunks={}", tempChunks.size());
+		assertTempChunksNotOverlapping(file, tempChunks, length);
+
+		final boolean complete = isCompleteFile(tempChunks, length);
+		final String fileSha1 = complete ? tempChunkFileManager.getFileSha1(file, length) : null;
+
+		if (complete && fileWriteStrategy == FileWriteStrategy.replaceAfterTransfer && isDataFileInFileOrder(tempChunks)) {
+			final File tempChunkDataFile = tempChunkFileManager.getTempChunkDataFile(file);
+			logger.info("endPutFile: renaming tempChunkDataFile {} to destFile {}", tempChunkDataFile.getName(), file.getName());
+			final RandomAccessFile raf = tempChunkDataFile.createRandomAccessFile("rw");
+			try {
+				raf.setLength(length); // superseded chunks might follow
+			} finally {
+				raf.close();
+			}
+			replaceFile(tempChunkDataFile, file);
+		}
+		else
+			writeTempChunksToFile(file, length, fileWriteStrategy, tempChunks);
 
-				try {
-					final RandomAccessFile raf = destFile.createRandomAccessFile("rw");
-					try {
-						raf.setLength(length);
-					} finally {
-						raf.close();
-					}
-				} catch (final IOException e) {
-					throw new RuntimeException(e);
-				}
+		tempChunkFileManager.deleteTempChunkFiles(file);
+		tempChunkFileManager.deleteTempDirIfEmpty(file);
 
-				if (destFile != file) {
-					deleteOrFail(file);
-					destFile.renameTo(file);
-					if (!file.exists())
-						throw new IllegalStateException(String.format("Renaming the file from '%s' to '%s' failed: The destination file does not exist.", destFile.getAbsolutePath(), file.getAbsolutePath()));
+		file.setLastModified(lastModified.getTime());
+
+		if (fileSha1 == null || !isFileChunkingStrategyMatching(tempChunks))
+			return null;
+
+		if (sha1 != null && !sha1.equals(fileSha1)) {
+			logger.warn("endPutFile: SHA1 calculated from received chunks does not match! Hashing file again: expectedSha1='{}' foundSha1='{}' file='{}'",
+					sha1, fileSha1, file);
+			return null;
+		}
+
+		final List<FileChunkDto> fileChunkDtos = new ArrayList<>(tempChunks.size());
+		for (final TempChunk tempChunk : tempChunks)
+			fileChunkDtos.add(tempChunk.toFileChunkDto());
+
+		return FileHash.create(file, fileSha1, fileChunkDtos);
+	}
+
+	private void writeTempChunksToFile(final File file, final long length, final FileWriteStrategy fileWriteStrategy, final Collection<TempChunk> tempChunks) throws IOException {
+		final File destFile = (fileWriteStrategy == FileWriteStrategy.replaceAfterTransfer
+				? createFile(file.getParentFile(), LocalRepoManager.TEMP_NEW_FILE_PREFIX + file.getName()) : file);
+
+		final InputStream fileIn;
+		if (destFile != file) {
+			fileIn = file.createInputStream();
+			destFile.createNewFile();
+		}
+		else
+			fileIn = null;
 
-					if (destFile.exists())
-						throw new IllegalStateException(String.format("Renaming the file from '%s' to '%s' failed: The source file still exists.", destFile.getAbsolutePath(), file.getAbsolutePath()));
+		try {
+			long destFileWriteOffset = 0;
+			for (final TempChunk tempChunk : tempChunks) {
+				final long offset = tempChunk.getOffset();
+
+				if (fileIn != null) {
+					// The following might fail, if *file* was truncated during the transfer. In this case,
+					// throwing an exception now is probably the best choice as the next sync run will
+					// continue cleanly.
+					logger.info("endPutFile: writing from fileIn into destFile {}", destFile.getName());
+					writeFileDataToDestFile(destFile, destFileWriteOffset, fileIn, offset - destFileWriteOffset);
+					skipOrFail(fileIn, tempChunk.getLength()); // skipping beyond the EOF is supported by the FileInputStream according to Javadoc.
+					destFileWriteOffset = offset + tempChunk.getLength();
 				}
+			}
+			if (!tempChunks.isEmpty()) {
+				logger.info("endPutFile: writing {} tempChunks into destFile {}", tempChunks.size(), destFile.getName());
+				writeTempChunksToDestFile(destFile, tempChunkFileManager.getTempChunkDataFile(file), tempChunks);
+			}
+
+			if (fileIn != null && destFileWriteOffset < length)
+				writeFileDataToDestFile(destFile, destFileWriteOffset, fileIn, length - destFileWriteOffset);
+		} finally {
+			if (fileIn != null)
+				fileIn.close();
+		}
+
+		final RandomAccessFile raf = destFile.createRandomAccessFile("rw");
+		try {
+			raf.setLength(length);
+		} finally {
+			raf.close();
+		}
 
-				tempChunkFileManager.deleteTempChunkFiles(tempChunkFileWithDtoFiles);
+		if (destFile != file)
+			replaceFile(destFile, file);
+	}
+
+	/**
+	 * Makes sure, the given chunks neither overlap each other nor extend beyond the end of the file.
+	 * <p>
+	 * Otherwise, some of them are stale - left from an interrupted transfer of an older version of the file - and
+	 * writing them would corrupt the file. They are then all discarded and the transfer must be repeated.
+	 */
+	private void assertTempChunksNotOverlapping(final File file, final Collection<TempChunk> tempChunks, final long length) {
+		long nextOffset = 0;
+		for (final TempChunk tempChunk : tempChunks) {
+			if (tempChunk.getOffset() < nextOffset || tempChunk.getOffset() + tempChunk.getLength() > length) {
+				tempChunkFileManager.deleteTempChunkFiles(file);
 				tempChunkFileManager.deleteTempDirIfEmpty(file);
+				throw new FileDataMismatchException(String.format("Temporary chunk at offset %s overlaps another chunk or the end of the file! length=%s file='%s'",
+						tempChunk.getOffset(), length, file));
+			}
+			nextOffset = tempChunk.getOffset() + tempChunk.getLength();
+		}
+	}
 
-				final LocalRepoSync localRepoSync = LocalRepoSync.create(transaction);
-				file.setLastModified(lastModified.getTime());
-				localRepoSync.updateRepoFile(normalFile, file, new NullProgressMonitor());
-				normalFile.setLastSyncFromRepositoryId(clientRepositoryId);
-				normalFile.setInProgress(false);
+	/**
+	 * Determines whether the given chunks make up the entire file - without any gap.
+	 */
+	private static boolean isCompleteFile(final Collection<TempChunk> tempChunks, final long length) {
+		if (tempChunks.isEmpty())
+			return false;
 
-				logger.trace("endPutFile: Committing: sha1='{}' file='{}'", normalFile.getSha1(), file);
-				if (sha1 != null && !sha1.equals(normalFile.getSha1())) {
-					logger.warn("endPutFile: File was modified during transport (either on source or destination side): expectedSha1='{}' foundSha1='{}' file='{}'",
-							sha1, normalFile.getSha1(), file);
-				}
+		long nextOffset = 0;
+		for (final TempChunk tempChunk : tempChunks) {
+			if (tempChunk.getOffset() != nextOffset)
+				return false;
+
+			nextOffset += tempChunk.getLength();
+		}
+		return nextOffset == length;
+	}
+
+	private static boolean isDataFileInFileOrder(final Collection<TempChunk> tempChunks) {
+		for (final TempChunk tempChunk : tempChunks) {
+			if (tempChunk.getDataOffset() != tempChunk.getOffset())
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Determines whether the given chunks are split exactly as {@link LocalRepoSync} would split the file. Only
+	 * then, they can be used as the file's chunks instead of hashing the file.
+	 */
+	private boolean isFileChunkingStrategyMatching(final Collection<TempChunk> tempChunks) {
+		if (getFileChunkingStrategy() != FileChunkingStrategy.fixed)
+			return false; // the boundaries depend on the content => we'd need to read the file
+
+		int index = 0;
+		for (final TempChunk tempChunk : tempChunks) {
+			final boolean last = ++index == tempChunks.size();
+			if (last ? tempChunk.getLength() > FileChunkDto.MAX_LENGTH : tempChunk.getLength() != FileChunkDto.MAX_LENGTH)
+				return false;
+		}
+		return true;
+	}
+
+	private FileChunkingStrategy getFileChunkingStrategy() {
+		return ConfigImpl.getInstanceForDirectory(getLocalRepoManager().getLocalRoot()).getPropertyAsEnum(
+				FileChunkingStrategy.CONFIG_KEY, FileChunkingStrategy.CONFIG_DEFAULT_VALUE);
+	}
 
-			} catch (IOException x) {
+	/**
+	 * Updates the meta-data of the given, completely written {@code file} in the DB.
+	 * <p>
+	 * This is the final part of {@link #endPutFile(String, Date, long, String)}. It is shared with {@link #putFiles(PutFileDtoList)}.
+	 * The caller marks the file as not being in progress anymore.
+	 * <p>
+	 * If the file's SHA1 does not match the given {@code sha1}, the file was modified during the transfer. This is only
+	 * logged: The meta-data reflects the file actually written and the next sync transfers the current version.
+	 */
+	private void endPutFile(final LocalRepoTransaction transaction, final UUID clientRepositoryId, final File file,
+			final NormalFile normalFile, final Date lastModified, final String sha1, final FileHash fileHash) {
+		final LocalRepoSync localRepoSync = LocalRepoSync.create(transaction);
+		file.setLastModified(lastModified.getTime());
+		if (fileHash != null)
+			localRepoSync.submitFileHash(fileHash);
+
+		localRepoSync.updateRepoFile(normalFile, file, new NullProgressMonitor());
+		normalFile.setLastSyncFromRepositoryId(clientRepositoryId);
+
+		logger.trace("endPutFile: Committing: sha1='{}' file='{}'", normalFile.getSha1(), file);
+		if (sha1 != null && !sha1.equals(normalFile.getSha1())) {
+			logger.warn("endPutFile: File was modified during transport (either on source or destination side): expectedSha1='{}' foundSha1='{}' file='{}'",
+					sha1, normalFile.getSha1(), file);
+		}
+	}
+
+	private void replaceFile(final File destFile, final File file) throws IOException {
+		deleteOrFail(file);
+		destFile.renameTo(file);
+		if (!file.exists())
+			throw new IllegalStateException(String.format("Renaming the file from '%s' to '%s' failed: The destination file does not exist.", destFile.getAbsolutePath(), file.getAbsolutePath()));
+
+		if (destFile.exists())
+			throw new IllegalStateException(String.format("Renaming the file from '%s' to '%s' failed: The source file still exists.", destFile.getAbsolutePath(), file.getAbsolutePath()));
+	}
+
+	@Override
+	public void putFiles(final PutFileDtoList putFileDtoList) {
+		assertNotNull("putFileDtoList", putFileDtoList);
+		final UUID clientRepositoryId = getClientRepositoryIdOrFail();
+		try ( final LocalRepoTransaction transaction = getLocalRepoManager().beginWriteTransaction(); ) {
+			for (final PutFileDto putFileDto : putFileDtoList.getPutFileDtos())
+				putFile(transaction, clientRepositoryId, putFileDto);
+
+			transaction.commit();
+		}
+	}
+
+	/**
+	 * Writes one complete file as part of {@link #putFiles(PutFileDtoList)}.
+	 * <p>
+	 * This is the same as {@link #beginPutFile(String)}, {@link #putFileData(String, long, byte[])} and
+	 * {@link #endPutFile(String, Date, long, String)}, but within the given transaction and without any
+	 * temporary chunk-files (there's only one single chunk).
+	 */
+	private void putFile(final LocalRepoTransaction transaction, final UUID clientRepositoryId, final PutFileDto putFileDto) {
+		assertNotNull("putFileDto", putFileDto);
+		final String path = prefixPath(assertNotNull("putFileDto.path", putFileDto.getPath()));
+		final Date lastModified = assertNotNull("putFileDto.lastModified", putFileDto.getLastModified());
+		final byte[] fileData = assertNotNull("putFileDto.fileData", putFileDto.getFileData());
+		if (fileData.length != putFileDto.getLength())
+			throw new IllegalArgumentException(String.format("putFileDto.fileData.length != putFileDto.length :: %s != %s :: path='%s'",
+					fileData.length, putFileDto.getLength(), path));
+
+		final File file = getFile(path);
+		final File parentFile = file.getParentFile();
+		ParentFileLastModifiedManager.getInstance().backupParentFileLastModified(parentFile);
+		try {
+			if (isFileExistingAndEqual(transaction, file, putFileDto)) {
+				logger.debug("putFile: File is already equal (sha1='{}'): {}", putFileDto.getSha1(), file);
+				return;
+			}
+
+			final NormalFile normalFile = beginPutFile(transaction, clientRepositoryId, path, file);
+
+			final FileWriteStrategy fileWriteStrategy = getFileWriteStrategy(file);
+			logger.debug("putFile: fileWriteStrategy={}", fileWriteStrategy);
+
+			final File destFile = (fileWriteStrategy == FileWriteStrategy.replaceAfterTransfer
+					? createFile(file.getParentFile(), LocalRepoManager.TEMP_NEW_FILE_PREFIX + file.getName()) : file);
+
+			// Like endPutFile(...), the file is written while holding its temp-chunk-lock.
+			try {
+				tempChunkFileManager.callLocked(file, new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						final RandomAccessFile raf = destFile.createRandomAccessFile("rw");
+						try {
+							raf.write(fileData);
+							raf.setLength(fileData.length);
+						} finally {
+							raf.close();
+						}
+						logger.trace("putFile: Wrote {} bytes to '{}'.", fileData.length, destFile.getAbsolutePath());
+
+						if (destFile != file)
+							replaceFile(destFile, file);
+
+						// There might be chunks left from an interrupted transfer. We wrote the entire file, hence they are obsolete.
+						tempChunkFileManager.deleteTempChunkFiles(file);
+						tempChunkFileManager.deleteTempDirIfEmpty(file);
+						return null;
+					}
+				});
+			} catch (final RuntimeException x) {
+				throw x;
+			} catch (final Exception x) {
 				throw new RuntimeException(x);
-			} finally {
-				ParentFileLastModifiedManager.getInstance().restoreParentFileLastModified(parentFile);
 			}
-			transaction.commit();
+
+			endPutFile(transaction, clientRepositoryId, file, normalFile, lastModified, putFileDto.getSha1(), null);
+			normalFile.setInProgress(false);
+		} finally {
+			ParentFileLastModifiedManager.getInstance().restoreParentFileLastModified(parentFile);
 		}
 	}
 
+	private boolean isFileExistingAndEqual(final LocalRepoTransaction transaction, final File file, final PutFileDto putFileDto) {
+		if (file.isSymbolicLink() || !file.isFile())
+			return false;
+
+		final RepoFile repoFile = syncRepoFile(transaction, file);
+		if (!(repoFile instanceof NormalFile))
+			return false;
+
+		final NormalFile normalFile = (NormalFile) repoFile;
+		return !normalFile.isInProgress()
+				&& normalFile.getLength() == putFileDto.getLength()
+				&& normalFile.getLastModified().getTime() == putFileDto.getLastModified().getTime()
+				&& putFileDto.getSha1() != null && putFileDto.getSha1().equals(normalFile.getSha1());
+	}
+
 	/**
 	 * Skip the given {@code length} number of bytes.
 	 * <p>
@@ -1193,28 +1655,14 @@ public class FileRepoTransport extends AbstractRepoTransport implements LocalRep
 		if (length < 0)
 			throw new IllegalArgumentException("length < 0");
 
-		long lengthDone = 0;
-
 		try {
 			final RandomAccessFile raf = destFile.createRandomAccessFile("rw");
 			try {
-				raf.seek(offset);
-
-				final byte[] buf = new byte[200 * 1024];
-
-				while (lengthDone < length) {
-					final long len = Math.min(length - lengthDone, buf.length);
-					final int bytesRead = in.read(buf, 0, (int)len);
-					if (bytesRead > 0) {
-						raf.write(buf, 0, bytesRead);
-						lengthDone += bytesRead;
-					}
-					else if (bytesRead < 0)
-						throw new IOException("Premature end of stream!");
-				}
+				transferStreamData(in, raf.getChannel(), offset, length);
 			} finally {
 				raf.close();
 			}
+			logger.trace("writeFileDataToDestFile: Wrote {} bytes at offset {} to '{}'.", length, offset, destFile.getAbsolutePath());
 		} catch (final IOException e) {
 			throw new RuntimeException(e);
 		}
@@ -1243,6 +1691,12 @@ public class FileRepoTransport extends AbstractRepoTransport implements LocalRep
 			final Collection<Modification> modifications = modificationDao.getModificationsBeforeOrEqual(
 					toRemoteRepository, lastSyncToRemoteRepo.getLocalRepositoryRevisionSynced());
 			modificationDao.deletePersistentAll(modifications);
+
+			// The shared modifications can only be deleted, after they were synced to *all* remote repositories.
+			final long minLocalRepositoryRevisionSynced = getMinLocalRepositoryRevisionSynced(transaction);
+			if (minLocalRepositoryRevisionSynced >= 0)
+				modificationDao.deletePersistentAll(modificationDao.getSharedModificationsBeforeOrEqual(minLocalRepositoryRevisionSynced));
+
 			pm.flush();
 
 			transferDoneMarkerDao.deleteRepoFileTransferDones(getRepositoryId(), clientRepositoryId);
@@ -1258,6 +1712,32 @@ public class FileRepoTransport extends AbstractRepoTransport implements LocalRep
 		}
 	}
 
+
+	/**
+	 * Gets the lowest local revision which was synced to all remote repositories.
+	 * <p>
+	 * A remote repository is never synced any shared modification created before it was
+	 * {@link RemoteRepository#getLocalRepositoryRevisionRegistered() registered}. Hence, its registration
+	 * revision counts as synced, too.
+	 * @return the minimum of all {@link LastSyncToRemoteRepo#getLocalRepositoryRevisionSynced() localRepositoryRevisionSynced}
+	 * (or registration revisions, if greater). -1, if at least one remote repository was never synced and its
+	 * registration revision is unknown.
+	 */
+	private long getMinLocalRepositoryRevisionSynced(final LocalRepoTransaction transaction) {
+		final LastSyncToRemoteRepoDao lastSyncToRemoteRepoDao = transaction.getDao(LastSyncToRemoteRepoDao.class);
+		long result = Long.MAX_VALUE;
+		for (final RemoteRepository remoteRepository : transaction.getDao(RemoteRepositoryDao.class).getObjects()) {
+			final LastSyncToRemoteRepo lastSyncToRemoteRepo = lastSyncToRemoteRepoDao.getLastSyncToRemoteRepo(remoteRepository);
+			final long localRepositoryRevisionSynced = lastSyncToRemoteRepo == null ? -1 : lastSyncToRemoteRepo.getLocalRepositoryRevisionSynced();
+			final long revision = Math.max(localRepositoryRevisionSynced, remoteRepository.getLocalRepositoryRevisionRegistered());
+			if (revision < 0)
+				return -1;
+
+			result = Math.min(result, revision);
+		}
+		return result == Long.MAX_VALUE ? -1 : result;
+	}
+
 	@Override
 	public void endSyncToRepository(final long fromLocalRevision) {
 		final UUID clientRepositoryId = getClientRepositoryIdOrFail();
@@ -1316,6 +1796,46 @@ public class FileRepoTransport extends AbstractRepoTransport implements LocalRep
 		}
 	}
 
+	@Override
+	public Map<Long, Long> getTransferDoneFromLocalRevisions(final UUID fromRepositoryId, final UUID toRepositoryId, final TransferDoneMarkerType transferDoneMarkerType) {
+		assertNotNull("transferDoneMarkerType", transferDoneMarkerType);
+		final Map<Long, Long> result = new HashMap<Long, Long>();
+		try ( final LocalRepoTransaction transaction = getLocalRepoManager().beginReadTransaction(); ) {
+			final TransferDoneMarkerDao dao = transaction.getDao(TransferDoneMarkerDao.class);
+			for (final TransferDoneMarker transferDoneMarker : dao.getRepoFileTransferDones(fromRepositoryId, toRepositoryId)) {
+				if (transferDoneMarkerType == transferDoneMarker.getTransferDoneMarkerType())
+					result.put(transferDoneMarker.getFromEntityId(), transferDoneMarker.getFromLocalRevision());
+			}
+			transaction.commit();
+		}
+		return result;
+	}
+
+	@Override
+	public void markTransferDone(final UUID fromRepositoryId, final UUID toRepositoryId, final TransferDoneMarkerType transferDoneMarkerType, final Map<Long, Long> fromEntityId2FromLocalRevision) {
+		assertNotNull("fromEntityId2FromLocalRevision", fromEntityId2FromLocalRevision);
+		if (fromEntityId2FromLocalRevision.isEmpty())
+			return;
+
+		try ( final LocalRepoTransaction transaction = getLocalRepoManager().beginWriteTransaction(); ) {
+			final TransferDoneMarkerDao dao = transaction.getDao(TransferDoneMarkerDao.class);
+			for (final Map.Entry<Long, Long> me : fromEntityId2FromLocalRevision.entrySet()) {
+				TransferDoneMarker transferDoneMarker = dao.getTransferDoneMarker(
+						fromRepositoryId, toRepositoryId, transferDoneMarkerType, me.getKey());
+				if (transferDoneMarker == null) {
+					transferDoneMarker = new TransferDoneMarker();
+					transferDoneMarker.setFromRepositoryId(fromRepositoryId);
+					transferDoneMarker.setToRepositoryId(toRepositoryId);
+					transferDoneMarker.setTransferDoneMarkerType(transferDoneMarkerType);
+					transferDoneMarker.setFromEntityId(me.getKey());
+				}
+				transferDoneMarker.setFromLocalRevision(me.getValue());
+				dao.makePersistent(transferDoneMarker);
+			}
+			transaction.commit();
+		}
+	}
+
 	@Override
 	public Set<String> getFileInProgressPaths(final UUID fromRepository, final UUID toRepository) {
 		try (final LocalRepoTransaction transaction = getLocalRepoManager().beginReadTransaction();) {
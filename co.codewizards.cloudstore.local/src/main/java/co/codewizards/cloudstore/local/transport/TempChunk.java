@@ -0,0 +1,62 @@
+package co.codewizards.cloudstore.local.transport;
+
+import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+
+import co.codewizards.cloudstore.core.dto.FileChunkDto;
+
+/**
+ * A chunk received for a destination file and stored temporarily by the {@link TempChunkFileManager}.
+ * <p>
+ * Instances are immutable. They are read from the binary index of the temporary chunk store.
+ */
+public class TempChunk {
+
+	private final long offset;
+	private final int length;
+	private final String sha1;
+	private final long dataOffset;
+
+	public TempChunk(final long offset, final int length, final String sha1, final long dataOffset) {
+		this.offset = offset;
+		this.length = length;
+		this.sha1 = assertNotNull("sha1", sha1);
+		this.dataOffset = dataOffset;
+	}
+
+	/**
+	 * Gets the offset of this chunk in the destination file.
+	 * @return the offset of this chunk in the destination file.
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	public String getSha1() {
+		return sha1;
+	}
+
+	/**
+	 * Gets the offset of this chunk's data in the {@linkplain TempChunkFileManager#getTempChunkDataFile(co.codewizards.cloudstore.core.oio.File) temporary data file}.
+	 * @return the offset of this chunk's data in the temporary data file.
+	 */
+	public long getDataOffset() {
+		return dataOffset;
+	}
+
+	public FileChunkDto toFileChunkDto() {
+		final FileChunkDto fileChunkDto = new FileChunkDto();
+		fileChunkDto.setOffset(offset);
+		fileChunkDto.setLength(length);
+		fileChunkDto.setSha1(sha1);
+		return fileChunkDto;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[offset=" + offset + ", length=" + length + ", sha1=" + sha1 + ", dataOffset=" + dataOffset + ']';
+	}
+}
@@ -3,33 +3,152 @@ package co.codewizards.cloudstore.local.transport;
 import static co.codewizards.cloudstore.core.objectfactory.ObjectFactoryUtil.*;
 import static co.codewizards.cloudstore.core.oio.OioFileFactory.*;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import co.codewizards.cloudstore.core.dto.FileChunkDto;
-import co.codewizards.cloudstore.core.dto.TempChunkFileDto;
-import co.codewizards.cloudstore.core.dto.jaxb.TempChunkFileDtoIo;
 import co.codewizards.cloudstore.core.oio.File;
 import co.codewizards.cloudstore.core.repo.local.LocalRepoManager;
 import co.codewizards.cloudstore.core.util.AssertUtil;
 import co.codewizards.cloudstore.core.util.HashUtil;
 import co.codewizards.cloudstore.core.util.IOUtil;
 
+/**
+ * Stores the chunks received for a destination file temporarily, until the transfer of this file is complete.
+ * <p>
+ * All chunks of one destination file are appended to one single {@linkplain #getTempChunkDataFile(File) data file}.
+ * For every chunk, a fixed-size record (offset, length, SHA1 and position in the data file) is appended to a
+ * compact binary {@linkplain #getTempChunkIndexFile(File) index file} - <i>after</i> the chunk's data was written.
+ * Thus, the index only references complete chunks. If the same chunk is received again, its new record supersedes
+ * the older one. Likewise, a chunk is {@linkplain #deleteTempChunks(File, Collection) discarded} by appending a
+ * record marking it as deleted.
+ * <p>
+ * Writing into the temporary files is guarded by a lock per destination file: Chunks of different files are
+ * written concurrently. Chunks of the same file reserve their region in the data file inside the lock, but
+ * transfer their data outside of it.
+ * <p>
+ * The SHA1 of the entire destination file is calculated incrementally, while the chunks are received: A chunk
+ * continuing the already hashed part of the file is hashed on the fly. A chunk received out of order is hashed
+ * (read back from the data file) as soon as the gap before it is closed. See {@link #getFileSha1(File, long)}.
+ */
 public class TempChunkFileManager {
 
 	private static final Logger logger = LoggerFactory.getLogger(TempChunkFileManager.class);
 
-	private static final String TEMP_CHUNK_FILE_PREFIX = "chunk_";
-	private static final String TEMP_CHUNK_FILE_Dto_FILE_SUFFIX = ".xml";
+	/**
+	 * Prefix of both the data and the index file. The name of the destination file follows - and then
+	 * either {@link #TEMP_CHUNK_DATA_FILE_SUFFIX} or {@link #TEMP_CHUNK_INDEX_FILE_SUFFIX}. Since both files
+	 * have a suffix, no destination file's name can produce the name of another destination file's temporary file.
+	 */
+	private static final String TEMP_CHUNK_FILE_PREFIX = "chunks_";
+	private static final String TEMP_CHUNK_DATA_FILE_SUFFIX = ".dat";
+	private static final String TEMP_CHUNK_INDEX_FILE_SUFFIX = ".idx";
+
+	/**
+	 * Prefix of the one-file-per-chunk layout used by older versions. These files are deleted, whenever they are
+	 * encountered.
+	 */
+	private static final String LEGACY_TEMP_CHUNK_FILE_PREFIX = "chunk_";
+
+	private static final int INDEX_MAGIC = 0x43535443; // "CSTC"
+	private static final int INDEX_VERSION = 1;
+	private static final int INDEX_HEADER_LENGTH = 4 + 4;
+	private static final int SHA1_LENGTH = 20;
+	/**
+	 * Length of one record in the index: offset (long), length (int), dataOffset (long) and SHA1 (20 bytes).
+	 */
+	private static final int INDEX_RECORD_LENGTH = 8 + 4 + 8 + SHA1_LENGTH;
+	/**
+	 * Length in a record marking the chunk at the record's offset as deleted.
+	 */
+	private static final int DELETED_LENGTH = -1;
+
+	/**
+	 * Maximum number of destination files whose SHA1 is calculated incrementally at the same time. If more files
+	 * are transferred concurrently, the least recently used calculations are discarded - these files are then
+	 * hashed after their transfer is complete.
+	 */
+	private static final int MAX_INCREMENTAL_FILE_HASH_COUNT = 100;
+
+	private final Map<String, TempChunkStore> path2TempChunkStore = new HashMap<>();
+
+	private final Map<String, IncrementalFileHash> path2IncrementalFileHash = new LinkedHashMap<String, IncrementalFileHash>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, IncrementalFileHash> eldest) {
+			return size() > MAX_INCREMENTAL_FILE_HASH_COUNT;
+		}
+	};
+
+	/**
+	 * State and lock of the temporary chunks of one destination file.
+	 * <p>
+	 * An instance only exists while it is used. It is therefore never out of sync with the file system, even if
+	 * the temporary files are deleted from outside.
+	 */
+	private static class TempChunkStore {
+		final String path;
+		int referenceCount;
+		/**
+		 * Number of threads invoking (or waiting to invoke) {@link TempChunkFileManager#callLocked(File, Callable) callLocked(...)}.
+		 * It is guarded by {@link TempChunkFileManager#path2TempChunkStore}.
+		 */
+		int lockCount;
+		int pendingWriteCount;
+		long nextDataOffset;
+
+		TempChunkStore(final String path) {
+			this.path = path;
+		}
+	}
+
+	/**
+	 * The SHA1 of the part of a destination file from offset 0 up to {@link #length}, which was received
+	 * without gaps so far. It is only accessed while holding the lock of the file's {@link TempChunkStore}.
+	 */
+	private static class IncrementalFileHash {
+		final MessageDigest md;
+		long length;
+		/**
+		 * Whether {@link #md} is currently updated outside of the lock.
+		 */
+		boolean busy;
+		/**
+		 * Whether a chunk was received again, after it was already hashed. The SHA1 is then unknown.
+		 */
+		boolean invalid;
+		/**
+		 * The chunks received out of order, which are not yet hashed.
+		 */
+		final SortedMap<Long, TempChunk> offset2PendingTempChunk = new TreeMap<>();
+
+		IncrementalFileHash() throws NoSuchAlgorithmException {
+			md = MessageDigest.getInstance(HashUtil.HASH_ALGORITHM_SHA);
+		}
+	}
 
 	private static final class Holder {
 		static final TempChunkFileManager instance = createObject(TempChunkFileManager.class);
@@ -42,141 +161,542 @@ public class TempChunkFileManager {
 	}
 
 	public void writeFileDataToTempChunkFile(final File destFile, final long offset, final byte[] fileData) {
-		AssertUtil.assertNotNull("destFile", destFile);
 		AssertUtil.assertNotNull("fileData", fileData);
+		writeFileDataToTempChunkFile(destFile, offset, new ByteArrayInputStream(fileData), fileData.length);
+	}
+
+	/**
+	 * Writes the data read from the given stream into the temporary data file of the given {@code destFile}.
+	 * <p>
+	 * The data is passed directly from {@code in} into the file's channel - and hashed on the fly. There is
+	 * no need to hold the entire chunk in memory. When the data is written completely, the chunk is recorded
+	 * in the index.
+	 * @param destFile the final destination file (not the temporary data file). Must not be <code>null</code>.
+	 * @param offset the 0-based offset of the chunk in {@code destFile}.
+	 * @param in the stream to read from. Must not be <code>null</code>. It is not closed by this method.
+	 * @param length the number of bytes to be read from {@code in}.
+	 */
+	public void writeFileDataToTempChunkFile(final File destFile, final long offset, final InputStream in, final int length) {
+		AssertUtil.assertNotNull("destFile", destFile);
+		AssertUtil.assertNotNull("in", in);
+		if (length < 0)
+			throw new IllegalArgumentException("length < 0");
+
+		final TempChunkStore tempChunkStore = acquireTempChunkStore(destFile);
 		try {
-			final File tempChunkFile = createTempChunkFile(destFile, offset);
-			final File tempChunkFileDtoFile = getTempChunkFileDtoFile(tempChunkFile);
+			final File dataFile;
+			final RandomAccessFile raf;
+			final long dataOffset;
+			final IncrementalFileHash incrementalFileHash;
+			final boolean hashInline;
+			synchronized (tempChunkStore) {
+				dataFile = createTempChunkDataFile(destFile);
+				raf = dataFile.createRandomAccessFile("rw");
+				boolean reserved = false;
+				try {
+					if (tempChunkStore.pendingWriteCount == 0)
+						tempChunkStore.nextDataOffset = raf.length();
+
+					// Preallocate the reserved region: Writing beyond the end of the file might otherwise touch the
+					// region of a chunk written concurrently.
+					if (raf.length() < tempChunkStore.nextDataOffset + length)
+						raf.setLength(tempChunkStore.nextDataOffset + length);
+
+					incrementalFileHash = getIncrementalFileHash(destFile);
+					reserved = true;
+				} finally {
+					if (!reserved)
+						raf.close();
+				}
+				dataOffset = tempChunkStore.nextDataOffset;
+				tempChunkStore.nextDataOffset += length;
+				++tempChunkStore.pendingWriteCount;
 
-			// Delete the meta-data-file, in case we overwrite an older temp-chunk-file. This way it
-			// is guaranteed, that if the meta-data-file exists, it is consistent with either
-			// the temp-chunk-file or the chunk was already written into the final destination.
-			deleteOrFail(tempChunkFileDtoFile);
+				incrementalFileHash.offset2PendingTempChunk.remove(offset); // superseded by this chunk
+				if (offset < incrementalFileHash.length || (incrementalFileHash.busy && offset == incrementalFileHash.length))
+					incrementalFileHash.invalid = true;
 
-			final OutputStream out = tempChunkFile.createOutputStream();
+				hashInline = !incrementalFileHash.invalid && !incrementalFileHash.busy && offset == incrementalFileHash.length;
+				if (hashInline)
+					incrementalFileHash.busy = true;
+			}
+			boolean hashedInline = false;
 			try {
-				out.write(fileData);
+				final MessageDigest md = MessageDigest.getInstance(HashUtil.HASH_ALGORITHM_SHA);
+				InputStream digestIn = new DigestInputStream(in, md);
+				if (hashInline)
+					digestIn = new DigestInputStream(digestIn, incrementalFileHash.md);
+
+				IOUtil.transferStreamData(digestIn, raf.getChannel(), dataOffset, length);
+				final byte[] sha1 = md.digest();
+				synchronized (tempChunkStore) {
+					appendIndexRecord(getTempChunkIndexFile(destFile), offset, length, dataOffset, sha1);
+					if (hashInline) {
+						incrementalFileHash.length += length;
+						hashedInline = true;
+					}
+					else if (!incrementalFileHash.invalid)
+						incrementalFileHash.offset2PendingTempChunk.put(offset, new TempChunk(offset, length, HashUtil.encodeHexStr(sha1), dataOffset));
+				}
+				logger.trace("writeFileDataToTempChunkFile: Wrote {} bytes with SHA1 '{}' at dataOffset {} to '{}'.",
+						length, HashUtil.encodeHexStr(sha1), dataOffset, dataFile.getAbsolutePath());
 			} finally {
-				out.close();
+				raf.close();
+				synchronized (tempChunkStore) {
+					--tempChunkStore.pendingWriteCount;
+					if (hashInline) {
+						incrementalFileHash.busy = false;
+						if (!hashedInline) // the digest was updated with incomplete data
+							incrementalFileHash.invalid = true;
+					}
+				}
 			}
-			final String sha1 = sha1(fileData);
-			logger.trace("writeFileDataToTempChunkFile: Wrote {} bytes with SHA1 '{}' to '{}'.", fileData.length, sha1, tempChunkFile.getAbsolutePath());
-			final TempChunkFileDto tempChunkFileDto = createTempChunkFileDto(offset, tempChunkFile, sha1);
-			new TempChunkFileDtoIo().serialize(tempChunkFileDto, tempChunkFileDtoFile);
+			hashPendingTempChunks(destFile, tempChunkStore, incrementalFileHash);
+		} catch (final NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
 		} catch (final IOException e) {
 			throw new RuntimeException(e);
+		} finally {
+			releaseTempChunkStore(tempChunkStore);
 		}
 	}
 
-	protected void deleteOrFail(File file) throws IOException {
-		IOUtil.deleteOrFail(file);
+	private void appendIndexRecord(final File indexFile, final long offset, final int length, final long dataOffset, final byte[] sha1) throws IOException {
+		final ByteArrayOutputStream bout = new ByteArrayOutputStream(INDEX_HEADER_LENGTH + INDEX_RECORD_LENGTH);
+		final DataOutputStream out = new DataOutputStream(bout);
+		final RandomAccessFile raf = indexFile.createRandomAccessFile("rw");
+		try {
+			long indexLength = raf.length();
+			if (indexLength < INDEX_HEADER_LENGTH) {
+				indexLength = 0;
+				out.writeInt(INDEX_MAGIC);
+				out.writeInt(INDEX_VERSION);
+			}
+			else // drop an incomplete record, which might be left from an interrupted write
+				indexLength -= (indexLength - INDEX_HEADER_LENGTH) % INDEX_RECORD_LENGTH;
+
+			out.writeLong(offset);
+			out.writeInt(length);
+			out.writeLong(dataOffset);
+			out.write(sha1);
+			out.flush();
+
+			raf.seek(indexLength);
+			raf.write(bout.toByteArray());
+			raf.setLength(indexLength + bout.size());
+		} finally {
+			raf.close();
+		}
 	}
 
-	public void deleteTempChunkFilesWithoutDtoFile(final Collection<TempChunkFileWithDtoFile> tempChunkFileWithDtoFiles) {
-		for (final TempChunkFileWithDtoFile tempChunkFileWithDtoFile : tempChunkFileWithDtoFiles) {
-			final File tempChunkFileDtoFile = tempChunkFileWithDtoFile.getTempChunkFileDtoFile();
-			if (tempChunkFileDtoFile == null || !tempChunkFileDtoFile.exists()) {
-				final File tempChunkFile = tempChunkFileWithDtoFile.getTempChunkFile();
-				logger.warn("deleteTempChunkFilesWithoutDtoFile: No Dto-file for temporary chunk-file '{}'! DELETING this temporary file!", tempChunkFile.getAbsolutePath());
+	/**
+	 * Gets the incremental hash of the given {@code destFile} - creating it, if needed.
+	 * <p>
+	 * If it is newly created, while there are chunks from an earlier transfer (e.g. before a restart), these
+	 * chunks are hashed (read back), as soon as the gaps before them are closed.
+	 * <p>
+	 * Must be invoked while holding the lock of the file's {@link TempChunkStore}.
+	 */
+	private IncrementalFileHash getIncrementalFileHash(final File destFile) throws NoSuchAlgorithmException {
+		final String path = destFile.getAbsolutePath();
+		IncrementalFileHash incrementalFileHash;
+		synchronized (path2IncrementalFileHash) {
+			incrementalFileHash = path2IncrementalFileHash.get(path);
+		}
+		if (incrementalFileHash == null) {
+			incrementalFileHash = new IncrementalFileHash();
+			incrementalFileHash.offset2PendingTempChunk.putAll(readIndex(destFile));
+			synchronized (path2IncrementalFileHash) {
+				path2IncrementalFileHash.put(path, incrementalFileHash);
+			}
+		}
+		return incrementalFileHash;
+	}
+
+	private void removeIncrementalFileHash(final File destFile) {
+		synchronized (path2IncrementalFileHash) {
+			path2IncrementalFileHash.remove(destFile.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * Hashes the chunks, which were received out of order and which now continue the already hashed part
+	 * of the file. They are read back from the data file - most likely still from the OS' cache.
+	 */
+	private void hashPendingTempChunks(final File destFile, final TempChunkStore tempChunkStore, final IncrementalFileHash incrementalFileHash) throws IOException {
+		while (true) {
+			final TempChunk tempChunk;
+			synchronized (tempChunkStore) {
+				if (incrementalFileHash.invalid || incrementalFileHash.busy)
+					return;
+
+				tempChunk = incrementalFileHash.offset2PendingTempChunk.remove(incrementalFileHash.length);
+				if (tempChunk == null)
+					return;
+
+				incrementalFileHash.busy = true;
+			}
+			boolean hashed = false;
+			try {
+				final RandomAccessFile raf = getTempChunkDataFile(destFile).createRandomAccessFile("r");
 				try {
-					deleteOrFail(tempChunkFile);
-				} catch (IOException x) {
-					throw new RuntimeException(x);
+					final FileChannel channel = raf.getChannel();
+					final ByteBuffer buffer = ByteBuffer.allocate(Math.min(tempChunk.getLength(), 64 * 1024));
+					long position = tempChunk.getDataOffset();
+					final long end = position + tempChunk.getLength();
+					while (position < end) {
+						buffer.clear();
+						buffer.limit((int) Math.min(buffer.capacity(), end - position));
+						final int bytesRead = channel.read(buffer, position);
+						if (bytesRead < 0)
+							throw new IOException("Temporary data file ended before expected length: " + getTempChunkDataFile(destFile).getAbsolutePath());
+
+						buffer.flip();
+						incrementalFileHash.md.update(buffer);
+						position += bytesRead;
+					}
+				} finally {
+					raf.close();
+				}
+				hashed = true;
+			} finally {
+				synchronized (tempChunkStore) {
+					incrementalFileHash.busy = false;
+					if (hashed)
+						incrementalFileHash.length += tempChunk.getLength();
+					else
+						incrementalFileHash.invalid = true;
 				}
-				continue;
 			}
 		}
 	}
 
-	public Map<Long, TempChunkFileWithDtoFile> getOffset2TempChunkFileWithDtoFile(final File destFile) {
+	/**
+	 * Gets the SHA1 of the entire destination file, calculated while its chunks were received.
+	 * <p>
+	 * This is only known, if all chunks from offset 0 up to {@code length} were received - in the current process
+	 * and each chunk only once - and none beyond. Otherwise, the file must be hashed after it was written.
+	 * @param destFile the final destination file. Must not be <code>null</code>.
+	 * @param length the length of the destination file.
+	 * @return the SHA1 of the entire file consisting of the temporarily stored chunks, or <code>null</code>, if it
+	 * is not known.
+	 */
+	public String getFileSha1(final File destFile, final long length) {
+		AssertUtil.assertNotNull("destFile", destFile);
+		final IncrementalFileHash incrementalFileHash;
+		synchronized (path2IncrementalFileHash) {
+			incrementalFileHash = path2IncrementalFileHash.get(destFile.getAbsolutePath());
+		}
+		if (incrementalFileHash == null)
+			return null;
+
+		final TempChunkStore tempChunkStore = acquireTempChunkStore(destFile);
+		try {
+			synchronized (tempChunkStore) {
+				if (incrementalFileHash.invalid || incrementalFileHash.busy || incrementalFileHash.length != length
+						|| !incrementalFileHash.offset2PendingTempChunk.isEmpty())
+					return null;
+
+				return HashUtil.encodeHexStr(((MessageDigest) incrementalFileHash.md.clone()).digest());
+			}
+		} catch (final CloneNotSupportedException x) {
+			return null;
+		} finally {
+			releaseTempChunkStore(tempChunkStore);
+		}
+	}
+
+	/**
+	 * Gets the chunks temporarily stored for the given {@code destFile}.
+	 * @param destFile the final destination file. Must not be <code>null</code>.
+	 * @return the chunks mapped by their offset in {@code destFile} - sorted ascending. Never <code>null</code>.
+	 * If a chunk was received multiple times, only the newest one is contained.
+	 */
+	public SortedMap<Long, TempChunk> getOffset2TempChunk(final File destFile) {
+		AssertUtil.assertNotNull("destFile", destFile);
+		final TempChunkStore tempChunkStore = acquireTempChunkStore(destFile);
+		try {
+			synchronized (tempChunkStore) {
+				return Collections.unmodifiableSortedMap(readIndex(destFile));
+			}
+		} finally {
+			releaseTempChunkStore(tempChunkStore);
+		}
+	}
+
+	private SortedMap<Long, TempChunk> readIndex(final File destFile) {
+		final SortedMap<Long, TempChunk> result = new TreeMap<>();
+		final File indexFile = getTempChunkIndexFile(destFile);
+		final File dataFile = getTempChunkDataFile(destFile);
+		if (!indexFile.isFile() || !dataFile.isFile())
+			return result;
+
+		final long dataFileLength = dataFile.length();
+		try {
+			final DataInputStream in = new DataInputStream(new BufferedInputStream(indexFile.createInputStream()));
+			try {
+				if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+					logger.warn("readIndex: Ignoring unknown or corrupt index file: {}", indexFile.getAbsolutePath());
+					return result;
+				}
+				final byte[] sha1 = new byte[SHA1_LENGTH];
+				while (true) {
+					final long offset;
+					final int length;
+					final long dataOffset;
+					try {
+						offset = in.readLong();
+						length = in.readInt();
+						dataOffset = in.readLong();
+						in.readFully(sha1);
+					} catch (final EOFException x) {
+						break; // end of index reached - or an incomplete record, which is ignored
+					}
+					if (length == DELETED_LENGTH) {
+						result.remove(offset);
+						continue;
+					}
+					if (dataOffset + length > dataFileLength) {
+						logger.warn("readIndex: Ignoring chunk with offset {} beyond the end of the data file: {}", offset, dataFile.getAbsolutePath());
+						continue;
+					}
+					result.put(offset, new TempChunk(offset, length, HashUtil.encodeHexStr(sha1), dataOffset));
+				}
+			} finally {
+				in.close();
+			}
+		} catch (final EOFException x) {
+			logger.warn("readIndex: Ignoring incomplete index file: {}", indexFile.getAbsolutePath());
+		} catch (final IOException x) {
+			throw new RuntimeException(x);
+		}
+		return result;
+	}
+
+	/**
+	 * Cleans up the temporary files of the given {@code destFile}, before a (possibly resumed) transfer begins.
+	 * <p>
+	 * A data file without index is deleted - it cannot contain any complete chunk - unless a chunk is currently
+	 * being written into it. Temporary chunk-files of
+	 * the layout used by older versions are deleted, too - these chunks are simply transferred again.
+	 * @param destFile the final destination file. Must not be <code>null</code>.
+	 */
+	public void deleteTempChunkFilesWithoutIndex(final File destFile) {
+		AssertUtil.assertNotNull("destFile", destFile);
+		final TempChunkStore tempChunkStore = acquireTempChunkStore(destFile);
+		try {
+			synchronized (tempChunkStore) {
+				final File dataFile = getTempChunkDataFile(destFile);
+				if (tempChunkStore.pendingWriteCount == 0 && !getTempChunkIndexFile(destFile).exists()) {
+					// Whatever was hashed before, does not exist anymore.
+					removeIncrementalFileHash(destFile);
+					if (dataFile.exists()) {
+						logger.warn("deleteTempChunkFilesWithoutIndex: No index for temporary data file '{}'! DELETING this temporary file!", dataFile.getAbsolutePath());
+						deleteOrFail(dataFile);
+					}
+				}
+				deleteLegacyTempChunkFiles(destFile);
+			}
+		} catch (final IOException x) {
+			throw new RuntimeException(x);
+		} finally {
+			releaseTempChunkStore(tempChunkStore);
+		}
+	}
+
+	/**
+	 * Discards the temporarily stored chunks at the given offsets.
+	 * <p>
+	 * For every chunk, a record marking it as deleted is appended to the index - superseding the older records, just
+	 * like a chunk received again. The chunk's data remains in the data file, unreferenced, until all temporary
+	 * files of the {@code destFile} are deleted. If one of the chunks was already included in the incrementally
+	 * calculated SHA1, this SHA1 is not known anymore.
+	 * @param destFile the final destination file. Must not be <code>null</code>.
+	 * @param offsets the offsets (in {@code destFile}) of the chunks to be discarded. Must not be <code>null</code>.
+	 */
+	public void deleteTempChunks(final File destFile, final Collection<Long> offsets) {
+		AssertUtil.assertNotNull("destFile", destFile);
+		AssertUtil.assertNotNull("offsets", offsets);
+		final TempChunkStore tempChunkStore = acquireTempChunkStore(destFile);
+		try {
+			synchronized (tempChunkStore) {
+				final SortedMap<Long, TempChunk> offset2TempChunk = readIndex(destFile);
+				final IncrementalFileHash incrementalFileHash;
+				synchronized (path2IncrementalFileHash) {
+					incrementalFileHash = path2IncrementalFileHash.get(destFile.getAbsolutePath());
+				}
+				for (final Long offset : offsets) {
+					if (!offset2TempChunk.containsKey(offset))
+						continue;
+
+					if (incrementalFileHash != null
+							&& incrementalFileHash.offset2PendingTempChunk.remove(offset) == null && offset < incrementalFileHash.length)
+						incrementalFileHash.invalid = true;
+
+					appendIndexRecord(getTempChunkIndexFile(destFile), offset, DELETED_LENGTH, 0, new byte[SHA1_LENGTH]);
+					logger.debug("deleteTempChunks: Discarded chunk at offset {} of '{}'.", offset, destFile.getAbsolutePath());
+				}
+			}
+		} catch (final IOException x) {
+			throw new RuntimeException(x);
+		} finally {
+			releaseTempChunkStore(tempChunkStore);
+		}
+	}
+
+	/**
+	 * Invokes the given {@code callable} while holding the lock of the temporary chunks of the given {@code destFile}.
+	 * <p>
+	 * As long as the {@code callable} runs, no chunk of this file is written, discarded or moved by another thread.
+	 * This is used to write the {@code destFile} itself without interference.
+	 * <p>
+	 * <b>Important:</b> The {@code callable} must not begin a transaction! Transactions invoke methods of this class
+	 * while holding the repository's lock - acquiring these locks in the opposite order would cause a dead-lock.
+	 * @param destFile the final destination file. Must not be <code>null</code>.
+	 * @param callable the code to be invoked. Must not be <code>null</code>.
+	 * @return the result of the {@code callable}.
+	 * @throws Exception if the {@code callable} threw it.
+	 */
+	public <V> V callLocked(final File destFile, final Callable<V> callable) throws Exception {
+		AssertUtil.assertNotNull("destFile", destFile);
+		AssertUtil.assertNotNull("callable", callable);
+		final TempChunkStore tempChunkStore = acquireTempChunkStore(destFile);
+		try {
+			synchronized (path2TempChunkStore) {
+				++tempChunkStore.lockCount;
+			}
+			try {
+				synchronized (tempChunkStore) {
+					return callable.call();
+				}
+			} finally {
+				synchronized (path2TempChunkStore) {
+					--tempChunkStore.lockCount;
+				}
+			}
+		} finally {
+			releaseTempChunkStore(tempChunkStore);
+		}
+	}
+
+	/**
+	 * Invokes the given {@code callable} like {@link #callLocked(File, Callable)} - unless another thread
+	 * currently invokes {@code callLocked(...)} or {@code tryCallLocked(...)} for the same {@code destFile}.
+	 * <p>
+	 * In contrast to {@code callLocked(...)}, this method does not wait for the other thread writing the
+	 * {@code destFile}. Writing a file might take very long - the caller should rather skip the file.
+	 * <p>
+	 * Like {@code callLocked(...)}, this method may be invoked inside a transaction, but the {@code callable}
+	 * must not begin one.
+	 * @param destFile the final destination file. Must not be <code>null</code>.
+	 * @param callable the code to be invoked. Must not be <code>null</code>.
+	 * @return <code>true</code>, if the {@code callable} was invoked; <code>false</code>, if the {@code destFile}
+	 * is currently locked by another thread and the {@code callable} was thus not invoked.
+	 * @throws Exception if the {@code callable} threw it.
+	 */
+	public boolean tryCallLocked(final File destFile, final Callable<?> callable) throws Exception {
+		AssertUtil.assertNotNull("destFile", destFile);
+		AssertUtil.assertNotNull("callable", callable);
+		final TempChunkStore tempChunkStore = acquireTempChunkStore(destFile);
+		try {
+			synchronized (path2TempChunkStore) {
+				if (tempChunkStore.lockCount > 0)
+					return false;
+
+				++tempChunkStore.lockCount;
+			}
+			try {
+				synchronized (tempChunkStore) {
+					callable.call();
+					return true;
+				}
+			} finally {
+				synchronized (path2TempChunkStore) {
+					--tempChunkStore.lockCount;
+				}
+			}
+		} finally {
+			releaseTempChunkStore(tempChunkStore);
+		}
+	}
+
+	private void deleteLegacyTempChunkFiles(final File destFile) throws IOException {
 		final File[] tempFiles = getTempDir(destFile).listFiles();
 		if (tempFiles == null)
-			return Collections.emptyMap();
+			return;
 
-		final String destFileName = destFile.getName();
-		final Map<Long, TempChunkFileWithDtoFile> result = new TreeMap<Long, TempChunkFileWithDtoFile>();
+		final String legacyPrefix = LEGACY_TEMP_CHUNK_FILE_PREFIX + destFile.getName() + '_';
 		for (final File tempFile : tempFiles) {
-			String tempFileName = tempFile.getName();
-			if (!tempFileName.startsWith(TEMP_CHUNK_FILE_PREFIX))
-				continue;
-
-			final boolean dtoFile;
-			if (tempFileName.endsWith(TEMP_CHUNK_FILE_Dto_FILE_SUFFIX)) {
-				dtoFile = true;
-				tempFileName = tempFileName.substring(0, tempFileName.length() - TEMP_CHUNK_FILE_Dto_FILE_SUFFIX.length());
+			final String tempFileName = tempFile.getName();
+			if (tempFileName.startsWith(legacyPrefix) && tempFileName.indexOf('_', legacyPrefix.length()) < 0) {
+				logger.info("deleteLegacyTempChunkFiles: Deleting obsolete temporary chunk-file: {}", tempFile.getAbsolutePath());
+				deleteOrFail(tempFile);
 			}
-			else
-				dtoFile = false;
-
-			final int lastUnderscoreIndex = tempFileName.lastIndexOf('_');
-			if (lastUnderscoreIndex < 0)
-				throw new IllegalStateException("lastUnderscoreIndex < 0 :: tempFileName='" + tempFileName + '\'');
-
-			final String tempFileDestFileName = tempFileName.substring(TEMP_CHUNK_FILE_PREFIX.length(), lastUnderscoreIndex);
-			if (!destFileName.equals(tempFileDestFileName))
-				continue;
-
-			final String offsetStr = tempFileName.substring(lastUnderscoreIndex + 1);
-			final Long offset = Long.valueOf(offsetStr, 36);
-			TempChunkFileWithDtoFile tempChunkFileWithDtoFile = result.get(offset);
-			if (tempChunkFileWithDtoFile == null) {
-				tempChunkFileWithDtoFile = new TempChunkFileWithDtoFile();
-				result.put(offset, tempChunkFileWithDtoFile);
+		}
+	}
+
+	/**
+	 * Deletes all temporary files of the given {@code destFile}.
+	 * @param destFile the final destination file. Must not be <code>null</code>.
+	 */
+	public void deleteTempChunkFiles(final File destFile) {
+		AssertUtil.assertNotNull("destFile", destFile);
+		final TempChunkStore tempChunkStore = acquireTempChunkStore(destFile);
+		try {
+			synchronized (tempChunkStore) {
+				removeIncrementalFileHash(destFile);
+
+				// Delete the index first: It must never reference a missing data file.
+				final File indexFile = getTempChunkIndexFile(destFile);
+				if (indexFile.exists())
+					deleteOrFail(indexFile);
+
+				final File dataFile = getTempChunkDataFile(destFile);
+				if (dataFile.exists())
+					deleteOrFail(dataFile);
 			}
-			if (dtoFile)
-				tempChunkFileWithDtoFile.setTempChunkFileDtoFile(tempFile);
-			else
-				tempChunkFileWithDtoFile.setTempChunkFile(tempFile);
+		} catch (final IOException x) {
+			throw new RuntimeException(x);
+		} finally {
+			releaseTempChunkStore(tempChunkStore);
 		}
-		return Collections.unmodifiableMap(result);
 	}
 
-	public File getTempChunkFileDtoFile(final File file) {
-		return createFile(file.getParentFile(), file.getName() + TEMP_CHUNK_FILE_Dto_FILE_SUFFIX);
+	protected void deleteOrFail(File file) throws IOException {
+		IOUtil.deleteOrFail(file);
 	}
 
-	private String sha1(final byte[] data) {
-		AssertUtil.assertNotNull("data", data);
-		try {
-			final byte[] hash = HashUtil.hash(HashUtil.HASH_ALGORITHM_SHA, new ByteArrayInputStream(data));
-			return HashUtil.encodeHexStr(hash);
-		} catch (final NoSuchAlgorithmException e) {
-			throw new RuntimeException(e);
-		} catch (final IOException e) {
-			throw new RuntimeException(e);
-		}
+	public File getTempChunkDataFile(final File destFile) {
+		return createFile(getTempDir(destFile), TEMP_CHUNK_FILE_PREFIX + destFile.getName() + TEMP_CHUNK_DATA_FILE_SUFFIX);
+	}
+
+	public File getTempChunkIndexFile(final File destFile) {
+		return createFile(getTempDir(destFile), TEMP_CHUNK_FILE_PREFIX + destFile.getName() + TEMP_CHUNK_INDEX_FILE_SUFFIX);
 	}
 
 	/**
-	 * Create the temporary file for the given {@code destFile} and {@code offset}.
+	 * Create the temporary data file for the given {@code destFile}.
 	 * <p>
 	 * The returned file is created, if it does not yet exist; but it is <i>not</i> overwritten,
 	 * if it already exists.
 	 * <p>
 	 * The {@linkplain #getTempDir(File) temporary directory} in which the temporary file is located
 	 * is created, if necessary. In order to prevent collisions with code trying to delete the empty
-	 * temporary directory, this method and the corresponding {@link #deleteTempDirIfEmpty(File)} are
-	 * both synchronized.
-	 * @param destFile the destination file for which to resolve and create the temporary file.
+	 * temporary directory, creating the directory and the file in it is synchronized with
+	 * {@link #deleteTempDirIfEmpty(File)}. This is only a very short operation, which does not write any data.
+	 * @param destFile the destination file for which to resolve and create the temporary data file.
 	 * Must not be <code>null</code>.
-	 * @param offset the offset (inside the final destination file and the source file) of the block to
-	 * be temporarily stored in the temporary file created by this method. The temporary file will hold
-	 * solely this block (thus the offset in the temporary file is 0).
-	 * @return the temporary file. Never <code>null</code>. The file is already created in the file system
+	 * @return the temporary data file. Never <code>null</code>. The file is already created in the file system
 	 * (empty), if it did not yet exist.
 	 */
-	public synchronized File createTempChunkFile(final File destFile, final long offset) {
-		return createTempChunkFile(destFile, offset, true);
-	}
-	protected synchronized File createTempChunkFile(final File destFile, final long offset, final boolean createNewFile) {
-		final File tempDir = getTempDir(destFile);
-		tempDir.mkdir();
-		if (!tempDir.isDirectory())
-			throw new IllegalStateException("Creating the directory failed (it does not exist after mkdir): " + tempDir.getAbsolutePath());
+	protected File createTempChunkDataFile(final File destFile) {
+		final File tempFile = getTempChunkDataFile(destFile);
+		synchronized (this) {
+			final File tempDir = tempFile.getParentFile();
+			tempDir.mkdir();
+			if (!tempDir.isDirectory())
+				throw new IllegalStateException("Creating the directory failed (it does not exist after mkdir): " + tempDir.getAbsolutePath());
 
-		final File tempFile = createFile(tempDir, String.format("%s%s_%s",
-				TEMP_CHUNK_FILE_PREFIX, destFile.getName(), Long.toString(offset, 36)));
-		if (createNewFile) {
 			try {
 				tempFile.createNewFile();
 			} catch (final IOException e) {
@@ -188,23 +708,59 @@ public class TempChunkFileManager {
 
 	/** If source file was moved, the chunks need to be moved, too. */
 	public void moveChunks(final File oldDestFile, final File newDestFile) {
-		final Map<Long, TempChunkFileWithDtoFile> offset2TempChunkFileWithDtoFile = getOffset2TempChunkFileWithDtoFile(oldDestFile);
-		for (final Map.Entry<Long, TempChunkFileWithDtoFile> entry : offset2TempChunkFileWithDtoFile.entrySet()) {
-			final Long offset = entry.getKey();
-			final TempChunkFileWithDtoFile tempChunkFileWithDtoFile = entry.getValue();
-			final File oldTempChunkFile = tempChunkFileWithDtoFile.getTempChunkFile();
-			final File newTempChunkFile = createTempChunkFile(newDestFile, offset, false);
-			final File oldTempChunkFileDtoFile = getTempChunkFileDtoFile(oldTempChunkFile);
-			final File newTempChunkFileDtoFile = getTempChunkFileDtoFile(newTempChunkFile);
+		AssertUtil.assertNotNull("oldDestFile", oldDestFile);
+		AssertUtil.assertNotNull("newDestFile", newDestFile);
+		final TempChunkStore oldTempChunkStore = acquireTempChunkStore(oldDestFile);
+		try {
+			final TempChunkStore newTempChunkStore = acquireTempChunkStore(newDestFile);
 			try {
-//				oldTempChunkFileDtoFile.move(newTempChunkFileDtoFile);
-				moveOrFail(oldTempChunkFileDtoFile, newTempChunkFileDtoFile);
-				logger.info("Moved chunkDto from {} to {}", oldTempChunkFileDtoFile, newTempChunkFileDtoFile);
-//				oldTempChunkFile.move(newTempChunkFile);
-				moveOrFail(oldTempChunkFile, newTempChunkFile);
-				logger.info("Moved chunk from {} to {}", oldTempChunkFile, newTempChunkFile);
-			} catch (final IOException e) {
-				throw new RuntimeException(e);
+				// Always lock in the same order to prevent dead-locks with a concurrent move in the opposite direction.
+				final boolean oldFirst = oldTempChunkStore.path.compareTo(newTempChunkStore.path) <= 0;
+				synchronized (oldFirst ? oldTempChunkStore : newTempChunkStore) {
+					synchronized (oldFirst ? newTempChunkStore : oldTempChunkStore) {
+						moveChunksLocked(oldDestFile, newDestFile);
+					}
+				}
+			} finally {
+				releaseTempChunkStore(newTempChunkStore);
+			}
+		} catch (final IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			releaseTempChunkStore(oldTempChunkStore);
+		}
+	}
+
+	private void moveChunksLocked(final File oldDestFile, final File newDestFile) throws IOException {
+		final File oldDataFile = getTempChunkDataFile(oldDestFile);
+		final File oldIndexFile = getTempChunkIndexFile(oldDestFile);
+		removeIncrementalFileHash(newDestFile);
+		final IncrementalFileHash incrementalFileHash;
+		synchronized (path2IncrementalFileHash) {
+			incrementalFileHash = path2IncrementalFileHash.remove(oldDestFile.getAbsolutePath());
+		}
+		if (!oldDataFile.exists() || !oldIndexFile.exists())
+			return;
+
+		// Remove whatever is left for the new destination file - it is superseded by the moved chunks.
+		final File newIndexFile = getTempChunkIndexFile(newDestFile);
+		if (newIndexFile.exists())
+			deleteOrFail(newIndexFile);
+
+		final File newDataFile = getTempChunkDataFile(newDestFile);
+		if (newDataFile.exists())
+			deleteOrFail(newDataFile);
+
+		// Move the data first: If interrupted in-between, the old index is ignored due to its missing data file,
+		// and the new data file without index is deleted by deleteTempChunkFilesWithoutIndex(...).
+		moveOrFail(oldDataFile, newDataFile);
+		logger.info("Moved chunk data from {} to {}", oldDataFile, newDataFile);
+		moveOrFail(oldIndexFile, newIndexFile);
+		logger.info("Moved chunk index from {} to {}", oldIndexFile, newIndexFile);
+
+		if (incrementalFileHash != null) {
+			synchronized (path2IncrementalFileHash) {
+				path2IncrementalFileHash.put(newDestFile.getAbsolutePath(), incrementalFileHash);
 			}
 		}
 	}
@@ -217,9 +773,9 @@ public class TempChunkFileManager {
 	 * Deletes the {@linkplain #getTempDir(File) temporary directory} for the given {@code destFile},
 	 * if this directory is empty.
 	 * <p>
-	 * This method is synchronized to prevent it from colliding with {@link #createTempChunkFile(File, long)}
-	 * which first creates the temporary directory and then the file in it. Without synchronisation, the
-	 * newly created directory might be deleted by this method, before the temporary file in it is created.
+	 * This is synchronized with {@link #createTempChunkDataFile(File)} which first creates the temporary directory
+	 * and then the file in it. Without synchronisation, the newly created directory might be deleted by this method,
+	 * before the temporary file in it is created.
 	 * @param destFile the destination file for which to resolve and delete the temporary directory.
 	 * Must not be <code>null</code>.
 	 */
@@ -234,49 +790,23 @@ public class TempChunkFileManager {
 		return createFile(parentDir, LocalRepoManager.TEMP_DIR_NAME);
 	}
 
-	/**
-	 * @param offset the offset in the (real) destination file (<i>not</i> in {@code tempChunkFile}! there the offset is always 0).
-	 * @param tempChunkFile the tempChunkFile containing the chunk's data. Must not be <code>null</code>.
-	 * @param sha1 the sha1 of the single chunk (in {@code tempChunkFile}). Must not be <code>null</code>.
-	 * @return the Dto. Never <code>null</code>.
-	 */
-	public TempChunkFileDto createTempChunkFileDto(final long offset, final File tempChunkFile, final String sha1) {
-		AssertUtil.assertNotNull("tempChunkFile", tempChunkFile);
-		AssertUtil.assertNotNull("sha1", sha1);
-
-		if (!tempChunkFile.exists())
-			throw new IllegalArgumentException("The tempChunkFile does not exist: " + tempChunkFile.getAbsolutePath());
-
-		final FileChunkDto fileChunkDto = new FileChunkDto();
-		fileChunkDto.setOffset(offset);
-
-		final long tempChunkFileLength = tempChunkFile.length();
-		if (tempChunkFileLength > Integer.MAX_VALUE)
-			throw new IllegalStateException("tempChunkFile.length > Integer.MAX_VALUE");
-
-		fileChunkDto.setLength((int) tempChunkFileLength);
-		fileChunkDto.setSha1(sha1);
-
-		final TempChunkFileDto tempChunkFileDto = new TempChunkFileDto();
-		tempChunkFileDto.setFileChunkDto(fileChunkDto);
-		return tempChunkFileDto;
-	}
-
-	public void deleteTempChunkFiles(final Collection<TempChunkFileWithDtoFile> tempChunkFileWithDtoFiles) {
-		for (final TempChunkFileWithDtoFile tempChunkFileWithDtoFile : tempChunkFileWithDtoFiles) {
-			final File tempChunkFile = tempChunkFileWithDtoFile.getTempChunkFile(); // tempChunkFile may be null!!!
-			final File tempChunkFileDtoFile = tempChunkFileWithDtoFile.getTempChunkFileDtoFile();
-
-			try {
-				if (tempChunkFile != null && tempChunkFile.exists())
-					deleteOrFail(tempChunkFile);
-
-				if (tempChunkFileDtoFile != null && tempChunkFileDtoFile.exists())
-					deleteOrFail(tempChunkFileDtoFile);
-			} catch (IOException x) {
-				throw new RuntimeException(x);
+	private TempChunkStore acquireTempChunkStore(final File destFile) {
+		final String path = destFile.getAbsolutePath();
+		synchronized (path2TempChunkStore) {
+			TempChunkStore tempChunkStore = path2TempChunkStore.get(path);
+			if (tempChunkStore == null) {
+				tempChunkStore = new TempChunkStore(path);
+				path2TempChunkStore.put(path, tempChunkStore);
 			}
+			++tempChunkStore.referenceCount;
+			return tempChunkStore;
 		}
 	}
 
+	private void releaseTempChunkStore(final TempChunkStore tempChunkStore) {
+		synchronized (path2TempChunkStore) {
+			if (--tempChunkStore.referenceCount == 0)
+				path2TempChunkStore.remove(tempChunkStore.path);
+		}
+	}
 }
@@ -12,6 +12,7 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import co.codewizards.cloudstore.core.config.Config;
 import co.codewizards.cloudstore.core.oio.File;
 import co.codewizards.cloudstore.core.progress.LoggerProgressMonitor;
 import co.codewizards.cloudstore.core.repo.local.LocalRepoManager;
@@ -20,6 +21,8 @@ import co.codewizards.cloudstore.local.persistence.DeleteModification;
 import co.codewizards.cloudstore.local.persistence.LocalRepositoryDao;
 import co.codewizards.cloudstore.local.persistence.Modification;
 import co.codewizards.cloudstore.local.persistence.ModificationDao;
+import co.codewizards.cloudstore.local.persistence.RemoteRepository;
+import co.codewizards.cloudstore.local.persistence.RemoteRepositoryDao;
 import co.codewizards.cloudstore.local.persistence.RepoFile;
 import co.codewizards.cloudstore.local.persistence.RepoFileDao;
 
@@ -246,6 +249,12 @@ public class LocalRepoManagerTest extends AbstractTest {
 		final LocalRepoManager localRepoManager2 = localRepoManagerFactory.createLocalRepoManagerForNewRepository(localRoot2);
 		localRepoManager.putRemoteRepository(localRepoManager2.getRepositoryId(), null, localRepoManager2.getPublicKey(), "");
 
+		// A second remote repository must not cause a second DeleteModification.
+		final File localRoot3 = newTestRepositoryLocalRoot();
+		localRoot3.mkdir();
+		final LocalRepoManager localRepoManager3 = localRepoManagerFactory.createLocalRepoManagerForNewRepository(localRoot3);
+		localRepoManager.putRemoteRepository(localRepoManager3.getRepositoryId(), null, localRepoManager3.getPublicKey(), "");
+
 		final File child_1 = createFile(localRoot, "1");
 		assertThat(child_1.isDirectory()).isTrue();
 		final File child_1_b = createFile(child_1, "b");
@@ -279,12 +288,33 @@ public class LocalRepoManagerTest extends AbstractTest {
 			final DeleteModification deleteModification = deleteModifications.get(0);
 			assertThat(deleteModification).isNotNull();
 			assertThat(deleteModification.getPath()).isEqualTo("/1/b");
-			assertThat(deleteModification.getRemoteRepository()).isNotNull();
-			assertThat(deleteModification.getRemoteRepository().getRepositoryId()).isEqualTo(localRepoManager2.getRepositoryId());
+			assertThat(deleteModification.getRemoteRepository()).isNull(); // shared by all remote repositories
+		} finally {
+			transaction.rollbackIfActive();
+		}
+
+		// A remote repository connected after the deletion must not get the DeleteModification.
+		final File localRoot4 = newTestRepositoryLocalRoot();
+		localRoot4.mkdir();
+		final LocalRepoManager localRepoManager4 = localRepoManagerFactory.createLocalRepoManagerForNewRepository(localRoot4);
+		localRepoManager.putRemoteRepository(localRepoManager4.getRepositoryId(), null, localRepoManager4.getPublicKey(), "");
+
+		transaction = localRepoManager.beginWriteTransaction();
+		try {
+			final RemoteRepositoryDao remoteRepositoryDao = transaction.getDao(RemoteRepositoryDao.class);
+			final ModificationDao modificationDao = transaction.getDao(ModificationDao.class);
+
+			final RemoteRepository remoteRepository2 = remoteRepositoryDao.getRemoteRepositoryOrFail(localRepoManager2.getRepositoryId());
+			assertThat(getDeleteModifications(modificationDao.getModificationsAfter(remoteRepository2, -1))).hasSize(1);
+
+			final RemoteRepository remoteRepository4 = remoteRepositoryDao.getRemoteRepositoryOrFail(localRepoManager4.getRepositoryId());
+			assertThat(getDeleteModifications(modificationDao.getModificationsAfter(remoteRepository4, -1))).isEmpty();
 		} finally {
 			transaction.rollbackIfActive();
 		}
 
+		localRepoManager4.close();
+		localRepoManager3.close();
 		localRepoManager2.close();
 		localRepoManager.close();
 	}
@@ -347,6 +377,46 @@ public class LocalRepoManagerTest extends AbstractTest {
 		localRepoManager.close();
 	}
 
+	@Test
+	public void syncWithLocalRepoWatcher() throws Exception {
+		final String systemPropertyKey = Config.SYSTEM_PROPERTY_PREFIX + LocalRepoWatcher.CONFIG_KEY_ENABLED;
+		System.setProperty(systemPropertyKey, Boolean.TRUE.toString());
+		try {
+			localRoot = newTestRepositoryLocalRoot();
+			localRoot.mkdirs();
+			final LocalRepoManager localRepoManager = localRepoManagerFactory.createLocalRepoManagerForNewRepository(localRoot);
+			assertThat(localRepoManager).isNotNull();
+
+			final File child_1 = createDirectory(localRoot, "1");
+			final File child_1_a = createFileWithRandomContent(child_1, "a");
+			createFileWithRandomContent(child_1, "b");
+			final File child_2 = createDirectory(localRoot, "2");
+			createFileWithRandomContent(child_2, "a");
+
+			// Give the watcher some time to register all directories - the first sync is a full scan, anyway.
+			Thread.sleep(1000);
+			localRepoManager.localSync(new LoggerProgressMonitor(logger));
+			assertThatFilesInRepoAreCorrect(localRoot);
+
+			// Now, the watcher records all changes and the next sync only looks at them.
+			deleteFile(child_1_a);
+			createFileWithRandomContent(child_2, "b");
+			final File child_2_1 = createDirectory(child_2, "1");
+			createFileWithRandomContent(child_2_1, "a");
+			final File child_3 = createDirectory(localRoot, "3");
+			final File child_3_1 = createDirectory(child_3, "1");
+			createFileWithRandomContent(child_3_1, "a");
+
+			Thread.sleep(1000);
+			localRepoManager.localSync(new LoggerProgressMonitor(logger));
+			assertThatFilesInRepoAreCorrect(localRoot);
+
+			localRepoManager.close();
+		} finally {
+			System.clearProperty(systemPropertyKey);
+		}
+	}
+
 	private File newTestRepositoryLocalRoot() throws IOException {
 		return newTestRepositoryLocalRoot("");
 	}
@@ -0,0 +1,138 @@
+package co.codewizards.cloudstore.local;
+
+import static co.codewizards.cloudstore.core.oio.OioFileFactory.*;
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.codewizards.cloudstore.core.config.Config;
+import co.codewizards.cloudstore.core.oio.File;
+import co.codewizards.cloudstore.core.progress.LoggerProgressMonitor;
+import co.codewizards.cloudstore.core.repo.local.LocalRepoManager;
+import co.codewizards.cloudstore.core.util.PropertiesUtil;
+import co.codewizards.cloudstore.local.db.DatabaseAdapterFactory;
+
+public class MigrateDatabaseTest extends AbstractTest {
+	private static final Logger logger = LoggerFactory.getLogger(MigrateDatabaseTest.class);
+
+	private static final String SYSTEM_PROPERTY_DATABASE_ADAPTER_NAME =
+			Config.SYSTEM_PROPERTY_PREFIX + DatabaseAdapterFactory.CONFIG_KEY_DATABASE_ADAPTER_NAME;
+
+	@BeforeClass
+	public static void beforeClass() {
+		System.setProperty(LocalRepoManager.SYSTEM_PROPERTY_CLOSE_DEFERRED_MILLIS, "0");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		System.clearProperty(LocalRepoManager.SYSTEM_PROPERTY_CLOSE_DEFERRED_MILLIS);
+	}
+
+	@Test
+	public void createRepositoryWithH2() throws Exception {
+		final File localRoot;
+		System.setProperty(SYSTEM_PROPERTY_DATABASE_ADAPTER_NAME, "h2");
+		try {
+			localRoot = createRepositoryWithFiles();
+		} finally {
+			System.clearProperty(SYSTEM_PROPERTY_DATABASE_ADAPTER_NAME);
+		}
+		assertThat(getConnectionURL(localRoot)).startsWith("jdbc:h2:");
+
+		addFilesAndSync(localRoot);
+		assertThatFilesInRepoAreCorrect(localRoot);
+	}
+
+	@Test
+	public void migrateDerbyToH2AndUndo() throws Exception {
+		final File localRoot = createRepositoryWithFiles();
+		assertThat(getConnectionURL(localRoot)).startsWith("jdbc:derby:");
+
+		new MigrateDatabase(localRoot, "h2").run();
+		assertThat(getConnectionURL(localRoot)).startsWith("jdbc:h2:");
+		assertThatFilesInRepoAreCorrect(localRoot);
+
+		// New rows must not collide with the copied ones.
+		addFilesAndSync(localRoot);
+		assertThatFilesInRepoAreCorrect(localRoot);
+
+		// The old database is kept => undo the migration by restoring the backup.
+		undoMigration(localRoot);
+		assertThat(getConnectionURL(localRoot)).startsWith("jdbc:derby:");
+
+		addFilesAndSync(localRoot);
+		assertThatFilesInRepoAreCorrect(localRoot);
+	}
+
+	@Test
+	public void migrateDerbyToH2AgainAfterUndo() throws Exception {
+		final File localRoot = createRepositoryWithFiles();
+		new MigrateDatabase(localRoot, "h2").run();
+		undoMigration(localRoot);
+
+		// Files added after the undo must be migrated, too - the database left from the first migration is stale.
+		addFilesAndSync(localRoot);
+
+		new MigrateDatabase(localRoot, "h2").run();
+		assertThat(getConnectionURL(localRoot)).startsWith("jdbc:h2:");
+		assertThatFilesInRepoAreCorrect(localRoot);
+
+		addFilesAndSync(localRoot);
+		assertThatFilesInRepoAreCorrect(localRoot);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void migrateToDerbyIsRejected() throws Exception {
+		new MigrateDatabase(newTestRepositoryLocalRoot(""), "derby");
+	}
+
+	private File createRepositoryWithFiles() throws Exception {
+		final File localRoot = newTestRepositoryLocalRoot("");
+		localRoot.mkdirs();
+		try (LocalRepoManager localRepoManager = localRepoManagerFactory.createLocalRepoManagerForNewRepository(localRoot);) {
+			final File child_1 = createDirectory(localRoot, "1");
+			createFileWithRandomContent(child_1, "a");
+			createFileWithRandomContent(child_1, "b", 200000);
+
+			final File child_2 = createDirectory(localRoot, "2");
+			createFileWithRandomContent(child_2, "a");
+
+			localRepoManager.localSync(new LoggerProgressMonitor(logger));
+		}
+		assertThatFilesInRepoAreCorrect(localRoot);
+		return localRoot;
+	}
+
+	private void addFilesAndSync(final File localRoot) throws Exception {
+		try (LocalRepoManager localRepoManager = localRepoManagerFactory.createLocalRepoManagerForExistingRepository(localRoot);) {
+			final File dir = createDirectory(localRoot, Long.toString(System.nanoTime(), 36));
+			createFileWithRandomContent(dir, "a");
+			createFileWithRandomContent(dir, "b", 100000);
+
+			localRepoManager.localSync(new LoggerProgressMonitor(logger));
+		}
+	}
+
+	private static void undoMigration(final File localRoot) {
+		final File metaDir = createFile(localRoot, LocalRepoManager.META_DIR_NAME);
+		final File persistencePropertiesFile = createFile(metaDir, LocalRepoManager.PERSISTENCE_PROPERTIES_FILE_NAME);
+		final File backupPersistencePropertiesFile = createFile(metaDir,
+				LocalRepoManager.PERSISTENCE_PROPERTIES_FILE_NAME + ".derby" + MigrateDatabase.BACKUP_FILE_NAME_SUFFIX);
+		assertThat(backupPersistencePropertiesFile.isFile()).isTrue();
+		assertThat(persistencePropertiesFile.delete()).isTrue();
+		assertThat(backupPersistencePropertiesFile.renameTo(persistencePropertiesFile)).isTrue();
+	}
+
+	private static String getConnectionURL(final File localRoot) throws IOException {
+		final Properties properties = PropertiesUtil.load(
+				createFile(localRoot, LocalRepoManager.META_DIR_NAME, LocalRepoManager.PERSISTENCE_PROPERTIES_FILE_NAME));
+		return properties.getProperty(PersistencePropertiesEnum.CONNECTION_URL.key);
+	}
+}
@@ -18,13 +18,19 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import co.codewizards.cloudstore.core.config.Config;
+import co.codewizards.cloudstore.core.dto.FileChunkDto;
+import co.codewizards.cloudstore.core.dto.RepoFileDtoTreeNode;
 import co.codewizards.cloudstore.core.oio.File;
 import co.codewizards.cloudstore.core.progress.LoggerProgressMonitor;
 import co.codewizards.cloudstore.core.progress.NullProgressMonitor;
 import co.codewizards.cloudstore.core.progress.ProgressMonitor;
+import co.codewizards.cloudstore.core.repo.local.FileChunkingStrategy;
 import co.codewizards.cloudstore.core.repo.local.LocalRepoManager;
+import co.codewizards.cloudstore.core.repo.transport.RepoTransport;
 import co.codewizards.cloudstore.core.util.IOUtil;
 import co.codewizards.cloudstore.local.AbstractTest;
+import co.codewizards.cloudstore.local.transport.ChangeSetDtoBuilder;
 
 public class RepoToRepoSyncTest extends AbstractTest {
 	private static Logger logger = LoggerFactory.getLogger(RepoToRepoSyncTest.class);
@@ -170,6 +176,129 @@ public class RepoToRepoSyncTest extends AbstractTest {
 		assertDirectoriesAreEqualRecursively(getLocalRootWithPathPrefix(), getRemoteRootWithPathPrefix());
 	}
 
+	@Test
+	public void syncFromRemoteToLocalWithPagedChangeSet() throws Exception {
+		final String systemPropertyKey = Config.SYSTEM_PROPERTY_PREFIX + ChangeSetDtoBuilder.CONFIG_KEY_PAGE_SIZE;
+		System.setProperty(systemPropertyKey, "2");
+		try {
+			syncFromRemoteToLocalWithAddedFilesAndDirectories();
+		} finally {
+			System.clearProperty(systemPropertyKey);
+		}
+	}
+
+	@Test
+	public void syncFromRemoteToLocalWithInsertedDataAndContentDefinedChunking() throws Exception {
+		final String systemPropertyKey = Config.SYSTEM_PROPERTY_PREFIX + FileChunkingStrategy.CONFIG_KEY;
+		System.setProperty(systemPropertyKey, FileChunkingStrategy.contentDefined.name());
+		try {
+			syncFromRemoteToLocal();
+
+			final LocalRepoManager localRepoManagerRemote = localRepoManagerFactory.createLocalRepoManagerForExistingRepository(remoteRoot);
+			final File child_2 = createFile(remoteRoot, "2");
+			final File child_2_big = createFileWithRandomContent(child_2, "big", 5 * FileChunkDto.MAX_LENGTH);
+			localRepoManagerRemote.localSync(new LoggerProgressMonitor(logger));
+
+			RepoToRepoSync repoToRepoSync = new RepoToRepoSync(getLocalRootWithPathPrefix(), getRemoteRootUrlWithPathPrefix());
+			repoToRepoSync.sync(new LoggerProgressMonitor(logger));
+			repoToRepoSync.close();
+			assertDirectoriesAreEqualRecursively(getLocalRootWithPathPrefix(), getRemoteRootWithPathPrefix());
+
+			// Insert a few bytes near the beginning => with fixed-length chunks, all chunks would be dirty.
+			final byte[] oldData = IOUtil.getBytesFromFile(child_2_big);
+			final byte[] insertedData = new byte[100];
+			random.nextBytes(insertedData);
+			final OutputStream out = child_2_big.createOutputStream();
+			out.write(oldData, 0, 1000);
+			out.write(insertedData);
+			out.write(oldData, 1000, oldData.length - 1000);
+			out.close();
+			localRepoManagerRemote.localSync(new LoggerProgressMonitor(logger));
+			localRepoManagerRemote.close();
+
+			final int[] reusedFileChunkCount = new int[1];
+			repoToRepoSync = new RepoToRepoSync(getLocalRootWithPathPrefix(), getRemoteRootUrlWithPathPrefix()) {
+				@Override
+				protected List<FileChunkDto> putFileDataFromExistingChunks(final RepoTransport fromRepoTransport,
+						final RepoTransport toRepoTransport, final RepoFileDtoTreeNode repoFileDtoTreeNode,
+						final String path, final List<FileChunkDto> fileChunkDtos) {
+					final List<FileChunkDto> result = super.putFileDataFromExistingChunks(
+							fromRepoTransport, toRepoTransport, repoFileDtoTreeNode, path, fileChunkDtos);
+					reusedFileChunkCount[0] += result.size();
+					return result;
+				}
+			};
+			repoToRepoSync.sync(new LoggerProgressMonitor(logger));
+			repoToRepoSync.close();
+
+			assertThatNoCollisionInRepo(localRoot);
+			assertThatNoCollisionInRepo(remoteRoot);
+			assertDirectoriesAreEqualRecursively(getLocalRootWithPathPrefix(), getRemoteRootWithPathPrefix());
+			assertThat(reusedFileChunkCount[0]).isGreaterThan(0);
+		} finally {
+			System.clearProperty(systemPropertyKey);
+		}
+	}
+
+	@Test
+	public void syncFromRemoteToLocalWithModifiedAndAppendedDataAndDeltaTransfer() throws Exception {
+		syncFromRemoteToLocal();
+
+		final LocalRepoManager localRepoManagerRemote = localRepoManagerFactory.createLocalRepoManagerForExistingRepository(remoteRoot);
+		final File child_2 = createFile(remoteRoot, "2");
+		final File child_2_big = createFileWithRandomContent(child_2, "big", 2 * FileChunkDto.MAX_LENGTH + FileChunkDto.MAX_LENGTH / 2);
+		localRepoManagerRemote.localSync(new LoggerProgressMonitor(logger));
+
+		RepoToRepoSync repoToRepoSync = new RepoToRepoSync(getLocalRootWithPathPrefix(), getRemoteRootUrlWithPathPrefix());
+		repoToRepoSync.sync(new LoggerProgressMonitor(logger));
+		repoToRepoSync.close();
+		assertDirectoriesAreEqualRecursively(getLocalRootWithPathPrefix(), getRemoteRootWithPathPrefix());
+
+		// Modify a few bytes in the middle and append some data => the dirty chunks already have data in the destination.
+		final long oldLength = child_2_big.length();
+		final byte[] modifiedData = new byte[10];
+		random.nextBytes(modifiedData);
+		final byte[] appendedData = new byte[100000];
+		random.nextBytes(appendedData);
+		final RandomAccessFile raf = child_2_big.createRandomAccessFile("rw");
+		try {
+			raf.seek(FileChunkDto.MAX_LENGTH + 1000);
+			raf.write(modifiedData);
+			raf.seek(oldLength);
+			raf.write(appendedData);
+		} finally {
+			raf.close();
+		}
+		localRepoManagerRemote.localSync(new LoggerProgressMonitor(logger));
+		localRepoManagerRemote.close();
+
+		final List<Long> completelyCopiedOffsets = new ArrayList<Long>();
+		repoToRepoSync = new RepoToRepoSync(getLocalRootWithPathPrefix(), getRemoteRootUrlWithPathPrefix()) {
+			@Override
+			protected boolean isFileDataDeltaTransfer(final RepoTransport fromRepoTransport, final RepoTransport toRepoTransport) {
+				return true; // both repositories are local => would be disabled otherwise.
+			}
+
+			@Override
+			protected void putFileData(final RepoTransport fromRepoTransport, final RepoTransport toRepoTransport,
+					final RepoFileDtoTreeNode repoFileDtoTreeNode, final String path, final FileChunkDto fileChunkDto,
+					final byte[] fileData) {
+				synchronized (completelyCopiedOffsets) {
+					completelyCopiedOffsets.add(fileChunkDto.getOffset());
+				}
+				super.putFileData(fromRepoTransport, toRepoTransport, repoFileDtoTreeNode, path, fileChunkDto, fileData);
+			}
+		};
+		repoToRepoSync.sync(new LoggerProgressMonitor(logger));
+		repoToRepoSync.close();
+
+		assertThatNoCollisionInRepo(localRoot);
+		assertThatNoCollisionInRepo(remoteRoot);
+		assertDirectoriesAreEqualRecursively(getLocalRootWithPathPrefix(), getRemoteRootWithPathPrefix());
+		for (final Long offset : completelyCopiedOffsets)
+			assertThat(offset).isGreaterThanOrEqualTo(oldLength);
+	}
+
 	@Test
 	public void syncFromRemoteToLocalWithModifiedFiles() throws Exception {
 		syncFromRemoteToLocal();
@@ -0,0 +1,284 @@
+package co.codewizards.cloudstore.local.transport;
+
+import static co.codewizards.cloudstore.core.oio.OioFileFactory.*;
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import co.codewizards.cloudstore.core.oio.File;
+import co.codewizards.cloudstore.core.util.HashUtil;
+import co.codewizards.cloudstore.local.AbstractTest;
+
+public class TempChunkFileManagerTest extends AbstractTest {
+
+	private static final int CHUNK_LENGTH = 1000;
+
+	private TempChunkFileManager tempChunkFileManager;
+	private File destFile;
+
+	@Before
+	@Override
+	public void before() {
+		super.before();
+		tempChunkFileManager = new TempChunkFileManager();
+		try {
+			final File dir = newTestRepositoryLocalRoot("");
+			dir.mkdirs();
+			destFile = createFile(dir, "file");
+		} catch (final Exception x) {
+			throw new RuntimeException(x);
+		}
+	}
+
+	@Test
+	public void newerChunkSupersedesOlderOne() throws Exception {
+		final byte[] oldData = randomData(CHUNK_LENGTH);
+		final byte[] newData = randomData(CHUNK_LENGTH);
+		tempChunkFileManager.writeFileDataToTempChunkFile(destFile, 0, oldData);
+		tempChunkFileManager.writeFileDataToTempChunkFile(destFile, 0, newData);
+
+		final SortedMap<Long, TempChunk> offset2TempChunk = tempChunkFileManager.getOffset2TempChunk(destFile);
+		assertThat(offset2TempChunk).hasSize(1);
+		final TempChunk tempChunk = offset2TempChunk.get(0L);
+		assertThat(tempChunk.getSha1()).isEqualTo(HashUtil.sha1(newData));
+		assertThat(tempChunk.getDataOffset()).isEqualTo(CHUNK_LENGTH);
+		assertThat(readTempChunkData(tempChunk)).isEqualTo(newData);
+
+		// The old chunk was hashed already => the SHA1 of the entire file is not known anymore.
+		assertThat(tempChunkFileManager.getFileSha1(destFile, CHUNK_LENGTH)).isNull();
+	}
+
+	@Test
+	public void tornTrailingRecordIsIgnored() throws Exception {
+		final byte[] data0 = randomData(CHUNK_LENGTH);
+		final byte[] data1 = randomData(CHUNK_LENGTH);
+		final byte[] data2 = randomData(CHUNK_LENGTH);
+		tempChunkFileManager.writeFileDataToTempChunkFile(destFile, 0, data0);
+		tempChunkFileManager.writeFileDataToTempChunkFile(destFile, CHUNK_LENGTH, data1);
+
+		// Simulate a crash while the second record was written.
+		final File indexFile = tempChunkFileManager.getTempChunkIndexFile(destFile);
+		final RandomAccessFile raf = indexFile.createRandomAccessFile("rw");
+		try {
+			raf.setLength(raf.length() - 7);
+		} finally {
+			raf.close();
+		}
+
+		SortedMap<Long, TempChunk> offset2TempChunk = tempChunkFileManager.getOffset2TempChunk(destFile);
+		assertThat(offset2TempChunk.keySet()).containsExactly(0L);
+		assertThat(offset2TempChunk.get(0L).getSha1()).isEqualTo(HashUtil.sha1(data0));
+
+		// The next record must replace the torn one - not be appended after it.
+		tempChunkFileManager.writeFileDataToTempChunkFile(destFile, 2 * CHUNK_LENGTH, data2);
+		offset2TempChunk = tempChunkFileManager.getOffset2TempChunk(destFile);
+		assertThat(offset2TempChunk.keySet()).containsExactly(0L, 2L * CHUNK_LENGTH);
+		assertThat(offset2TempChunk.get(2L * CHUNK_LENGTH).getSha1()).isEqualTo(HashUtil.sha1(data2));
+		assertThat(readTempChunkData(offset2TempChunk.get(2L * CHUNK_LENGTH))).isEqualTo(data2);
+	}
+
+	@Test
+	public void siblingWithIndexSuffixDoesNotCollide() throws Exception {
+		final File siblingDestFile = createFile(destFile.getParentFile(), destFile.getName() + ".idx");
+		final byte[] data = randomData(CHUNK_LENGTH);
+		final byte[] siblingData = randomData(CHUNK_LENGTH);
+		tempChunkFileManager.writeFileDataToTempChunkFile(destFile, 0, data);
+		tempChunkFileManager.writeFileDataToTempChunkFile(siblingDestFile, 0, siblingData);
+
+		final List<File> tempFiles = Arrays.asList(
+				tempChunkFileManager.getTempChunkDataFile(destFile), tempChunkFileManager.getTempChunkIndexFile(destFile),
+				tempChunkFileManager.getTempChunkDataFile(siblingDestFile), tempChunkFileManager.getTempChunkIndexFile(siblingDestFile));
+		assertThat(new HashSet<File>(tempFiles)).hasSize(tempFiles.size());
+
+		assertThat(readTempChunkData(tempChunkFileManager.getOffset2TempChunk(destFile).get(0L))).isEqualTo(data);
+		assertThat(readTempChunkData(siblingDestFile, tempChunkFileManager.getOffset2TempChunk(siblingDestFile).get(0L))).isEqualTo(siblingData);
+	}
+
+	@Test
+	public void incrementalSha1WithChunksOutOfOrder() throws Exception {
+		final int chunkCount = 5;
+		final byte[] fileData = randomData(chunkCount * CHUNK_LENGTH);
+		final List<Integer> chunkIndexes = Arrays.asList(3, 1, 4, 0, 2);
+		for (final int chunkIndex : chunkIndexes) {
+			assertThat(tempChunkFileManager.getFileSha1(destFile, fileData.length)).isNull();
+			tempChunkFileManager.writeFileDataToTempChunkFile(destFile, chunkIndex * CHUNK_LENGTH,
+					Arrays.copyOfRange(fileData, chunkIndex * CHUNK_LENGTH, (chunkIndex + 1) * CHUNK_LENGTH));
+		}
+		assertThat(tempChunkFileManager.getFileSha1(destFile, fileData.length)).isEqualTo(HashUtil.sha1(fileData));
+		assertThat(tempChunkFileManager.getFileSha1(destFile, fileData.length - CHUNK_LENGTH)).isNull();
+	}
+
+	@Test
+	public void concurrentAppendsOfSameFile() throws Exception {
+		final int threadCount = 8;
+		final int chunkCountPerThread = 10;
+		final byte[] fileData = randomData(threadCount * chunkCountPerThread * CHUNK_LENGTH);
+		final CountDownLatch startLatch = new CountDownLatch(1);
+		final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+		final List<Thread> threads = new ArrayList<Thread>(threadCount);
+		for (int t = 0; t < threadCount; ++t) {
+			final int threadIndex = t;
+			final Thread thread = new Thread() {
+				@Override
+				public void run() {
+					try {
+						startLatch.await();
+						for (int c = 0; c < chunkCountPerThread; ++c) {
+							final int chunkIndex = c * threadCount + threadIndex;
+							tempChunkFileManager.writeFileDataToTempChunkFile(destFile, chunkIndex * CHUNK_LENGTH,
+									Arrays.copyOfRange(fileData, chunkIndex * CHUNK_LENGTH, (chunkIndex + 1) * CHUNK_LENGTH));
+						}
+					} catch (final Throwable x) {
+						errors.add(x);
+					}
+				}
+			};
+			thread.start();
+			threads.add(thread);
+		}
+		startLatch.countDown();
+		for (final Thread thread : threads)
+			thread.join();
+
+		assertThat(errors).isEmpty();
+
+		final SortedMap<Long, TempChunk> offset2TempChunk = tempChunkFileManager.getOffset2TempChunk(destFile);
+		assertThat(offset2TempChunk).hasSize(threadCount * chunkCountPerThread);
+		for (final TempChunk tempChunk : offset2TempChunk.values()) {
+			final int offset = (int) tempChunk.getOffset();
+			final byte[] expectedData = Arrays.copyOfRange(fileData, offset, offset + CHUNK_LENGTH);
+			assertThat(tempChunk.getSha1()).isEqualTo(HashUtil.sha1(expectedData));
+			assertThat(readTempChunkData(tempChunk)).isEqualTo(expectedData);
+		}
+		assertThat(tempChunkFileManager.getTempChunkDataFile(destFile).length()).isEqualTo(fileData.length);
+		assertThat(tempChunkFileManager.getFileSha1(destFile, fileData.length)).isEqualTo(HashUtil.sha1(fileData));
+	}
+
+	@Test
+	public void deletedChunkIsRemovedFromIndex() throws Exception {
+		final byte[] data0 = randomData(CHUNK_LENGTH);
+		final byte[] data1 = randomData(CHUNK_LENGTH);
+		tempChunkFileManager.writeFileDataToTempChunkFile(destFile, 0, data0);
+		tempChunkFileManager.writeFileDataToTempChunkFile(destFile, CHUNK_LENGTH, data1);
+
+		tempChunkFileManager.deleteTempChunks(destFile, Arrays.asList(0L));
+		assertThat(tempChunkFileManager.getOffset2TempChunk(destFile).keySet()).containsExactly((long) CHUNK_LENGTH);
+
+		// Also after a restart, i.e. with the index being read by a new instance.
+		final TempChunkFileManager tempChunkFileManager2 = new TempChunkFileManager();
+		assertThat(tempChunkFileManager2.getOffset2TempChunk(destFile).keySet()).containsExactly((long) CHUNK_LENGTH);
+
+		// The deleted chunk was hashed already => the SHA1 is not known, even if the chunk is received again.
+		tempChunkFileManager.writeFileDataToTempChunkFile(destFile, 0, data0);
+		assertThat(tempChunkFileManager.getOffset2TempChunk(destFile).keySet()).containsExactly(0L, (long) CHUNK_LENGTH);
+		assertThat(tempChunkFileManager.getFileSha1(destFile, 2 * CHUNK_LENGTH)).isNull();
+	}
+
+	@Test
+	public void callLockedBlocksChunkWrites() throws Exception {
+		final byte[] data = randomData(CHUNK_LENGTH);
+		final CountDownLatch writerStarted = new CountDownLatch(1);
+		final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+		final Thread writer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					writerStarted.countDown();
+					tempChunkFileManager.writeFileDataToTempChunkFile(destFile, 0, data);
+				} catch (final Throwable x) {
+					errors.add(x);
+				}
+			}
+		};
+		final Integer chunkCountWhileLocked = tempChunkFileManager.callLocked(destFile, new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				writer.start();
+				writerStarted.await();
+				writer.join(500);
+				assertThat(writer.isAlive()).isTrue(); // blocked by our lock
+				return tempChunkFileManager.getOffset2TempChunk(destFile).size();
+			}
+		});
+		writer.join();
+
+		assertThat(errors).isEmpty();
+		assertThat(chunkCountWhileLocked).isEqualTo(0);
+		assertThat(tempChunkFileManager.getOffset2TempChunk(destFile).keySet()).containsExactly(0L);
+	}
+
+	@Test
+	public void tryCallLockedSkipsFileLockedByAnotherThread() throws Exception {
+		final Callable<Void> noop = new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				return null;
+			}
+		};
+		final CountDownLatch locked = new CountDownLatch(1);
+		final CountDownLatch unlock = new CountDownLatch(1);
+		final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+		final Thread locker = new Thread() {
+			@Override
+			public void run() {
+				try {
+					tempChunkFileManager.callLocked(destFile, new Callable<Void>() {
+						@Override
+						public Void call() throws Exception {
+							locked.countDown();
+							unlock.await();
+							return null;
+						}
+					});
+				} catch (final Throwable x) {
+					errors.add(x);
+				}
+			}
+		};
+		locker.start();
+		locked.await();
+		try {
+			assertThat(tempChunkFileManager.tryCallLocked(destFile, noop)).isFalse();
+			assertThat(tempChunkFileManager.tryCallLocked(createFile(destFile.getParentFile(), "other"), noop)).isTrue();
+		} finally {
+			unlock.countDown();
+			locker.join();
+		}
+
+		assertThat(errors).isEmpty();
+		assertThat(tempChunkFileManager.tryCallLocked(destFile, noop)).isTrue();
+	}
+
+	private byte[] randomData(final int length) {
+		final byte[] data = new byte[length];
+		random.nextBytes(data);
+		return data;
+	}
+
+	private byte[] readTempChunkData(final TempChunk tempChunk) throws Exception {
+		return readTempChunkData(destFile, tempChunk);
+	}
+
+	private byte[] readTempChunkData(final File destFile, final TempChunk tempChunk) throws Exception {
+		final byte[] data = new byte[tempChunk.getLength()];
+		final RandomAccessFile raf = tempChunkFileManager.getTempChunkDataFile(destFile).createRandomAccessFile("r");
+		try {
+			raf.seek(tempChunk.getDataOffset());
+			raf.readFully(data);
+		} finally {
+			raf.close();
+		}
+		return data;
+	}
+}
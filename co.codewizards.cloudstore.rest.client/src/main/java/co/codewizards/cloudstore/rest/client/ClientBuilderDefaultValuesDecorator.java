@@ -15,9 +15,12 @@ import org.glassfish.jersey.client.ClientProperties;
 import co.codewizards.cloudstore.core.config.Config;
 import co.codewizards.cloudstore.core.config.ConfigImpl;
 import co.codewizards.cloudstore.rest.client.ssl.HostnameVerifierAllowingAll;
+import co.codewizards.cloudstore.rest.shared.filter.ContentEncodingClientFilter;
 import co.codewizards.cloudstore.rest.shared.filter.GZIPClientRequestFilter;
-import co.codewizards.cloudstore.rest.shared.interceptor.GZIPReaderInterceptor;
-import co.codewizards.cloudstore.rest.shared.interceptor.GZIPWriterInterceptor;
+import co.codewizards.cloudstore.rest.shared.interceptor.ContentEncodingReaderInterceptor;
+import co.codewizards.cloudstore.rest.shared.interceptor.ContentEncodingWriterInterceptor;
+import co.codewizards.cloudstore.rest.shared.provider.BinaryDtoMessageBodyReader;
+import co.codewizards.cloudstore.rest.shared.provider.BinaryDtoMessageBodyWriter;
 
 public class ClientBuilderDefaultValuesDecorator extends ClientBuilder{
 	private static final int DEFAULT_SOCKET_CONNECT_TIMEOUT = 1 * 60 * 1000;
@@ -64,9 +67,12 @@ public class ClientBuilderDefaultValuesDecorator extends ClientBuilder{
 
 
 		this.builder.withConfig(clientConfig)
-			.register(GZIPReaderInterceptor.class)
+			.register(ContentEncodingReaderInterceptor.class)
 			.register(GZIPClientRequestFilter.class)
-			.register(GZIPWriterInterceptor.class)
+			.register(ContentEncodingClientFilter.class)
+			.register(ContentEncodingWriterInterceptor.class)
+			.register(BinaryDtoMessageBodyReader.class)
+			.register(BinaryDtoMessageBodyWriter.class)
 			.hostnameVerifier(new HostnameVerifierAllowingAll());
 	}
 
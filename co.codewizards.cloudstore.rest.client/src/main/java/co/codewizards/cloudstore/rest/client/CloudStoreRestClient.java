@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.client.Client;
@@ -26,7 +27,11 @@ import co.codewizards.cloudstore.core.concurrent.DeferredCompletionException;
 import co.codewizards.cloudstore.core.dto.Error;
 import co.codewizards.cloudstore.core.dto.RemoteException;
 import co.codewizards.cloudstore.core.dto.RemoteExceptionUtil;
+import co.codewizards.cloudstore.core.metrics.Counter;
+import co.codewizards.cloudstore.core.metrics.MetricRegistry;
+import co.codewizards.cloudstore.core.metrics.Timer;
 import co.codewizards.cloudstore.core.util.ExceptionUtil;
+import co.codewizards.cloudstore.rest.client.request.AbstractRequest;
 import co.codewizards.cloudstore.rest.client.request.Request;
 import co.codewizards.cloudstore.rest.client.ssl.CallbackDeniedTrustException;
 
@@ -45,6 +50,9 @@ public class CloudStoreRestClient {
 
 	private static final Logger logger = LoggerFactory.getLogger(CloudStoreRestClient.class);
 
+	private static final Timer requestTimer = MetricRegistry.getInstance().timer("restClient.request");
+	private static final Counter requestRetryCounter = MetricRegistry.getInstance().counter("restClient.retry");
+
 	private final URL url;
 	private String baseURL;
 
@@ -159,7 +167,9 @@ public class CloudStoreRestClient {
 
 				try {
 					request.setCloudStoreRestClient(this);
+					final long startNanos = System.nanoTime();
 					final R result = request.execute();
+					recordRequestDuration(request, System.nanoTime() - startNanos);
 
 					if (logger.isDebugEnabled())
 						logger.debug("execute: invocation took {} ms", System.currentTimeMillis() - start);
@@ -173,12 +183,13 @@ public class CloudStoreRestClient {
 						firstException = x;
 
 					markClientBroken(); // make sure we do not reuse this client
-					if (++retryCounter > retryMax || !retryExecuteAfterException(x)) {
+					if (++retryCounter > retryMax || !retryExecuteAfterException(request, x)) {
 						logger.warn("execute: invocation failed (will NOT retry): " + x, x);
 						handleAndRethrowException(firstException); // TODO maybe we should make a MultiCauseException?!
 						throw firstException;
 					}
 					logger.warn("execute: invocation failed (will retry): " + x, x);
+					requestRetryCounter.inc();
 
 					// Wait a bit before retrying (increasingly longer).
 					try { Thread.sleep(retryCounter * 1000L); } catch (Exception y) { doNothing(); }
@@ -190,7 +201,24 @@ public class CloudStoreRestClient {
 		}
 	}
 
-	private boolean retryExecuteAfterException(final Exception x) {
+	/**
+	 * Records the latency of a successful request - in total ({@code restClient.request}) and per request-type
+	 * (e.g. {@code restClient.request.GetChangeSetDto}).
+	 */
+	private static void recordRequestDuration(final Request<?> request, final long durationNanos) {
+		requestTimer.update(durationNanos, TimeUnit.NANOSECONDS);
+		Class<?> requestClass = request.getClass();
+		while (requestClass.isAnonymousClass())
+			requestClass = requestClass.getSuperclass();
+
+		MetricRegistry.getInstance().timer("restClient.request." + requestClass.getSimpleName()).update(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	private boolean retryExecuteAfterException(final Request<?> request, final Exception x) {
+		// A request sending data from a stream cannot be repeated, because the stream was consumed.
+		if (request instanceof AbstractRequest && !((AbstractRequest<?>) request).isRepeatable())
+			return false;
+
 		// If the user explicitly denied trust, we do not retry, because we don't want to ask the user
 		// multiple times.
 		if (ExceptionUtil.getCause(x, CallbackDeniedTrustException.class) != null)
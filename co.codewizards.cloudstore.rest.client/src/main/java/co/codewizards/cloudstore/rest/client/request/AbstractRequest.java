@@ -7,6 +7,7 @@ import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.Invocation;
 import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
 import org.glassfish.jersey.uri.UriComponent;
@@ -18,6 +19,8 @@ import co.codewizards.cloudstore.core.dto.RemoteException;
 import co.codewizards.cloudstore.core.dto.RemoteExceptionUtil;
 import co.codewizards.cloudstore.core.util.AssertUtil;
 import co.codewizards.cloudstore.rest.client.CloudStoreRestClient;
+import co.codewizards.cloudstore.rest.shared.provider.BinaryDtoCodec;
+import co.codewizards.cloudstore.rest.shared.provider.MediaTypeConst;
 
 /**
  * Abstract base class for REST requests.
@@ -32,6 +35,8 @@ import co.codewizards.cloudstore.rest.client.CloudStoreRestClient;
 public abstract class AbstractRequest<R> implements Request<R> {
 	private static final Logger logger = LoggerFactory.getLogger(AbstractRequest.class);
 
+	private static final String ACCEPT_APPLICATION_XML_FALLBACK = MediaType.APPLICATION_XML + ";q=0.9"; //$NON-NLS-1$
+
 	private CloudStoreRestClient cloudStoreRestClient;
 
 	@Override
@@ -57,6 +62,19 @@ public abstract class AbstractRequest<R> implements Request<R> {
 		return cloudStoreRestClient;
 	}
 
+	/**
+	 * Indicates, if this request can be executed again after a failed attempt.
+	 * <p>
+	 * {@link CloudStoreRestClient#execute(Request)} retries failed requests. This is not possible,
+	 * if the request sends data from a stream, which was (partially) consumed by the failed attempt.
+	 * <p>
+	 * The default implementation returns <code>true</code>.
+	 * @return <code>true</code>, if the request may be retried; <code>false</code> otherwise.
+	 */
+	public boolean isRepeatable() {
+		return true;
+	}
+
 	protected void handleException(final RuntimeException x) {
 		getCloudStoreRestClientOrFail().handleAndRethrowException(x);
 	}
@@ -65,6 +83,24 @@ public abstract class AbstractRequest<R> implements Request<R> {
 		return getCloudStoreRestClientOrFail().assignCredentials(builder);
 	}
 
+	/**
+	 * Creates an {@link Invocation.Builder} for a request whose response is a DTO of the given type.
+	 * <p>
+	 * If the DTO is {@linkplain BinaryDtoCodec#isSupported(Class) supported} by the {@link BinaryDtoCodec}, the
+	 * binary media-type is preferred and XML is accepted as fallback (e.g. for older servers). Otherwise, only
+	 * XML is accepted.
+	 * @param webTarget the target. Must not be <code>null</code>.
+	 * @param dtoClass the type of the response. Must not be <code>null</code>.
+	 * @return the builder. Never <code>null</code>.
+	 */
+	protected Invocation.Builder requestDto(final WebTarget webTarget, final Class<?> dtoClass) {
+		AssertUtil.assertNotNull("webTarget", webTarget);
+		if (BinaryDtoCodec.isSupported(AssertUtil.assertNotNull("dtoClass", dtoClass)))
+			return webTarget.request(MediaTypeConst.APPLICATION_CLOUDSTORE_DTO, ACCEPT_APPLICATION_XML_FALLBACK);
+
+		return webTarget.request(MediaType.APPLICATION_XML);
+	}
+
 	protected String getPath(final Class<?> dtoClass) {
 		return "_" + dtoClass.getSimpleName();
 	}
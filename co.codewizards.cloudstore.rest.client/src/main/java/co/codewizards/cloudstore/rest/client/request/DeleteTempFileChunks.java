@@ -0,0 +1,29 @@
+package co.codewizards.cloudstore.rest.client.request;
+
+import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import co.codewizards.cloudstore.core.dto.FileChunkDtoList;
+
+public class DeleteTempFileChunks extends VoidRequest {
+
+	protected final String repositoryName;
+	protected final String path;
+	protected final FileChunkDtoList fileChunkDtoList;
+
+	public DeleteTempFileChunks(final String repositoryName, final String path, final FileChunkDtoList fileChunkDtoList) {
+		this.repositoryName = assertNotNull("repositoryName", repositoryName);
+		this.path = assertNotNull("path", path);
+		this.fileChunkDtoList = assertNotNull("fileChunkDtoList", fileChunkDtoList);
+	}
+
+	@Override
+	protected Response _execute() {
+		return assignCredentials(createWebTarget("_deleteTempFileChunks", urlEncode(repositoryName), encodePath(path))
+				.request()).post(Entity.entity(fileChunkDtoList, MediaType.APPLICATION_XML));
+	}
+
+}
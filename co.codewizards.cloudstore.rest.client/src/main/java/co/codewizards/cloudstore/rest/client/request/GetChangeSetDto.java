@@ -3,7 +3,6 @@ package co.codewizards.cloudstore.rest.client.request;
 import static co.codewizards.cloudstore.core.util.AssertUtil.*;
 
 import javax.ws.rs.client.WebTarget;
-import javax.ws.rs.core.MediaType;
 
 import co.codewizards.cloudstore.core.dto.ChangeSetDto;
 
@@ -11,10 +10,32 @@ public class GetChangeSetDto extends AbstractRequest<ChangeSetDto> {
 
 	private final String repositoryName;
 	private final boolean localSync;
-
+	private final boolean paged;
+	private final String cursor;
+
+	/**
+	 * Creates a request for the entire change-set.
+	 * @param repositoryName the name (or ID) of the server-repository. Must not be <code>null</code>.
+	 * @param localSync whether the server should perform a local sync first.
+	 */
 	public GetChangeSetDto(final String repositoryName, final boolean localSync) {
 		this.repositoryName = assertNotNull("repositoryName", repositoryName);
 		this.localSync = localSync;
+		this.paged = false;
+		this.cursor = null;
+	}
+
+	/**
+	 * Creates a request for one page of the change-set.
+	 * @param repositoryName the name (or ID) of the server-repository. Must not be <code>null</code>.
+	 * @param localSync whether the server should perform a local sync first. Ignored, if {@code cursor != null}.
+	 * @param cursor the cursor of the previous page. <code>null</code> for the first page.
+	 */
+	public GetChangeSetDto(final String repositoryName, final boolean localSync, final String cursor) {
+		this.repositoryName = assertNotNull("repositoryName", repositoryName);
+		this.localSync = localSync;
+		this.paged = true;
+		this.cursor = cursor;
 	}
 
 	@Override
@@ -24,7 +45,13 @@ public class GetChangeSetDto extends AbstractRequest<ChangeSetDto> {
 		if (localSync)
 			webTarget = webTarget.queryParam("localSync", localSync);
 
-		final ChangeSetDto changeSetDto = assignCredentials(webTarget.request(MediaType.APPLICATION_XML)).get(ChangeSetDto.class);
+		if (paged)
+			webTarget = webTarget.queryParam("paged", paged);
+
+		if (cursor != null)
+			webTarget = webTarget.queryParam("cursor", cursor);
+
+		final ChangeSetDto changeSetDto = assignCredentials(requestDto(webTarget, ChangeSetDto.class)).get(ChangeSetDto.class);
 		return changeSetDto;
 	}
 
@@ -0,0 +1,43 @@
+package co.codewizards.cloudstore.rest.client.request;
+
+import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+
+import co.codewizards.cloudstore.core.dto.FileDataDeltaDto;
+import co.codewizards.cloudstore.core.dto.FileDataSignatureDto;
+
+public class GetFileDataDeltaDto extends AbstractRequest<FileDataDeltaDto> {
+	private final String repositoryName;
+	private final String path;
+	private final long offset;
+	private final int length;
+	private final FileDataSignatureDto fileDataSignatureDto;
+
+	public GetFileDataDeltaDto(final String repositoryName, final String path, final long offset, final int length,
+			final FileDataSignatureDto fileDataSignatureDto) {
+		this.repositoryName = assertNotNull("repositoryName", repositoryName);
+		this.path = assertNotNull("path", path);
+		this.offset = offset;
+		this.length = length;
+		this.fileDataSignatureDto = assertNotNull("fileDataSignatureDto", fileDataSignatureDto);
+	}
+
+	@Override
+	public FileDataDeltaDto execute() {
+		// POST, because the signature is too large to be passed as query parameter.
+		final WebTarget webTarget = createWebTarget(getPath(FileDataDeltaDto.class), urlEncode(repositoryName), encodePath(path))
+				.queryParam("offset", offset)
+				.queryParam("length", length);
+		return assignCredentials(requestDto(webTarget, FileDataDeltaDto.class))
+				.post(Entity.entity(fileDataSignatureDto, MediaType.APPLICATION_XML), FileDataDeltaDto.class);
+	}
+
+	@Override
+	public boolean isResultNullable() {
+		return true;
+	}
+
+}
@@ -0,0 +1,53 @@
+package co.codewizards.cloudstore.rest.client.request;
+
+import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+
+import java.io.InputStream;
+
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * Request reading file data as stream.
+ * <p>
+ * In contrast to {@link GetFileData}, the data is not read into memory completely. The caller must
+ * close the returned stream.
+ */
+public class GetFileDataInputStream extends AbstractRequest<InputStream> {
+	private final String repositoryName;
+	private final String path;
+	private final long offset;
+	private final int length;
+
+	public GetFileDataInputStream(final String repositoryName, final String path, final long offset, final int length) {
+		this.repositoryName = assertNotNull("repositoryName", repositoryName);
+		this.path = path;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	@Override
+	public InputStream execute() {
+		WebTarget webTarget = createWebTarget(urlEncode(repositoryName), encodePath(path));
+
+		if (offset > 0) // defaults to 0
+			webTarget = webTarget.queryParam("offset", offset);
+
+		if (length >= 0) // defaults to -1 meaning "all"
+			webTarget = webTarget.queryParam("length", length);
+
+		final Response response = assignCredentials(webTarget.request(MediaType.APPLICATION_OCTET_STREAM)).get();
+		assertResponseIndicatesSuccess(response);
+		if (!response.hasEntity()) { // the file was deleted or modified
+			response.close();
+			return null;
+		}
+		return response.readEntity(InputStream.class);
+	}
+
+	@Override
+	public boolean isResultNullable() {
+		return true;
+	}
+}
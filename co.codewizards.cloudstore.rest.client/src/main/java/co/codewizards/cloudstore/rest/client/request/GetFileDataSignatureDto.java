@@ -0,0 +1,35 @@
+package co.codewizards.cloudstore.rest.client.request;
+
+import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+
+import javax.ws.rs.client.WebTarget;
+
+import co.codewizards.cloudstore.core.dto.FileDataSignatureDto;
+
+public class GetFileDataSignatureDto extends AbstractRequest<FileDataSignatureDto> {
+	private final String repositoryName;
+	private final String path;
+	private final long offset;
+	private final int length;
+
+	public GetFileDataSignatureDto(final String repositoryName, final String path, final long offset, final int length) {
+		this.repositoryName = assertNotNull("repositoryName", repositoryName);
+		this.path = assertNotNull("path", path);
+		this.offset = offset;
+		this.length = length;
+	}
+
+	@Override
+	public FileDataSignatureDto execute() {
+		final WebTarget webTarget = createWebTarget(getPath(FileDataSignatureDto.class), urlEncode(repositoryName), encodePath(path))
+				.queryParam("offset", offset)
+				.queryParam("length", length);
+		return assignCredentials(requestDto(webTarget, FileDataSignatureDto.class)).get(FileDataSignatureDto.class);
+	}
+
+	@Override
+	public boolean isResultNullable() {
+		return true;
+	}
+
+}
@@ -3,7 +3,6 @@ package co.codewizards.cloudstore.rest.client.request;
 import static co.codewizards.cloudstore.core.util.AssertUtil.*;
 
 import javax.ws.rs.client.WebTarget;
-import javax.ws.rs.core.MediaType;
 
 import co.codewizards.cloudstore.core.dto.RepoFileDto;
 
@@ -19,7 +18,7 @@ public class GetRepoFileDto extends AbstractRequest<RepoFileDto> {
 	@Override
 	public RepoFileDto execute() {
 		final WebTarget webTarget = createWebTarget(getPath(RepoFileDto.class), urlEncode(repositoryName), encodePath(path));
-		final RepoFileDto repoFileDto = assignCredentials(webTarget.request(MediaType.APPLICATION_XML)).get(RepoFileDto.class);
+		final RepoFileDto repoFileDto = assignCredentials(requestDto(webTarget, RepoFileDto.class)).get(RepoFileDto.class);
 		return repoFileDto;
 	}
 
@@ -2,6 +2,8 @@ package co.codewizards.cloudstore.rest.client.request;
 
 import static co.codewizards.cloudstore.core.util.AssertUtil.*;
 
+import java.io.InputStream;
+
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
@@ -12,12 +14,39 @@ public class PutFileData extends VoidRequest {
 	private final String path;
 	private final long offset;
 	private final byte[] fileData;
+	private final InputStream in;
+	private final int length;
+	private boolean executed;
 
 	public PutFileData(final String repositoryName, final String path, final long offset, final byte[] fileData) {
 		this.repositoryName = assertNotNull("repositoryName", repositoryName);
 		this.path = assertNotNull("path", path);
 		this.offset = offset;
 		this.fileData = assertNotNull("fileData", fileData);
+		this.in = null;
+		this.length = fileData.length;
+	}
+
+	/**
+	 * Creates a request sending exactly {@code length} bytes read from the given stream.
+	 * <p>
+	 * Such a request is not {@linkplain #isRepeatable() repeatable}.
+	 */
+	public PutFileData(final String repositoryName, final String path, final long offset, final InputStream in, final int length) {
+		this.repositoryName = assertNotNull("repositoryName", repositoryName);
+		this.path = assertNotNull("path", path);
+		this.offset = offset;
+		this.fileData = null;
+		this.in = assertNotNull("in", in);
+		if (length < 0)
+			throw new IllegalArgumentException("length < 0");
+
+		this.length = length;
+	}
+
+	@Override
+	public boolean isRepeatable() {
+		return in == null;
 	}
 
 	@Override
@@ -27,6 +56,17 @@ public class PutFileData extends VoidRequest {
 		if (offset > 0)
 			webTarget = webTarget.queryParam("offset", offset);
 
+		// The server needs the length to stream the data directly into the file (the Content-Length
+		// is not usable, because the entity might be compressed).
+		webTarget = webTarget.queryParam("length", length);
+
+		if (in != null) {
+			if (executed)
+				throw new IllegalStateException("The stream was already consumed by a previous attempt!");
+
+			executed = true;
+			return assignCredentials(webTarget.request()).put(Entity.entity(in, MediaType.APPLICATION_OCTET_STREAM));
+		}
 		return assignCredentials(webTarget.request()).put(Entity.entity(fileData, MediaType.APPLICATION_OCTET_STREAM));
 	}
 }
@@ -0,0 +1,36 @@
+package co.codewizards.cloudstore.rest.client.request;
+
+import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+
+import co.codewizards.cloudstore.core.dto.FileChunkDto;
+import co.codewizards.cloudstore.core.dto.FileDataDeltaDto;
+
+public class PutFileDataDelta extends AbstractRequest<FileChunkDto> {
+
+	protected final String repositoryName;
+	protected final String path;
+	protected final FileDataDeltaDto fileDataDeltaDto;
+
+	public PutFileDataDelta(final String repositoryName, final String path, final FileDataDeltaDto fileDataDeltaDto) {
+		this.repositoryName = assertNotNull("repositoryName", repositoryName);
+		this.path = assertNotNull("path", path);
+		this.fileDataDeltaDto = assertNotNull("fileDataDeltaDto", fileDataDeltaDto);
+	}
+
+	@Override
+	public FileChunkDto execute() {
+		final WebTarget webTarget = createWebTarget("_putFileDataDelta", urlEncode(repositoryName), encodePath(path));
+		return assignCredentials(requestDto(webTarget, FileChunkDto.class))
+				.post(Entity.entity(fileDataDeltaDto, MediaType.APPLICATION_XML), FileChunkDto.class);
+	}
+
+	@Override
+	public boolean isResultNullable() {
+		return true;
+	}
+
+}
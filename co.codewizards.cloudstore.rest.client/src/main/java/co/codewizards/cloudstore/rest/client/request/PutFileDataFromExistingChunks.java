@@ -0,0 +1,35 @@
+package co.codewizards.cloudstore.rest.client.request;
+
+import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+
+import co.codewizards.cloudstore.core.dto.FileChunkDtoList;
+
+public class PutFileDataFromExistingChunks extends AbstractRequest<FileChunkDtoList> {
+
+	protected final String repositoryName;
+	protected final String path;
+	protected final FileChunkDtoList fileChunkDtoList;
+
+	public PutFileDataFromExistingChunks(final String repositoryName, final String path, final FileChunkDtoList fileChunkDtoList) {
+		this.repositoryName = assertNotNull("repositoryName", repositoryName);
+		this.path = assertNotNull("path", path);
+		this.fileChunkDtoList = assertNotNull("fileChunkDtoList", fileChunkDtoList);
+	}
+
+	@Override
+	public FileChunkDtoList execute() {
+		final WebTarget webTarget = createWebTarget("_putFileDataFromExistingChunks", urlEncode(repositoryName), encodePath(path));
+		return assignCredentials(requestDto(webTarget, FileChunkDtoList.class))
+				.post(Entity.entity(fileChunkDtoList, MediaType.APPLICATION_XML), FileChunkDtoList.class);
+	}
+
+	@Override
+	public boolean isResultNullable() {
+		return false;
+	}
+
+}
@@ -0,0 +1,28 @@
+package co.codewizards.cloudstore.rest.client.request;
+
+import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import co.codewizards.cloudstore.core.dto.PutFileDtoList;
+
+public class PutFiles extends VoidRequest {
+
+	protected final String repositoryName;
+	protected final PutFileDtoList putFileDtoList;
+
+	public PutFiles(final String repositoryName, final PutFileDtoList putFileDtoList) {
+		this.repositoryName = assertNotNull("repositoryName", repositoryName);
+		this.putFileDtoList = assertNotNull("putFileDtoList", putFileDtoList);
+	}
+
+	@Override
+	public Response _execute() {
+		return assignCredentials(
+				createWebTarget("_putFiles", urlEncode(repositoryName))
+				.request()).put(Entity.entity(putFileDtoList, MediaType.APPLICATION_XML));
+	}
+
+}
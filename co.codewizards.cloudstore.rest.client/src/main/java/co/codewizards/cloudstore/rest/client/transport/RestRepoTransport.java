@@ -1,5 +1,6 @@
 package co.codewizards.cloudstore.rest.client.transport;
 
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.security.GeneralSecurityException;
@@ -24,8 +25,17 @@ import co.codewizards.cloudstore.core.auth.SignedAuthTokenIO;
 import co.codewizards.cloudstore.core.concurrent.DeferredCompletionException;
 import co.codewizards.cloudstore.core.dto.ChangeSetDto;
 import co.codewizards.cloudstore.core.dto.DateTime;
+import co.codewizards.cloudstore.core.dto.FileChunkDto;
+import co.codewizards.cloudstore.core.dto.FileChunkDtoList;
+import co.codewizards.cloudstore.core.dto.FileDataDeltaDto;
+import co.codewizards.cloudstore.core.dto.FileDataDeltaSegmentDto;
+import co.codewizards.cloudstore.core.dto.FileDataSignatureDto;
+import co.codewizards.cloudstore.core.dto.PutFileDto;
+import co.codewizards.cloudstore.core.dto.PutFileDtoList;
 import co.codewizards.cloudstore.core.dto.RepoFileDto;
 import co.codewizards.cloudstore.core.dto.RepositoryDto;
+import co.codewizards.cloudstore.core.io.BandwidthLimiter;
+import co.codewizards.cloudstore.core.io.BandwidthLimiter.Direction;
 import co.codewizards.cloudstore.core.io.TimeoutException;
 import co.codewizards.cloudstore.core.oio.File;
 import co.codewizards.cloudstore.core.repo.local.LocalRepoManager;
@@ -39,18 +49,25 @@ import co.codewizards.cloudstore.rest.client.CredentialsProvider;
 import co.codewizards.cloudstore.rest.client.request.BeginPutFile;
 import co.codewizards.cloudstore.rest.client.request.Copy;
 import co.codewizards.cloudstore.rest.client.request.Delete;
+import co.codewizards.cloudstore.rest.client.request.DeleteTempFileChunks;
 import co.codewizards.cloudstore.rest.client.request.EndPutFile;
 import co.codewizards.cloudstore.rest.client.request.EndSyncFromRepository;
 import co.codewizards.cloudstore.rest.client.request.EndSyncToRepository;
 import co.codewizards.cloudstore.rest.client.request.GetChangeSetDto;
 import co.codewizards.cloudstore.rest.client.request.GetEncryptedSignedAuthToken;
 import co.codewizards.cloudstore.rest.client.request.GetFileData;
+import co.codewizards.cloudstore.rest.client.request.GetFileDataInputStream;
+import co.codewizards.cloudstore.rest.client.request.GetFileDataDeltaDto;
+import co.codewizards.cloudstore.rest.client.request.GetFileDataSignatureDto;
 import co.codewizards.cloudstore.rest.client.request.GetRepoFileDto;
 import co.codewizards.cloudstore.rest.client.request.GetRepositoryDto;
 import co.codewizards.cloudstore.rest.client.request.MakeDirectory;
 import co.codewizards.cloudstore.rest.client.request.MakeSymlink;
 import co.codewizards.cloudstore.rest.client.request.Move;
 import co.codewizards.cloudstore.rest.client.request.PutFileData;
+import co.codewizards.cloudstore.rest.client.request.PutFileDataDelta;
+import co.codewizards.cloudstore.rest.client.request.PutFileDataFromExistingChunks;
+import co.codewizards.cloudstore.rest.client.request.PutFiles;
 import co.codewizards.cloudstore.rest.client.request.RequestRepoConnection;
 import co.codewizards.cloudstore.rest.client.ssl.DynamicX509TrustManagerCallback;
 import co.codewizards.cloudstore.rest.client.ssl.SSLContextBuilder;
@@ -65,6 +82,10 @@ public class RestRepoTransport extends AbstractRepoTransport implements Credenti
 	private byte[] publicKey;
 	private String repositoryName; // server-repository
 	private CloudStoreRestClient client;
+	private volatile boolean putFileDataFromExistingChunksUnsupported;
+	private volatile boolean deleteTempFileChunksUnsupported;
+	private volatile boolean fileDataDeltaUnsupported;
+	private BandwidthLimiter bandwidthLimiter;
 	private final Map<UUID, AuthToken> clientRepositoryId2AuthToken = new HashMap<UUID, AuthToken>(1); // should never be more ;-)
 
 	protected DynamicX509TrustManagerCallback getDynamicX509TrustManagerCallback() {
@@ -84,7 +105,7 @@ public class RestRepoTransport extends AbstractRepoTransport implements Credenti
 	public RestRepoTransport() { }
 
 	@Override
-	public UUID getRepositoryId() {
+	public synchronized UUID getRepositoryId() {
 		if (repositoryId == null) {
 			final RepositoryDto repositoryDto = getRepositoryDto();
 			repositoryId = repositoryDto.getRepositoryId();
@@ -120,10 +141,19 @@ public class RestRepoTransport extends AbstractRepoTransport implements Credenti
 
 	@Override
 	public ChangeSetDto getChangeSetDto(final boolean localSync) {
+		return getChangeSetDto(new GetChangeSetDto(getRepositoryId().toString(), localSync));
+	}
+
+	@Override
+	public ChangeSetDto getChangeSetDto(final boolean localSync, final String cursor) {
+		return getChangeSetDto(new GetChangeSetDto(getRepositoryId().toString(), localSync, cursor));
+	}
+
+	private ChangeSetDto getChangeSetDto(final GetChangeSetDto request) {
 		final long beginTimestamp = System.currentTimeMillis();
 		while (true) {
 			try {
-				return getClient().execute(new GetChangeSetDto(getRepositoryId().toString(), localSync));
+				return getClient().execute(request);
 			} catch (final DeferredCompletionException x) {
 				if (System.currentTimeMillis() > beginTimestamp + changeSetTimeout)
 					throw new TimeoutException(String.format("Could not get change-set within %s milliseconds!", changeSetTimeout), x);
@@ -189,7 +219,21 @@ public class RestRepoTransport extends AbstractRepoTransport implements Credenti
 	@Override
 	public byte[] getFileData(String path, final long offset, final int length) {
 		path = prefixPath(path);
-		return getClient().execute(new GetFileData(getRepositoryId().toString(), path, offset, length));
+		final byte[] fileData = getClient().execute(new GetFileData(getRepositoryId().toString(), path, offset, length));
+		if (fileData != null)
+			getBandwidthLimiter().acquire(Direction.DOWNLOAD, fileData.length);
+
+		return fileData;
+	}
+
+	@Override
+	public InputStream getFileDataInputStream(String path, final long offset, final int length) {
+		path = prefixPath(path);
+		// The bandwidth is acquired in advance, because the data is consumed outside of this method.
+		if (length >= 0)
+			getBandwidthLimiter().acquire(Direction.DOWNLOAD, length);
+
+		return getClient().execute(new GetFileDataInputStream(getRepositoryId().toString(), path, offset, length));
 	}
 
 	@Override
@@ -201,15 +245,135 @@ public class RestRepoTransport extends AbstractRepoTransport implements Credenti
 	@Override
 	public void putFileData(String path, final long offset, final byte[] fileData) {
 		path = prefixPath(path);
+		getBandwidthLimiter().acquire(Direction.UPLOAD, fileData.length);
 		getClient().execute(new PutFileData(getRepositoryId().toString(), path, offset, fileData));
 	}
 
+	@Override
+	public void putFileData(String path, final long offset, final InputStream in, final int length) {
+		path = prefixPath(path);
+		getBandwidthLimiter().acquire(Direction.UPLOAD, length);
+		getClient().execute(new PutFileData(getRepositoryId().toString(), path, offset, in, length));
+	}
+
+	@Override
+	public FileChunkDtoList putFileDataFromExistingChunks(String path, final FileChunkDtoList fileChunkDtoList) {
+		AssertUtil.assertNotNull("fileChunkDtoList", fileChunkDtoList);
+		if (putFileDataFromExistingChunksUnsupported)
+			return new FileChunkDtoList();
+
+		path = prefixPath(path);
+		try {
+			return getClient().execute(new PutFileDataFromExistingChunks(getRepositoryId().toString(), path, fileChunkDtoList));
+		} catch (final RuntimeException x) {
+			// An older server does not know this service. The data is then transferred normally.
+			logger.info("putFileDataFromExistingChunks: Server does not support reusing existing chunks: " + x);
+			logger.debug(x.toString(), x);
+			putFileDataFromExistingChunksUnsupported = true;
+			return new FileChunkDtoList();
+		}
+	}
+
+	@Override
+	public void deleteTempFileChunks(String path, final FileChunkDtoList fileChunkDtoList) {
+		AssertUtil.assertNotNull("fileChunkDtoList", fileChunkDtoList);
+		if (deleteTempFileChunksUnsupported)
+			return;
+
+		path = prefixPath(path);
+		try {
+			getClient().execute(new DeleteTempFileChunks(getRepositoryId().toString(), path, fileChunkDtoList));
+		} catch (final RuntimeException x) {
+			// An older server does not know this service. It then keeps the stale chunks - just like before.
+			logger.info("deleteTempFileChunks: Server does not support deleting temporary chunks: " + x);
+			logger.debug(x.toString(), x);
+			deleteTempFileChunksUnsupported = true;
+		}
+	}
+
+	@Override
+	public FileDataSignatureDto getFileDataSignatureDto(String path, final long offset, final int length) {
+		if (fileDataDeltaUnsupported)
+			return null;
+
+		path = prefixPath(path);
+		try {
+			return getClient().execute(new GetFileDataSignatureDto(getRepositoryId().toString(), path, offset, length));
+		} catch (final RuntimeException x) {
+			// An older server does not know this service. The data is then transferred completely.
+			logger.info("getFileDataSignatureDto: Server does not support delta-transfers: " + x);
+			logger.debug(x.toString(), x);
+			fileDataDeltaUnsupported = true;
+			return null;
+		}
+	}
+
+	@Override
+	public FileDataDeltaDto getFileDataDeltaDto(final String path, final long offset, final int length, final FileDataSignatureDto fileDataSignatureDto) {
+		AssertUtil.assertNotNull("fileDataSignatureDto", fileDataSignatureDto);
+		if (fileDataDeltaUnsupported)
+			return super.getFileDataDeltaDto(path, offset, length, fileDataSignatureDto);
+
+		final FileDataDeltaDto fileDataDeltaDto;
+		try {
+			fileDataDeltaDto = getClient().execute(new GetFileDataDeltaDto(getRepositoryId().toString(), prefixPath(path), offset, length, fileDataSignatureDto));
+		} catch (final RuntimeException x) {
+			// An older server does not know this service. The data is then transferred completely.
+			logger.info("getFileDataDeltaDto: Server does not support delta-transfers: " + x);
+			logger.debug(x.toString(), x);
+			fileDataDeltaUnsupported = true;
+			return super.getFileDataDeltaDto(path, offset, length, fileDataSignatureDto);
+		}
+		getBandwidthLimiter().acquire(Direction.DOWNLOAD, getDataLength(fileDataDeltaDto));
+		return fileDataDeltaDto;
+	}
+
+	@Override
+	public FileChunkDto putFileDataDelta(String path, final FileDataDeltaDto fileDataDeltaDto) {
+		AssertUtil.assertNotNull("fileDataDeltaDto", fileDataDeltaDto);
+		path = prefixPath(path);
+		getBandwidthLimiter().acquire(Direction.UPLOAD, getDataLength(fileDataDeltaDto));
+		return getClient().execute(new PutFileDataDelta(getRepositoryId().toString(), path, fileDataDeltaDto));
+	}
+
+	private static long getDataLength(final FileDataDeltaDto fileDataDeltaDto) {
+		long result = 0;
+		if (fileDataDeltaDto != null) {
+			for (final FileDataDeltaSegmentDto segmentDto : fileDataDeltaDto.getSegmentDtos()) {
+				if (segmentDto.getData() != null)
+					result += segmentDto.getData().length;
+			}
+		}
+		return result;
+	}
+
 	@Override
 	public void endPutFile(String path, final Date lastModified, final long length, final String sha1) {
 		path = prefixPath(path);
 		getClient().execute(new EndPutFile(getRepositoryId().toString(), path, new DateTime(lastModified), length, sha1));
 	}
 
+	@Override
+	public void putFiles(final PutFileDtoList putFileDtoList) {
+		AssertUtil.assertNotNull("putFileDtoList", putFileDtoList);
+		// We must not modify the caller's DTOs => copy them with prefixed paths.
+		final PutFileDtoList prefixedPutFileDtoList = new PutFileDtoList();
+		long fileDataLength = 0;
+		for (final PutFileDto putFileDto : putFileDtoList.getPutFileDtos()) {
+			final PutFileDto prefixedPutFileDto = new PutFileDto();
+			prefixedPutFileDto.setPath(prefixPath(putFileDto.getPath()));
+			prefixedPutFileDto.setLastModified(putFileDto.getLastModified());
+			prefixedPutFileDto.setLength(putFileDto.getLength());
+			prefixedPutFileDto.setSha1(putFileDto.getSha1());
+			prefixedPutFileDto.setFileData(putFileDto.getFileData());
+			prefixedPutFileDtoList.getPutFileDtos().add(prefixedPutFileDto);
+			if (putFileDto.getFileData() != null)
+				fileDataLength += putFileDto.getFileData().length;
+		}
+		getBandwidthLimiter().acquire(Direction.UPLOAD, fileDataLength);
+		getClient().execute(new PutFiles(getRepositoryId().toString(), prefixedPutFileDtoList));
+	}
+
 	@Override
 	public void endSyncFromRepository() {
 		getClient().execute(new EndSyncFromRepository(getRepositoryId().toString()));
@@ -232,7 +396,7 @@ public class RestRepoTransport extends AbstractRepoTransport implements Credenti
 		return authToken.getPassword();
 	}
 
-	private AuthToken getAuthToken() {
+	private synchronized AuthToken getAuthToken() {
 		final UUID clientRepositoryId = getClientRepositoryIdOrFail();
 		AuthToken authToken = clientRepositoryId2AuthToken.get(clientRepositoryId);
 		if (authToken != null && isAfterRenewalDate(authToken)) {
@@ -286,7 +450,21 @@ public class RestRepoTransport extends AbstractRepoTransport implements Credenti
 		return System.currentTimeMillis() > authToken.getRenewalDateTime().getMillis();
 	}
 
-	protected CloudStoreRestClient getClient() {
+	/**
+	 * Gets the limiter throttling the file data transferred between the client's local repository and the
+	 * server's repository.
+	 * @return the limiter. Never <code>null</code>.
+	 */
+	protected synchronized BandwidthLimiter getBandwidthLimiter() {
+		if (bandwidthLimiter == null) {
+			final UUID clientRepositoryId = getClientRepositoryIdOrFail();
+			final File localRoot = AssertUtil.assertNotNull("localRoot", LocalRepoRegistryImpl.getInstance().getLocalRoot(clientRepositoryId));
+			bandwidthLimiter = new BandwidthLimiter(localRoot, getRepositoryId());
+		}
+		return bandwidthLimiter;
+	}
+
+	protected synchronized CloudStoreRestClient getClient() {
 		if (client == null) {
 			ClientBuilder clientBuilder = createClientBuilder();
 			final CloudStoreRestClient c = new CloudStoreRestClient(getRemoteRoot(), clientBuilder);
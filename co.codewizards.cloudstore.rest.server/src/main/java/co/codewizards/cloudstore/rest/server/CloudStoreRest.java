@@ -9,21 +9,31 @@ import org.slf4j.LoggerFactory;
 import co.codewizards.cloudstore.rest.server.service.BeginPutFileService;
 import co.codewizards.cloudstore.rest.server.service.ChangeSetDtoService;
 import co.codewizards.cloudstore.rest.server.service.CopyService;
+import co.codewizards.cloudstore.rest.server.service.DeleteTempFileChunksService;
 import co.codewizards.cloudstore.rest.server.service.EncryptedSignedAuthTokenService;
 import co.codewizards.cloudstore.rest.server.service.EndPutFileService;
 import co.codewizards.cloudstore.rest.server.service.EndSyncFromRepositoryService;
 import co.codewizards.cloudstore.rest.server.service.EndSyncToRepositoryService;
+import co.codewizards.cloudstore.rest.server.service.FileDataDeltaDtoService;
+import co.codewizards.cloudstore.rest.server.service.FileDataSignatureDtoService;
 import co.codewizards.cloudstore.rest.server.service.MakeDirectoryService;
 import co.codewizards.cloudstore.rest.server.service.MakeSymlinkService;
+import co.codewizards.cloudstore.rest.server.service.MetricsService;
 import co.codewizards.cloudstore.rest.server.service.MoveService;
+import co.codewizards.cloudstore.rest.server.service.PutFileDataDeltaService;
+import co.codewizards.cloudstore.rest.server.service.PutFileDataFromExistingChunksService;
+import co.codewizards.cloudstore.rest.server.service.PutFilesService;
 import co.codewizards.cloudstore.rest.server.service.RepoFileDtoService;
 import co.codewizards.cloudstore.rest.server.service.RepositoryDtoService;
 import co.codewizards.cloudstore.rest.server.service.RequestRepoConnectionService;
 import co.codewizards.cloudstore.rest.server.service.TestService;
 import co.codewizards.cloudstore.rest.server.service.WebDavService;
+import co.codewizards.cloudstore.rest.shared.filter.ContentEncodingContainerFilter;
 import co.codewizards.cloudstore.rest.shared.filter.GZIPContainerRequestFilter;
-import co.codewizards.cloudstore.rest.shared.interceptor.GZIPConditionalReaderInterceptor;
-import co.codewizards.cloudstore.rest.shared.interceptor.GZIPConditionalWriterInterceptor;
+import co.codewizards.cloudstore.rest.shared.interceptor.ContentEncodingReaderInterceptor;
+import co.codewizards.cloudstore.rest.shared.interceptor.ContentEncodingWriterInterceptor;
+import co.codewizards.cloudstore.rest.shared.provider.BinaryDtoMessageBodyReader;
+import co.codewizards.cloudstore.rest.shared.provider.BinaryDtoMessageBodyWriter;
 
 /**
  * @author Marco หงุ่ยตระกูล-Schulze - marco at nightlabs dot de
@@ -47,14 +57,21 @@ public class CloudStoreRest extends ResourceConfig {
 				BeginPutFileService.class,
 				ChangeSetDtoService.class,
 				CopyService.class,
+				DeleteTempFileChunksService.class,
 				EncryptedSignedAuthTokenService.class,
 				EndPutFileService.class,
 				EndSyncFromRepositoryService.class,
 				EndSyncToRepositoryService.class,
+				FileDataDeltaDtoService.class,
+				FileDataSignatureDtoService.class,
 				RepoFileDtoService.class,
 				MakeDirectoryService.class,
 				MakeSymlinkService.class,
+				MetricsService.class,
 				MoveService.class,
+				PutFileDataDeltaService.class,
+				PutFileDataFromExistingChunksService.class,
+				PutFilesService.class,
 				RepositoryDtoService.class,
 				RequestRepoConnectionService.class,
 				TestService.class,
@@ -63,11 +80,15 @@ public class CloudStoreRest extends ResourceConfig {
 
 				// BEGIN providers
 				// providers are not services (they are infrastructure), but they are registered the same way.
-				GZIPConditionalReaderInterceptor.class,
-				GZIPConditionalWriterInterceptor.class,
+				ContentEncodingReaderInterceptor.class,
+				ContentEncodingWriterInterceptor.class,
+				ContentEncodingContainerFilter.class,
 				GZIPContainerRequestFilter.class,
+				BinaryDtoMessageBodyReader.class,
+				BinaryDtoMessageBodyWriter.class,
 				CloudStoreJaxbContextResolver.class,
-				DefaultExceptionMapper.class
+				DefaultExceptionMapper.class,
+				MetricsContainerFilter.class
 				// END providers
 				);
 
@@ -0,0 +1,56 @@
+package co.codewizards.cloudstore.rest.server;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+
+import co.codewizards.cloudstore.core.metrics.Counter;
+import co.codewizards.cloudstore.core.metrics.MetricRegistry;
+import co.codewizards.cloudstore.core.metrics.Timer;
+
+/**
+ * Server-side filter recording the latency of every request - in total ({@code restServer.request}) and per
+ * service (e.g. {@code restServer.request.ChangeSetDtoService}).
+ * <p>
+ * The latency is measured from the beginning of the request processing until the response is ready to be
+ * written. Writing the response body (e.g. the file data) is thus not included.
+ */
+public class MetricsContainerFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+	private static final String PROPERTY_START_NANOS = MetricsContainerFilter.class.getName() + ".startNanos";
+
+	private static final Timer requestTimer = MetricRegistry.getInstance().timer("restServer.request");
+	private static final Counter errorCounter = MetricRegistry.getInstance().counter("restServer.error");
+
+	@Override
+	public void filter(final ContainerRequestContext requestContext) throws IOException {
+		requestContext.setProperty(PROPERTY_START_NANOS, System.nanoTime());
+	}
+
+	@Override
+	public void filter(final ContainerRequestContext requestContext, final ContainerResponseContext responseContext) throws IOException {
+		final Long startNanos = (Long) requestContext.getProperty(PROPERTY_START_NANOS);
+		if (startNanos == null)
+			return;
+
+		final long duration = System.nanoTime() - startNanos;
+		requestTimer.update(duration, TimeUnit.NANOSECONDS);
+		MetricRegistry.getInstance().timer("restServer.request." + getServiceName(requestContext)).update(duration, TimeUnit.NANOSECONDS);
+
+		if (responseContext.getStatus() >= 500)
+			errorCounter.inc();
+	}
+
+	private static String getServiceName(final ContainerRequestContext requestContext) {
+		final List<Object> matchedResources = requestContext.getUriInfo().getMatchedResources();
+		if (matchedResources.isEmpty())
+			return "unmatched";
+
+		return matchedResources.get(0).getClass().getSimpleName();
+	}
+}
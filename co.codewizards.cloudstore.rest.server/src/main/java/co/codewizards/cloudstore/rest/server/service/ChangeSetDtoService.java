@@ -17,10 +17,11 @@ import co.codewizards.cloudstore.core.concurrent.DeferrableExecutor;
 import co.codewizards.cloudstore.core.dto.ChangeSetDto;
 //import co.codewizards.cloudstore.core.repo.local.LocalRepoRegistry;
 import co.codewizards.cloudstore.core.repo.transport.RepoTransport;
+import co.codewizards.cloudstore.rest.shared.provider.MediaTypeConst;
 
 @Path("_ChangeSetDto/{repositoryName}")
 @Consumes(MediaType.APPLICATION_XML)
-@Produces(MediaType.APPLICATION_XML)
+@Produces({MediaType.APPLICATION_XML, MediaTypeConst.APPLICATION_CLOUDSTORE_DTO})
 public class ChangeSetDtoService extends AbstractServiceWithRepoToRepoAuth
 {
 	private static final Logger logger = LoggerFactory.getLogger(ChangeSetDtoService.class);
@@ -30,10 +31,11 @@ public class ChangeSetDtoService extends AbstractServiceWithRepoToRepoAuth
 	}
 
 	@GET
-	public ChangeSetDto getChangeSetDto(final @QueryParam("localSync") boolean localSync) {
+	public ChangeSetDto getChangeSetDto(final @QueryParam("localSync") boolean localSync,
+			final @QueryParam("paged") boolean paged, final @QueryParam("cursor") String cursor) {
 		final RepoTransport[] repoTransport = new RepoTransport[] { authenticateAndCreateLocalRepoTransport() };
 		try {
-			final String callIdentifier = ChangeSetDtoService.class.getName() + ".getChangeSetDto|" + repositoryName + '|' + getAuth().getUserName() + '|' + localSync;
+			final String callIdentifier = ChangeSetDtoService.class.getName() + ".getChangeSetDto|" + repositoryName + '|' + getAuth().getUserName() + '|' + localSync + '|' + paged + '|' + cursor;
 			return DeferrableExecutor.getInstance().call(
 					callIdentifier,
 					new CallableProvider<ChangeSetDto>() {
@@ -45,7 +47,7 @@ public class ChangeSetDtoService extends AbstractServiceWithRepoToRepoAuth
 								@Override
 								public ChangeSetDto call() throws Exception { // called *A*synchronously
 									try {
-										final ChangeSetDto changeSetDto = getChangeSetDto(rt, localSync);
+										final ChangeSetDto changeSetDto = paged ? getChangeSetDto(rt, localSync, cursor) : getChangeSetDto(rt, localSync);
 										return changeSetDto;
 									} finally {
 										rt.close();
@@ -63,4 +65,8 @@ public class ChangeSetDtoService extends AbstractServiceWithRepoToRepoAuth
 	protected ChangeSetDto getChangeSetDto(final RepoTransport repoTransport, final boolean localSync) {
 		return repoTransport.getChangeSetDto(localSync);
 	}
+
+	protected ChangeSetDto getChangeSetDto(final RepoTransport repoTransport, final boolean localSync, final String cursor) {
+		return repoTransport.getChangeSetDto(localSync, cursor);
+	}
 }
@@ -0,0 +1,46 @@
+package co.codewizards.cloudstore.rest.server.service;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.codewizards.cloudstore.core.dto.FileDataDeltaDto;
+import co.codewizards.cloudstore.core.dto.FileDataSignatureDto;
+import co.codewizards.cloudstore.core.repo.transport.RepoTransport;
+import co.codewizards.cloudstore.core.util.AssertUtil;
+
+@Path("_FileDataDeltaDto/{repositoryName}")
+@Consumes(MediaType.APPLICATION_XML)
+@Produces(MediaType.APPLICATION_XML)
+public class FileDataDeltaDtoService extends AbstractServiceWithRepoToRepoAuth
+{
+	private static final Logger logger = LoggerFactory.getLogger(FileDataDeltaDtoService.class);
+
+	{
+		logger.debug("<init>: created new instance");
+	}
+
+	@POST
+	@Path("{path:.*}")
+	public FileDataDeltaDto getFileDataDeltaDto(@PathParam("path") String path,
+			@QueryParam("offset") final long offset, @QueryParam("length") final int length,
+			final FileDataSignatureDto fileDataSignatureDto)
+	{
+		AssertUtil.assertNotNull("path", path);
+		AssertUtil.assertNotNull("fileDataSignatureDto", fileDataSignatureDto);
+		final RepoTransport repoTransport = authenticateAndCreateLocalRepoTransport();
+		try {
+			path = repoTransport.unprefixPath(path);
+			return repoTransport.getFileDataDeltaDto(path, offset, length, fileDataSignatureDto);
+		} finally {
+			repoTransport.close();
+		}
+	}
+}
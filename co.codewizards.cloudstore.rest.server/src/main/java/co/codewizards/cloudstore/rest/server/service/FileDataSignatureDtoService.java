@@ -0,0 +1,43 @@
+package co.codewizards.cloudstore.rest.server.service;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.codewizards.cloudstore.core.dto.FileDataSignatureDto;
+import co.codewizards.cloudstore.core.repo.transport.RepoTransport;
+import co.codewizards.cloudstore.core.util.AssertUtil;
+
+@Path("_FileDataSignatureDto/{repositoryName}")
+@Consumes(MediaType.APPLICATION_XML)
+@Produces(MediaType.APPLICATION_XML)
+public class FileDataSignatureDtoService extends AbstractServiceWithRepoToRepoAuth
+{
+	private static final Logger logger = LoggerFactory.getLogger(FileDataSignatureDtoService.class);
+
+	{
+		logger.debug("<init>: created new instance");
+	}
+
+	@GET
+	@Path("{path:.*}")
+	public FileDataSignatureDto getFileDataSignatureDto(@PathParam("path") String path,
+			@QueryParam("offset") final long offset, @QueryParam("length") final int length)
+	{
+		AssertUtil.assertNotNull("path", path);
+		final RepoTransport repoTransport = authenticateAndCreateLocalRepoTransport();
+		try {
+			path = repoTransport.unprefixPath(path);
+			return repoTransport.getFileDataSignatureDto(path, offset, length);
+		} finally {
+			repoTransport.close();
+		}
+	}
+}
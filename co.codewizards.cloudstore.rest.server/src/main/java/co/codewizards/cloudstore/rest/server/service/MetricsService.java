@@ -0,0 +1,59 @@
+package co.codewizards.cloudstore.rest.server.service;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response.Status;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.codewizards.cloudstore.core.config.Config;
+import co.codewizards.cloudstore.core.config.ConfigImpl;
+import co.codewizards.cloudstore.core.dto.MetricDtoList;
+import co.codewizards.cloudstore.core.metrics.MetricRegistry;
+
+/**
+ * Provides all metrics of the server's JVM - the same values as exposed via JMX.
+ * <p>
+ * The metrics contain only numbers - no repository names, paths or other data. Nevertheless, they reveal the
+ * server's activity to everyone able to connect. Since they are not related to a repository, there is no
+ * repository-to-repository authentication. Therefore, this service must be enabled explicitly via
+ * {@link #CONFIG_KEY_ENABLED} - otherwise it replies with {@link Status#NOT_FOUND}.
+ */
+@Path("_metrics")
+@Consumes(MediaType.WILDCARD)
+@Produces(MediaType.APPLICATION_XML)
+public class MetricsService
+{
+	private static final Logger logger = LoggerFactory.getLogger(MetricsService.class);
+
+	/**
+	 * The {@code key} for whether the metrics are served via REST, used with
+	 * {@link Config#getPropertyAsBoolean(String, boolean)}.
+	 * <p>
+	 * This setting is read from the global configuration, only.
+	 * <p>
+	 * The default value is {@link #DEFAULT_ENABLED}.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 */
+	public static final String CONFIG_KEY_ENABLED = "metrics.rest.enabled"; //$NON-NLS-1$
+	public static final boolean DEFAULT_ENABLED = false;
+
+	{
+		logger.debug("<init>: created new instance");
+	}
+
+	@GET
+	public MetricDtoList getMetricDtoList()
+	{
+		if (!ConfigImpl.getInstance().getPropertyAsBoolean(CONFIG_KEY_ENABLED, DEFAULT_ENABLED))
+			throw new WebApplicationException(Status.NOT_FOUND);
+
+		return MetricRegistry.getInstance().getMetricDtoList();
+	}
+}
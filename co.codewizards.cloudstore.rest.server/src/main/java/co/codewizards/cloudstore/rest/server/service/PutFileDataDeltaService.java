@@ -0,0 +1,43 @@
+package co.codewizards.cloudstore.rest.server.service;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.codewizards.cloudstore.core.dto.FileChunkDto;
+import co.codewizards.cloudstore.core.dto.FileDataDeltaDto;
+import co.codewizards.cloudstore.core.repo.transport.RepoTransport;
+import co.codewizards.cloudstore.core.util.AssertUtil;
+
+@Path("_putFileDataDelta/{repositoryName}")
+@Consumes(MediaType.APPLICATION_XML)
+@Produces(MediaType.APPLICATION_XML)
+public class PutFileDataDeltaService extends AbstractServiceWithRepoToRepoAuth
+{
+	private static final Logger logger = LoggerFactory.getLogger(PutFileDataDeltaService.class);
+
+	{
+		logger.debug("<init>: created new instance");
+	}
+
+	@POST
+	@Path("{path:.*}")
+	public FileChunkDto putFileDataDelta(@PathParam("path") String path, final FileDataDeltaDto fileDataDeltaDto)
+	{
+		AssertUtil.assertNotNull("path", path);
+		AssertUtil.assertNotNull("fileDataDeltaDto", fileDataDeltaDto);
+		final RepoTransport repoTransport = authenticateAndCreateLocalRepoTransport();
+		try {
+			path = repoTransport.unprefixPath(path);
+			return repoTransport.putFileDataDelta(path, fileDataDeltaDto);
+		} finally {
+			repoTransport.close();
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package co.codewizards.cloudstore.rest.server.service;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.codewizards.cloudstore.core.dto.FileChunkDtoList;
+import co.codewizards.cloudstore.core.repo.transport.RepoTransport;
+import co.codewizards.cloudstore.core.util.AssertUtil;
+
+@Path("_putFileDataFromExistingChunks/{repositoryName}")
+@Consumes(MediaType.APPLICATION_XML)
+@Produces(MediaType.APPLICATION_XML)
+public class PutFileDataFromExistingChunksService extends AbstractServiceWithRepoToRepoAuth
+{
+	private static final Logger logger = LoggerFactory.getLogger(PutFileDataFromExistingChunksService.class);
+
+	{
+		logger.debug("<init>: created new instance");
+	}
+
+	@POST
+	@Path("{path:.*}")
+	public FileChunkDtoList putFileDataFromExistingChunks(@PathParam("path") String path, final FileChunkDtoList fileChunkDtoList)
+	{
+		AssertUtil.assertNotNull("path", path);
+		AssertUtil.assertNotNull("fileChunkDtoList", fileChunkDtoList);
+		final RepoTransport repoTransport = authenticateAndCreateLocalRepoTransport();
+		try {
+			path = repoTransport.unprefixPath(path);
+			return repoTransport.putFileDataFromExistingChunks(path, fileChunkDtoList);
+		} finally {
+			repoTransport.close();
+		}
+	}
+}
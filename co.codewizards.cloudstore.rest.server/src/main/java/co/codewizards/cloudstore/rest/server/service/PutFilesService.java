@@ -0,0 +1,42 @@
+package co.codewizards.cloudstore.rest.server.service;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.codewizards.cloudstore.core.dto.PutFileDto;
+import co.codewizards.cloudstore.core.dto.PutFileDtoList;
+import co.codewizards.cloudstore.core.repo.transport.RepoTransport;
+import co.codewizards.cloudstore.core.util.AssertUtil;
+
+@Path("_putFiles/{repositoryName}")
+@Consumes(MediaType.APPLICATION_XML)
+@Produces(MediaType.APPLICATION_XML)
+public class PutFilesService extends AbstractServiceWithRepoToRepoAuth
+{
+	private static final Logger logger = LoggerFactory.getLogger(PutFilesService.class);
+
+	{
+		logger.debug("<init>: created new instance");
+	}
+
+	@PUT
+	public void putFiles(final PutFileDtoList putFileDtoList)
+	{
+		AssertUtil.assertNotNull("putFileDtoList", putFileDtoList);
+		final RepoTransport repoTransport = authenticateAndCreateLocalRepoTransport();
+		try {
+			for (final PutFileDto putFileDto : putFileDtoList.getPutFileDtos())
+				putFileDto.setPath(repoTransport.unprefixPath(AssertUtil.assertNotNull("putFileDto.path", putFileDto.getPath())));
+
+			repoTransport.putFiles(putFileDtoList);
+		} finally {
+			repoTransport.close();
+		}
+	}
+}
@@ -17,11 +17,12 @@ import co.codewizards.cloudstore.core.concurrent.DeferrableExecutor;
 import co.codewizards.cloudstore.core.dto.RepoFileDto;
 //import co.codewizards.cloudstore.core.repo.local.LocalRepoRegistry;
 import co.codewizards.cloudstore.core.repo.transport.RepoTransport;
+import co.codewizards.cloudstore.rest.shared.provider.MediaTypeConst;
 import co.codewizards.cloudstore.core.util.AssertUtil;
 
 @Path("_RepoFileDto/{repositoryName}")
 @Consumes(MediaType.APPLICATION_XML)
-@Produces(MediaType.APPLICATION_XML)
+@Produces({MediaType.APPLICATION_XML, MediaTypeConst.APPLICATION_CLOUDSTORE_DTO})
 public class RepoFileDtoService extends AbstractServiceWithRepoToRepoAuth
 {
 	private static final Logger logger = LoggerFactory.getLogger(RepoFileDtoService.class);
@@ -1,6 +1,13 @@
 package co.codewizards.cloudstore.rest.server.service;
 
 import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+import static co.codewizards.cloudstore.core.util.IOUtil.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
@@ -12,13 +19,16 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import co.codewizards.cloudstore.core.dto.DateTime;
 import co.codewizards.cloudstore.core.dto.RepoFileDto;
+import co.codewizards.cloudstore.core.io.FileChannelInputStream;
 import co.codewizards.cloudstore.core.repo.transport.RepoTransport;
 import co.codewizards.cloudstore.core.util.AssertUtil;
 import co.codewizards.cloudstore.rest.server.webdav.COPY;
@@ -45,15 +55,42 @@ public class WebDavService extends AbstractServiceWithRepoToRepoAuth {
 	@GET
 	@Path("{path:.*}")
 	@Produces(MediaType.APPLICATION_OCTET_STREAM)
-	public byte[] getFileData(
+	public StreamingOutput getFileData(
 			@PathParam("path") String path,
 			@QueryParam("offset") final long offset,
 			@QueryParam("length") @DefaultValue("-1") final int length)
 	{
 		AssertUtil.assertNotNull("path", path);
-		try (final RepoTransport repoTransport = authenticateAndCreateLocalRepoTransport()) {
+		final RepoTransport repoTransport = authenticateAndCreateLocalRepoTransport();
+		boolean closeRepoTransport = true;
+		try {
 			path = repoTransport.unprefixPath(path);
-			return repoTransport.getFileData(path, offset, length);
+			final InputStream in = repoTransport.getFileDataInputStream(path, offset, length);
+			if (in == null)
+				return null;
+
+			// The data is written after this method returned. We thus keep the RepoTransport open until then.
+			closeRepoTransport = false;
+			return new StreamingOutput() {
+				@Override
+				public void write(final OutputStream out) throws IOException, WebApplicationException {
+					try {
+						if (in instanceof FileChannelInputStream)
+							((FileChannelInputStream) in).transferTo(Channels.newChannel(out));
+						else
+							transferStreamData(in, out);
+					} finally {
+						try {
+							in.close();
+						} finally {
+							repoTransport.close();
+						}
+					}
+				}
+			};
+		} finally {
+			if (closeRepoTransport)
+				repoTransport.close();
 		}
 	}
 
@@ -76,11 +113,23 @@ public class WebDavService extends AbstractServiceWithRepoToRepoAuth {
 	@PUT
 	@Path("{path:.*}")
 	@Consumes(MediaType.APPLICATION_OCTET_STREAM)
-	public void putFileData(@PathParam("path") String path, @QueryParam("offset") final long offset, final byte[] fileData) {
+	public void putFileData(@PathParam("path") String path, @QueryParam("offset") final long offset,
+			@QueryParam("length") @DefaultValue("-1") final int length, final InputStream in) {
 		assertNotNull("path", path);
+		assertNotNull("in", in);
 		try (final RepoTransport repoTransport = authenticateAndCreateLocalRepoTransport();) {
 			path = repoTransport.unprefixPath(path);
-			repoTransport.putFileData(path, offset, fileData);
+			// We cannot use the Content-Length, because the entity might be compressed. Hence the
+			// client passes the length of the (uncompressed) data explicitly.
+			if (length >= 0)
+				repoTransport.putFileData(path, offset, in, length);
+			else { // old client not passing the length => we must read it completely.
+				final ByteArrayOutputStream out = new ByteArrayOutputStream();
+				transferStreamData(in, out);
+				repoTransport.putFileData(path, offset, out.toByteArray());
+			}
+		} catch (final IOException e) {
+			throw new RuntimeException(e);
 		}
 	}
 
@@ -0,0 +1,120 @@
+package co.codewizards.cloudstore.rest.shared;
+
+import java.util.Locale;
+
+import co.codewizards.cloudstore.core.config.Config;
+
+/**
+ * Helper for negotiating the compression of request and response bodies via the HTTP headers
+ * {@value #ACCEPT_ENCODING_HEADER} and {@value #CONTENT_ENCODING_HEADER}.
+ * <p>
+ * Peers not sending an {@value #ACCEPT_ENCODING_HEADER} header are old CloudStore versions. They are
+ * still served as before: Compressed with GZIP, if they sent the {@link GZIPUtil#CLOUDSTORE_ENCODING_HEADER}.
+ * <p>
+ * The server additionally puts an {@value #ACCEPT_ENCODING_HEADER} header into its responses (see
+ * <a href="https://tools.ietf.org/html/rfc7694">RFC 7694</a>) telling the client which encodings it
+ * accepts for request bodies.
+ */
+public class ContentEncodingUtil {
+
+	public static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding"; //$NON-NLS-1$
+	public static final String CONTENT_ENCODING_HEADER = "Content-Encoding"; //$NON-NLS-1$
+
+	public static final String IDENTITY = "identity"; //$NON-NLS-1$
+	public static final String DEFLATE = "deflate"; //$NON-NLS-1$
+	public static final String GZIP = "gzip"; //$NON-NLS-1$
+
+	/**
+	 * The value of the {@value #ACCEPT_ENCODING_HEADER} header sent by this CloudStore version - in the
+	 * order of preference.
+	 */
+	public static final String ACCEPT_ENCODING_HEADER_VALUE = DEFLATE + ", " + GZIP + ", " + IDENTITY; //$NON-NLS-1$ //$NON-NLS-2$
+
+	/**
+	 * Name of the request-property holding the {@value #ACCEPT_ENCODING_HEADER} of the peer, i.e. which
+	 * encodings the receiver of the body being written understands.
+	 */
+	public static final String PROPERTY_PEER_ACCEPT_ENCODING = "cloudstore.peerAcceptEncoding"; //$NON-NLS-1$
+
+	/**
+	 * The {@code key} for the compression level used with the {@value #DEFLATE} encoding, used with
+	 * {@link Config#getPropertyAsInt(String, int)}.
+	 * <p>
+	 * 1 is the fastest, 9 the best compression. Since the data is usually transferred immediately, a
+	 * fast level keeps the CPU from becoming the bottleneck.
+	 * <p>
+	 * The default value is {@link #DEFAULT_DEFLATE_LEVEL}.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 */
+	public static final String CONFIG_KEY_DEFLATE_LEVEL = "contentEncoding.deflateLevel"; //$NON-NLS-1$
+	public static final int DEFAULT_DEFLATE_LEVEL = 1;
+
+	/**
+	 * The {@code key} for the minimum saving (in percent of the original size) which compression must
+	 * achieve, used with {@link Config#getPropertyAsPositiveOrZeroInt(String, int)}.
+	 * <p>
+	 * The beginning of every body is compressed on trial. If this saves less, the body is transferred
+	 * uncompressed (e.g. because it is a chunk of an already compressed media file).
+	 * <p>
+	 * The default value is {@link #DEFAULT_MIN_SAVING_PERCENT}.
+	 * <p>
+	 * The configuration can be overridden by a system property - see {@link Config#SYSTEM_PROPERTY_PREFIX}.
+	 */
+	public static final String CONFIG_KEY_MIN_SAVING_PERCENT = "contentEncoding.minSavingPercent"; //$NON-NLS-1$
+	public static final int DEFAULT_MIN_SAVING_PERCENT = 10;
+
+	protected ContentEncodingUtil() { }
+
+	/**
+	 * Selects the encoding to be used for a body sent to a peer which declared the given encodings acceptable.
+	 * @param acceptEncoding the value of the peer's {@value #ACCEPT_ENCODING_HEADER} header. May be <code>null</code>.
+	 * @return {@link #DEFLATE}, {@link #GZIP} or <code>null</code>, if the peer accepts none of them.
+	 */
+	public static String selectContentEncoding(final String acceptEncoding) {
+		if (acceptEncoding == null)
+			return null;
+
+		if (isAccepted(acceptEncoding, DEFLATE))
+			return DEFLATE;
+
+		if (isAccepted(acceptEncoding, GZIP))
+			return GZIP;
+
+		return null;
+	}
+
+	/**
+	 * Determines whether the given {@code contentEncoding} is acceptable according to the given header value.
+	 * <p>
+	 * An encoding listed explicitly is acceptable, unless its quality is 0. An encoding not listed is acceptable,
+	 * if the wildcard "*" is listed with a quality greater than 0.
+	 */
+	private static boolean isAccepted(final String acceptEncoding, final String contentEncoding) {
+		boolean wildcardAccepted = false;
+		for (final String element : acceptEncoding.split(",")) {
+			final String[] parts = element.split(";");
+			final String coding = parts[0].trim().toLowerCase(Locale.UK);
+			if (contentEncoding.equals(coding))
+				return isQualityPositive(parts);
+
+			if ("*".equals(coding))
+				wildcardAccepted = isQualityPositive(parts);
+		}
+		return wildcardAccepted;
+	}
+
+	private static boolean isQualityPositive(final String[] parts) {
+		for (int i = 1; i < parts.length; ++i) {
+			final String parameter = parts[i].trim();
+			if (parameter.startsWith("q=")) {
+				try {
+					return Double.parseDouble(parameter.substring(2).trim()) > 0;
+				} catch (final NumberFormatException x) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+}
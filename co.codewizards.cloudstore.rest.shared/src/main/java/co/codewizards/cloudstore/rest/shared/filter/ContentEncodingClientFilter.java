@@ -0,0 +1,53 @@
+package co.codewizards.cloudstore.rest.shared.filter;
+
+import static co.codewizards.cloudstore.rest.shared.ContentEncodingUtil.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+
+import co.codewizards.cloudstore.rest.shared.ContentEncodingUtil;
+import co.codewizards.cloudstore.rest.shared.GZIPUtil;
+
+/**
+ * Client-side filter negotiating the compression with the server.
+ * <p>
+ * It asks for compressed responses via the {@value ContentEncodingUtil#ACCEPT_ENCODING_HEADER} header.
+ * Since an old server expects every request body to be compressed with GZIP, the client compresses
+ * request bodies differently only after the server declared (in a previous response) which
+ * encodings it accepts. This declaration is remembered per server.
+ * @see ContentEncodingContainerFilter
+ */
+public class ContentEncodingClientFilter implements ClientRequestFilter, ClientResponseFilter {
+
+	private static final Map<String, String> server2AcceptEncoding = new ConcurrentHashMap<>();
+
+	@Override
+	public void filter(final ClientRequestContext requestContext) throws IOException {
+		requestContext.getHeaders().putSingle(ACCEPT_ENCODING_HEADER, ACCEPT_ENCODING_HEADER_VALUE);
+
+		// The GZIPClientRequestFilter always announces GZIP => an old server always expects it.
+		requestContext.setProperty(GZIPUtil.CLOUDSTORE_ENCODING_HEADER, GZIPUtil.CLOUDSTORE_ENCODING_HEADER_VALUE);
+
+		final String serverAcceptEncoding = server2AcceptEncoding.get(getServer(requestContext.getUri()));
+		if (serverAcceptEncoding != null)
+			requestContext.setProperty(PROPERTY_PEER_ACCEPT_ENCODING, serverAcceptEncoding);
+	}
+
+	@Override
+	public void filter(final ClientRequestContext requestContext, final ClientResponseContext responseContext) throws IOException {
+		final String serverAcceptEncoding = responseContext.getHeaderString(ACCEPT_ENCODING_HEADER);
+		if (serverAcceptEncoding != null)
+			server2AcceptEncoding.put(getServer(requestContext.getUri()), serverAcceptEncoding);
+	}
+
+	private static String getServer(final URI uri) {
+		return uri.getScheme() + "://" + uri.getRawAuthority();
+	}
+}
@@ -0,0 +1,32 @@
+package co.codewizards.cloudstore.rest.shared.filter;
+
+import static co.codewizards.cloudstore.rest.shared.ContentEncodingUtil.*;
+
+import java.io.IOException;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+
+import co.codewizards.cloudstore.rest.shared.ContentEncodingUtil;
+
+/**
+ * Server-side filter passing the client's {@value ContentEncodingUtil#ACCEPT_ENCODING_HEADER} to the
+ * interceptors and advertising the encodings accepted for request bodies in every response.
+ * @see ContentEncodingClientFilter
+ */
+public class ContentEncodingContainerFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+	@Override
+	public void filter(final ContainerRequestContext requestContext) throws IOException {
+		final String acceptEncoding = requestContext.getHeaderString(ACCEPT_ENCODING_HEADER);
+		if (acceptEncoding != null)
+			requestContext.setProperty(PROPERTY_PEER_ACCEPT_ENCODING, acceptEncoding);
+	}
+
+	@Override
+	public void filter(final ContainerRequestContext requestContext, final ContainerResponseContext responseContext) throws IOException {
+		responseContext.getHeaders().putSingle(ACCEPT_ENCODING_HEADER, ACCEPT_ENCODING_HEADER_VALUE);
+	}
+}
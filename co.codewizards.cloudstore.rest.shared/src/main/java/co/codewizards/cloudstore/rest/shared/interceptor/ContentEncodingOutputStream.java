@@ -0,0 +1,156 @@
+package co.codewizards.cloudstore.rest.shared.interceptor;
+
+import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+import static co.codewizards.cloudstore.rest.shared.ContentEncodingUtil.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.codewizards.cloudstore.rest.shared.ContentEncodingUtil;
+
+/**
+ * {@code OutputStream} compressing the data only, if this is worth it.
+ * <p>
+ * The first {@link #SAMPLE_SIZE} bytes are buffered and compressed on trial. If this does not save at least
+ * the configured percentage, the data is written uncompressed. The {@value ContentEncodingUtil#CONTENT_ENCODING_HEADER}
+ * header is set accordingly, before the first byte is passed to the underlying stream.
+ */
+class ContentEncodingOutputStream extends FilterOutputStream {
+	private static final Logger logger = LoggerFactory.getLogger(ContentEncodingOutputStream.class);
+
+	static final int SAMPLE_SIZE = 64 * 1024;
+
+	private final MultivaluedMap<String, Object> headers;
+	private final String contentEncoding;
+	private final int level;
+	private final int minSavingPercent;
+	private ByteArrayOutputStream sample = new ByteArrayOutputStream(8 * 1024);
+	private boolean closed;
+
+	/**
+	 * Creates an instance.
+	 * @param out the underlying stream. Must not be <code>null</code>.
+	 * @param headers the headers of the message being written. Must not be <code>null</code>.
+	 * @param contentEncoding either {@link ContentEncodingUtil#DEFLATE} or {@link ContentEncodingUtil#GZIP}.
+	 * @param level the compression level (1..9).
+	 * @param minSavingPercent the minimum saving which compression must achieve. 0 means to always compress.
+	 */
+	public ContentEncodingOutputStream(final OutputStream out, final MultivaluedMap<String, Object> headers,
+			final String contentEncoding, final int level, final int minSavingPercent) {
+		super(assertNotNull("out", out));
+		this.headers = assertNotNull("headers", headers);
+		this.contentEncoding = assertNotNull("contentEncoding", contentEncoding);
+		this.level = level;
+		this.minSavingPercent = minSavingPercent;
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		if (sample != null) {
+			sample.write(b);
+			if (sample.size() >= SAMPLE_SIZE)
+				decide();
+		}
+		else
+			out.write(b);
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException {
+		if (sample != null) {
+			sample.write(b, off, len);
+			if (sample.size() >= SAMPLE_SIZE)
+				decide();
+		}
+		else
+			out.write(b, off, len);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (sample == null) // Before the decision was made, there's nothing to flush.
+			out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed)
+			return;
+
+		closed = true;
+		if (sample != null && sample.size() > 0)
+			decide();
+
+		out.close();
+	}
+
+	private void decide() throws IOException {
+		final byte[] sampleData = sample.toByteArray();
+		sample = null;
+
+		final int compressedSize = getCompressedSize(sampleData);
+		final boolean compress = (long) compressedSize * 100 <= (long) sampleData.length * (100 - minSavingPercent);
+		if (logger.isTraceEnabled())
+			logger.trace("decide: sampleSize={} compressedSize={} compress={}", sampleData.length, compressedSize, compress);
+
+		if (compress) {
+			headers.putSingle(CONTENT_ENCODING_HEADER, contentEncoding);
+			out = createCompressingOutputStream();
+		}
+		else
+			headers.putSingle(CONTENT_ENCODING_HEADER, IDENTITY);
+
+		out.write(sampleData);
+	}
+
+	private int getCompressedSize(final byte[] data) {
+		final Deflater deflater = new Deflater(level);
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+			final byte[] buf = new byte[8 * 1024];
+			int result = 0;
+			while (!deflater.finished())
+				result += deflater.deflate(buf);
+
+			return result;
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private OutputStream createCompressingOutputStream() throws IOException {
+		if (DEFLATE.equals(contentEncoding)) {
+			return new DeflaterOutputStream(out, new Deflater(level)) {
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						def.end(); // not done by DeflaterOutputStream, because we passed our own Deflater
+					}
+				}
+			};
+		}
+
+		if (GZIP.equals(contentEncoding)) {
+			return new GZIPOutputStream(out) {
+				{
+					def.setLevel(level);
+				}
+			};
+		}
+
+		throw new IllegalStateException("Unsupported contentEncoding: " + contentEncoding);
+	}
+}
@@ -0,0 +1,76 @@
+package co.codewizards.cloudstore.rest.shared.interceptor;
+
+import static co.codewizards.cloudstore.rest.shared.ContentEncodingUtil.*;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.ext.ReaderInterceptor;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.codewizards.cloudstore.rest.shared.ContentEncodingUtil;
+import co.codewizards.cloudstore.rest.shared.GZIPUtil;
+
+/**
+ * Interceptor decompressing the body according to its {@value ContentEncodingUtil#CONTENT_ENCODING_HEADER} header.
+ * <p>
+ * If this header is missing, the body was written by an old CloudStore version and it is handled
+ * like the {@link GZIPConditionalReaderInterceptor} does.
+ * @see ContentEncodingWriterInterceptor
+ */
+public class ContentEncodingReaderInterceptor implements ReaderInterceptor {
+	private static final Logger logger = LoggerFactory.getLogger(ContentEncodingReaderInterceptor.class);
+
+	@Override
+	public Object aroundReadFrom(final ReaderInterceptorContext context) throws IOException, WebApplicationException {
+		String contentEncoding = context.getHeaders().getFirst(CONTENT_ENCODING_HEADER);
+		if (contentEncoding == null)
+			contentEncoding = GZIPUtil.isRequestCompressedWithGzip(context) ? GZIP : IDENTITY;
+		else
+			contentEncoding = contentEncoding.trim().toLowerCase(Locale.UK);
+
+		if (!IDENTITY.equals(contentEncoding)) {
+			final InputStream inputStream = getNonEmptyInputStream(context);
+			if (inputStream != null) {
+				if (DEFLATE.equals(contentEncoding))
+					context.setInputStream(new InflaterInputStream(inputStream));
+				else if (GZIP.equals(contentEncoding))
+					context.setInputStream(new GZIPInputStream(inputStream));
+				else
+					throw new IOException("Unsupported " + CONTENT_ENCODING_HEADER + ": " + contentEncoding);
+			}
+		}
+		return context.proceed();
+	}
+
+	/**
+	 * Gets the input stream, if it contains data.
+	 * @param context the context. Must not be <code>null</code>.
+	 * @return the input stream or <code>null</code>, if it is empty.
+	 */
+	private InputStream getNonEmptyInputStream(final ReaderInterceptorContext context) throws IOException {
+		InputStream inputStream = context.getInputStream();
+		if (!inputStream.markSupported()) {
+			inputStream = new BufferedInputStream(inputStream);
+			context.setInputStream(inputStream);
+		}
+
+		inputStream.mark(5);
+		final int read = inputStream.read();
+		inputStream.reset();
+
+		if (read < 0) {
+			logger.debug("getNonEmptyInputStream: inputStream is empty! Skipping decompression.");
+			return null;
+		}
+		return inputStream;
+	}
+}
@@ -0,0 +1,47 @@
+package co.codewizards.cloudstore.rest.shared.interceptor;
+
+import static co.codewizards.cloudstore.rest.shared.ContentEncodingUtil.*;
+
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import co.codewizards.cloudstore.core.config.Config;
+import co.codewizards.cloudstore.core.config.ConfigImpl;
+import co.codewizards.cloudstore.rest.shared.ContentEncodingUtil;
+import co.codewizards.cloudstore.rest.shared.GZIPUtil;
+
+/**
+ * Interceptor compressing the body with the best encoding accepted by the receiver.
+ * <p>
+ * The encoding is selected via the property {@link ContentEncodingUtil#PROPERTY_PEER_ACCEPT_ENCODING}.
+ * Data not being compressible is sent unchanged (see {@link ContentEncodingUtil#CONFIG_KEY_MIN_SAVING_PERCENT}).
+ * If the receiver is an old CloudStore version not understanding the
+ * {@value ContentEncodingUtil#CONTENT_ENCODING_HEADER} header, it falls back to the behaviour of the
+ * {@link GZIPConditionalWriterInterceptor}.
+ */
+public class ContentEncodingWriterInterceptor implements WriterInterceptor {
+
+	@Override
+	public void aroundWriteTo(final WriterInterceptorContext context) throws IOException, WebApplicationException {
+		final String contentEncoding = selectContentEncoding((String) context.getProperty(PROPERTY_PEER_ACCEPT_ENCODING));
+		if (contentEncoding != null) {
+			final Config config = ConfigImpl.getInstance();
+			final int level = Math.max(Deflater.BEST_SPEED, Math.min(Deflater.BEST_COMPRESSION,
+					config.getPropertyAsInt(CONFIG_KEY_DEFLATE_LEVEL, DEFAULT_DEFLATE_LEVEL)));
+			final int minSavingPercent = Math.min(100,
+					config.getPropertyAsPositiveOrZeroInt(CONFIG_KEY_MIN_SAVING_PERCENT, DEFAULT_MIN_SAVING_PERCENT));
+
+			context.setOutputStream(new ContentEncodingOutputStream(
+					context.getOutputStream(), context.getHeaders(), contentEncoding, level, minSavingPercent));
+		}
+		else if (GZIPUtil.isRequestCompressedWithGzip(context))
+			context.setOutputStream(new GZIPOutputStream(context.getOutputStream()));
+
+		context.proceed();
+	}
+}
@@ -0,0 +1,446 @@
+package co.codewizards.cloudstore.rest.shared.provider;
+
+import static co.codewizards.cloudstore.core.objectfactory.ObjectFactoryUtil.*;
+import static co.codewizards.cloudstore.core.util.AssertUtil.*;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import co.codewizards.cloudstore.core.dto.ChangeSetDto;
+import co.codewizards.cloudstore.core.dto.CopyModificationDto;
+import co.codewizards.cloudstore.core.dto.DeleteModificationDto;
+import co.codewizards.cloudstore.core.dto.DirectoryDto;
+import co.codewizards.cloudstore.core.dto.FileChunkDto;
+import co.codewizards.cloudstore.core.dto.ModificationDto;
+import co.codewizards.cloudstore.core.dto.NormalFileDto;
+import co.codewizards.cloudstore.core.dto.RepoFileDto;
+import co.codewizards.cloudstore.core.dto.RepositoryDto;
+import co.codewizards.cloudstore.core.dto.SymlinkDto;
+
+/**
+ * Compact binary encoding of the DTOs transferred during a repo-to-repo-sync.
+ * <p>
+ * In contrast to JAXB-XML, there are no element names, numbers are written as variable-length integers and
+ * hex-encoded hashes (e.g. {@link FileChunkDto#getSha1() sha1}) are written as raw bytes. This reduces both
+ * the payload and the CPU time needed for (un)marshalling large {@link ChangeSetDto}s.
+ * <p>
+ * Only the exact classes known to this codec are supported. If any of them is replaced by a sub-class via the
+ * {@link co.codewizards.cloudstore.core.objectfactory.ObjectFactory ObjectFactory} (e.g. in order to add further
+ * properties), this codec is disabled entirely (see {@link #isSupported(Class)}) and XML is used instead - otherwise
+ * the additional properties would be silently lost.
+ */
+public class BinaryDtoCodec {
+
+	private static final int VERSION = 1;
+
+	private static final int TYPE_NULL = 0;
+	private static final int TYPE_CHANGE_SET_DTO = 1;
+	private static final int TYPE_REPOSITORY_DTO = 2;
+	private static final int TYPE_MODIFICATION_DTO = 3;
+	private static final int TYPE_COPY_MODIFICATION_DTO = 4;
+	private static final int TYPE_DELETE_MODIFICATION_DTO = 5;
+	private static final int TYPE_REPO_FILE_DTO = 6;
+	private static final int TYPE_NORMAL_FILE_DTO = 7;
+	private static final int TYPE_DIRECTORY_DTO = 8;
+	private static final int TYPE_SYMLINK_DTO = 9;
+	private static final int TYPE_FILE_CHUNK_DTO = 10;
+
+	/**
+	 * The classes which can be encoded. The index in this list is the type written to the stream.
+	 */
+	private static final List<Class<?>> TYPE2CLASS = Collections.unmodifiableList(Arrays.<Class<?>>asList(
+			null, // TYPE_NULL
+			ChangeSetDto.class,
+			RepositoryDto.class,
+			ModificationDto.class,
+			CopyModificationDto.class,
+			DeleteModificationDto.class,
+			RepoFileDto.class,
+			NormalFileDto.class,
+			DirectoryDto.class,
+			SymlinkDto.class,
+			FileChunkDto.class));
+
+	private static final int HASH_NULL = 0;
+	private static final int HASH_HEX = 1;
+	private static final int HASH_STRING = 2;
+
+	private static volatile Boolean enabled;
+
+	private BinaryDtoCodec() {
+	}
+
+	/**
+	 * Determines whether the given type can be read and written by this codec.
+	 * @param type the type of the entity. May be <code>null</code>.
+	 * @return <code>true</code>, if entities of the given type can be encoded; <code>false</code> otherwise.
+	 */
+	public static boolean isSupported(final Class<?> type) {
+		if (type == null || !isEnabled())
+			return false;
+
+		return ChangeSetDto.class == type || RepositoryDto.class == type
+				|| (RepoFileDto.class.isAssignableFrom(type) && TYPE2CLASS.contains(type));
+	}
+
+	private static boolean isEnabled() {
+		Boolean result = enabled;
+		if (result == null) {
+			result = true;
+			for (final Class<?> clazz : TYPE2CLASS) {
+				if (clazz != null && getExtendingClass(clazz) != clazz) {
+					result = false;
+					break;
+				}
+			}
+			enabled = result;
+		}
+		return result;
+	}
+
+	public static void write(final Object dto, final OutputStream out) throws IOException {
+		assertNotNull("out", out);
+		final DataOutputStream dout = new DataOutputStream(out);
+		writeVarLong(dout, VERSION);
+		writeObject(dout, dto);
+		dout.flush();
+	}
+
+	public static Object read(final InputStream in) throws IOException {
+		assertNotNull("in", in);
+		final DataInputStream din = new DataInputStream(in);
+		final long version = readVarLong(din);
+		if (version != VERSION)
+			throw new IOException("Unsupported version: " + version);
+
+		return readObject(din);
+	}
+
+	private static void writeObject(final DataOutputStream out, final Object object) throws IOException {
+		if (object == null) {
+			writeVarLong(out, TYPE_NULL);
+			return;
+		}
+
+		final int type = TYPE2CLASS.indexOf(object.getClass());
+		if (type < 0)
+			throw new IllegalArgumentException("Unsupported type: " + object.getClass().getName());
+
+		writeVarLong(out, type);
+		switch (type) {
+			case TYPE_CHANGE_SET_DTO: {
+				final ChangeSetDto changeSetDto = (ChangeSetDto) object;
+				writeObject(out, changeSetDto.getRepositoryDto());
+				writeList(out, changeSetDto.getModificationDtos());
+				writeList(out, changeSetDto.getRepoFileDtos());
+				writeString(out, changeSetDto.getCursor());
+				break;
+			}
+			case TYPE_REPOSITORY_DTO: {
+				final RepositoryDto repositoryDto = (RepositoryDto) object;
+				writeUuid(out, repositoryDto.getRepositoryId());
+				writeBytes(out, repositoryDto.getPublicKey());
+				writeVarLong(out, repositoryDto.getRevision());
+				break;
+			}
+			case TYPE_MODIFICATION_DTO:
+			case TYPE_COPY_MODIFICATION_DTO:
+			case TYPE_DELETE_MODIFICATION_DTO: {
+				final ModificationDto modificationDto = (ModificationDto) object;
+				writeVarLong(out, modificationDto.getId());
+				writeVarLong(out, modificationDto.getLocalRevision());
+				if (modificationDto instanceof CopyModificationDto) {
+					writeString(out, ((CopyModificationDto) modificationDto).getFromPath());
+					writeString(out, ((CopyModificationDto) modificationDto).getToPath());
+				}
+				else if (modificationDto instanceof DeleteModificationDto)
+					writeString(out, ((DeleteModificationDto) modificationDto).getPath());
+				break;
+			}
+			case TYPE_REPO_FILE_DTO:
+			case TYPE_NORMAL_FILE_DTO:
+			case TYPE_DIRECTORY_DTO:
+			case TYPE_SYMLINK_DTO: {
+				final RepoFileDto repoFileDto = (RepoFileDto) object;
+				writeVarLong(out, repoFileDto.getId());
+				writeNullableLong(out, repoFileDto.getParentId());
+				writeString(out, repoFileDto.getName());
+				writeVarLong(out, repoFileDto.getLocalRevision());
+				writeDate(out, repoFileDto.getLastModified());
+				out.writeBoolean(repoFileDto.isNeededAsParent());
+				if (repoFileDto instanceof NormalFileDto) {
+					final NormalFileDto normalFileDto = (NormalFileDto) repoFileDto;
+					writeVarLong(out, normalFileDto.getLength());
+					writeHash(out, normalFileDto.getSha1());
+					writeList(out, normalFileDto.getFileChunkDtos());
+					writeList(out, normalFileDto.getTempFileChunkDtos());
+				}
+				else if (repoFileDto instanceof SymlinkDto)
+					writeString(out, ((SymlinkDto) repoFileDto).getTarget());
+				break;
+			}
+			case TYPE_FILE_CHUNK_DTO: {
+				final FileChunkDto fileChunkDto = (FileChunkDto) object;
+				writeVarLong(out, fileChunkDto.getOffset());
+				writeVarLong(out, fileChunkDto.getLength());
+				writeHash(out, fileChunkDto.getSha1());
+				break;
+			}
+			default:
+				throw new IllegalStateException("Unknown type: " + type);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Object readObject(final DataInputStream in) throws IOException {
+		final int type = (int) readVarLong(in);
+		switch (type) {
+			case TYPE_NULL:
+				return null;
+			case TYPE_CHANGE_SET_DTO: {
+				final ChangeSetDto changeSetDto = createObject(ChangeSetDto.class);
+				changeSetDto.setRepositoryDto((RepositoryDto) readObject(in));
+				changeSetDto.setModificationDtos((List<ModificationDto>) readList(in));
+				changeSetDto.setRepoFileDtos((List<RepoFileDto>) readList(in));
+				changeSetDto.setCursor(readString(in));
+				return changeSetDto;
+			}
+			case TYPE_REPOSITORY_DTO: {
+				final RepositoryDto repositoryDto = createObject(RepositoryDto.class);
+				repositoryDto.setRepositoryId(readUuid(in));
+				repositoryDto.setPublicKey(readBytes(in));
+				repositoryDto.setRevision(readVarLong(in));
+				return repositoryDto;
+			}
+			case TYPE_MODIFICATION_DTO:
+			case TYPE_COPY_MODIFICATION_DTO:
+			case TYPE_DELETE_MODIFICATION_DTO: {
+				final ModificationDto modificationDto = (ModificationDto) createObject(TYPE2CLASS.get(type));
+				modificationDto.setId(readVarLong(in));
+				modificationDto.setLocalRevision(readVarLong(in));
+				if (modificationDto instanceof CopyModificationDto) {
+					((CopyModificationDto) modificationDto).setFromPath(readString(in));
+					((CopyModificationDto) modificationDto).setToPath(readString(in));
+				}
+				else if (modificationDto instanceof DeleteModificationDto)
+					((DeleteModificationDto) modificationDto).setPath(readString(in));
+				return modificationDto;
+			}
+			case TYPE_REPO_FILE_DTO:
+			case TYPE_NORMAL_FILE_DTO:
+			case TYPE_DIRECTORY_DTO:
+			case TYPE_SYMLINK_DTO: {
+				final RepoFileDto repoFileDto = (RepoFileDto) createObject(TYPE2CLASS.get(type));
+				repoFileDto.setId(readVarLong(in));
+				repoFileDto.setParentId(readNullableLong(in));
+				repoFileDto.setName(readString(in));
+				repoFileDto.setLocalRevision(readVarLong(in));
+				repoFileDto.setLastModified(readDate(in));
+				repoFileDto.setNeededAsParent(in.readBoolean());
+				if (repoFileDto instanceof NormalFileDto) {
+					final NormalFileDto normalFileDto = (NormalFileDto) repoFileDto;
+					normalFileDto.setLength(readVarLong(in));
+					normalFileDto.setSha1(readHash(in));
+					normalFileDto.setFileChunkDtos((List<FileChunkDto>) readList(in));
+					normalFileDto.setTempFileChunkDtos((List<FileChunkDto>) readList(in));
+				}
+				else if (repoFileDto instanceof SymlinkDto)
+					((SymlinkDto) repoFileDto).setTarget(readString(in));
+				return repoFileDto;
+			}
+			case TYPE_FILE_CHUNK_DTO: {
+				final FileChunkDto fileChunkDto = createObject(FileChunkDto.class);
+				fileChunkDto.setOffset(readVarLong(in));
+				fileChunkDto.setLength((int) readVarLong(in));
+				fileChunkDto.setSha1(readHash(in));
+				return fileChunkDto;
+			}
+			default:
+				throw new IOException("Unknown type: " + type);
+		}
+	}
+
+	private static void writeList(final DataOutputStream out, final List<?> list) throws IOException {
+		if (list == null) {
+			writeVarLong(out, 0);
+			return;
+		}
+		writeVarLong(out, list.size() + 1L);
+		for (final Object element : list)
+			writeObject(out, element);
+	}
+
+	private static List<?> readList(final DataInputStream in) throws IOException {
+		final long sizePlusOne = readVarLong(in);
+		if (sizePlusOne == 0)
+			return null;
+
+		final int size = toSize(sizePlusOne - 1);
+		final List<Object> list = new ArrayList<Object>(size);
+		for (int i = 0; i < size; ++i)
+			list.add(readObject(in));
+
+		return list;
+	}
+
+	private static void writeString(final DataOutputStream out, final String string) throws IOException {
+		writeBytes(out, string == null ? null : string.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String readString(final DataInputStream in) throws IOException {
+		final byte[] bytes = readBytes(in);
+		return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeBytes(final DataOutputStream out, final byte[] bytes) throws IOException {
+		if (bytes == null) {
+			writeVarLong(out, 0);
+			return;
+		}
+		writeVarLong(out, bytes.length + 1L);
+		out.write(bytes);
+	}
+
+	private static byte[] readBytes(final DataInputStream in) throws IOException {
+		final long lengthPlusOne = readVarLong(in);
+		if (lengthPlusOne == 0)
+			return null;
+
+		final byte[] bytes = new byte[toSize(lengthPlusOne - 1)];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	private static int toSize(final long size) throws IOException {
+		if (size < 0 || size > Integer.MAX_VALUE)
+			throw new IOException("Invalid size: " + size);
+
+		return (int) size;
+	}
+
+	/**
+	 * Writes a hash, which is usually a lower-case hex-string. Such a string is written as raw bytes (half the size).
+	 * Any other string is written as is in order to guarantee that it is read back unchanged.
+	 */
+	private static void writeHash(final DataOutputStream out, final String hash) throws IOException {
+		if (hash == null) {
+			writeVarLong(out, HASH_NULL);
+			return;
+		}
+		if (isLowerCaseHex(hash)) {
+			writeVarLong(out, HASH_HEX);
+			final byte[] bytes = new byte[hash.length() / 2];
+			for (int i = 0; i < bytes.length; ++i)
+				bytes[i] = (byte) ((Character.digit(hash.charAt(2 * i), 16) << 4) | Character.digit(hash.charAt(2 * i + 1), 16));
+
+			writeBytes(out, bytes);
+		}
+		else {
+			writeVarLong(out, HASH_STRING);
+			writeString(out, hash);
+		}
+	}
+
+	private static String readHash(final DataInputStream in) throws IOException {
+		final int hashType = (int) readVarLong(in);
+		switch (hashType) {
+			case HASH_NULL:
+				return null;
+			case HASH_HEX: {
+				final byte[] bytes = readBytes(in);
+				final char[] chars = new char[bytes.length * 2];
+				for (int i = 0; i < bytes.length; ++i) {
+					chars[2 * i] = Character.forDigit((bytes[i] >> 4) & 0xf, 16);
+					chars[2 * i + 1] = Character.forDigit(bytes[i] & 0xf, 16);
+				}
+				return new String(chars);
+			}
+			case HASH_STRING:
+				return readString(in);
+			default:
+				throw new IOException("Unknown hashType: " + hashType);
+		}
+	}
+
+	private static boolean isLowerCaseHex(final String string) {
+		if (string.isEmpty() || string.length() % 2 != 0)
+			return false;
+
+		for (int i = 0; i < string.length(); ++i) {
+			final char c = string.charAt(i);
+			if ((c < '0' || c > '9') && (c < 'a' || c > 'f'))
+				return false;
+		}
+		return true;
+	}
+
+	private static void writeUuid(final DataOutputStream out, final UUID uuid) throws IOException {
+		out.writeBoolean(uuid != null);
+		if (uuid != null) {
+			out.writeLong(uuid.getMostSignificantBits());
+			out.writeLong(uuid.getLeastSignificantBits());
+		}
+	}
+
+	private static UUID readUuid(final DataInputStream in) throws IOException {
+		if (!in.readBoolean())
+			return null;
+
+		final long mostSignificantBits = in.readLong();
+		final long leastSignificantBits = in.readLong();
+		return new UUID(mostSignificantBits, leastSignificantBits);
+	}
+
+	private static void writeDate(final DataOutputStream out, final Date date) throws IOException {
+		writeNullableLong(out, date == null ? null : date.getTime());
+	}
+
+	private static Date readDate(final DataInputStream in) throws IOException {
+		final Long time = readNullableLong(in);
+		return time == null ? null : new Date(time);
+	}
+
+	private static void writeNullableLong(final DataOutputStream out, final Long value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null)
+			writeVarLong(out, value);
+	}
+
+	private static Long readNullableLong(final DataInputStream in) throws IOException {
+		return in.readBoolean() ? readVarLong(in) : null;
+	}
+
+	/**
+	 * Writes a signed long with variable length: Zig-zag-encoded (so that small negative values like -1 are short, too)
+	 * in groups of 7 bits - the highest bit of each byte indicating whether another byte follows.
+	 */
+	private static void writeVarLong(final DataOutputStream out, final long value) throws IOException {
+		long v = (value << 1) ^ (value >> 63);
+		while ((v & ~0x7FL) != 0) {
+			out.writeByte((int) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		out.writeByte((int) v);
+	}
+
+	private static long readVarLong(final DataInputStream in) throws IOException {
+		long v = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final int b = in.readUnsignedByte();
+			v |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return (v >>> 1) ^ -(v & 1);
+		}
+		throw new IOException("Malformed variable-length long!");
+	}
+}
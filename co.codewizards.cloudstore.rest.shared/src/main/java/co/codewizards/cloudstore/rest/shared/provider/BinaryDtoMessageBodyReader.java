@@ -0,0 +1,43 @@
+package co.codewizards.cloudstore.rest.shared.provider;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.Provider;
+
+import co.codewizards.cloudstore.core.io.NoCloseInputStream;
+
+/**
+ * Reads DTOs written by the {@link BinaryDtoMessageBodyWriter}.
+ */
+@Provider
+@Consumes(MediaTypeConst.APPLICATION_CLOUDSTORE_DTO)
+public class BinaryDtoMessageBodyReader implements MessageBodyReader<Object> {
+
+	@Override
+	public boolean isReadable(final Class<?> type, final Type genericType, final Annotation[] annotations, final MediaType mediaType) {
+		return BinaryDtoCodec.isSupported(type);
+	}
+
+	@Override
+	public Object readFrom(
+			final Class<Object> type, final Type genericType,
+			final Annotation[] annotations, final MediaType mediaType,
+			final MultivaluedMap<String, String> httpHeaders, final InputStream entityStream
+	) throws IOException, WebApplicationException
+	{
+		final Object entity = BinaryDtoCodec.read(new BufferedInputStream(new NoCloseInputStream(entityStream)));
+		if (entity != null && !type.isInstance(entity))
+			throw new IOException(String.format("Entity of type %s is not an instance of %s!", entity.getClass().getName(), type.getName()));
+
+		return entity;
+	}
+}
@@ -0,0 +1,48 @@
+package co.codewizards.cloudstore.rest.shared.provider;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+import co.codewizards.cloudstore.core.io.NoCloseOutputStream;
+
+/**
+ * Writes DTOs using the {@link BinaryDtoCodec}.
+ * <p>
+ * Only the types {@linkplain BinaryDtoCodec#isSupported(Class) supported} by the codec are writeable. For all
+ * others, JAX-RS falls back to another media-type accepted by the client - usually XML.
+ */
+@Provider
+@Produces(MediaTypeConst.APPLICATION_CLOUDSTORE_DTO)
+public class BinaryDtoMessageBodyWriter implements MessageBodyWriter<Object> {
+
+	@Override
+	public boolean isWriteable(final Class<?> type, final Type genericType, final Annotation[] annotations, final MediaType mediaType) {
+		return BinaryDtoCodec.isSupported(type);
+	}
+
+	@Override
+	public long getSize(final Object t, final Class<?> type, final Type genericType, final Annotation[] annotations, final MediaType mediaType) {
+		return -1;
+	}
+
+	@Override
+	public void writeTo(
+			final Object t, final Class<?> type, final Type genericType,
+			final Annotation[] annotations, final MediaType mediaType,
+			final MultivaluedMap<String, Object> httpHeaders,
+			final OutputStream entityStream
+	) throws IOException, WebApplicationException
+	{
+		BinaryDtoCodec.write(t, new BufferedOutputStream(new NoCloseOutputStream(entityStream)));
+	}
+}
@@ -0,0 +1,14 @@
+package co.codewizards.cloudstore.rest.shared.provider;
+
+import javax.ws.rs.core.MediaType;
+
+public class MediaTypeConst
+{
+	/**
+	 * Media-type of the compact binary DTO-encoding implemented by {@link BinaryDtoCodec}.
+	 */
+	public final static String APPLICATION_CLOUDSTORE_DTO = "application/x-cloudstore-dto"; //$NON-NLS-1$
+	public static final MediaType APPLICATION_CLOUDSTORE_DTO_TYPE = new MediaType("application", "x-cloudstore-dto"); //$NON-NLS-1$ //$NON-NLS-2$
+
+	protected MediaTypeConst() { }
+}
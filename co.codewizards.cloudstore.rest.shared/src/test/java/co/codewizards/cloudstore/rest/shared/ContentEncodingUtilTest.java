@@ -0,0 +1,41 @@
+package co.codewizards.cloudstore.rest.shared;
+
+import static co.codewizards.cloudstore.rest.shared.ContentEncodingUtil.*;
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.Test;
+
+public class ContentEncodingUtilTest {
+
+	@Test
+	public void noAcceptEncoding() {
+		assertThat(selectContentEncoding(null)).isNull();
+		assertThat(selectContentEncoding("")).isNull();
+		assertThat(selectContentEncoding(IDENTITY)).isNull();
+	}
+
+	@Test
+	public void deflateIsPreferred() {
+		assertThat(selectContentEncoding(ACCEPT_ENCODING_HEADER_VALUE)).isEqualTo(DEFLATE);
+		assertThat(selectContentEncoding("gzip, deflate")).isEqualTo(DEFLATE);
+		assertThat(selectContentEncoding("gzip")).isEqualTo(GZIP);
+		assertThat(selectContentEncoding(" GZip ;q=0.5")).isEqualTo(GZIP);
+	}
+
+	@Test
+	public void qualityZeroIsRejected() {
+		assertThat(selectContentEncoding("deflate;q=0, gzip")).isEqualTo(GZIP);
+		assertThat(selectContentEncoding("deflate; q=0.0, gzip;q=0")).isNull();
+		assertThat(selectContentEncoding("deflate;q=0.001")).isEqualTo(DEFLATE);
+		assertThat(selectContentEncoding("deflate;q=invalid, gzip")).isEqualTo(GZIP);
+	}
+
+	@Test
+	public void wildcard() {
+		assertThat(selectContentEncoding("*")).isEqualTo(DEFLATE);
+		assertThat(selectContentEncoding("*;q=0")).isNull();
+		assertThat(selectContentEncoding("deflate;q=0, *")).isEqualTo(GZIP);
+		assertThat(selectContentEncoding("*, deflate;q=0")).isEqualTo(GZIP);
+		assertThat(selectContentEncoding("*;q=0, gzip")).isEqualTo(GZIP);
+	}
+}
@@ -0,0 +1,99 @@
+package co.codewizards.cloudstore.rest.shared.filter;
+
+import static co.codewizards.cloudstore.rest.shared.ContentEncodingUtil.*;
+import static org.assertj.core.api.Assertions.*;
+
+import java.net.URI;
+import java.util.UUID;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+import mockit.integration.junit4.JMockit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import co.codewizards.cloudstore.rest.shared.GZIPUtil;
+
+@RunWith(JMockit.class)
+public class ContentEncodingFilterTest {
+
+	@Mocked
+	private ContainerRequestContext containerRequestContext;
+	@Mocked
+	private ContainerResponseContext containerResponseContext;
+	@Mocked
+	private ClientRequestContext clientRequestContext;
+	@Mocked
+	private ClientResponseContext clientResponseContext;
+
+	@Test
+	public void containerPassesClientAcceptEncodingToInterceptors() throws Exception {
+		new Expectations() {{
+			containerRequestContext.getHeaderString(ACCEPT_ENCODING_HEADER); result = "gzip;q=0.5, deflate";
+		}};
+		new ContentEncodingContainerFilter().filter(containerRequestContext);
+
+		new Verifications() {{
+			containerRequestContext.setProperty(PROPERTY_PEER_ACCEPT_ENCODING, "gzip;q=0.5, deflate"); times = 1;
+		}};
+	}
+
+	@Test
+	public void containerIgnoresOldClient() throws Exception {
+		new Expectations() {{
+			containerRequestContext.getHeaderString(ACCEPT_ENCODING_HEADER); result = null;
+		}};
+		new ContentEncodingContainerFilter().filter(containerRequestContext);
+
+		new Verifications() {{
+			containerRequestContext.setProperty(PROPERTY_PEER_ACCEPT_ENCODING, any); times = 0;
+		}};
+	}
+
+	@Test
+	public void containerAdvertisesAcceptEncoding() throws Exception {
+		final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+		new Expectations() {{
+			containerResponseContext.getHeaders(); result = headers;
+		}};
+		new ContentEncodingContainerFilter().filter(containerRequestContext, containerResponseContext);
+
+		assertThat(headers.getFirst(ACCEPT_ENCODING_HEADER)).isEqualTo(ACCEPT_ENCODING_HEADER_VALUE);
+	}
+
+	@Test
+	public void clientUsesServerAcceptEncodingOnlyAfterServerDeclaredIt() throws Exception {
+		// The declarations are remembered statically per server => use a new one.
+		final URI uri = URI.create("https://" + UUID.randomUUID() + ":8443/CloudStore/_test");
+		final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+		new Expectations() {{
+			clientRequestContext.getUri(); result = uri;
+			clientRequestContext.getHeaders(); result = headers;
+			clientResponseContext.getHeaderString(ACCEPT_ENCODING_HEADER); result = "gzip";
+		}};
+		final ContentEncodingClientFilter filter = new ContentEncodingClientFilter();
+
+		// An unknown server might be old and thus always expects GZIP.
+		filter.filter(clientRequestContext);
+		assertThat(headers.getFirst(ACCEPT_ENCODING_HEADER)).isEqualTo(ACCEPT_ENCODING_HEADER_VALUE);
+		new Verifications() {{
+			clientRequestContext.setProperty(GZIPUtil.CLOUDSTORE_ENCODING_HEADER, GZIPUtil.CLOUDSTORE_ENCODING_HEADER_VALUE); times = 1;
+			clientRequestContext.setProperty(PROPERTY_PEER_ACCEPT_ENCODING, any); times = 0;
+		}};
+
+		filter.filter(clientRequestContext, clientResponseContext);
+		filter.filter(clientRequestContext);
+		new Verifications() {{
+			clientRequestContext.setProperty(PROPERTY_PEER_ACCEPT_ENCODING, "gzip"); times = 1;
+		}};
+	}
+}
@@ -0,0 +1,174 @@
+package co.codewizards.cloudstore.rest.shared.interceptor;
+
+import static co.codewizards.cloudstore.rest.shared.ContentEncodingUtil.*;
+import static co.codewizards.cloudstore.rest.shared.interceptor.ContentEncodingOutputStreamTest.*;
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import mockit.Mock;
+import mockit.MockUp;
+import mockit.integration.junit4.JMockit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import co.codewizards.cloudstore.rest.shared.ContentEncodingUtil;
+import co.codewizards.cloudstore.rest.shared.GZIPUtil;
+
+/**
+ * Tests the {@link ContentEncodingWriterInterceptor} together with the {@link ContentEncodingReaderInterceptor}:
+ * Whatever the writer sends, the reader must restore.
+ */
+@RunWith(JMockit.class)
+public class ContentEncodingInterceptorTest {
+
+	private static final int DATA_LENGTH = 200 * 1024;
+
+	@Test
+	public void deflate() throws Exception {
+		final byte[] data = compressibleData(DATA_LENGTH);
+		assertThat(roundTrip(ACCEPT_ENCODING_HEADER_VALUE, data, DEFLATE)).isEqualTo(data);
+	}
+
+	@Test
+	public void gzip() throws Exception {
+		final byte[] data = compressibleData(DATA_LENGTH);
+		assertThat(roundTrip("gzip, identity", data, GZIP)).isEqualTo(data);
+	}
+
+	@Test
+	public void identityForIncompressibleData() throws Exception {
+		final byte[] data = randomData(DATA_LENGTH);
+		assertThat(roundTrip(ACCEPT_ENCODING_HEADER_VALUE, data, IDENTITY)).isEqualTo(data);
+	}
+
+	@Test
+	public void identityIfNothingElseIsAccepted() throws Exception {
+		final byte[] data = compressibleData(DATA_LENGTH);
+		assertThat(roundTrip("deflate;q=0, identity", data, null)).isEqualTo(data);
+	}
+
+	@Test
+	public void gzipForOldPeer() throws Exception {
+		// Old CloudStore versions neither send nor understand Accept-Encoding and Content-Encoding.
+		final byte[] data = compressibleData(DATA_LENGTH);
+		assertThat(roundTrip(null, data, null)).isEqualTo(data);
+	}
+
+	@Test
+	public void emptyBody() throws Exception {
+		assertThat(roundTrip(ACCEPT_ENCODING_HEADER_VALUE, new byte[0], null)).isEmpty();
+	}
+
+	/**
+	 * Writes the given {@code data} via the {@link ContentEncodingWriterInterceptor} and reads it back via the
+	 * {@link ContentEncodingReaderInterceptor}.
+	 * @param peerAcceptEncoding the receiver's {@value ContentEncodingUtil#ACCEPT_ENCODING_HEADER} header.
+	 * <code>null</code> simulates an old CloudStore version expecting GZIP.
+	 * @param expectedContentEncoding the expected {@value ContentEncodingUtil#CONTENT_ENCODING_HEADER} header.
+	 */
+	private byte[] roundTrip(final String peerAcceptEncoding, final byte[] data, final String expectedContentEncoding) throws IOException {
+		final FakeWriterInterceptorContext writerContext = new FakeWriterInterceptorContext(data);
+		final FakeReaderInterceptorContext readerContext = new FakeReaderInterceptorContext();
+		if (peerAcceptEncoding != null)
+			writerContext.properties.put(PROPERTY_PEER_ACCEPT_ENCODING, peerAcceptEncoding);
+		else {
+			writerContext.properties.put(GZIPUtil.CLOUDSTORE_ENCODING_HEADER, GZIPUtil.CLOUDSTORE_ENCODING_HEADER_VALUE);
+			readerContext.properties.put(GZIPUtil.CLOUDSTORE_ENCODING_HEADER, GZIPUtil.CLOUDSTORE_ENCODING_HEADER_VALUE);
+		}
+
+		new ContentEncodingWriterInterceptor().aroundWriteTo(writerContext.getMockInstance());
+		assertThat(writerContext.headers.getFirst(CONTENT_ENCODING_HEADER)).isEqualTo(expectedContentEncoding);
+
+		for (final Map.Entry<String, List<Object>> me : writerContext.headers.entrySet()) {
+			for (final Object value : me.getValue())
+				readerContext.headers.add(me.getKey(), String.valueOf(value));
+		}
+		readerContext.inputStream = new ByteArrayInputStream(writerContext.body.toByteArray());
+		return (byte[]) new ContentEncodingReaderInterceptor().aroundReadFrom(readerContext.getMockInstance());
+	}
+
+	private static class FakeWriterInterceptorContext extends MockUp<WriterInterceptorContext> {
+		final Map<String, Object> properties = new HashMap<>();
+		final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		final byte[] entity;
+		OutputStream outputStream = body;
+
+		FakeWriterInterceptorContext(final byte[] entity) {
+			this.entity = entity;
+		}
+
+		@Mock
+		Object getProperty(final String name) {
+			return properties.get(name);
+		}
+
+		@Mock
+		MultivaluedMap<String, Object> getHeaders() {
+			return headers;
+		}
+
+		@Mock
+		OutputStream getOutputStream() {
+			return outputStream;
+		}
+
+		@Mock
+		void setOutputStream(final OutputStream outputStream) {
+			this.outputStream = outputStream;
+		}
+
+		@Mock
+		void proceed() throws IOException {
+			// Like the MessageBodyWriter and Jersey closing the entity stream afterwards.
+			outputStream.write(entity);
+			outputStream.close();
+		}
+	}
+
+	private static class FakeReaderInterceptorContext extends MockUp<ReaderInterceptorContext> {
+		final Map<String, Object> properties = new HashMap<>();
+		final MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+		InputStream inputStream;
+
+		@Mock
+		Object getProperty(final String name) {
+			return properties.get(name);
+		}
+
+		@Mock
+		MultivaluedMap<String, String> getHeaders() {
+			return headers;
+		}
+
+		@Mock
+		InputStream getInputStream() {
+			return inputStream;
+		}
+
+		@Mock
+		void setInputStream(final InputStream inputStream) {
+			this.inputStream = inputStream;
+		}
+
+		@Mock
+		Object proceed() throws IOException {
+			// Like the MessageBodyReader.
+			return read(inputStream);
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package co.codewizards.cloudstore.rest.shared.interceptor;
+
+import static co.codewizards.cloudstore.rest.shared.ContentEncodingUtil.*;
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.junit.Test;
+
+import co.codewizards.cloudstore.core.util.IOUtil;
+
+public class ContentEncodingOutputStreamTest {
+
+	private static final Random random = new Random();
+
+	private final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+	private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+	@Test
+	public void compressibleDataWithDeflate() throws Exception {
+		final byte[] data = compressibleData(3 * ContentEncodingOutputStream.SAMPLE_SIZE + 17);
+		write(DEFLATE, 10, data);
+
+		assertThat(headers.getFirst(CONTENT_ENCODING_HEADER)).isEqualTo(DEFLATE);
+		assertThat(body.size()).isLessThan(data.length / 2);
+		assertThat(read(new InflaterInputStream(new ByteArrayInputStream(body.toByteArray())))).isEqualTo(data);
+	}
+
+	@Test
+	public void compressibleDataWithGzip() throws Exception {
+		final byte[] data = compressibleData(3 * ContentEncodingOutputStream.SAMPLE_SIZE + 17);
+		write(GZIP, 10, data);
+
+		assertThat(headers.getFirst(CONTENT_ENCODING_HEADER)).isEqualTo(GZIP);
+		assertThat(body.size()).isLessThan(data.length / 2);
+		assertThat(read(new GZIPInputStream(new ByteArrayInputStream(body.toByteArray())))).isEqualTo(data);
+	}
+
+	@Test
+	public void incompressibleDataFallsBackToIdentity() throws Exception {
+		final byte[] data = randomData(3 * ContentEncodingOutputStream.SAMPLE_SIZE + 17);
+		write(DEFLATE, 10, data);
+
+		assertThat(headers.getFirst(CONTENT_ENCODING_HEADER)).isEqualTo(IDENTITY);
+		assertThat(body.toByteArray()).isEqualTo(data);
+	}
+
+	@Test
+	public void onlySampleIsTriedOnCompression() throws Exception {
+		// Incompressible data following the sample does not change the decision.
+		final byte[] sample = compressibleData(ContentEncodingOutputStream.SAMPLE_SIZE);
+		final byte[] rest = randomData(ContentEncodingOutputStream.SAMPLE_SIZE);
+		final byte[] data = new byte[sample.length + rest.length];
+		System.arraycopy(sample, 0, data, 0, sample.length);
+		System.arraycopy(rest, 0, data, sample.length, rest.length);
+		write(DEFLATE, 10, data);
+
+		assertThat(headers.getFirst(CONTENT_ENCODING_HEADER)).isEqualTo(DEFLATE);
+		assertThat(read(new InflaterInputStream(new ByteArrayInputStream(body.toByteArray())))).isEqualTo(data);
+	}
+
+	@Test
+	public void smallBodyIsDecidedOnClose() throws Exception {
+		final byte[] data = compressibleData(1000);
+		final ContentEncodingOutputStream out = new ContentEncodingOutputStream(body, headers, GZIP, 1, 10);
+		out.write(data);
+		out.flush();
+		assertThat(headers).isEmpty();
+		assertThat(body.size()).isEqualTo(0);
+
+		out.close();
+		assertThat(headers.getFirst(CONTENT_ENCODING_HEADER)).isEqualTo(GZIP);
+		assertThat(read(new GZIPInputStream(new ByteArrayInputStream(body.toByteArray())))).isEqualTo(data);
+	}
+
+	@Test
+	public void emptyBody() throws Exception {
+		write(DEFLATE, 10, new byte[0]);
+
+		assertThat(headers).isEmpty();
+		assertThat(body.size()).isEqualTo(0);
+	}
+
+	private void write(final String contentEncoding, final int minSavingPercent, final byte[] data) throws IOException {
+		final ContentEncodingOutputStream out = new ContentEncodingOutputStream(body, headers, contentEncoding, 1, minSavingPercent);
+		try {
+			// Write in portions not matching the sample size - and single bytes, too.
+			int off = 0;
+			while (off < data.length) {
+				final int len = Math.min(data.length - off, 1 + random.nextInt(10000));
+				if (len == 1)
+					out.write(data[off]);
+				else
+					out.write(data, off, len);
+
+				off += len;
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	static byte[] compressibleData(final int length) {
+		final byte[] data = new byte[length];
+		for (int i = 0; i < length; ++i)
+			data[i] = (byte) ('a' + random.nextInt(4));
+
+		return data;
+	}
+
+	static byte[] randomData(final int length) {
+		final byte[] data = new byte[length];
+		random.nextBytes(data);
+		return data;
+	}
+
+	static byte[] read(final InputStream in) throws IOException {
+		try {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			IOUtil.transferStreamData(in, out);
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,201 @@
+package co.codewizards.cloudstore.rest.shared.provider;
+
+import static co.codewizards.cloudstore.core.util.HashUtil.*;
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.UUID;
+
+import javax.xml.bind.Marshaller;
+
+import org.junit.Test;
+
+import co.codewizards.cloudstore.core.dto.ChangeSetDto;
+import co.codewizards.cloudstore.core.dto.CopyModificationDto;
+import co.codewizards.cloudstore.core.dto.DeleteModificationDto;
+import co.codewizards.cloudstore.core.dto.DirectoryDto;
+import co.codewizards.cloudstore.core.dto.FileChunkDto;
+import co.codewizards.cloudstore.core.dto.ModificationDto;
+import co.codewizards.cloudstore.core.dto.NormalFileDto;
+import co.codewizards.cloudstore.core.dto.RepoFileDto;
+import co.codewizards.cloudstore.core.dto.RepositoryDto;
+import co.codewizards.cloudstore.core.dto.SymlinkDto;
+import co.codewizards.cloudstore.core.dto.jaxb.CloudStoreJaxbContext;
+
+/**
+ * Tests the {@link BinaryDtoCodec} by comparing the XML of the original DTO with the XML of the
+ * DTO written and read back by the codec. The XML is what was transferred before the codec existed.
+ */
+public class BinaryDtoCodecTest {
+
+	@Test
+	public void changeSetDto() throws Exception {
+		final RepositoryDto repositoryDto = new RepositoryDto();
+		repositoryDto.setRepositoryId(UUID.randomUUID());
+		repositoryDto.setPublicKey(new byte[] { 1, 2, 3, -128, 127 });
+		repositoryDto.setRevision(4711);
+
+		final CopyModificationDto copyModificationDto = new CopyModificationDto();
+		copyModificationDto.setId(1);
+		copyModificationDto.setLocalRevision(7);
+		copyModificationDto.setFromPath("/a/ä b");
+		copyModificationDto.setToPath("/c/d");
+
+		final DeleteModificationDto deleteModificationDto = new DeleteModificationDto();
+		deleteModificationDto.setId(Long.MAX_VALUE);
+		deleteModificationDto.setLocalRevision(-1);
+		deleteModificationDto.setPath("/a/ä b");
+
+		final DirectoryDto directoryDto = new DirectoryDto();
+		directoryDto.setId(2);
+		directoryDto.setName("");
+		directoryDto.setLocalRevision(3);
+		directoryDto.setLastModified(new Date(1234567890123L));
+		directoryDto.setNeededAsParent(true);
+
+		final SymlinkDto symlinkDto = new SymlinkDto();
+		symlinkDto.setId(3);
+		symlinkDto.setParentId(2L);
+		symlinkDto.setName("link");
+		symlinkDto.setTarget("../target");
+
+		final ChangeSetDto changeSetDto = new ChangeSetDto();
+		changeSetDto.setRepositoryDto(repositoryDto);
+		changeSetDto.setModificationDtos(new ArrayList<ModificationDto>(Arrays.asList(copyModificationDto, deleteModificationDto)));
+		changeSetDto.setRepoFileDtos(new ArrayList<RepoFileDto>(Arrays.asList(directoryDto, symlinkDto, createNormalFileDto())));
+		changeSetDto.setCursor("2:4711:123");
+
+		final ChangeSetDto result = roundTrip(changeSetDto);
+		assertThat(result.getCursor()).isEqualTo("2:4711:123");
+		assertThat(result.getRepoFileDtos().get(0).isNeededAsParent()).isTrue();
+		assertThat(result.getRepoFileDtos().get(1).isNeededAsParent()).isFalse();
+		assertThat(result.getRepositoryDto().getPublicKey()).isEqualTo(repositoryDto.getPublicKey());
+	}
+
+	@Test
+	public void changeSetDtoLastPage() throws Exception {
+		final ChangeSetDto changeSetDto = new ChangeSetDto();
+		changeSetDto.setRepositoryDto(new RepositoryDto());
+
+		final ChangeSetDto result = roundTrip(changeSetDto);
+		assertThat(result.getCursor()).isNull();
+		assertThat(result.getRepositoryDto().getRepositoryId()).isNull();
+		assertThat(result.getRepositoryDto().getPublicKey()).isNull();
+	}
+
+	@Test
+	public void normalFileDtoWithChunks() throws Exception {
+		final NormalFileDto normalFileDto = createNormalFileDto();
+		final NormalFileDto result = roundTrip(normalFileDto);
+		assertThat(result.getFileChunkDtos()).hasSize(2);
+		assertThat(result.getTempFileChunkDtos()).hasSize(1);
+		assertThat(result.getTempFileChunkDtos().get(0).getSha1()).isEqualTo(normalFileDto.getTempFileChunkDtos().get(0).getSha1());
+	}
+
+	@Test
+	public void nonHexSha1() throws Exception {
+		for (final String sha1 : new String[] { "", "ABCDEF", "abc", "0g", "xyzä", sha1("a").toUpperCase() }) {
+			final NormalFileDto normalFileDto = new NormalFileDto();
+			normalFileDto.setName("file");
+			normalFileDto.setSha1(sha1);
+			final FileChunkDto fileChunkDto = new FileChunkDto();
+			fileChunkDto.setSha1(sha1);
+			normalFileDto.getFileChunkDtos().add(fileChunkDto);
+
+			final NormalFileDto result = roundTrip(normalFileDto);
+			assertThat(result.getSha1()).isEqualTo(sha1);
+			assertThat(result.getFileChunkDtos().get(0).getSha1()).isEqualTo(sha1);
+		}
+	}
+
+	@Test
+	public void nulls() throws Exception {
+		final NormalFileDto normalFileDto = new NormalFileDto();
+		normalFileDto.setFileChunkDtos(null);
+		normalFileDto.setTempFileChunkDtos(null);
+		final NormalFileDto result = roundTrip(normalFileDto);
+		assertThat(result.getName()).isNull();
+		assertThat(result.getParentId()).isNull();
+		assertThat(result.getLastModified()).isNull();
+		assertThat(result.getSha1()).isNull();
+
+		final ChangeSetDto changeSetDto = new ChangeSetDto();
+		changeSetDto.setModificationDtos(null);
+		changeSetDto.setRepoFileDtos(null);
+		assertThat(roundTrip(changeSetDto).getRepositoryDto()).isNull();
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryDtoCodec.write(null, out);
+		assertThat(BinaryDtoCodec.read(new ByteArrayInputStream(out.toByteArray()))).isNull();
+	}
+
+	@Test(expected = IOException.class)
+	public void versionMismatch() throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryDtoCodec.write(createNormalFileDto(), out);
+		final byte[] bytes = out.toByteArray();
+		bytes[0] += 2; // the zig-zag-encoded version is incremented by 1
+		BinaryDtoCodec.read(new ByteArrayInputStream(bytes));
+	}
+
+	@Test
+	public void isSupported() {
+		assertThat(BinaryDtoCodec.isSupported(ChangeSetDto.class)).isTrue();
+		assertThat(BinaryDtoCodec.isSupported(RepositoryDto.class)).isTrue();
+		assertThat(BinaryDtoCodec.isSupported(NormalFileDto.class)).isTrue();
+		assertThat(BinaryDtoCodec.isSupported(FileChunkDto.class)).isFalse();
+		assertThat(BinaryDtoCodec.isSupported(String.class)).isFalse();
+		assertThat(BinaryDtoCodec.isSupported(null)).isFalse();
+	}
+
+	private static NormalFileDto createNormalFileDto() {
+		final NormalFileDto normalFileDto = new NormalFileDto();
+		normalFileDto.setId(10);
+		normalFileDto.setParentId(2L);
+		normalFileDto.setName("file.bin");
+		normalFileDto.setLocalRevision(12);
+		normalFileDto.setLastModified(new Date(1400000000000L));
+		normalFileDto.setLength(3 * 1024 * 1024 + 17);
+		normalFileDto.setSha1(sha1("content"));
+		normalFileDto.getFileChunkDtos().add(createFileChunkDto(0, 1024 * 1024, sha1("chunk0")));
+		normalFileDto.getFileChunkDtos().add(createFileChunkDto(1024 * 1024, 2 * 1024 * 1024 + 17, sha1("chunk1")));
+		normalFileDto.getTempFileChunkDtos().add(createFileChunkDto(1024 * 1024, 65536, sha1("temp")));
+		return normalFileDto;
+	}
+
+	private static FileChunkDto createFileChunkDto(final long offset, final int length, final String sha1) {
+		final FileChunkDto fileChunkDto = new FileChunkDto();
+		fileChunkDto.setOffset(offset);
+		fileChunkDto.setLength(length);
+		fileChunkDto.setSha1(sha1);
+		return fileChunkDto;
+	}
+
+	/**
+	 * Writes and reads the given DTO with the {@link BinaryDtoCodec} and asserts that the result's XML equals the original's.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> T roundTrip(final T dto) throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryDtoCodec.write(dto, out);
+		final T result = (T) BinaryDtoCodec.read(new ByteArrayInputStream(out.toByteArray()));
+		assertThat(result).isNotSameAs(dto);
+		assertThat(result.getClass()).isSameAs(dto.getClass());
+		assertThat(toXml(result)).isEqualTo(toXml(dto));
+		return result;
+	}
+
+	private static String toXml(final Object dto) throws Exception {
+		final Marshaller marshaller = CloudStoreJaxbContext.getJaxbContext().createMarshaller();
+		marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+		final StringWriter writer = new StringWriter();
+		marshaller.marshal(dto, writer);
+		return writer.toString();
+	}
+}
@@ -325,8 +325,8 @@ public class FileWatcher {
 					final Path name = ev.context();
 					final Path child = tempDir.resolve(name);
 
-					if (child.toFile().getAbsoluteFile().getName().endsWith(".xml")) {
-						break; // skip xml files!
+					if (child.toFile().getAbsoluteFile().getName().endsWith(".idx")) {
+						continue; // skip index files!
 					}
 					// print out event (uncomment for faster usage)
 					// System.err.format("_processEvents: %s: %s file \n",
@@ -400,8 +400,8 @@ public class FileWatcher {
 					final WatchEvent<Path> ev = cast(event);
 					final Path name = ev.context();
 //					final Path child = tempDir.resolve(name);
-					if (name.toString().endsWith(".xml")) {
-						break; // skip xml files!
+					if (name.toString().endsWith(".idx")) {
+						continue; // skip index files!
 					}
 //					System.err.format("_processEvents: %s: %s file \n", kind.name(), child);
 					if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
@@ -4,8 +4,11 @@ import static co.codewizards.cloudstore.core.oio.OioFileFactory.*;
 import static org.assertj.core.api.Assertions.*;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.util.Collection;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import mockit.Invocation;
 import mockit.Mock;
@@ -13,6 +16,7 @@ import mockit.MockUp;
 import mockit.integration.junit4.JMockit;
 import net.jcip.annotations.NotThreadSafe;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -20,12 +24,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import co.codewizards.cloudstore.client.CloudStoreClient;
+import co.codewizards.cloudstore.core.config.Config;
 import co.codewizards.cloudstore.core.objectfactory.ObjectFactory;
 import co.codewizards.cloudstore.core.oio.File;
 import co.codewizards.cloudstore.core.progress.LoggerProgressMonitor;
+import co.codewizards.cloudstore.core.repo.local.FileChunkingStrategy;
 import co.codewizards.cloudstore.core.repo.local.LocalRepoManager;
 import co.codewizards.cloudstore.core.repo.local.LocalRepoTransaction;
 import co.codewizards.cloudstore.core.repo.sync.RepoToRepoSync;
+import co.codewizards.cloudstore.core.repo.transport.FileWriteStrategy;
 import co.codewizards.cloudstore.local.persistence.FileInProgressMarker;
 import co.codewizards.cloudstore.local.persistence.FileInProgressMarkerDao;
 import co.codewizards.cloudstore.local.transport.TempChunkFileManager;
@@ -45,6 +52,17 @@ public class SyncAbortIT extends AbstractRepoAwareIT {
 	private LocalRepoManager localRepoManagerLocal;
 	private LocalRepoManager localRepoManagerRemote;
 
+	/**
+	 * The tests watch the chunks being written one after the other and interrupt the sync after the first one.
+	 * Thus, all concurrency and all optimisations transferring less data must be switched off.
+	 */
+	private static final String[] SEQUENTIAL_TRANSFER_CONFIG = {
+		RepoToRepoSync.CONFIG_KEY_FILE_CHUNK_PIPELINE_SIZE, "1",
+		RepoToRepoSync.CONFIG_KEY_FILE_SYNC_THREAD_COUNT, "1",
+		RepoToRepoSync.CONFIG_KEY_REUSE_EXISTING_FILE_CHUNKS, "false",
+		RepoToRepoSync.CONFIG_KEY_DELTA_TRANSFER, "false"
+	};
+
 	private enum Sync {
 		/** local to remote */
 		UP,
@@ -57,6 +75,9 @@ public class SyncAbortIT extends AbstractRepoAwareIT {
 	public void before() throws Exception {
 		super.before();
 
+		for (int i = 0; i < SEQUENTIAL_TRANSFER_CONFIG.length; i += 2)
+			System.setProperty(Config.SYSTEM_PROPERTY_PREFIX + SEQUENTIAL_TRANSFER_CONFIG[i], SEQUENTIAL_TRANSFER_CONFIG[i + 1]);
+
 		// I tried to directly mock the RepoToRepoSync in a downstream project and was not able to do so. Mocking the
 		// object factory works well, though => mocking here the ObjectFactory instead to return our actual mock.
 		new MockUp<ObjectFactory>() {
@@ -99,6 +120,15 @@ public class SyncAbortIT extends AbstractRepoAwareIT {
 		assertNoFilesInProgress();
 	}
 
+	@Override
+	@After
+	public void after() throws Exception {
+		for (int i = 0; i < SEQUENTIAL_TRANSFER_CONFIG.length; i += 2)
+			System.clearProperty(Config.SYSTEM_PROPERTY_PREFIX + SEQUENTIAL_TRANSFER_CONFIG[i]);
+
+		super.after();
+	}
+
 	/**
 	 * Special TempChunkFileManager slowing down operations in order to make watching them asynchronously
 	 * more reliable.
@@ -111,13 +141,27 @@ public class SyncAbortIT extends AbstractRepoAwareIT {
 			System.err.println("MockTempChunkFileManager instantiated.");
 		}
 
+		/**
+		 * Number of chunks still written before the next one fails - simulating an interrupted transfer. Once
+		 * reached, all following chunks fail, too - the REST client's retry must not continue the transfer.
+		 * A negative value disables this.
+		 */
+		static final AtomicInteger abortAfterChunkCount = new AtomicInteger(-1);
+
 		@Override
-		protected synchronized File createTempChunkFile(File destFile, long offset, boolean createNewFile) {
-			File result = super.createTempChunkFile(destFile, offset, createNewFile);
-			System.err.println("createTempChunkFile: " + destFile.getName() + "; createNewFile=" + createNewFile);
-			if (createNewFile)
-				sleep(200);
+		public void writeFileDataToTempChunkFile(File destFile, long offset, InputStream in, int length) {
+			if (abortAfterChunkCount.get() >= 0 && abortAfterChunkCount.getAndDecrement() <= 0) {
+				abortAfterChunkCount.set(0);
+				throw new IllegalStateException("Simulated interruption while writing chunk at offset " + offset + " of " + destFile.getName());
+			}
+			super.writeFileDataToTempChunkFile(destFile, offset, in, length);
+		}
 
+		@Override
+		protected File createTempChunkDataFile(File destFile) {
+			File result = super.createTempChunkDataFile(destFile);
+			System.err.println("createTempChunkDataFile: " + destFile.getName());
+			sleep(200);
 			return result;
 		}
 
@@ -164,7 +208,8 @@ public class SyncAbortIT extends AbstractRepoAwareIT {
 
 		try (RepoToRepoSync repoToRepoSync = RepoToRepoSync.create(getLocalRootWithPathPrefix(),
 				remoteRootURLWithPathPrefix);) {
-			fileWatcher.createDeleteChunks(repoToRepoSync, localRepoManagerLocal, new LoggerProgressMonitor(logger), 1, 2);
+			// all chunks are appended to the already existing data file, which is deleted at the end.
+			fileWatcher.createDeleteChunks(repoToRepoSync, localRepoManagerLocal, new LoggerProgressMonitor(logger), 0, 1);
 		}
 
 		assertThatFilesInRepoAreCorrect(remoteRoot);
@@ -197,7 +242,7 @@ public class SyncAbortIT extends AbstractRepoAwareIT {
 		try (RepoToRepoSync repoToRepoSync = RepoToRepoSync.create(getLocalRootWithPathPrefix(),
 				remoteRootURLWithPathPrefix);) {
 			fileWatcher.createDeleteChunks(repoToRepoSync, localRepoManagerRemote, new LoggerProgressMonitor(logger),
-					1, 2);
+					0, 1);
 		}
 
 		afterSyncCompleteAssertionsAndCloseOperations(localRoot);
@@ -226,8 +271,8 @@ public class SyncAbortIT extends AbstractRepoAwareIT {
 
 		try (RepoToRepoSync repoToRepoSync = RepoToRepoSync.create(getLocalRootWithPathPrefix(),
 				remoteRootURLWithPathPrefix);) {
-			fileWatcher.createDeleteChunks(repoToRepoSync, localRepoManagerLocal, new LoggerProgressMonitor(logger), 2,
-					2);
+			fileWatcher.createDeleteChunks(repoToRepoSync, localRepoManagerLocal, new LoggerProgressMonitor(logger), 1,
+					1);
 		}
 
 		afterSyncCompleteAssertionsAndCloseOperations(remoteRoot);
@@ -256,8 +301,8 @@ public class SyncAbortIT extends AbstractRepoAwareIT {
 
 		try (RepoToRepoSync repoToRepoSync = RepoToRepoSync.create(getLocalRootWithPathPrefix(),
 				remoteRootURLWithPathPrefix);) {
-			fileWatcher.createDeleteChunks(repoToRepoSync, localRepoManagerLocal, new LoggerProgressMonitor(logger), 2,
-					2);
+			fileWatcher.createDeleteChunks(repoToRepoSync, localRepoManagerLocal, new LoggerProgressMonitor(logger), 1,
+					1);
 		}
 
 		afterSyncCompleteAssertionsAndCloseOperations(remoteRoot);
@@ -287,10 +332,10 @@ public class SyncAbortIT extends AbstractRepoAwareIT {
 		try (RepoToRepoSync repoToRepoSync = RepoToRepoSync.create(getLocalRootWithPathPrefix(),
 				remoteRootURLWithPathPrefix);) {
 			// chunks that will differ after modification of the source file
-			// will be overwritten without deletion; so no difference in amount
+			// will be appended to the existing data file again; so no difference in amount
 			// of creation/deletion.
-			fileWatcher.createDeleteChunks(repoToRepoSync, localRepoManagerLocal, new LoggerProgressMonitor(logger), 1,
-					2, file.length());
+			fileWatcher.createDeleteChunks(repoToRepoSync, localRepoManagerLocal, new LoggerProgressMonitor(logger), 0,
+					1, file.length());
 		}
 
 		afterSyncCompleteAssertionsAndCloseOperations(remoteRoot);
@@ -320,11 +365,10 @@ public class SyncAbortIT extends AbstractRepoAwareIT {
 
 		try (RepoToRepoSync repoToRepoSync = RepoToRepoSync.create(getLocalRootWithPathPrefix(),
 				remoteRootURLWithPathPrefix);) {
-			// because the chunk will be moved, the move operation is also observed as create/delete; so for the first
-			// chunk (move: 1 create, 1 delete), for the second (1 create); after appending the chunks to the
-			// destination file, 2 deletes.
-			fileWatcher.createDeleteChunks(repoToRepoSync, localRepoManagerLocal, new LoggerProgressMonitor(logger), 2,
-					3, newFileName);
+			// because the data file will be moved, the move operation is also observed as create/delete (1 create,
+			// 1 delete); after writing the chunks to the destination file, 1 delete.
+			fileWatcher.createDeleteChunks(repoToRepoSync, localRepoManagerLocal, new LoggerProgressMonitor(logger), 1,
+					2, newFileName);
 		}
 
 		afterSyncCompleteAssertionsAndCloseOperations(remoteRoot);
@@ -354,11 +398,10 @@ public class SyncAbortIT extends AbstractRepoAwareIT {
 
 		try (RepoToRepoSync repoToRepoSync = RepoToRepoSync.create(getLocalRootWithPathPrefix(),
 				remoteRootURLWithPathPrefix);) {
-			// because the chunk will be moved, the move operation is also observed as create/delete; so for the first
-			// chunk (move: 1 create, 1 delete), for the second (1 create); after appending the chunks to the
-			// destination file, 2 deletes.
-			fileWatcher.createDeleteChunks(repoToRepoSync, localRepoManagerRemote, new LoggerProgressMonitor(logger), 2,
-					3, newFileName);
+			// because the data file will be moved, the move operation is also observed as create/delete (1 create,
+			// 1 delete); after writing the chunks to the destination file, 1 delete.
+			fileWatcher.createDeleteChunks(repoToRepoSync, localRepoManagerRemote, new LoggerProgressMonitor(logger), 1,
+					2, newFileName);
 		}
 
 		afterSyncCompleteAssertionsAndCloseOperations(localRoot);
@@ -397,6 +440,95 @@ public class SyncAbortIT extends AbstractRepoAwareIT {
 		afterSyncCompleteAssertionsAndCloseOperations(remoteRoot);
 	}
 
+	@Test
+	public void syncAbortResume_remoteToLocal_modifySource_allFeatures() throws Exception {
+		syncAbortResume_modifySource_allFeatures(Sync.DOWN, FileWriteStrategy.directAfterTransfer);
+	}
+
+	@Test
+	public void syncAbortResume_localToRemote_modifySource_allFeatures() throws Exception {
+		syncAbortResume_modifySource_allFeatures(Sync.UP, FileWriteStrategy.replaceAfterTransfer);
+	}
+
+	/**
+	 * Interrupts the transfer of a modified file with pipelining, content-defined chunking, delta-transfer and reuse of
+	 * existing chunks enabled. Then, data is inserted into the source file - shifting the chunks - and the transfer
+	 * is resumed. The chunks left from the interrupted transfer must not corrupt the file.
+	 */
+	private void syncAbortResume_modifySource_allFeatures(final Sync syncDirection, final FileWriteStrategy fileWriteStrategy) throws Exception {
+		final String[] config = {
+			RepoToRepoSync.CONFIG_KEY_FILE_CHUNK_PIPELINE_SIZE, "4",
+			RepoToRepoSync.CONFIG_KEY_REUSE_EXISTING_FILE_CHUNKS, "true",
+			RepoToRepoSync.CONFIG_KEY_DELTA_TRANSFER, "true",
+			FileChunkingStrategy.CONFIG_KEY, FileChunkingStrategy.contentDefined.name(),
+			FileWriteStrategy.CONFIG_KEY, fileWriteStrategy.name()
+		};
+		for (int i = 0; i < config.length; i += 2)
+			System.setProperty(Config.SYSTEM_PROPERTY_PREFIX + config[i], config[i + 1]);
+		try {
+			final File fromRoot = syncDirection == Sync.UP ? localRoot : remoteRoot;
+			final File file = createFileWithChunks(fromRoot, fromRoot, "g", 8);
+			sync();
+			assertNoFilesInProgress();
+
+			// modify every chunk - without changing the file's length
+			for (int i = 0; i < 8; ++i)
+				modifyFile(file, i * CHUNK_SIZE + 1000, 100, false);
+
+			MockTempChunkFileManager.abortAfterChunkCount.set(2);
+			try {
+				sync();
+			} catch (final RuntimeException x) {
+				logger.info("syncAbortResume_modifySource_allFeatures: Sync was interrupted as expected: " + x);
+			} finally {
+				MockTempChunkFileManager.abortAfterChunkCount.set(-1);
+			}
+			assertFilesInProgress(syncDirection, 1);
+
+			// insert data - shifting all following chunks, which were partially stored temporarily by the interrupted sync
+			modifyFile(file, 500000, 3000, true);
+			sync();
+
+			afterSyncCompleteAssertionsAndCloseOperations(fromRoot);
+		} finally {
+			for (int i = 0; i < config.length; i += 2)
+				System.clearProperty(Config.SYSTEM_PROPERTY_PREFIX + config[i]);
+		}
+	}
+
+	private void sync() {
+		try (RepoToRepoSync repoToRepoSync = RepoToRepoSync.create(getLocalRootWithPathPrefix(),
+				remoteRootURLWithPathPrefix);) {
+			repoToRepoSync.sync(new LoggerProgressMonitor(logger));
+		}
+	}
+
+	/**
+	 * Writes {@code length} random bytes at the given {@code offset} into the given {@code file} - either replacing
+	 * or inserting them.
+	 */
+	private static void modifyFile(final File file, final long offset, final int length, final boolean insert) throws IOException {
+		final long lastModified = file.lastModified();
+		final byte[] data = new byte[length];
+		random.nextBytes(data);
+		final RandomAccessFile raf = file.createRandomAccessFile("rw");
+		try {
+			byte[] tail = new byte[0];
+			if (insert) {
+				tail = new byte[(int) (raf.length() - offset)];
+				raf.seek(offset);
+				raf.readFully(tail);
+			}
+			raf.seek(offset);
+			raf.write(data);
+			raf.write(tail);
+		} finally {
+			raf.close();
+		}
+		// make sure, the modification is detected - even if the file's length did not change
+		file.setLastModified(lastModified + 2000);
+	}
+
 	/**
 	 * Assert and close operations needed on every test!
 	 *
@@ -1,18 +1,22 @@
 package co.codewizards.cloudstore.test.repotorepo;
 
 import static co.codewizards.cloudstore.core.oio.OioFileFactory.*;
+import static java.nio.file.Files.*;
 import static org.assertj.core.api.Assertions.*;
 
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.UUID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import co.codewizards.cloudstore.client.CloudStoreClient;
+import co.codewizards.cloudstore.core.config.Config;
 import co.codewizards.cloudstore.core.oio.File;
 import co.codewizards.cloudstore.core.progress.LoggerProgressMonitor;
 import co.codewizards.cloudstore.core.repo.local.LocalRepoManager;
 import co.codewizards.cloudstore.core.repo.sync.RepoToRepoSync;
+import co.codewizards.cloudstore.local.LocalRepoSync;
 import co.codewizards.cloudstore.test.AbstractRepoAwareIT;
 
 /**
@@ -218,4 +222,37 @@ public abstract class AbstractRepoToRepoSyncIT extends AbstractRepoAwareIT
 		assertDirectoriesAreEqualRecursively(getLocalRootWithPathPrefix(), getRemoteRootWithPathPrefix());
 	}
 
+	protected void syncMovedFileWithIntermediateCommits() throws Exception {
+		// Committing after every file puts the copy and the delete recorded for the move into different revisions.
+		System.setProperty(Config.SYSTEM_PROPERTY_PREFIX + LocalRepoSync.CONFIG_KEY_COMMIT_FILE_COUNT, "1");
+		try {
+			syncFromRemoteToLocal();
+
+			final File r_child_1_b = createFile(createFile(remoteRoot, "1 {11 11ä11#+} 1"), "b");
+			assertThat(r_child_1_b.isFile()).isTrue();
+
+			final File r_child_2_xxx = createFile(createFile(remoteRoot, "2"), "xxx");
+			assertThat(r_child_2_xxx.exists()).isFalse();
+
+			final File l_child_1_b = createFile(createFile(localRoot, "1 {11 11ä11#+} 1"), "b");
+			final File l_child_2_xxx = createFile(createFile(localRoot, "2"), "xxx");
+			final Object fileKey = readAttributes(l_child_1_b.getIoFile().toPath(), BasicFileAttributes.class).fileKey();
+
+			r_child_1_b.move(r_child_2_xxx);
+
+			final RepoToRepoSync repoToRepoSync = RepoToRepoSync.create(getLocalRootWithPathPrefix(), remoteRootURLWithPathPrefix);
+			repoToRepoSync.sync(new LoggerProgressMonitor(logger));
+			repoToRepoSync.close();
+
+			assertThat(l_child_1_b.exists()).isFalse();
+			assertThat(l_child_2_xxx.isFile()).isTrue();
+			if (fileKey != null) // the file was moved, i.e. neither copied nor transferred
+				assertThat(readAttributes(l_child_2_xxx.getIoFile().toPath(), BasicFileAttributes.class).fileKey()).isEqualTo(fileKey);
+
+			assertDirectoriesAreEqualRecursively(getLocalRootWithPathPrefix(), getRemoteRootWithPathPrefix());
+		} finally {
+			System.clearProperty(Config.SYSTEM_PROPERTY_PREFIX + LocalRepoSync.CONFIG_KEY_COMMIT_FILE_COUNT);
+		}
+	}
+
 }
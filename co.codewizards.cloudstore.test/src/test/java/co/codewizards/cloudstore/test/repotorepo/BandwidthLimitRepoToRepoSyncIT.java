@@ -0,0 +1,59 @@
+package co.codewizards.cloudstore.test.repotorepo;
+
+import static co.codewizards.cloudstore.core.oio.OioFileFactory.*;
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.codewizards.cloudstore.core.config.Config;
+import co.codewizards.cloudstore.core.io.BandwidthLimiter;
+import co.codewizards.cloudstore.core.oio.File;
+import co.codewizards.cloudstore.core.progress.LoggerProgressMonitor;
+import co.codewizards.cloudstore.core.progress.NullProgressMonitor;
+import co.codewizards.cloudstore.core.repo.local.LocalRepoManager;
+import co.codewizards.cloudstore.core.repo.sync.RepoToRepoSync;
+import co.codewizards.cloudstore.test.AbstractRepoAwareIT;
+
+public class BandwidthLimitRepoToRepoSyncIT extends AbstractRepoAwareIT
+{
+	private static final Logger logger = LoggerFactory.getLogger(BandwidthLimitRepoToRepoSyncIT.class);
+
+	private static final long BYTES_PER_SECOND = 256 * 1024;
+
+	@After
+	public void clearBandwidthLimit() {
+		System.clearProperty(Config.SYSTEM_PROPERTY_PREFIX + BandwidthLimiter.CONFIG_KEY_REMOTE_UPLOAD);
+	}
+
+	@Test
+	public void syncUpWithBandwidthLimit() throws Exception {
+		createLocalAndRemoteRepo();
+		final LocalRepoManager localRepoManagerLocal = localRepoManagerFactory.createLocalRepoManagerForExistingRepository(localRoot);
+
+		final File child_1 = createDirectory(getLocalRootWithPathPrefix(), "1");
+		final File child_1_a = createFileWithChunks(localRoot, child_1, "a", 2);
+		final long fileLength = child_1_a.length();
+
+		localRepoManagerLocal.localSync(new NullProgressMonitor());
+
+		System.setProperty(Config.SYSTEM_PROPERTY_PREFIX + BandwidthLimiter.CONFIG_KEY_REMOTE_UPLOAD, Long.toString(BYTES_PER_SECOND));
+
+		final long syncStartTimestamp = System.currentTimeMillis();
+		final RepoToRepoSync repoToRepoSync = RepoToRepoSync.create(getLocalRootWithPathPrefix(), remoteRootURLWithPathPrefix);
+		repoToRepoSync.sync(new LoggerProgressMonitor(logger));
+		repoToRepoSync.close();
+		localRepoManagerLocal.close();
+		final long syncDuration = System.currentTimeMillis() - syncStartTimestamp;
+
+		// The bucket is initially empty => the upload cannot be faster than the limit.
+		final long minSyncDuration = fileLength * 1000L / BYTES_PER_SECOND;
+		logger.info("syncUpWithBandwidthLimit: fileLength={} syncDuration={} ms minSyncDuration={} ms", fileLength, syncDuration, minSyncDuration);
+		assertThat(syncDuration).isGreaterThanOrEqualTo(minSyncDuration * 9 / 10);
+
+		assertThat(createFile(getRemoteRootWithPathPrefix(), "1", "a").length()).isEqualTo(fileLength);
+		assertDirectoriesAreEqualRecursively(getLocalRootWithPathPrefix(), getRemoteRootWithPathPrefix());
+	}
+}
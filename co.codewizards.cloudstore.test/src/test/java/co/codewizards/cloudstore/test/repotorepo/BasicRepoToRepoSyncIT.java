@@ -33,4 +33,10 @@ public class BasicRepoToRepoSyncIT extends AbstractRepoToRepoSyncIT
 	public void syncMovedFileToNewDir() throws Exception {
 		super.syncMovedFileToNewDir();
 	}
+
+	@Override
+	@Test
+	public void syncMovedFileWithIntermediateCommits() throws Exception {
+		super.syncMovedFileWithIntermediateCommits();
+	}
 }
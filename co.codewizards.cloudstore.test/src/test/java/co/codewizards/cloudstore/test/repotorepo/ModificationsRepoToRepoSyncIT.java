@@ -4,6 +4,7 @@ import static co.codewizards.cloudstore.core.oio.OioFileFactory.*;
 import static org.assertj.core.api.Assertions.*;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.util.List;
 
@@ -11,6 +12,7 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import co.codewizards.cloudstore.core.dto.FileChunkDto;
 import co.codewizards.cloudstore.core.oio.File;
 import co.codewizards.cloudstore.core.progress.LoggerProgressMonitor;
 import co.codewizards.cloudstore.core.repo.sync.RepoToRepoSync;
@@ -99,6 +101,41 @@ public class ModificationsRepoToRepoSyncIT extends AbstractRepoToRepoSyncIT
 		assertThat(l_collision.getName()).startsWith("2.");
 	}
 
+	@Test
+	public void syncWithLargeFileModifiedInPlace() throws Exception {
+		syncFromRemoteToLocal();
+
+		final File r_big = createFile(createFile(remoteRoot, "2"), "big");
+		final byte[] data = new byte[2 * FileChunkDto.MAX_LENGTH + 12345];
+		random.nextBytes(data);
+		final OutputStream out = r_big.createOutputStream();
+		try {
+			out.write(data);
+		} finally {
+			out.close();
+		}
+		sync();
+
+		// Modified chunks are transferred as delta - first from the server, then to the server.
+		modifyFileRandomly(r_big);
+		sync();
+
+		final File l_big = createFile(createFile(localRoot, "2"), "big");
+		assertThat(l_big.length()).isEqualTo(r_big.length());
+		modifyFileRandomly(l_big);
+		sync();
+
+		assertThatNoCollisionInRepo(localRoot);
+		assertThatNoCollisionInRepo(remoteRoot);
+		assertDirectoriesAreEqualRecursively(getLocalRootWithPathPrefix(), getRemoteRootWithPathPrefix());
+	}
+
+	private void sync() {
+		final RepoToRepoSync repoToRepoSync = RepoToRepoSync.create(localRoot, remoteRootURLWithPathPrefix);
+		repoToRepoSync.sync(new LoggerProgressMonitor(logger));
+		repoToRepoSync.close();
+	}
+
 	private void modifyFileRandomly(final File file) throws IOException {
 		final RandomAccessFile raf = file.createRandomAccessFile("rw");
 		try {
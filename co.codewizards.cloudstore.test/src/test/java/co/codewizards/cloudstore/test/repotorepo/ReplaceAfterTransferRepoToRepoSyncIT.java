@@ -0,0 +1,95 @@
+package co.codewizards.cloudstore.test.repotorepo;
+
+import static co.codewizards.cloudstore.core.oio.OioFileFactory.*;
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.codewizards.cloudstore.core.config.Config;
+import co.codewizards.cloudstore.core.oio.File;
+import co.codewizards.cloudstore.core.progress.LoggerProgressMonitor;
+import co.codewizards.cloudstore.core.progress.NullProgressMonitor;
+import co.codewizards.cloudstore.core.repo.local.LocalRepoManager;
+import co.codewizards.cloudstore.core.repo.local.LocalRepoTransaction;
+import co.codewizards.cloudstore.core.repo.sync.RepoToRepoSync;
+import co.codewizards.cloudstore.core.repo.transport.FileWriteStrategy;
+import co.codewizards.cloudstore.core.util.HashUtil;
+import co.codewizards.cloudstore.local.persistence.NormalFile;
+import co.codewizards.cloudstore.local.persistence.RepoFileDao;
+import co.codewizards.cloudstore.test.AbstractRepoAwareIT;
+
+public class ReplaceAfterTransferRepoToRepoSyncIT extends AbstractRepoAwareIT
+{
+	private static final Logger logger = LoggerFactory.getLogger(ReplaceAfterTransferRepoToRepoSyncIT.class);
+
+	@Before
+	public void setFileWriteStrategy() {
+		System.setProperty(Config.SYSTEM_PROPERTY_PREFIX + FileWriteStrategy.CONFIG_KEY, FileWriteStrategy.replaceAfterTransfer.name());
+	}
+
+	@After
+	public void clearFileWriteStrategy() {
+		System.clearProperty(Config.SYSTEM_PROPERTY_PREFIX + FileWriteStrategy.CONFIG_KEY);
+	}
+
+	@Test
+	public void syncUpNewAndModifiedFile() throws Exception {
+		createLocalAndRemoteRepo();
+		final LocalRepoManager localRepoManagerLocal = localRepoManagerFactory.createLocalRepoManagerForExistingRepository(localRoot);
+
+		final File child_1 = createDirectory(getLocalRootWithPathPrefix(), "1");
+		final File child_1_a = createFileWithChunks(localRoot, child_1, "a", 3);
+
+		// All chunks are transferred => the file is not read again after the transfer.
+		localRepoManagerLocal.localSync(new NullProgressMonitor());
+		sync();
+		assertDirectoriesAreEqualRecursively(getLocalRootWithPathPrefix(), getRemoteRootWithPathPrefix());
+		assertRemoteSha1AndChunks(child_1_a, 3);
+
+		// Only the modified chunk is transferred => the remaining data is copied from the old file and hashed.
+		final byte[] buf = new byte[1000];
+		random.nextBytes(buf);
+		try (RandomAccessFile raf = child_1_a.createRandomAccessFile("rw");) {
+			raf.seek(CHUNK_SIZE + 123);
+			raf.write(buf);
+		}
+		localRepoManagerLocal.localSync(new NullProgressMonitor());
+		sync();
+		assertDirectoriesAreEqualRecursively(getLocalRootWithPathPrefix(), getRemoteRootWithPathPrefix());
+		assertRemoteSha1AndChunks(child_1_a, 3);
+
+		localRepoManagerLocal.close();
+	}
+
+	private void sync() {
+		try (RepoToRepoSync repoToRepoSync = RepoToRepoSync.create(getLocalRootWithPathPrefix(), remoteRootURLWithPathPrefix);) {
+			repoToRepoSync.sync(new LoggerProgressMonitor(logger));
+		}
+	}
+
+	private void assertRemoteSha1AndChunks(final File localFile, final int chunkCount) throws IOException {
+		final String expectedSha1;
+		try (InputStream in = localFile.createInputStream();) {
+			expectedSha1 = HashUtil.sha1(in);
+		}
+
+		try (LocalRepoManager localRepoManagerRemote = localRepoManagerFactory.createLocalRepoManagerForExistingRepository(remoteRoot);) {
+			final File remoteFile = createFile(getRemoteRootWithPathPrefix(), "1", localFile.getName()).getCanonicalFile();
+			try (LocalRepoTransaction transaction = localRepoManagerRemote.beginReadTransaction();) {
+				final NormalFile normalFile = (NormalFile) transaction.getDao(RepoFileDao.class).getRepoFile(localRepoManagerRemote.getLocalRoot(), remoteFile);
+				assertThat(normalFile.getSha1()).isEqualTo(expectedSha1);
+				assertThat(normalFile.getLength()).isEqualTo(localFile.length());
+				assertThat(normalFile.getFileChunks()).hasSize(chunkCount);
+				transaction.commit();
+			}
+		}
+	}
+}